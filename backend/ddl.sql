@@ -88,14 +88,82 @@ CREATE TABLE plates (
   product_id      INT PRIMARY KEY,
   speed_value     INT,
   pressure_value  INT,
-  lvdt            INT,
+  lvdt            BIGINT,
   thickness       INT,
   length          INT,
   width           INT,
   ir_piro         INT,
+  -- aynı LVDT iki kez kaydedilmesin (OCR kaydı idempotent). Var olan tabloda:
+  -- ALTER TABLE plates MODIFY lvdt BIGINT, ADD UNIQUE KEY uk_plates_lvdt (lvdt);
+  UNIQUE KEY uk_plates_lvdt (lvdt),
   CONSTRAINT fk_plates_product
     FOREIGN KEY (product_id) REFERENCES products(product_id)
     ON DELETE CASCADE ON UPDATE CASCADE
 ) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4;
 
+-- ==========================
+-- OCR GEÇMİŞİ (OcrHistoryStore, write-behind)
+-- ==========================
+DROP TABLE IF EXISTS ocr_item;
+DROP TABLE IF EXISTS ocr_job;
+
+CREATE TABLE ocr_job (
+  job_id        VARCHAR(64)  PRIMARY KEY,
+  created_at    DATETIME(3)  NOT NULL,
+  source_image  VARCHAR(255),
+  results_csv   VARCHAR(512),
+  item_count    INT,
+  raw_gz        MEDIUMBLOB,          -- Python cevabındaki items, gzip'li JSON
+  KEY idx_ocr_job_created (created_at)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4;
+
+CREATE TABLE ocr_item (
+  id         BIGINT PRIMARY KEY AUTO_INCREMENT,
+  job_id     VARCHAR(64) NOT NULL,
+  roi_index  INT,
+  lvdt       BIGINT,
+  KEY idx_ocr_item_lvdt (lvdt),
+  CONSTRAINT fk_ocr_item_job
+    FOREIGN KEY (job_id) REFERENCES ocr_job(job_id)
+    ON DELETE CASCADE
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4;
+
+-- ==========================
+-- TOPLU YENİDEN OCR (OcrReprocessService)
+-- ==========================
+DROP TABLE IF EXISTS ocr_reprocess_diff;
+DROP TABLE IF EXISTS ocr_reprocess_run;
+
+CREATE TABLE ocr_reprocess_run (
+  run_id       BIGINT PRIMARY KEY AUTO_INCREMENT,
+  archive_dir  VARCHAR(512)  NOT NULL,
+  started_at   DATETIME(3)   NOT NULL,
+  updated_at   DATETIME(3)   NOT NULL,
+  finished_at  DATETIME(3),
+  checkpoint   VARCHAR(1024),          -- son tamamlanan parçanın son dosyası (arşive göre yol)
+  processed    INT NOT NULL DEFAULT 0,
+  failed       INT NOT NULL DEFAULT 0,
+  diffs        INT NOT NULL DEFAULT 0,
+  status       VARCHAR(16)   NOT NULL, -- RUNNING / PAUSED / DONE / FAILED
+  KEY idx_reprocess_archive (archive_dir(191), status)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4;
+
+CREATE TABLE ocr_reprocess_diff (
+  id          BIGINT PRIMARY KEY AUTO_INCREMENT,
+  run_id      BIGINT        NOT NULL,
+  image_path  VARCHAR(1024) NOT NULL,
+  roi_index   INT,
+  new_lvdt    BIGINT,                  -- yeni modelin okuduğu
+  plate_lvdt  BIGINT,                  -- plates'teki en yakın LVDT
+  product_id  BIGINT,
+  distance    INT,
+  kind        VARCHAR(16)   NOT NULL,  -- MISMATCH / UNKNOWN / NO_READ / ERROR
+  detail      VARCHAR(255),
+  created_at  DATETIME(3)   NOT NULL,
+  KEY idx_reprocess_diff_run (run_id, kind),
+  CONSTRAINT fk_reprocess_diff_run
+    FOREIGN KEY (run_id) REFERENCES ocr_reprocess_run(run_id)
+    ON DELETE CASCADE
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4;
+
 SET FOREIGN_KEY_CHECKS = 1;
@@ -0,0 +1,40 @@
+package com.example.uretimveri.config;
+
+import jakarta.servlet.MultipartConfigElement;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.web.servlet.MultipartProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.util.unit.DataSize;
+
+// Tek istek sınırı en büyük meşru istekten türetilir: recognize-batch'in ocr.batch.max-files dosyası,
+// her biri max-file-size kadar, artı form alanları/sınırlar için pay. Elle verilen
+// spring.servlet.multipart.max-request-size varsa o kullanılır.
+@Configuration
+@Slf4j
+public class MultipartConfig {
+
+    static final DataSize FORM_OVERHEAD = DataSize.ofMegabytes(1);
+
+    @Bean
+    public MultipartConfigElement multipartConfigElement(MultipartProperties props,
+                                                         @Value("${ocr.batch.max-files:10}") int maxFiles,
+                                                         @Value("${spring.servlet.multipart.max-request-size:}") String explicitRequestSize) {
+        props.setMaxRequestSize(maxRequestSize(props.getMaxFileSize(), maxFiles, explicitRequestSize));
+        return props.createMultipartConfig();
+    }
+
+    static DataSize maxRequestSize(DataSize maxFileSize, int maxFiles, String explicitRequestSize) {
+        if (maxFiles < 1) throw new IllegalStateException("ocr.batch.max-files en az 1 olmalı: " + maxFiles);
+        DataSize derived = DataSize.ofBytes(Math.multiplyExact(maxFileSize.toBytes(), maxFiles) + FORM_OVERHEAD.toBytes());
+        if (explicitRequestSize == null || explicitRequestSize.isBlank()) return derived;
+
+        DataSize explicit = DataSize.parse(explicitRequestSize.trim());
+        if (explicit.compareTo(derived) < 0) {
+            log.warn("spring.servlet.multipart.max-request-size={} < {} x {}: dolu bir recognize-batch reddedilir",
+                    explicit, maxFiles, maxFileSize);
+        }
+        return explicit;
+    }
+}
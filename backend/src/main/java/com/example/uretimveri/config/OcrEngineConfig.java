@@ -0,0 +1,29 @@
+package com.example.uretimveri.config;
+
+import com.example.uretimveri.ocr.OcrEngine;
+import com.example.uretimveri.service.HttpOcrEngine;
+import com.example.uretimveri.service.OnnxOcrEngine;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+
+// ocr.engine ile motor seçimi. Motorlar @Lazy: seçilmeyen hiç oluşturulmaz (onnx model dosyası
+// yoksa http kurulumu etkilenmez). Bilinmeyen değerde uygulama açılışta net bir mesajla durur.
+@Configuration
+public class OcrEngineConfig {
+
+    @Bean(destroyMethod = "") // kapatma motorun kendi bean'inde
+    @Primary
+    public OcrEngine ocrEngine(@Value("${ocr.engine:http}") String engine,
+                               ObjectProvider<HttpOcrEngine> http,
+                               ObjectProvider<OnnxOcrEngine> onnx) {
+        return switch (engine.trim().toLowerCase()) {
+            case "http" -> http.getObject();
+            case "onnx" -> onnx.getObject();
+            default -> throw new IllegalStateException(
+                    "Bilinmeyen ocr.engine değeri: '" + engine + "' (geçerli değerler: http, onnx)");
+        };
+    }
+}
@@ -1,6 +1,7 @@
 package com.example.uretimveri.config;
 
 import com.example.uretimveri.repository.UserRepository;
+import jakarta.servlet.DispatcherType;
 
 import java.util.List;
 
@@ -43,10 +44,15 @@ public class SecurityConfig {
                     req -> "GET".equalsIgnoreCase(req.getMethod()) && "/api/slabs/recognize/callback".equals(req.getServletPath())
                 )
                 .csrfTokenRepository(CookieCsrfTokenRepository.withHttpOnlyFalse())
+                // maskeli (_csrf meta) ve ham (XSRF-TOKEN çerezi) token birlikte kabul edilir
+                .csrfTokenRequestHandler(new SpaCsrfTokenRequestHandler())
             )
 
             // Yetkiler
             .authorizeHttpRequests(auth -> auth
+                // Mono/DeferredResult dönen uçların async dispatch'i (ilk istek zaten yetkilendirildi)
+                .dispatcherTypeMatchers(DispatcherType.ASYNC).permitAll()
+
                 .requestMatchers("/", "/index", "/login", "/doLogin",
                         "/register", "/doRegister",
                         "/css/**", "/js/**", "/images/**", "/webjars/**", "/img/**",
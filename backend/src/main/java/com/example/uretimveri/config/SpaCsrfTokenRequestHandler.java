@@ -0,0 +1,31 @@
+package com.example.uretimveri.config;
+
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.security.web.csrf.CsrfToken;
+import org.springframework.security.web.csrf.CsrfTokenRequestAttributeHandler;
+import org.springframework.security.web.csrf.CsrfTokenRequestHandler;
+import org.springframework.security.web.csrf.XorCsrfTokenRequestAttributeHandler;
+
+import java.util.function.Supplier;
+
+// Sayfaya basılan token (_csrf meta/hidden input) BREACH'e karşı XOR ile maskeli kalır; fetch ile
+// XSRF-TOKEN çerezinden okunup X-XSRF-TOKEN başlığında gelen ham token da kabul edilir.
+// Varsayılan XorCsrfTokenRequestAttributeHandler ham çerez değerini reddeder (her JS isteği 403).
+final class SpaCsrfTokenRequestHandler implements CsrfTokenRequestHandler {
+
+    private final CsrfTokenRequestHandler plain = new CsrfTokenRequestAttributeHandler();
+    private final CsrfTokenRequestHandler xor = new XorCsrfTokenRequestAttributeHandler();
+
+    @Override
+    public void handle(HttpServletRequest request, HttpServletResponse response, Supplier<CsrfToken> csrfToken) {
+        xor.handle(request, response, csrfToken);
+    }
+
+    @Override
+    public String resolveCsrfTokenValue(HttpServletRequest request, CsrfToken csrfToken) {
+        String value = plain.resolveCsrfTokenValue(request, csrfToken);
+        if (value != null && value.equals(csrfToken.getToken())) return value; // çerezden ham token
+        return xor.resolveCsrfTokenValue(request, csrfToken);                   // sayfadan maskeli token
+    }
+}
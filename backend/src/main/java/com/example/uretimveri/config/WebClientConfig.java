@@ -1,12 +1,19 @@
 // src/main/java/com/example/config/WebClientConfig.java
 package com.example.uretimveri.config;
 
+import io.netty.channel.ChannelOption;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.context.properties.ConfigurationProperties;
 import org.springframework.context.annotation.*;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.client.reactive.ReactorClientHttpConnector;
+import org.springframework.util.unit.DataSize;
 import org.springframework.web.reactive.function.client.WebClient;
 import org.springframework.web.server.ResponseStatusException;
+import reactor.netty.http.client.HttpClient;
+import reactor.netty.resources.ConnectionProvider;
+
+import java.time.Duration;
 
 @Configuration
 @ConfigurationProperties(prefix = "python.api")
@@ -14,22 +21,41 @@ public class WebClientConfig {
 
     @Bean
     public WebClient pythonClient(
-            @Value("${python.api.base:http://127.0.0.1:8000}") String baseUrl,
-            @Value("${python.api.token:}") String token
+            @Value("${python.api.token:}") String token,
+            @Value("${python.api.connect-timeout:2s}") Duration connectTimeout,
+            @Value("${python.api.response-timeout:60s}") Duration responseTimeout,
+            @Value("${python.api.max-connections:16}") int maxConnections,
+            @Value("${python.api.pending-acquire-max:64}") int pendingAcquireMax,
+            @Value("${python.api.pending-acquire-timeout:5s}") Duration pendingAcquireTimeout,
+            @Value("${python.api.max-in-memory-size:1MB}") DataSize maxInMemorySize
     ) {
+        // Bağlantı havuzu sınırlı: Python tıkanınca bekleyen istek sayısı ve süresi de sınırlı kalır
+        ConnectionProvider pool = ConnectionProvider.builder("python-api")
+                .maxConnections(maxConnections)
+                .pendingAcquireMaxCount(pendingAcquireMax)
+                .pendingAcquireTimeout(pendingAcquireTimeout)
+                .maxIdleTime(Duration.ofSeconds(30))
+                .build();
+        HttpClient http = HttpClient.create(pool)
+                .option(ChannelOption.CONNECT_TIMEOUT_MILLIS, (int) connectTimeout.toMillis())
+                .responseTimeout(responseTimeout);
+
+        // base URL yok: hangi Python kopyasına gidileceğini OcrReplicaPool seçer (python.api.base listesi)
         var builder = WebClient.builder()
-            .baseUrl(baseUrl)
+            .clientConnector(new ReactorClientHttpConnector(http))
+            // /process cevabı OcrResponseDecoder ile akışla çözülür; bu sınır sadece tamponlanan
+            // küçük gövdeler (health, hata gövdeleri, NDJSON satırı başına) için
             .codecs(configurer -> configurer
                 .defaultCodecs()
-                .maxInMemorySize(16 * 1024 * 1024)) // 16MB buffer for large responses
+                .maxInMemorySize((int) maxInMemorySize.toBytes()))
+            // taşıma hatalarını (bağlantı, timeout) 502'ye çevir; doOnError içinden fırlatmak akışı bozuyordu
             .filter((request, next) -> next.exchange(request)
-                .doOnError(error -> {
-                    throw new ResponseStatusException(
+                .onErrorMap(error -> !(error instanceof ResponseStatusException),
+                    error -> new ResponseStatusException(
                         HttpStatus.BAD_GATEWAY,
                         "Error communicating with Python API: " + error.getMessage(),
                         error
-                    );
-                }));
+                    )));
 
         if (!token.isBlank()) {
             builder = builder.defaultHeader("Authorization", "Bearer " + token);
@@ -1,10 +1,13 @@
 package com.example.uretimveri.controller;
 
 import com.example.uretimveri.dto.BulkDeleteRequest;
+import com.example.uretimveri.dto.DataTablesRequest;
+import com.example.uretimveri.dto.DataTablesResponse;
 import com.example.uretimveri.model.ColdCoil;
 import com.example.uretimveri.repository.ColdCoilRepository;
 import com.example.uretimveri.service.ColdCoilService;
 import com.example.uretimveri.service.ProductService;
+import com.example.uretimveri.service.TablePageService;
 import jakarta.persistence.EntityNotFoundException;
 import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.security.access.prepost.PreAuthorize;
@@ -12,6 +15,7 @@ import org.springframework.http.*;
 import org.springframework.web.bind.annotation.*;
 
 import java.util.List;
+import java.util.Map;
 
 @RestController
 @RequestMapping("/api/cold_coil")
@@ -20,13 +24,16 @@ public class ColdCoilController {
     private final ColdCoilService service;
     private final ColdCoilRepository coldCoilRepository;
     private final ProductService productService;
+    private final TablePageService tablePages;
 
     public ColdCoilController(ColdCoilService service,
                               ColdCoilRepository coldCoilRepository,
-                              ProductService productService) {
+                              ProductService productService,
+                              TablePageService tablePages) {
         this.service = service;
         this.coldCoilRepository = coldCoilRepository;
         this.productService = productService;
+        this.tablePages = tablePages;
     }
 
     @GetMapping("/all")
@@ -34,6 +41,12 @@ public class ColdCoilController {
         return coldCoilRepository.findAllWithProduct();
     }
 
+    // DataTables sunucu tarafı (serverSide): sadece istenen sayfa okunur, bkz. TablePageService
+    @GetMapping("/page")
+    public DataTablesResponse<Map<String, Object>> page(@RequestParam Map<String, String> params) {
+        return tablePages.page("cold_coil", DataTablesRequest.from(params));
+    }
+
     // Şu anki UI akışı: yeni Product oluştur + ColdCoil bağla
     @PostMapping("/add")
     public ResponseEntity<?> add(@RequestBody ColdCoil coldCoil) {
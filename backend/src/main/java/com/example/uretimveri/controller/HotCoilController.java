@@ -1,10 +1,13 @@
 package com.example.uretimveri.controller;
 
 import com.example.uretimveri.dto.BulkDeleteRequest;
+import com.example.uretimveri.dto.DataTablesRequest;
+import com.example.uretimveri.dto.DataTablesResponse;
 import com.example.uretimveri.model.HotCoil;
 import com.example.uretimveri.repository.HotCoilRepository;
 import com.example.uretimveri.service.HotCoilService;
 import com.example.uretimveri.service.ProductService;
+import com.example.uretimveri.service.TablePageService;
 import jakarta.persistence.EntityNotFoundException;
 import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.security.access.prepost.PreAuthorize;
@@ -12,6 +15,7 @@ import org.springframework.http.*;
 import org.springframework.web.bind.annotation.*;
 
 import java.util.List;
+import java.util.Map;
 
 @RestController
 @RequestMapping("/api/hot_coil")
@@ -20,13 +24,16 @@ public class HotCoilController {
     private final HotCoilService hotCoilService;
     private final HotCoilRepository hotCoilRepository;
     private final ProductService productService;
+    private final TablePageService tablePages;
 
     public HotCoilController(HotCoilService hotCoilService,
                              HotCoilRepository hotCoilRepository,
-                             ProductService productService) {
+                             ProductService productService,
+                             TablePageService tablePages) {
         this.hotCoilService = hotCoilService;
         this.hotCoilRepository = hotCoilRepository;
         this.productService = productService;
+        this.tablePages = tablePages;
     }
 
     // DTO ile dön: product/productId karmaşası çözülür
@@ -35,6 +42,12 @@ public class HotCoilController {
         return hotCoilRepository.findAllWithProduct(); // createdAt artık dolu gelecek
     }
 
+    // DataTables sunucu tarafı (serverSide): sadece istenen sayfa okunur, bkz. TablePageService
+    @GetMapping("/page")
+    public DataTablesResponse<Map<String, Object>> page(@RequestParam Map<String, String> params) {
+        return tablePages.page("hot_coil", DataTablesRequest.from(params));
+    }
+
     // Şu anki UI: yeni Product oluştur + HotCoil bağla
     @PostMapping("/add")
     public ResponseEntity<?> add(@RequestBody HotCoil hotCoil) {
@@ -1,17 +1,41 @@
 package com.example.uretimveri.controller;
 
 import com.example.uretimveri.ocr.*;
+import com.example.uretimveri.service.CameraStreamIngestor;
+import com.example.uretimveri.service.FrameDedupFilter;
 import com.example.uretimveri.service.Img2DataPlatesService;
+import com.example.uretimveri.service.OcrAutoCommitService;
+import com.example.uretimveri.service.OcrDocumentService;
+import com.example.uretimveri.service.OcrHistoryStore;
+import com.example.uretimveri.service.OcrResponseDecoder;
 import com.example.uretimveri.service.OcrService;
+import com.example.uretimveri.service.RecognizeUiMapper;
+import jakarta.servlet.http.HttpServletRequest;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.core.io.Resource;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.http.codec.ServerSentEvent;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.server.ResponseStatusException;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
 
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.time.Duration;
+import java.time.Instant;
 import java.util.*;
-import java.util.regex.Pattern;
+import java.util.concurrent.atomic.AtomicInteger;
 
 @RestController
 @RequiredArgsConstructor
@@ -21,33 +45,128 @@ public class OcrController {
 
     private final OcrService ocrService;
     private final Img2DataPlatesService platesService;
+    private final RecognizeUiMapper uiMapper;
+    private final FrameDedupFilter dedup;
+    private final OcrHistoryStore history;
+    private final OcrResponseDecoder responseDecoder;
+    private final OcrDocumentService documents;
+    private final OcrAutoCommitService autoCommit;
+    private final ObjectProvider<CameraStreamIngestor> cameras; // ocr.camera.enabled=false ise yok
 
-    private static final Pattern NOT_DIGIT = Pattern.compile("[^0-9]");
+    @Value("${ocr.batch.concurrency:4}")
+    private int batchConcurrency;
 
-    // 1) SADECE TESPIT — DB YOK
+    // istek boyutu sınırı bundan türetilir (MultipartConfig)
+    @Value("${ocr.batch.max-files:10}")
+    private int batchMaxFiles;
+
+    // 1) TESPIT — DB YOK (ocr.autocommit.enabled=true ise kurallardan geçen LVDT'ler burada kaydedilir)
+    // Mono döner: Spring MVC isteği async moda alır, Tomcat thread'i Python beklerken bloklanmaz
     @PostMapping(value="/recognize", consumes = MediaType.MULTIPART_FORM_DATA_VALUE)
-    public RecognizeUiResponse recognize(@RequestPart("file") MultipartFile file) {
-        OcrApiResponse py = ocrService.recognize(file);
-
-        List<RecognizeUiItem> items = new ArrayList<>();
-        if (py != null && py.getItems() != null) {
-            for (OcrItem it : py.getItems()) {
-                if (it == null || it.getText() == null) continue;
-                RecognizeUiItem ui = new RecognizeUiItem();
-                ui.setImage(it.getImage());
-                ui.setRoiIndex(it.getRoiIndex());
-                ui.setText(it.getText());
-                ui.setLvdt(selectLvdt(it.getText())); // 10–18 hane öncelik
-                items.add(ui);
-            }
-        }
+    public Mono<RecognizeUiResponse> recognize(@RequestPart("file") MultipartFile file) {
+        return autoCommit(detect(file));
+    }
+
+    private Mono<RecognizeUiResponse> detect(MultipartFile file) {
+        // çok sayfalı PDF/TIFF sayfalara bölünür; sayfa sonuçları tek cevapta döner
+        OcrDocumentService.Kind kind = documents.detect(file);
+        if (kind != null) return documents.recognize(file, kind);
+        if (!dedup.isEnabled()) return recognizeFile(file);
+
+        // kamera aynı kareyi (bayt olarak farklı) tekrar gönderirse önceki sonucu kullan
+        return Mono.fromCallable(() -> dedup.hashOf(file.getResource()))
+                .subscribeOn(Schedulers.boundedElastic())
+                .flatMap(hash -> dedup.lookup(hash)
+                        .map(r -> Mono.just(uiMapper.annotate(r))) // kayıt durumu bu arada değişmiş olabilir
+                        .orElseGet(() -> recognizeFile(file).doOnNext(r -> dedup.remember(hash, r))))
+                .switchIfEmpty(Mono.defer(() -> recognizeFile(file)));
+    }
+
+    // otomatik kayıt JDBC ile bloklar: boundedElastic'te çalışır
+    private Mono<RecognizeUiResponse> autoCommit(Mono<RecognizeUiResponse> result) {
+        if (!autoCommit.isEnabled()) return result;
+        return result.flatMap(r -> Mono.fromCallable(() -> autoCommit.apply(r))
+                .subscribeOn(Schedulers.boundedElastic()));
+    }
+
+    private Mono<RecognizeUiResponse> recognizeFile(MultipartFile file) {
+        return uiMapper.toUiAsync(ocrService.recognize(file))
+                .switchIfEmpty(Mono.fromSupplier(() -> uiMapper.toUi(null)));
+    }
+
+    // 1-SSE) SADECE TESPIT — text/event-stream: her ROI Python'dan geldiği anda "item" olayı,
+    // en sonda öğesiz "summary" olayı; hata olursa "error" olayıyla kapanır. Otomatik kayıt açıksa
+    // summary'den önce kurallar tüm öğelere uygulanır ve sonuç "autocommit" olayıyla (öğeler) gelir.
+    @PostMapping(value="/recognize/stream", consumes = MediaType.MULTIPART_FORM_DATA_VALUE,
+            produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public Flux<ServerSentEvent<Object>> recognizeEvents(@RequestPart("file") MultipartFile file) {
+        AtomicInteger itemCount = new AtomicInteger();
+        List<RecognizeUiItem> items = Collections.synchronizedList(new ArrayList<>());
+        return ocrService.recognizeEvents(file)
+                .publishOn(Schedulers.boundedElastic()) // toUiItem görseli depoya yazar: event loop'ta değil
+                .<ServerSentEvent<Object>>handle((e, sink) -> {
+                    if (e.isItem()) {
+                        RecognizeUiItem ui = uiMapper.toUiItem(e.toItem());
+                        if (ui == null) return;
+                        itemCount.incrementAndGet();
+                        if (autoCommit.isEnabled()) items.add(ui);
+                        sink.next(ServerSentEvent.builder((Object) ui).event("item").build());
+                    } else if (e.isDone()) {
+                        RecognizeUiResponse summary = uiMapper.toUi(e.toResponse(null));
+                        summary.setItems(null);
+                        if (e.getCount() == null) summary.setDetectedCount(itemCount.get());
+                        summary.setError(e.getError());
+                        sink.next(ServerSentEvent.builder((Object) summary).event("summary").build());
+                    }
+                })
+                .concatMap(ev -> !autoCommit.isEnabled() || !"summary".equals(ev.event()) ? Mono.just(ev)
+                        : Mono.fromCallable(() -> {
+                            RecognizeUiResponse summary = (RecognizeUiResponse) ev.data();
+                            RecognizeUiResponse all = new RecognizeUiResponse();
+                            all.setError(summary.getError());
+                            all.setItems(new ArrayList<>(items));
+                            RecognizeUiResponse committed = autoCommit.apply(all);
+                            summary.setAutoCommittedCount(committed.getAutoCommittedCount());
+                            return committed;
+                        }).subscribeOn(Schedulers.boundedElastic())
+                          .flatMapMany(all -> Flux.just(
+                                  ServerSentEvent.builder((Object) all.getItems()).event("autocommit").build(),
+                                  ev)))
+                .onErrorResume(ex -> {
+                    log.warn("Akış tanımada hata: {} - {}", file.getOriginalFilename(), ex.getMessage());
+                    return Mono.just(ServerSentEvent.builder((Object) Map.of("error", String.valueOf(ex.getMessage())))
+                            .event("error").build());
+                });
+    }
+
+    // 1a) SADECE TESPIT — ham gövde (image/*, octet-stream): multipart ayrıştırma ve geçici dosya yok,
+    // gövde parçaları doğrudan Python isteğine akar. PDF/TIFF gövdeler sayfalara bölünür.
+    @PostMapping(value="/recognize", consumes = {"image/*", MediaType.APPLICATION_PDF_VALUE, MediaType.APPLICATION_OCTET_STREAM_VALUE})
+    public Mono<RecognizeUiResponse> recognizeRaw(HttpServletRequest request,
+                                                  @RequestParam(value = "filename", defaultValue = "upload.jpg") String filename)
+            throws IOException {
+        InputStream body = new BufferedInputStream(request.getInputStream());
+        OcrDocumentService.Kind kind = OcrDocumentService.detect(body);
+        if (kind != null) return autoCommit(documents.recognize(body, filename, kind));
+        return autoCommit(uiMapper.toUiAsync(ocrService.recognizeStream(body, filename, request.getContentType()))
+                .switchIfEmpty(Mono.fromSupplier(() -> uiMapper.toUi(null))));
+    }
 
-        RecognizeUiResponse out = new RecognizeUiResponse();
-        out.setJobId(py != null ? py.getJobId() : null);
-        out.setSourceImage(py != null ? py.getSourceImage() : null);
-        out.setDetectedCount(py != null && py.getCount() != null ? py.getCount() : items.size());
-        out.setItems(items);
-        return out;
+    // 1b) TOPLU TESPIT — en fazla ocr.batch.max-files dosya, ocr.batch.concurrency görsel aynı anda Python'da.
+    // Accept: application/x-ndjson ise sonuçlar bittikçe akar, aksi halde giriş sırasıyla tek JSON dizi döner.
+    @PostMapping(value="/recognize-batch", consumes = MediaType.MULTIPART_FORM_DATA_VALUE,
+            produces = {MediaType.APPLICATION_JSON_VALUE, MediaType.APPLICATION_NDJSON_VALUE})
+    public Flux<RecognizeUiResponse> recognizeBatch(@RequestPart("files") List<MultipartFile> files,
+                                                    @RequestHeader(value = "Accept", required = false) String accept) {
+        if (files.size() > batchMaxFiles) {
+            return Flux.error(new ResponseStatusException(HttpStatus.BAD_REQUEST,
+                    "En fazla " + batchMaxFiles + " dosya gönderilebilir: " + files.size()));
+        }
+        boolean streaming = accept != null && accept.contains(MediaType.APPLICATION_NDJSON_VALUE);
+        Flux<MultipartFile> source = Flux.fromIterable(files);
+        return streaming
+                ? source.flatMap(this::recognizeOne, batchConcurrency)
+                : source.flatMapSequential(this::recognizeOne, batchConcurrency);
     }
 
     // 2) SEÇILENLERI KAYDET — DB YAZ
@@ -55,37 +174,67 @@ public class OcrController {
     public ResponseEntity<SaveResponse> save(@RequestBody SaveRequest req) {
         if (req == null || req.getLvdts() == null || req.getLvdts().isEmpty()) {
             SaveResponse r = new SaveResponse();
-            r.setSavedCount(0); r.setCreated(Map.of());
+            r.setSavedCount(0); r.setCreated(Map.of()); r.setExisting(Map.of());
             return ResponseEntity.ok(r);
         }
-        // tekilleştir (aynı LVDT’yi iki kez açmayalım)
+        // tekilleştir (aynı LVDT’yi iki kez açmayalım); daha önce kayıtlı olanlar existing'de döner
         List<Long> uniq = req.getLvdts().stream().filter(Objects::nonNull).distinct().toList();
-        Map<Long, Long> created = platesService.saveAll(uniq);
+        Img2DataPlatesService.SaveResult result = platesService.saveAll(uniq);
+        autoCommit.recordManual(uniq.size());
 
         SaveResponse r = new SaveResponse();
-        r.setSavedCount(created.size());
-        r.setCreated(created);
+        r.setSavedCount(result.created().size());
+        r.setCreated(result.created());
+        r.setExisting(result.existing());
         return ResponseEntity.ok(r);
     }
 
-    // --- yardımcı: metinden LVDT seçimi ---
-    private Long selectLvdt(String text) {
-        if (text == null) return null;
-        String[] parts = text.trim().split("\\|");
-        List<String> nums = new ArrayList<>();
-        for (String p : parts) {
-            String only = NOT_DIGIT.matcher(p == null ? "" : p).replaceAll("");
-            if (!only.isEmpty()) nums.add(only);
-        }
-        if (nums.isEmpty()) return null;
+    // otomatik kayıt özeti: son bir saatte otomatik / elle kaydedilen, incelemeye düşen
+    @GetMapping("/autocommit")
+    public AutoCommitStats autoCommitStats() {
+        return autoCommit.stats();
+    }
 
-        Optional<String> longLike = nums.stream()
-                .filter(s -> s.length() >= 10 && s.length() <= 18)
-                .findFirst();
+    // Python cevabında eşiği aşan image alanı (OcrResponseDecoder geçici dosyaya yazar)
+    @GetMapping("/spill/{id}")
+    public ResponseEntity<Resource> spilled(@PathVariable String id) {
+        return responseDecoder.spilled(id)
+                .<ResponseEntity<Resource>>map(p -> ResponseEntity.ok()
+                        .contentType(MediaType.TEXT_PLAIN)
+                        .body(new FileSystemResource(p)))
+                .orElseGet(() -> ResponseEntity.notFound().build());
+    }
+
+    // 3) OCR GEÇMİŞİ — Python'un ne gördüğü; from/to ISO-8601 (varsayılan son 24 saat), lvdt opsiyonel
+    @GetMapping("/history")
+    public ResponseEntity<List<OcrHistoryEntry>> history(
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) Instant from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) Instant to,
+            @RequestParam(required = false) Long lvdt,
+            @RequestParam(defaultValue = "100") int limit) {
+        if (!history.isEnabled()) return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).build();
+        Instant end = to != null ? to : Instant.now();
+        Instant start = from != null ? from : end.minus(Duration.ofDays(1));
+        return ResponseEntity.ok(history.find(start, end, lvdt, limit));
+    }
+
+    // Kamera akışlarından son tanıma sonuçları (kamera adı → sonuç)
+    @GetMapping("/camera/latest")
+    public ResponseEntity<Map<String, RecognizeUiResponse>> cameraLatest() {
+        CameraStreamIngestor ingestor = cameras.getIfAvailable();
+        if (ingestor == null) return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).build();
+        return ResponseEntity.ok(ingestor.latest());
+    }
 
-        String chosen = longLike.orElse(nums.get(nums.size() - 1));
-        try { return Long.parseLong(chosen); }
-        catch (NumberFormatException e) { return null; }
+    // tek görselin hatası tüm partiyi düşürmesin: hata o görselin cevabına yazılır
+    private Mono<RecognizeUiResponse> recognizeOne(MultipartFile file) {
+        return recognize(file)
+                .onErrorResume(ex -> {
+                    log.warn("Toplu tanımada hata: {} - {}", file.getOriginalFilename(), ex.getMessage());
+                    RecognizeUiResponse r = uiMapper.toUi(null);
+                    r.setSourceImage(file.getOriginalFilename());
+                    r.setError(ex.getMessage());
+                    return Mono.just(r);
+                });
     }
-    
 }
@@ -0,0 +1,71 @@
+package com.example.uretimveri.controller;
+
+import com.example.uretimveri.ocr.OcrApiResponse;
+import com.example.uretimveri.ocr.OcrJob;
+import com.example.uretimveri.ocr.OcrUpload;
+import com.example.uretimveri.service.OcrJobService;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.IOException;
+import java.net.URI;
+import java.util.concurrent.RejectedExecutionException;
+
+@RestController
+@RequestMapping("/api/slabs")
+@Slf4j
+public class OcrJobController {
+
+    private final OcrJobService jobService;
+    private final String apiToken;
+
+    public OcrJobController(OcrJobService jobService,
+                            @Value("${python.api.token:}") String apiToken) {
+        this.jobService = jobService;
+        this.apiToken = apiToken;
+    }
+
+    /** İşi kuyruğa al, hemen job id dön (202). Kuyruk doluysa 503. */
+    @PostMapping(value = "/jobs", consumes = MediaType.MULTIPART_FORM_DATA_VALUE)
+    public ResponseEntity<?> submit(@RequestPart("file") MultipartFile file) {
+        try {
+            OcrJob job = jobService.submit(OcrUpload.copyOf(file));
+            return ResponseEntity.accepted()
+                    .location(URI.create("/api/slabs/jobs/" + job.getId()))
+                    .body(job);
+        } catch (RejectedExecutionException e) {
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                    .header("Retry-After", "5")
+                    .body("OCR kuyruğu dolu, lütfen tekrar deneyin");
+        } catch (IOException e) {
+            return ResponseEntity.badRequest().body("Dosya okunamadı: " + e.getMessage());
+        }
+    }
+
+    @GetMapping("/jobs/{id}")
+    public ResponseEntity<OcrJob> status(@PathVariable String id) {
+        return jobService.find(id)
+                .map(ResponseEntity::ok)
+                .orElse(ResponseEntity.notFound().build());
+    }
+
+    /** Python /process_async sonucu buraya POST eder (X-API-Token ile) */
+    @PostMapping(value = "/recognize/callback", consumes = MediaType.APPLICATION_JSON_VALUE)
+    public ResponseEntity<Void> callback(@RequestParam("jobId") String jobId,
+                                         @RequestHeader(value = "X-API-Token", required = false) String token,
+                                         @RequestBody OcrApiResponse body) {
+        if (apiToken.isBlank() || !apiToken.equals(token)) {
+            return ResponseEntity.status(HttpStatus.FORBIDDEN).build();
+        }
+        if (!jobService.complete(jobId, body)) {
+            log.warn("Callback için bekleyen iş yok: {}", jobId);
+            return ResponseEntity.notFound().build();
+        }
+        return ResponseEntity.noContent().build();
+    }
+}
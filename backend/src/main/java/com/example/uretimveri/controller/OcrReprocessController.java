@@ -0,0 +1,45 @@
+package com.example.uretimveri.controller;
+
+import com.example.uretimveri.ocr.ReprocessDiff;
+import com.example.uretimveri.ocr.ReprocessStatus;
+import com.example.uretimveri.service.OcrReprocessService;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.List;
+
+// Arşivdeki görselleri yeni ağırlıklarla yeniden OCR'dan geçirme (sadece ADMIN)
+@RestController
+@RequiredArgsConstructor
+@RequestMapping("/api/admin/reprocess")
+@PreAuthorize("hasRole('ADMIN')")
+public class OcrReprocessController {
+
+    private final OcrReprocessService reprocessService;
+
+    // dir verilmezse ocr.reprocess.archive-dir; aynı arşivin yarım koşusu varsa checkpoint'ten devam eder
+    @PostMapping("/start")
+    public ResponseEntity<ReprocessStatus> start(@RequestParam(required = false) String dir) {
+        return ResponseEntity.accepted().body(reprocessService.start(dir));
+    }
+
+    @PostMapping("/stop")
+    public ResponseEntity<ReprocessStatus> stop() {
+        return ResponseEntity.ok(reprocessService.stop());
+    }
+
+    // işlenen, kalan, görsel/sn ve tahmini bitiş
+    @GetMapping
+    public ResponseEntity<ReprocessStatus> status() {
+        return ResponseEntity.ok(reprocessService.status());
+    }
+
+    @GetMapping("/{runId}/diffs")
+    public ResponseEntity<List<ReprocessDiff>> diffs(@PathVariable long runId,
+                                                     @RequestParam(required = false) String kind,
+                                                     @RequestParam(defaultValue = "200") int limit) {
+        return ResponseEntity.ok(reprocessService.diffs(runId, kind, limit));
+    }
+}
@@ -1,10 +1,15 @@
 package com.example.uretimveri.controller;
 
 import com.example.uretimveri.dto.BulkDeleteRequest;
+import com.example.uretimveri.dto.DataTablesRequest;
+import com.example.uretimveri.dto.DataTablesResponse;
 import com.example.uretimveri.model.Plates;
+import com.example.uretimveri.ocr.LvdtCandidate;
 import com.example.uretimveri.repository.PlatesRepository;
+import com.example.uretimveri.service.LvdtSuggester;
 import com.example.uretimveri.service.PlatesService;
 import com.example.uretimveri.service.ProductService;
+import com.example.uretimveri.service.TablePageService;
 import jakarta.persistence.EntityNotFoundException;
 import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.security.access.prepost.PreAuthorize;
@@ -12,6 +17,7 @@ import org.springframework.http.*;
 import org.springframework.web.bind.annotation.*;
 
 import java.util.List;
+import java.util.Map;
 
 @RestController
 @RequestMapping("/api/plates")
@@ -20,19 +26,39 @@ public class PlatesController {
     private final PlatesService service;
     private final PlatesRepository platesRepository;
     private final ProductService productService;
+    private final LvdtSuggester lvdtSuggester;
+    private final TablePageService tablePages;
 
     public PlatesController(PlatesService service,
                             PlatesRepository platesRepository,
-                            ProductService productService) {
+                            ProductService productService,
+                            LvdtSuggester lvdtSuggester,
+                            TablePageService tablePages) {
         this.service = service;
         this.platesRepository = platesRepository;
         this.productService = productService;
+        this.lvdtSuggester = lvdtSuggester;
+        this.tablePages = tablePages;
     }
 
     @GetMapping("/all")
     public List<Plates> all() {
         return platesRepository.findAllWithProduct();
     }
+
+    // DataTables sunucu tarafı (serverSide): sadece istenen sayfa okunur, bkz. TablePageService
+    @GetMapping("/page")
+    public DataTablesResponse<Map<String, Object>> page(@RequestParam Map<String, String> params) {
+        return tablePages.page("plates", DataTablesRequest.from(params));
+    }
+
+    /** Yanlış okunmuş LVDT için k hane (1-2) uzaklıktaki kayıtlı LVDT'ler */
+    @GetMapping("/lvdt-suggest")
+    public List<LvdtCandidate> lvdtSuggest(@RequestParam long lvdt,
+                                           @RequestParam(defaultValue = "1") int k,
+                                           @RequestParam(defaultValue = "10") int limit) {
+        return lvdtSuggester.suggest(lvdt, k, Math.min(limit, 100));
+    }
     /** Şu anki UI: yeni Product oluştur + Plates bağla */
     @PostMapping("/add")
     public ResponseEntity<?> add(@RequestBody Plates plates) {
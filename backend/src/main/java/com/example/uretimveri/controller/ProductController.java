@@ -1,7 +1,10 @@
 package com.example.uretimveri.controller;
 
+import com.example.uretimveri.dto.DataTablesRequest;
+import com.example.uretimveri.dto.DataTablesResponse;
 import com.example.uretimveri.model.Product;
 import com.example.uretimveri.service.ProductService;
+import com.example.uretimveri.service.TablePageService;
 import jakarta.persistence.EntityNotFoundException;
 import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.http.ResponseEntity;
@@ -9,15 +12,18 @@ import org.springframework.web.bind.annotation.*;
 import com.example.uretimveri.dto.BulkDeleteRequest;
 
 import java.util.List;
+import java.util.Map;
 
 @RestController
 @RequestMapping("/api/products")
 public class ProductController {
 
     private final ProductService service;
+    private final TablePageService tablePages;
 
-    public ProductController(ProductService service) {
+    public ProductController(ProductService service, TablePageService tablePages) {
         this.service = service;
+        this.tablePages = tablePages;
     }
 
     @GetMapping("/all")
@@ -25,6 +31,12 @@ public class ProductController {
         return service.getAll();
     }
 
+    // DataTables sunucu tarafı (serverSide): sadece istenen sayfa okunur, bkz. TablePageService
+    @GetMapping("/page")
+    public DataTablesResponse<Map<String, Object>> page(@RequestParam Map<String, String> params) {
+        return tablePages.page("products", DataTablesRequest.from(params));
+    }
+
     @PostMapping("/add")
     public Product add(@RequestBody Product product) {
         return service.save(product);
@@ -0,0 +1,104 @@
+package com.example.uretimveri.controller;
+
+import com.example.uretimveri.service.SlabImageStore;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.Optional;
+
+// İçerik adresli görseller: GET /api/slabs/images/{hash}[?w=320]
+// İçerik değişmez: ETag = özet (+ genişlik), uzun ömürlü immutable önbellek, If-None-Match'e 304.
+// Tam gövde Tomcat sendfile ile (çekirdekten sokete kopyasız) ya da FileChannel.transferTo ile gider;
+// Range istekleri Spring'in ResourceRegion desteğiyle 206 döner.
+@RestController
+@RequiredArgsConstructor
+@RequestMapping("/api/slabs/images")
+public class SlabImageController {
+
+    // Tomcat'in sendfile sözleşmesi (DefaultServlet de bunları kullanır)
+    private static final String SENDFILE_SUPPORT = "org.apache.tomcat.sendfile.support";
+    private static final String SENDFILE_FILENAME = "org.apache.tomcat.sendfile.filename";
+    private static final String SENDFILE_START = "org.apache.tomcat.sendfile.start";
+    private static final String SENDFILE_END = "org.apache.tomcat.sendfile.end";
+
+    private final SlabImageStore images;
+
+    @Value("${ocr.images.cache-max-age:365d}")
+    private Duration cacheMaxAge;
+
+    @Value("${ocr.images.sendfile:true}")
+    private boolean sendfile;
+
+    @GetMapping("/{hash}")
+    public ResponseEntity<?> image(@PathVariable String hash,
+                                  @RequestParam(value = "w", required = false) Integer width,
+                                  @RequestHeader HttpHeaders headers,
+                                  HttpServletRequest request,
+                                  HttpServletResponse response) throws IOException {
+        if (!SlabImageStore.isHash(hash)) return ResponseEntity.notFound().build();
+        int w = width == null ? 0 : images.snapWidth(width);
+        Optional<Path> file = w > 0 ? images.thumbnail(hash, w) : images.find(hash);
+        if (file.isEmpty()) return ResponseEntity.notFound().build();
+
+        Path p = file.get();
+        String etag = "\"" + hash + (w > 0 ? "-w" + w : "") + "\"";
+        CacheControl cache = CacheControl.maxAge(cacheMaxAge).cachePrivate().immutable();
+        if (headers.getIfNoneMatch().stream().anyMatch(t -> t.equals(etag) || t.equals("W/" + etag) || t.equals("*"))) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(etag).cacheControl(cache).build();
+        }
+
+        MediaType type = MediaType.parseMediaType(SlabImageStore.contentType(p));
+        ResponseEntity.BodyBuilder ok = ResponseEntity.ok().eTag(etag).cacheControl(cache).contentType(type)
+                .header(HttpHeaders.ACCEPT_RANGES, "bytes");
+
+        // Range (ve eşleşen If-Range) varsa Spring Resource'u ResourceRegion'lara böler, 206 / 416 döner
+        if (headers.getFirst(HttpHeaders.RANGE) != null && ifRangeMatches(headers, etag)) {
+            return ok.body(new FileSystemResource(p));
+        }
+
+        long size = Files.size(p);
+        if (sendfile && !"HEAD".equals(request.getMethod()) && Boolean.TRUE.equals(request.getAttribute(SENDFILE_SUPPORT))) {
+            // gövde yazılmaz; Tomcat yanıtı gönderirken dosyayı sendfile ile sokete aktarır
+            request.setAttribute(SENDFILE_FILENAME, p.toAbsolutePath().toString());
+            request.setAttribute(SENDFILE_START, 0L);
+            request.setAttribute(SENDFILE_END, size);
+            return ok.contentLength(size).build();
+        }
+        // ResponseEntity<?> ile StreamingResponseBody eşlenmez (dönüş tipi jenerik değil, 500 olur):
+        // gövde doğrudan yanıta yazılır, null dönüş isteği tamamlanmış sayar
+        ResponseEntity<Void> head = ok.contentLength(size).build();
+        response.setStatus(head.getStatusCode().value());
+        head.getHeaders().forEach((name, values) -> values.forEach(v -> response.addHeader(name, v)));
+        if (!"HEAD".equals(request.getMethod())) {
+            try (FileChannel ch = FileChannel.open(p, StandardOpenOption.READ)) {
+                WritableByteChannel target = Channels.newChannel(response.getOutputStream());
+                long pos = 0;
+                while (pos < size) pos += ch.transferTo(pos, size - pos, target);
+            }
+        }
+        return null;
+    }
+
+    // If-Range yoksa ya da ETag tutuyorsa aralık gönderilir; tutmuyorsa tam gövde
+    private static boolean ifRangeMatches(HttpHeaders headers, String etag) {
+        String ifRange = headers.getFirst(HttpHeaders.IF_RANGE);
+        return ifRange == null || ifRange.equals(etag);
+    }
+}
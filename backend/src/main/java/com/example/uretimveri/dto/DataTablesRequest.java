@@ -0,0 +1,54 @@
+package com.example.uretimveri.dto;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+// DataTables sunucu tarafı isteği (serverSide: true). Parametreler köşeli parantezli gelir:
+// draw, start, length, search[value], order[i][column], order[i][dir], columns[j][data]
+public class DataTablesRequest {
+
+    /** Sıralama: DataTables kolon indeksi yerine kolonun data anahtarı (ör. "productId") */
+    public record Order(String column, boolean ascending) {}
+
+    private int draw;
+    private int start;
+    private int length;
+    private String search;
+    private List<Order> order = new ArrayList<>();
+
+    public static DataTablesRequest from(Map<String, String> params) {
+        DataTablesRequest r = new DataTablesRequest();
+        r.draw = parseInt(params.get("draw"), 0);
+        r.start = Math.max(0, parseInt(params.get("start"), 0));
+        r.length = parseInt(params.get("length"), 10);
+        String search = params.get("search[value]");
+        r.search = search == null || search.isBlank() ? null : search.trim();
+        for (int i = 0; params.containsKey("order[" + i + "][column]"); i++) {
+            String data = params.get("columns[" + params.get("order[" + i + "][column]") + "][data]");
+            if (data == null || data.isBlank()) continue;
+            r.order.add(new Order(data, !"desc".equalsIgnoreCase(params.get("order[" + i + "][dir]"))));
+        }
+        return r;
+    }
+
+    private static int parseInt(String s, int def) {
+        if (s == null) return def;
+        try {
+            return Integer.parseInt(s.trim());
+        } catch (NumberFormatException e) {
+            return def;
+        }
+    }
+
+    public int getDraw() { return draw; }
+    public void setDraw(int draw) { this.draw = draw; }
+    public int getStart() { return start; }
+    public void setStart(int start) { this.start = start; }
+    public int getLength() { return length; }
+    public void setLength(int length) { this.length = length; }
+    public String getSearch() { return search; }
+    public void setSearch(String search) { this.search = search; }
+    public List<Order> getOrder() { return order; }
+    public void setOrder(List<Order> order) { this.order = order; }
+}
@@ -0,0 +1,23 @@
+package com.example.uretimveri.dto;
+
+import java.util.List;
+
+// DataTables sunucu tarafı cevabı; recordsFiltered arama varken count-cap ile sınırlıdır
+public class DataTablesResponse<T> {
+    private int draw;
+    private long recordsTotal;
+    private long recordsFiltered;
+    private List<T> data;
+    private String error;
+
+    public int getDraw() { return draw; }
+    public void setDraw(int draw) { this.draw = draw; }
+    public long getRecordsTotal() { return recordsTotal; }
+    public void setRecordsTotal(long recordsTotal) { this.recordsTotal = recordsTotal; }
+    public long getRecordsFiltered() { return recordsFiltered; }
+    public void setRecordsFiltered(long recordsFiltered) { this.recordsFiltered = recordsFiltered; }
+    public List<T> getData() { return data; }
+    public void setData(List<T> data) { this.data = data; }
+    public String getError() { return error; }
+    public void setError(String error) { this.error = error; }
+}
@@ -6,7 +6,8 @@ import java.sql.Timestamp;
 import jakarta.persistence.*;
 
 @Entity
-@Table(name = "plates")
+@Table(name = "plates",
+       uniqueConstraints = @UniqueConstraint(name = "uk_plates_lvdt", columnNames = "lvdt"))
 public class Plates {
 
     @Id
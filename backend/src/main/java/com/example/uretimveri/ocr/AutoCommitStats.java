@@ -0,0 +1,21 @@
+package com.example.uretimveri.ocr;
+
+// GET /api/slabs/autocommit: son bir saatin otomatik / elle kayıt özeti
+public class AutoCommitStats {
+    private boolean enabled;
+    private long autoCommittedLastHour;
+    private long reviewLastHour;       // kurallardan geçemeyip operatöre dönen öğe
+    private long manualLastHour;       // operatörün /save ile kaydettiği LVDT
+    private double autoCommitRate;     // otomatik / (otomatik + elle)
+
+    public boolean isEnabled() { return enabled; }
+    public void setEnabled(boolean enabled) { this.enabled = enabled; }
+    public long getAutoCommittedLastHour() { return autoCommittedLastHour; }
+    public void setAutoCommittedLastHour(long autoCommittedLastHour) { this.autoCommittedLastHour = autoCommittedLastHour; }
+    public long getReviewLastHour() { return reviewLastHour; }
+    public void setReviewLastHour(long reviewLastHour) { this.reviewLastHour = reviewLastHour; }
+    public long getManualLastHour() { return manualLastHour; }
+    public void setManualLastHour(long manualLastHour) { this.manualLastHour = manualLastHour; }
+    public double getAutoCommitRate() { return autoCommitRate; }
+    public void setAutoCommitRate(double autoCommitRate) { this.autoCommitRate = autoCommitRate; }
+}
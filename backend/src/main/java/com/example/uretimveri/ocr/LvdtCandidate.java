@@ -0,0 +1,31 @@
+package com.example.uretimveri.ocr;
+
+// Okunan LVDT'ye birkaç hane uzaklıkta kayıtlı LVDT önerisi
+public class LvdtCandidate {
+    private Long lvdt;
+    private Long productId;
+    private Integer distance;      // düzenleme mesafesi (değiştirme/ekleme/silme)
+    private Boolean confusable;    // farklar bilinen OCR karışıklıklarından mı (8/3, 1/7, ...)
+
+    public LvdtCandidate() {}
+
+    public LvdtCandidate(Long lvdt, Long productId, Integer distance, Boolean confusable) {
+        this.lvdt = lvdt;
+        this.productId = productId;
+        this.distance = distance;
+        this.confusable = confusable;
+    }
+
+    public Long getLvdt() { return lvdt; }
+    public void setLvdt(Long lvdt) { this.lvdt = lvdt; }
+    public Long getProductId() { return productId; }
+    public void setProductId(Long productId) { this.productId = productId; }
+    public Integer getDistance() { return distance; }
+    public void setDistance(Integer distance) { this.distance = distance; }
+    public Boolean getConfusable() { return confusable; }
+    public void setConfusable(Boolean confusable) { this.confusable = confusable; }
+
+    public LvdtCandidate copy() {
+        return new LvdtCandidate(lvdt, productId, distance, confusable);
+    }
+}
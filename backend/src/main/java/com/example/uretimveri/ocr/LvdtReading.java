@@ -0,0 +1,31 @@
+package com.example.uretimveri.ocr;
+
+// OCR metninden çıkarılan LVDT adayı; score'a göre sıralı gelir, ilki item.lvdt'dir
+public class LvdtReading {
+    private Long lvdt;
+    private Integer digits;     // baştaki sıfırlar dahil hane sayısı
+    private Integer segment;    // metindeki '|' ile ayrılmış bölüm sırası
+    private Integer score;
+
+    public LvdtReading() {}
+
+    public LvdtReading(Long lvdt, Integer digits, Integer segment, Integer score) {
+        this.lvdt = lvdt;
+        this.digits = digits;
+        this.segment = segment;
+        this.score = score;
+    }
+
+    public Long getLvdt() { return lvdt; }
+    public void setLvdt(Long lvdt) { this.lvdt = lvdt; }
+    public Integer getDigits() { return digits; }
+    public void setDigits(Integer digits) { this.digits = digits; }
+    public Integer getSegment() { return segment; }
+    public void setSegment(Integer segment) { this.segment = segment; }
+    public Integer getScore() { return score; }
+    public void setScore(Integer score) { this.score = score; }
+
+    public LvdtReading copy() {
+        return new LvdtReading(lvdt, digits, segment, score);
+    }
+}
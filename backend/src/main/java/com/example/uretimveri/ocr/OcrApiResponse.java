@@ -2,6 +2,7 @@ package com.example.uretimveri.ocr;
 
 import com.fasterxml.jackson.annotation.JsonProperty;
 import java.util.List;
+import java.util.stream.Collectors;
 
 public class OcrApiResponse {
     @JsonProperty("job_id")
@@ -14,6 +15,7 @@ public class OcrApiResponse {
     private String savedImage;
     private Integer count;
     private List<OcrItem> items;
+    private String error; // sadece /process_async callback'inde, hata durumunda dolu
 
     public String getJobId() { return jobId; }
     public void setJobId(String jobId) { this.jobId = jobId; }
@@ -27,4 +29,19 @@ public class OcrApiResponse {
     public void setCount(Integer count) { this.count = count; }
     public List<OcrItem> getItems() { return items; }
     public void setItems(List<OcrItem> items) { this.items = items; }
+    public String getError() { return error; }
+    public void setError(String error) { this.error = error; }
+
+    /** Derin kopya: önbellekteki ya da birleştirilmiş (coalesced) sonuç isteğe verilmeden önce */
+    public OcrApiResponse copy() {
+        OcrApiResponse c = new OcrApiResponse();
+        c.jobId = jobId;
+        c.sourceImage = sourceImage;
+        c.resultsCsv = resultsCsv;
+        c.savedImage = savedImage;
+        c.count = count;
+        c.items = items == null ? null : items.stream().map(OcrItem::copy).collect(Collectors.toList());
+        c.error = error;
+        return c;
+    }
 }
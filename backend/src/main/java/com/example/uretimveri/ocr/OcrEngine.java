@@ -0,0 +1,37 @@
+package com.example.uretimveri.ocr;
+
+import org.springframework.core.io.buffer.DataBuffer;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+/**
+ * Tek görseli ROI + rakam okumasına çeviren motor. OcrService önbellek, coalescing, ön işleme ve
+ * geçmiş kaydını üstlenir; motor sadece çıkarımı yapar. Bütün tanıma yolları (tek görsel, ham gövde,
+ * olay akışı, callback) motordan geçer. Hangi motorun kullanılacağı ocr.engine ile seçilir (http | onnx).
+ */
+public interface OcrEngine {
+
+    /** ocr.engine değeri ve metrik etiketi (ör. "http") */
+    String name();
+
+    /** Bloklamamalı: uzun süren iş Mono içinde, uygun Scheduler'da yapılır */
+    Mono<OcrApiResponse> process(OcrUpload upload);
+
+    /** Tek kez okunabilen ham gövde (Content-Type: image/*); motor tamponlamadan ya da sınırla okur */
+    Mono<OcrApiResponse> processBody(Flux<DataBuffer> body, String filename, String contentType);
+
+    /** ROI'ler hazır oldukça item, en sonda done. Varsayılan: process sonucunu olay olarak oynatır */
+    default Flux<OcrStreamEvent> processEvents(OcrUpload upload) {
+        return process(upload).flatMapIterable(OcrStreamEvent::replay);
+    }
+
+    /** Sonucu callback ile teslim edebilen motor (dispatch desteklenir) */
+    default boolean supportsCallback() {
+        return false;
+    }
+
+    /** İşi kabul ettirir; sonuç callbackUrl'e POST edilir. supportsCallback() false ise desteklenmez */
+    default Mono<Void> dispatch(OcrUpload upload, String callbackUrl) {
+        return Mono.error(new UnsupportedOperationException(name() + " motoru callback desteklemiyor"));
+    }
+}
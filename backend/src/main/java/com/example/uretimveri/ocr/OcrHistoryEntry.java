@@ -0,0 +1,27 @@
+package com.example.uretimveri.ocr;
+
+import java.time.Instant;
+import java.util.List;
+
+// ocr_job satırı + sıkıştırılmış ham cevaptan açılan öğeler
+public class OcrHistoryEntry {
+    private String jobId;
+    private Instant createdAt;
+    private String sourceImage;
+    private String resultsCsv;
+    private Integer count;
+    private List<OcrItem> items;
+
+    public String getJobId() { return jobId; }
+    public void setJobId(String jobId) { this.jobId = jobId; }
+    public Instant getCreatedAt() { return createdAt; }
+    public void setCreatedAt(Instant createdAt) { this.createdAt = createdAt; }
+    public String getSourceImage() { return sourceImage; }
+    public void setSourceImage(String sourceImage) { this.sourceImage = sourceImage; }
+    public String getResultsCsv() { return resultsCsv; }
+    public void setResultsCsv(String resultsCsv) { this.resultsCsv = resultsCsv; }
+    public Integer getCount() { return count; }
+    public void setCount(Integer count) { this.count = count; }
+    public List<OcrItem> getItems() { return items; }
+    public void setItems(List<OcrItem> items) { this.items = items; }
+}
@@ -14,4 +14,12 @@ public class OcrItem {
     public void setRoiIndex(Integer roiIndex) { this.roiIndex = roiIndex; }
     public String getText() { return text; }
     public void setText(String text) { this.text = text; }
+
+    public OcrItem copy() {
+        OcrItem c = new OcrItem();
+        c.image = image;
+        c.roiIndex = roiIndex;
+        c.text = text;
+        return c;
+    }
 }
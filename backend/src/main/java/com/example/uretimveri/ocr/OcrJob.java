@@ -0,0 +1,40 @@
+package com.example.uretimveri.ocr;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+
+import java.time.Instant;
+
+// Asenkron tanıma işi: POST /api/slabs/jobs ile açılır, GET /api/slabs/jobs/{id} ile izlenir
+public class OcrJob {
+
+    public enum State { QUEUED, RUNNING, DONE, FAILED }
+
+    private final String id;
+    private final Instant submittedAt;
+    private volatile State state = State.QUEUED;
+    private volatile Instant startedAt;
+    private volatile Instant finishedAt;
+    private volatile RecognizeUiResponse result;
+    private volatile String error;
+
+    public OcrJob(String id, Instant submittedAt) {
+        this.id = id;
+        this.submittedAt = submittedAt;
+    }
+
+    public String getId() { return id; }
+    public Instant getSubmittedAt() { return submittedAt; }
+    public State getState() { return state; }
+    public void setState(State state) { this.state = state; }
+    public Instant getStartedAt() { return startedAt; }
+    public void setStartedAt(Instant startedAt) { this.startedAt = startedAt; }
+    public Instant getFinishedAt() { return finishedAt; }
+    public void setFinishedAt(Instant finishedAt) { this.finishedAt = finishedAt; }
+    public RecognizeUiResponse getResult() { return result; }
+    public void setResult(RecognizeUiResponse result) { this.result = result; }
+    public String getError() { return error; }
+    public void setError(String error) { this.error = error; }
+
+    @JsonIgnore
+    public boolean isFinished() { return state == State.DONE || state == State.FAILED; }
+}
@@ -0,0 +1,102 @@
+package com.example.uretimveri.ocr;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+import java.util.ArrayList;
+import java.util.List;
+
+// Python /process_stream NDJSON satırı: her ROI için type=item, en sonda type=done (iş özeti)
+public class OcrStreamEvent {
+    public static final String ITEM = "item";
+    public static final String DONE = "done";
+
+    private String type;
+
+    // type=item
+    private String image;
+    @JsonProperty("roi_index")
+    private Integer roiIndex;
+    private String text;
+
+    // type=done
+    @JsonProperty("job_id")
+    private String jobId;
+    @JsonProperty("source_image")
+    private String sourceImage;
+    @JsonProperty("results_csv")
+    private String resultsCsv;
+    @JsonProperty("saved_image")
+    private String savedImage;
+    private Integer count;
+    private String error;
+
+    public boolean isItem() { return ITEM.equals(type); }
+    public boolean isDone() { return DONE.equals(type); }
+
+    public OcrItem toItem() {
+        OcrItem it = new OcrItem();
+        it.setImage(image);
+        it.setRoiIndex(roiIndex);
+        it.setText(text);
+        return it;
+    }
+
+    /** done olayı + akış boyunca gelen öğeler → /process ile aynı cevap */
+    public OcrApiResponse toResponse(List<OcrItem> items) {
+        OcrApiResponse r = new OcrApiResponse();
+        r.setJobId(jobId);
+        r.setSourceImage(sourceImage);
+        r.setResultsCsv(resultsCsv);
+        r.setSavedImage(savedImage);
+        r.setCount(count);
+        r.setItems(items);
+        r.setError(error);
+        return r;
+    }
+
+    /** önbellekteki cevabı akış olarak tekrar oynatmak için */
+    public static List<OcrStreamEvent> replay(OcrApiResponse r) {
+        List<OcrStreamEvent> out = new ArrayList<>();
+        if (r.getItems() != null) {
+            for (OcrItem it : r.getItems()) {
+                OcrStreamEvent e = new OcrStreamEvent();
+                e.type = ITEM;
+                e.image = it.getImage();
+                e.roiIndex = it.getRoiIndex();
+                e.text = it.getText();
+                out.add(e);
+            }
+        }
+        OcrStreamEvent done = new OcrStreamEvent();
+        done.type = DONE;
+        done.jobId = r.getJobId();
+        done.sourceImage = r.getSourceImage();
+        done.resultsCsv = r.getResultsCsv();
+        done.savedImage = r.getSavedImage();
+        done.count = r.getCount();
+        done.error = r.getError();
+        out.add(done);
+        return out;
+    }
+
+    public String getType() { return type; }
+    public void setType(String type) { this.type = type; }
+    public String getImage() { return image; }
+    public void setImage(String image) { this.image = image; }
+    public Integer getRoiIndex() { return roiIndex; }
+    public void setRoiIndex(Integer roiIndex) { this.roiIndex = roiIndex; }
+    public String getText() { return text; }
+    public void setText(String text) { this.text = text; }
+    public String getJobId() { return jobId; }
+    public void setJobId(String jobId) { this.jobId = jobId; }
+    public String getSourceImage() { return sourceImage; }
+    public void setSourceImage(String sourceImage) { this.sourceImage = sourceImage; }
+    public String getResultsCsv() { return resultsCsv; }
+    public void setResultsCsv(String resultsCsv) { this.resultsCsv = resultsCsv; }
+    public String getSavedImage() { return savedImage; }
+    public void setSavedImage(String savedImage) { this.savedImage = savedImage; }
+    public Integer getCount() { return count; }
+    public void setCount(Integer count) { this.count = count; }
+    public String getError() { return error; }
+    public void setError(String error) { this.error = error; }
+}
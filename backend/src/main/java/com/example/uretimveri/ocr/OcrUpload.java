@@ -0,0 +1,34 @@
+package com.example.uretimveri.ocr;
+
+import org.springframework.core.io.ByteArrayResource;
+import org.springframework.core.io.Resource;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.IOException;
+
+// Python'a gönderilecek tek görsel: içerik + dosya adı + içerik tipi
+public class OcrUpload {
+    private final Resource content;
+    private final String filename;
+    private final String contentType;
+
+    public OcrUpload(Resource content, String filename, String contentType) {
+        this.content = content;
+        this.filename = filename;
+        this.contentType = contentType;
+    }
+
+    /** İstek süresince geçerli: MultipartFile'ın kendi kaynağını kullanır (kopya yok) */
+    public static OcrUpload of(MultipartFile file) {
+        return new OcrUpload(file.getResource(), file.getOriginalFilename(), file.getContentType());
+    }
+
+    /** İstek bittikten sonra da okunabilir: içeriği belleğe kopyalar (job kuyruğu için) */
+    public static OcrUpload copyOf(MultipartFile file) throws IOException {
+        return new OcrUpload(new ByteArrayResource(file.getBytes()), file.getOriginalFilename(), file.getContentType());
+    }
+
+    public Resource getContent() { return content; }
+    public String getFilename() { return filename; }
+    public String getContentType() { return contentType; }
+}
@@ -0,0 +1,27 @@
+package com.example.uretimveri.ocr;
+
+// Çok sayfalı belgede tek sayfanın özeti (RecognizeUiResponse.pages)
+public class RecognizePage {
+    private Integer page;
+    private String jobId;
+    private Integer detectedCount;
+    private String error;    // sadece bu sayfa başarısızsa dolu
+
+    public Integer getPage() { return page; }
+    public void setPage(Integer page) { this.page = page; }
+    public String getJobId() { return jobId; }
+    public void setJobId(String jobId) { this.jobId = jobId; }
+    public Integer getDetectedCount() { return detectedCount; }
+    public void setDetectedCount(Integer detectedCount) { this.detectedCount = detectedCount; }
+    public String getError() { return error; }
+    public void setError(String error) { this.error = error; }
+
+    public RecognizePage copy() {
+        RecognizePage c = new RecognizePage();
+        c.page = page;
+        c.jobId = jobId;
+        c.detectedCount = detectedCount;
+        c.error = error;
+        return c;
+    }
+}
@@ -1,17 +1,54 @@
 package com.example.uretimveri.ocr;
 
+import java.util.List;
+import java.util.stream.Collectors;
+
 public class RecognizeUiItem {
+    private Integer page;    // çok sayfalı belgede 1'den başlayan sayfa no, tek görselde null
     private Integer roiIndex;
     private String text;     // Python'un ham metni
     private Long lvdt;       // seçilmiş LVDT (10–18 haneli varsa o, yoksa son sayı)
+    private List<LvdtReading> readings; // metindeki tüm LVDT adayları, puana göre sıralı
     private String image;
+    private Long existingProductId; // LVDT zaten plates'te kayıtlıysa o product_id, değilse null
+    private List<LvdtCandidate> candidates; // kayıtlı değilse, yanlış okunmuş olabileceği yakın LVDT'ler
+    private Boolean autoCommitted; // otomatik kayıt açıksa: tanıma isteğinde kaydedildi mi
+    private String review;         // kaydedilmediyse sebebi (digits, near_match, ...); açık değilse null
 
+    public Integer getPage() { return page; }
+    public void setPage(Integer page) { this.page = page; }
     public Integer getRoiIndex() { return roiIndex; }
     public void setRoiIndex(Integer roiIndex) { this.roiIndex = roiIndex; }
     public String getText() { return text; }
     public void setText(String text) { this.text = text; }
     public Long getLvdt() { return lvdt; }
     public void setLvdt(Long lvdt) { this.lvdt = lvdt; }
+    public List<LvdtReading> getReadings() { return readings; }
+    public void setReadings(List<LvdtReading> readings) { this.readings = readings; }
     public String getImage() { return image; }
     public void setImage(String image) { this.image = image; }
+    public Long getExistingProductId() { return existingProductId; }
+    public void setExistingProductId(Long existingProductId) { this.existingProductId = existingProductId; }
+    public List<LvdtCandidate> getCandidates() { return candidates; }
+    public void setCandidates(List<LvdtCandidate> candidates) { this.candidates = candidates; }
+    public Boolean getAutoCommitted() { return autoCommitted; }
+    public void setAutoCommitted(Boolean autoCommitted) { this.autoCommitted = autoCommitted; }
+    public String getReview() { return review; }
+    public void setReview(String review) { this.review = review; }
+
+    /** Derin kopya: paylaşılan bir sonuç (dedup, önbellek) isteğe özel alanlarıyla değiştirilmeden önce */
+    public RecognizeUiItem copy() {
+        RecognizeUiItem c = new RecognizeUiItem();
+        c.page = page;
+        c.roiIndex = roiIndex;
+        c.text = text;
+        c.lvdt = lvdt;
+        c.readings = readings == null ? null : readings.stream().map(LvdtReading::copy).collect(Collectors.toList());
+        c.image = image;
+        c.existingProductId = existingProductId;
+        c.candidates = candidates == null ? null : candidates.stream().map(LvdtCandidate::copy).collect(Collectors.toList());
+        c.autoCommitted = autoCommitted;
+        c.review = review;
+        return c;
+    }
 }
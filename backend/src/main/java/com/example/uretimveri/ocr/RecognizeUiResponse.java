@@ -1,12 +1,18 @@
 package com.example.uretimveri.ocr;
 
 import java.util.List;
+import java.util.stream.Collectors;
 
 public class RecognizeUiResponse {
     private String jobId;
     private Integer detectedCount;
     private String sourceImage;
+    private String imageUrl;  // Python'un işaretli görseli, depodan (/api/slabs/images/{hash}); alınamadıysa null
     private List<RecognizeUiItem> items;
+    private String error;    // toplu tanımada bu görsel başarısızsa dolu
+    private Integer pageCount;         // çok sayfalı PDF/TIFF ise sayfa sayısı
+    private List<RecognizePage> pages; // sayfa başına özet; öğeler page alanıyla eşleşir
+    private Integer autoCommittedCount; // otomatik kayıt açıksa bu istekte kaydedilen öğe sayısı
 
     public String getJobId() { return jobId; }
     public void setJobId(String jobId) { this.jobId = jobId; }
@@ -14,6 +20,31 @@ public class RecognizeUiResponse {
     public void setDetectedCount(Integer detectedCount) { this.detectedCount = detectedCount; }
     public String getSourceImage() { return sourceImage; }
     public void setSourceImage(String sourceImage) { this.sourceImage = sourceImage; }
+    public String getImageUrl() { return imageUrl; }
+    public void setImageUrl(String imageUrl) { this.imageUrl = imageUrl; }
     public List<RecognizeUiItem> getItems() { return items; }
     public void setItems(List<RecognizeUiItem> items) { this.items = items; }
+    public String getError() { return error; }
+    public void setError(String error) { this.error = error; }
+    public Integer getPageCount() { return pageCount; }
+    public void setPageCount(Integer pageCount) { this.pageCount = pageCount; }
+    public List<RecognizePage> getPages() { return pages; }
+    public void setPages(List<RecognizePage> pages) { this.pages = pages; }
+    public Integer getAutoCommittedCount() { return autoCommittedCount; }
+    public void setAutoCommittedCount(Integer autoCommittedCount) { this.autoCommittedCount = autoCommittedCount; }
+
+    /** Derin kopya: paylaşılan bir sonuç (dedup, önbellek) isteğe özel alanlarıyla değiştirilmeden önce */
+    public RecognizeUiResponse copy() {
+        RecognizeUiResponse c = new RecognizeUiResponse();
+        c.jobId = jobId;
+        c.detectedCount = detectedCount;
+        c.sourceImage = sourceImage;
+        c.imageUrl = imageUrl;
+        c.items = items == null ? null : items.stream().map(RecognizeUiItem::copy).collect(Collectors.toList());
+        c.error = error;
+        c.pageCount = pageCount;
+        c.pages = pages == null ? null : pages.stream().map(RecognizePage::copy).collect(Collectors.toList());
+        c.autoCommittedCount = autoCommittedCount;
+        return c;
+    }
 }
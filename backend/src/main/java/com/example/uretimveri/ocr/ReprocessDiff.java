@@ -0,0 +1,38 @@
+package com.example.uretimveri.ocr;
+
+import java.time.Instant;
+
+// ocr_reprocess_diff satırı: yeni modelin okuması plates ile örtüşmüyorsa
+public class ReprocessDiff {
+    private Long runId;
+    private String imagePath;
+    private Integer roiIndex;
+    private Long newLvdt;      // yeni modelin okuduğu LVDT (okunamadıysa null)
+    private Long plateLvdt;    // plates'teki en yakın LVDT (yoksa null)
+    private Long productId;
+    private Integer distance;  // newLvdt ile plateLvdt arasındaki hane farkı
+    private String kind;       // MISMATCH / UNKNOWN / NO_READ / ERROR
+    private String detail;
+    private Instant createdAt;
+
+    public Long getRunId() { return runId; }
+    public void setRunId(Long runId) { this.runId = runId; }
+    public String getImagePath() { return imagePath; }
+    public void setImagePath(String imagePath) { this.imagePath = imagePath; }
+    public Integer getRoiIndex() { return roiIndex; }
+    public void setRoiIndex(Integer roiIndex) { this.roiIndex = roiIndex; }
+    public Long getNewLvdt() { return newLvdt; }
+    public void setNewLvdt(Long newLvdt) { this.newLvdt = newLvdt; }
+    public Long getPlateLvdt() { return plateLvdt; }
+    public void setPlateLvdt(Long plateLvdt) { this.plateLvdt = plateLvdt; }
+    public Long getProductId() { return productId; }
+    public void setProductId(Long productId) { this.productId = productId; }
+    public Integer getDistance() { return distance; }
+    public void setDistance(Integer distance) { this.distance = distance; }
+    public String getKind() { return kind; }
+    public void setKind(String kind) { this.kind = kind; }
+    public String getDetail() { return detail; }
+    public void setDetail(String detail) { this.detail = detail; }
+    public Instant getCreatedAt() { return createdAt; }
+    public void setCreatedAt(Instant createdAt) { this.createdAt = createdAt; }
+}
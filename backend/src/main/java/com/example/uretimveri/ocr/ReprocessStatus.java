@@ -0,0 +1,41 @@
+package com.example.uretimveri.ocr;
+
+import java.time.Instant;
+
+// Toplu yeniden OCR işinin anlık durumu (GET /api/admin/reprocess)
+public class ReprocessStatus {
+    private Long runId;
+    private String archiveDir;
+    private String state;        // IDLE / RUNNING / STOPPING / PAUSED / DONE / FAILED
+    private String checkpoint;   // son tamamlanan parçanın son dosyası (arşive göre yol)
+    private long processed;
+    private long failed;
+    private long diffs;
+    private Long remaining;      // sayım bitene kadar null
+    private double imagesPerSecond;
+    private Long etaSeconds;
+    private Instant startedAt;
+
+    public Long getRunId() { return runId; }
+    public void setRunId(Long runId) { this.runId = runId; }
+    public String getArchiveDir() { return archiveDir; }
+    public void setArchiveDir(String archiveDir) { this.archiveDir = archiveDir; }
+    public String getState() { return state; }
+    public void setState(String state) { this.state = state; }
+    public String getCheckpoint() { return checkpoint; }
+    public void setCheckpoint(String checkpoint) { this.checkpoint = checkpoint; }
+    public long getProcessed() { return processed; }
+    public void setProcessed(long processed) { this.processed = processed; }
+    public long getFailed() { return failed; }
+    public void setFailed(long failed) { this.failed = failed; }
+    public long getDiffs() { return diffs; }
+    public void setDiffs(long diffs) { this.diffs = diffs; }
+    public Long getRemaining() { return remaining; }
+    public void setRemaining(Long remaining) { this.remaining = remaining; }
+    public double getImagesPerSecond() { return imagesPerSecond; }
+    public void setImagesPerSecond(double imagesPerSecond) { this.imagesPerSecond = imagesPerSecond; }
+    public Long getEtaSeconds() { return etaSeconds; }
+    public void setEtaSeconds(Long etaSeconds) { this.etaSeconds = etaSeconds; }
+    public Instant getStartedAt() { return startedAt; }
+    public void setStartedAt(Instant startedAt) { this.startedAt = startedAt; }
+}
@@ -0,0 +1,328 @@
+package com.example.uretimveri.service;
+
+import com.example.uretimveri.ocr.OcrUpload;
+import com.example.uretimveri.ocr.RecognizeUiItem;
+import com.example.uretimveri.ocr.RecognizeUiResponse;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.io.ByteArrayResource;
+import org.springframework.stereotype.Service;
+import org.springframework.util.unit.DataSize;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.net.HttpURLConnection;
+import java.net.URI;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+// Kameranın MJPEG/HTTP akışından sürekli tanıma. Her kamera için iki thread:
+//  - okuyucu: akışı MjpegFrameReader ile sabit tampon havuzuna okur, bağlantı koparsa artan beklemeyle yeniden bağlanır
+//  - örnekleyici: kareyi sample-interval'de bir ya da dHash ile hareket algılanınca mevcut tanıma yoluna
+//    (FrameDedupFilter + OcrService + RecognizeUiMapper) gönderir; kamera başına aynı anda tek OCR çağrısı olur.
+// Son sonuç kamera başına tutulur (GET /api/slabs/camera/latest).
+@Service
+@Slf4j
+@ConditionalOnProperty(name = "ocr.camera.enabled", havingValue = "true")
+public class CameraStreamIngestor {
+
+    private final OcrService ocrService;
+    private final RecognizeUiMapper uiMapper;
+    private final FrameDedupFilter dedup;
+    private final Img2DataPlatesService platesService;
+    private final MeterRegistry registry;
+
+    private final List<String> urls;
+    private final Duration sampleInterval;
+    private final Duration motionCheckInterval;
+    private final int motionThreshold;
+    private final int buffers;
+    private final int maxFrameSize;
+    private final Duration connectTimeout;
+    private final Duration readTimeout;
+    private final Duration reconnectMin;
+    private final Duration reconnectMax;
+    private final boolean autoSave;
+
+    private final List<Camera> cameras = new ArrayList<>();
+    private final Map<String, RecognizeUiResponse> latest = new ConcurrentHashMap<>();
+    private volatile boolean running = true;
+
+    public CameraStreamIngestor(OcrService ocrService,
+                                RecognizeUiMapper uiMapper,
+                                FrameDedupFilter dedup,
+                                Img2DataPlatesService platesService,
+                                MeterRegistry registry,
+                                @Value("${ocr.camera.urls}") List<String> urls,
+                                @Value("${ocr.camera.sample-interval:2s}") Duration sampleInterval,
+                                @Value("${ocr.camera.motion-check-interval:200ms}") Duration motionCheckInterval,
+                                @Value("${ocr.camera.motion-threshold:10}") int motionThreshold,
+                                @Value("${ocr.camera.buffers:4}") int buffers,
+                                @Value("${ocr.camera.max-frame-size:2MB}") DataSize maxFrameSize,
+                                @Value("${ocr.camera.connect-timeout:5s}") Duration connectTimeout,
+                                @Value("${ocr.camera.read-timeout:10s}") Duration readTimeout,
+                                @Value("${ocr.camera.reconnect-min:1s}") Duration reconnectMin,
+                                @Value("${ocr.camera.reconnect-max:30s}") Duration reconnectMax,
+                                @Value("${ocr.camera.auto-save:false}") boolean autoSave) {
+        this.ocrService = ocrService;
+        this.uiMapper = uiMapper;
+        this.dedup = dedup;
+        this.platesService = platesService;
+        this.registry = registry;
+        this.urls = urls.stream().map(String::trim).filter(u -> !u.isEmpty()).toList();
+        this.sampleInterval = sampleInterval;
+        this.motionCheckInterval = motionCheckInterval;
+        this.motionThreshold = motionThreshold;
+        this.buffers = Math.max(2, buffers);
+        this.maxFrameSize = (int) Math.min(Integer.MAX_VALUE - 8, maxFrameSize.toBytes());
+        this.connectTimeout = connectTimeout;
+        this.readTimeout = readTimeout;
+        this.reconnectMin = reconnectMin;
+        this.reconnectMax = reconnectMax;
+        this.autoSave = autoSave;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        for (String url : urls) {
+            Camera cam = new Camera(nameOf(url), url);
+            cameras.add(cam);
+            cam.start();
+            log.info("Kamera akışı izleniyor: {} ({})", cam.name, url);
+        }
+    }
+
+    @PreDestroy
+    public void stop() {
+        running = false;
+        for (Camera cam : cameras) cam.stop();
+    }
+
+    /** Kamera adı → son tanıma sonucu */
+    public Map<String, RecognizeUiResponse> latest() {
+        Map<String, RecognizeUiResponse> out = new LinkedHashMap<>();
+        for (Camera cam : cameras) {
+            RecognizeUiResponse r = latest.get(cam.name);
+            if (r != null) out.put(cam.name, r);
+        }
+        return out;
+    }
+
+    // testte stub'a bağlanabilmesi için ayrı: gerçek yol OcrService + UI eşlemesi
+    Mono<RecognizeUiResponse> recognize(OcrUpload upload) {
+        return uiMapper.toUiAsync(ocrService.recognize(upload));
+    }
+
+    // metrik etiketi: host[:port]
+    static String nameOf(String url) {
+        URI uri = URI.create(url);
+        if (uri.getHost() == null) return url;
+        return uri.getPort() > 0 ? uri.getHost() + ":" + uri.getPort() : uri.getHost();
+    }
+
+    private final class Camera {
+        final String name;
+        final String url;
+        final MjpegFrameReader.FramePool pool;
+        final BlockingQueue<MjpegFrameReader.Frame> handoff;
+        final AtomicBoolean busy = new AtomicBoolean();
+
+        final Counter framesRead;
+        final Counter framesDropped;
+        final Counter framesSampled;
+        final Counter framesMotion;
+        final Counter framesBusy;
+        final Counter reconnects;
+
+        Thread reader;
+        Thread sampler;
+        volatile HttpURLConnection connection;
+
+        long countedFrames;
+        long countedLost;
+        long lastSentAt = Long.MIN_VALUE;
+        long lastCheckAt = Long.MIN_VALUE;
+        Long lastSentHash;
+
+        Camera(String name, String url) {
+            this.name = name;
+            this.url = url;
+            this.pool = new MjpegFrameReader.FramePool(buffers, maxFrameSize);
+            this.handoff = new ArrayBlockingQueue<>(buffers);
+
+            this.framesRead = frames("read", "Akıştan okunan kare");
+            this.framesDropped = frames("dropped", "Boş tampon olmadığı ya da sığmadığı için atılan kare");
+            this.framesSampled = frames("sampled", "Zaman aralığıyla OCR'a gönderilen kare");
+            this.framesMotion = frames("motion", "Hareket algılanınca OCR'a gönderilen kare");
+            this.framesBusy = frames("busy", "Önceki OCR sürerken örneklenip atlanan kare");
+            this.reconnects = Counter.builder("ocr.camera.reconnects").tag("camera", name)
+                    .description("Kamera akışına yeniden bağlanma").register(registry);
+            Gauge.builder("ocr.camera.buffers.free", pool, MjpegFrameReader.FramePool::available)
+                    .tag("camera", name)
+                    .description("Kamera kare havuzundaki boş tampon").register(registry);
+        }
+
+        private Counter frames(String result, String description) {
+            return Counter.builder("ocr.camera.frames").tag("camera", name).tag("result", result)
+                    .description(description).register(registry);
+        }
+
+        void start() {
+            reader = new Thread(this::readLoop, "ocr-camera-read-" + name);
+            reader.setDaemon(true);
+            sampler = new Thread(this::sampleLoop, "ocr-camera-sample-" + name);
+            sampler.setDaemon(true);
+            sampler.start();
+            reader.start();
+        }
+
+        void stop() {
+            HttpURLConnection c = connection;
+            if (c != null) c.disconnect(); // bloklanmış okumayı keser
+            reader.interrupt();
+            sampler.interrupt();
+        }
+
+        private void readLoop() {
+            Duration backoff = reconnectMin;
+            while (running) {
+                MjpegFrameReader frames = null;
+                try {
+                    HttpURLConnection c = (HttpURLConnection) URI.create(url).toURL().openConnection();
+                    connection = c;
+                    c.setConnectTimeout((int) connectTimeout.toMillis());
+                    c.setReadTimeout((int) readTimeout.toMillis());
+                    int status = c.getResponseCode();
+                    if (status / 100 != 2) throw new IOException("HTTP " + status);
+                    frames = new MjpegFrameReader(c.getInputStream(), MjpegFrameReader.boundaryOf(c.getContentType()), pool);
+                    MjpegFrameReader.Frame frame;
+                    while (running && (frame = frames.next()) != null) {
+                        backoff = reconnectMin;
+                        // handoff kapasitesi havuz kadar: havuzdan alınan kare burada hiç beklemez
+                        handoff.offer(frame);
+                        account(frames);
+                    }
+                    if (running) log.info("Kamera akışı bitti, yeniden bağlanılacak: {}", name);
+                } catch (InterruptedIOException e) {
+                    if (running) log.warn("Kamera akışı zaman aşımı: {} - {}", name, e.getMessage());
+                } catch (IOException | RuntimeException e) {
+                    if (running) log.warn("Kamera akışı hatası: {} - {}", name, e.getMessage());
+                } finally {
+                    if (frames != null) account(frames);
+                    countedFrames = 0;
+                    countedLost = 0;
+                    HttpURLConnection c = connection;
+                    if (c != null) c.disconnect();
+                    connection = null;
+                }
+                if (!running) return;
+                reconnects.increment();
+                try {
+                    Thread.sleep(backoff.toMillis());
+                } catch (InterruptedException e) {
+                    return;
+                }
+                backoff = backoff.multipliedBy(2).compareTo(reconnectMax) > 0 ? reconnectMax : backoff.multipliedBy(2);
+            }
+        }
+
+        // okuyucunun sayaçları bağlantı başına; metriklere sadece artış eklenir
+        private void account(MjpegFrameReader frames) {
+            long seen = frames.frames();
+            long lost = frames.dropped() + frames.oversized();
+            if (seen > countedFrames) framesRead.increment(seen - countedFrames);
+            if (lost > countedLost) framesDropped.increment(lost - countedLost);
+            countedFrames = seen;
+            countedLost = lost;
+        }
+
+        private void sampleLoop() {
+            while (running) {
+                MjpegFrameReader.Frame frame;
+                try {
+                    frame = handoff.poll(1, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    return;
+                }
+                if (frame == null) continue;
+                try {
+                    sample(frame);
+                } catch (Exception e) {
+                    log.debug("Kamera karesi işlenemedi: {} - {}", name, e.getMessage());
+                } finally {
+                    frame.release();
+                }
+            }
+        }
+
+        // zaman aralığı dolduysa ya da son gönderilen kareden hash farkı eşiği aştıysa gönder
+        private void sample(MjpegFrameReader.Frame frame) throws IOException {
+            long now = System.nanoTime();
+            boolean due = lastSentAt == Long.MIN_VALUE || now - lastSentAt >= sampleInterval.toNanos();
+            boolean checkMotion = motionThreshold > 0 && (lastCheckAt == Long.MIN_VALUE
+                    || now - lastCheckAt >= motionCheckInterval.toNanos());
+            if (!due && !checkMotion) return;
+            if (busy.get()) {
+                framesBusy.increment();
+                return;
+            }
+
+            Long hash = (motionThreshold > 0 || dedup.isEnabled()) ? dedup.hashOf(frame.stream()) : null;
+            lastCheckAt = now;
+            boolean motion = !due && hash != null && lastSentHash != null
+                    && Long.bitCount(hash ^ lastSentHash) >= motionThreshold;
+            if (!due && !motion) return;
+
+            lastSentAt = now;
+            lastSentHash = hash;
+            (motion ? framesMotion : framesSampled).increment();
+            send(frame, hash);
+        }
+
+        private void send(MjpegFrameReader.Frame frame, Long hash) {
+            if (hash != null && dedup.isEnabled()) {
+                RecognizeUiResponse hit = dedup.lookup(hash).orElse(null);
+                if (hit != null) {
+                    latest.put(name, hit);
+                    return;
+                }
+            }
+            // kare havuza döneceği için OCR'a kopyası gider (sadece örneklenen karelerde)
+            OcrUpload upload = new OcrUpload(new ByteArrayResource(frame.copy()),
+                    name.replace(':', '_') + "-" + frame.sequence() + ".jpg", "image/jpeg");
+            busy.set(true);
+            recognize(upload)
+                    .publishOn(Schedulers.boundedElastic())
+                    .doFinally(sig -> busy.set(false))
+                    .subscribe(ui -> onResult(ui, hash),
+                            e -> log.warn("Kamera karesi tanınamadı: {} - {}", name, e.getMessage()));
+        }
+
+        private void onResult(RecognizeUiResponse ui, Long hash) {
+            latest.put(name, ui);
+            if (hash != null && dedup.isEnabled()) dedup.remember(hash, ui);
+            if (!autoSave || ui.getItems() == null) return;
+            List<Long> lvdts = ui.getItems().stream().map(RecognizeUiItem::getLvdt)
+                    .filter(Objects::nonNull).distinct().toList();
+            if (!lvdts.isEmpty()) platesService.saveAll(lvdts);
+        }
+    }
+}
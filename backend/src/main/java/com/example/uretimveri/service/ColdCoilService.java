@@ -16,15 +16,19 @@ public class ColdCoilService {
 
     private final ColdCoilRepository coldCoilRepository;
     private final ProductRepository productRepository;
+    private final TablePageService tablePages;
 
     public ColdCoilService(ColdCoilRepository coldCoilRepository,
-                           ProductRepository productRepository) {
+                           ProductRepository productRepository,
+                           TablePageService tablePages) {
         this.coldCoilRepository = coldCoilRepository;
         this.productRepository = productRepository;
+        this.tablePages = tablePages;
     }
 
     @Transactional
     public ColdCoil createWithNewProduct(ColdCoil payload) {
+        tablePages.invalidateTotals();
         Product p = new Product();
         p.setProductType("cold_coil");
         p = productRepository.save(p);                  // TRIGGER cold_coil satırını açar
@@ -46,6 +50,7 @@ public class ColdCoilService {
 
     @Transactional
     public ColdCoil createForExistingProduct(Long productId, ColdCoil payload) {
+        tablePages.invalidateTotals();
         Product p = productRepository.findById(productId)
                 .orElseThrow(() -> new EntityNotFoundException("Product bulunamadı: " + productId));
 
@@ -77,6 +82,7 @@ public class ColdCoilService {
 
     @Transactional
     public void delete(Long id) {
+        tablePages.invalidateTotals();
         if (!coldCoilRepository.existsById(id)) {
             throw new EntityNotFoundException("ColdCoil bulunamadı: " + id);
         }
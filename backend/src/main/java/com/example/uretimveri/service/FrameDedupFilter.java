@@ -0,0 +1,176 @@
+package com.example.uretimveri.service;
+
+import com.example.uretimveri.ocr.RecognizeUiResponse;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.Resource;
+import org.springframework.stereotype.Component;
+
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReadParam;
+import javax.imageio.ImageReader;
+import javax.imageio.stream.ImageInputStream;
+import java.awt.Graphics2D;
+import java.awt.Rectangle;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.io.InputStream;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayDeque;
+import java.util.Iterator;
+import java.util.Optional;
+
+// Sabit duran slabın neredeyse aynı karelerini OCR'a tekrar göndermemek için algısal özet (dHash) filtresi.
+// Son karelerin özetleri ve sonuçları kayan pencerede tutulur; Hamming mesafesi eşik altındaysa
+// önceki sonucun kopyası kullanılır. Tüm kare özeti, etiketi farklı ama sahnesi aynı bir sonraki slabı
+// da "aynı" sayabilir: ocr.dedup.region ile özet sadece LVDT etiketinin bulunduğu bölgeden çıkarılır,
+// eşik ve pencere süresi de bu yüzden dar tutulur.
+@Component
+public class FrameDedupFilter {
+
+    private final boolean enabled;
+    private final int maxDistance;
+    private final int windowSize;
+    private final Duration windowTtl;
+    private final int[] region; // x,y,w,h (piksel, tam kare üzerinden) ya da null
+
+    private final ArrayDeque<Entry> window = new ArrayDeque<>();
+
+    private final Counter skipped;
+    private final Counter processed;
+
+    // response bir anlık görüntüdür: dışarıya hiç verilmez, her isabette kopyası döner
+    private record Entry(long hash, Instant at, RecognizeUiResponse response) {}
+
+    public FrameDedupFilter(MeterRegistry registry,
+                            @Value("${ocr.dedup.enabled:false}") boolean enabled,
+                            @Value("${ocr.dedup.max-distance:2}") int maxDistance,
+                            @Value("${ocr.dedup.window-size:32}") int windowSize,
+                            @Value("${ocr.dedup.window-ttl:10s}") Duration windowTtl,
+                            @Value("${ocr.dedup.region:}") String region) {
+        this.enabled = enabled;
+        this.maxDistance = maxDistance;
+        this.windowSize = windowSize;
+        this.windowTtl = windowTtl;
+        this.region = parseRegion(region);
+
+        this.skipped = Counter.builder("ocr.dedup.frames").tag("result", "skipped")
+                .description("Yakın kopya olduğu için OCR'a gönderilmeyen kare").register(registry);
+        this.processed = Counter.builder("ocr.dedup.frames").tag("result", "processed")
+                .description("OCR'a gönderilen kare").register(registry);
+        Gauge.builder("ocr.dedup.skip.ratio", this, f -> {
+                    double total = f.skipped.count() + f.processed.count();
+                    return total == 0 ? 0.0 : f.skipped.count() / total;
+                })
+                .description("Atlanan kare oranı")
+                .register(registry);
+    }
+
+    public boolean isEnabled() { return enabled; }
+
+    /** Pencerede yakın bir kare varsa onun sonucunun kopyasını döner (ve atlandı sayar); çağıran serbestçe değiştirebilir */
+    public synchronized Optional<RecognizeUiResponse> lookup(long hash) {
+        Instant limit = Instant.now().minus(windowTtl);
+        RecognizeUiResponse best = null;
+        int bestDistance = Integer.MAX_VALUE;
+        for (Iterator<Entry> it = window.iterator(); it.hasNext(); ) {
+            Entry e = it.next();
+            if (e.at().isBefore(limit)) { it.remove(); continue; }
+            int d = Long.bitCount(e.hash() ^ hash);
+            if (d <= maxDistance && d < bestDistance) {
+                best = e.response();
+                bestDistance = d;
+            }
+        }
+        if (best != null) skipped.increment(); else processed.increment();
+        return Optional.ofNullable(best).map(RecognizeUiResponse::copy);
+    }
+
+    // Kopya saklanır: çağıranın sonradan yaptığı değişiklikler (otomatik kayıt, annotate) pencereye sızmaz.
+    // Otomatik kayıt alanları o isteğe aittir; isabet alan istek kendi kaydını yapar.
+    public synchronized void remember(long hash, RecognizeUiResponse response) {
+        if (response == null || response.getError() != null) return;
+        RecognizeUiResponse snapshot = response.copy();
+        snapshot.setAutoCommittedCount(null);
+        if (snapshot.getItems() != null) {
+            snapshot.getItems().forEach(it -> {
+                it.setAutoCommitted(null);
+                it.setReview(null);
+            });
+        }
+        window.addLast(new Entry(hash, Instant.now(), snapshot));
+        while (window.size() > windowSize) window.removeFirst();
+    }
+
+    /**
+     * 64 bit dHash; görsel çözülemezse null. Bloklayıcı, reaktif thread'de çağırmayın.
+     * JPEG alt örnekleme ile okunur: tam çözünürlükte çözmeye gerek yok. ocr.dedup.region verilmişse
+     * sadece o bölge (kareye sığacak kadar kırpılmış) okunur.
+     */
+    public Long hashOf(Resource content) throws IOException {
+        try (InputStream in = content.getInputStream()) {
+            return hashOf(in);
+        }
+    }
+
+    /** Akışı kapatmaz; kamera karesi gibi bellekteki tampondan okumak için */
+    public Long hashOf(InputStream in) throws IOException {
+        try (ImageInputStream iis = ImageIO.createImageInputStream(in)) {
+            if (iis == null) return null;
+            Iterator<ImageReader> readers = ImageIO.getImageReaders(iis);
+            if (!readers.hasNext()) return null;
+            ImageReader reader = readers.next();
+            try {
+                reader.setInput(iis, true, true);
+                ImageReadParam param = reader.getDefaultReadParam();
+                Rectangle area = area(reader.getWidth(0), reader.getHeight(0));
+                if (area != null) param.setSourceRegion(area);
+                int step = Math.max(1, (area != null ? area.width : reader.getWidth(0)) / 128);
+                param.setSourceSubsampling(step, step, 0, 0);
+                return dHash(reader.read(0, param));
+            } finally {
+                reader.dispose();
+            }
+        }
+    }
+
+    // bölge kareyle kesişmiyorsa tüm kare kullanılır
+    private Rectangle area(int width, int height) {
+        if (region == null) return null;
+        Rectangle r = new Rectangle(region[0], region[1], region[2], region[3]).intersection(new Rectangle(width, height));
+        return r.isEmpty() ? null : r;
+    }
+
+    private static int[] parseRegion(String region) {
+        if (region == null || region.isBlank()) return null;
+        String[] parts = region.split(",");
+        if (parts.length != 4) throw new IllegalArgumentException("ocr.dedup.region 'x,y,w,h' olmalı: " + region);
+        int[] out = new int[4];
+        for (int i = 0; i < 4; i++) out[i] = Integer.parseInt(parts[i].trim());
+        return out;
+    }
+
+    static long dHash(BufferedImage img) {
+        BufferedImage small = new BufferedImage(9, 8, BufferedImage.TYPE_BYTE_GRAY);
+        Graphics2D g = small.createGraphics();
+        try {
+            g.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+            g.drawImage(img, 0, 0, 9, 8, null);
+        } finally {
+            g.dispose();
+        }
+        long hash = 0;
+        int[] row = new int[9];
+        for (int y = 0; y < 8; y++) {
+            small.getRaster().getPixels(0, y, 9, 1, row);
+            for (int x = 0; x < 8; x++) {
+                hash = (hash << 1) | (row[x] < row[x + 1] ? 1 : 0);
+            }
+        }
+        return hash;
+    }
+}
@@ -16,15 +16,19 @@ public class HotCoilService {
 
     private final HotCoilRepository hotCoilRepository;
     private final ProductRepository productRepository;
+    private final TablePageService tablePages;
 
     public HotCoilService(HotCoilRepository hotCoilRepository,
-                          ProductRepository productRepository) {
+                          ProductRepository productRepository,
+                          TablePageService tablePages) {
         this.hotCoilRepository = hotCoilRepository;
         this.productRepository = productRepository;
+        this.tablePages = tablePages;
     }
 
     @Transactional
     public HotCoil createWithNewProduct(HotCoil payload) {
+        tablePages.invalidateTotals();
         Product p = new Product();
         p.setProductType("hot_coil");            // ürün tipi tetikleyiciye de ipucu olur
         p = productRepository.save(p);           // <-- TRIGGER hot_coil satırını açar
@@ -48,6 +52,7 @@ public class HotCoilService {
 
     @Transactional
     public HotCoil createForExistingProduct(Long productId, HotCoil payload) {
+        tablePages.invalidateTotals();
         Product p = productRepository.findById(productId)
                 .orElseThrow(() -> new EntityNotFoundException("Product bulunamadı: " + productId));
 
@@ -80,6 +85,7 @@ public class HotCoilService {
 
     @Transactional
     public void delete(Long id) {
+        tablePages.invalidateTotals();
         if (!hotCoilRepository.existsById(id)) {
             throw new EntityNotFoundException("HotCoil bulunamadı: " + id);
         }
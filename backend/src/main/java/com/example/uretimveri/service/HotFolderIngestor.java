@@ -0,0 +1,359 @@
+package com.example.uretimveri.service;
+
+import com.example.uretimveri.ocr.OcrUpload;
+import com.example.uretimveri.ocr.RecognizeUiItem;
+import com.example.uretimveri.ocr.RecognizeUiResponse;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.io.ByteArrayResource;
+import org.springframework.stereotype.Service;
+
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReader;
+import javax.imageio.stream.ImageInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.file.*;
+import java.nio.file.attribute.FileTime;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// Sadece klasöre JPEG yazabilen hat kameraları için sıcak klasör: WatchService yeni dosyaları yakalar,
+// dosya üç aşamalı bir boru hattından geçer: read (dosya yazımı bitince oku + görsel mi kontrol et) →
+// ocr (OcrService + LVDT seçimi) → save (isteğe bağlı Img2DataPlatesService + processed/failed'a taşıma).
+// Her aşamanın kendi worker sayısı ve sınırlı kuyruğu var; kuyruk doluysa önceki aşama bekler
+// (geri basınç), böylece Python yavaşladığında bellek büyümez, dosyalar klasörde bekler.
+@Service
+@Slf4j
+@ConditionalOnProperty(name = "ocr.hotfolder.enabled", havingValue = "true")
+public class HotFolderIngestor {
+
+    private record Dropped(Path path, Instant seen) {}
+    private record Loaded(Dropped file, OcrUpload upload) {}
+    private record Recognized(Dropped file, RecognizeUiResponse response) {}
+
+    private final OcrService ocrService;
+    private final RecognizeUiMapper uiMapper;
+    private final Img2DataPlatesService platesService;
+
+    private final Path inbox;
+    private final Path processedDir;
+    private final Path failedDir;
+    private final PathMatcher matcher;
+    private final Duration settleTime;
+    private final Duration maxSettleTime;
+    private final Duration ocrTimeout;
+    private final boolean autoSave;
+
+    private final ThreadPoolExecutor readStage;
+    private final ThreadPoolExecutor ocrStage;
+    private final ThreadPoolExecutor saveStage;
+    // WatchService aynı dosya için CREATE + MODIFY verebilir; boru hattındaki dosya bir kez alınır
+    private final Set<Path> inFlight = ConcurrentHashMap.newKeySet();
+
+    private final Counter processed;
+    private final Counter failed;
+    private final Timer lag;
+    private final Timer readTimer;
+    private final Timer ocrTimer;
+    private final Timer saveTimer;
+
+    private volatile boolean running = true;
+    private WatchService watchService;
+    private Thread watcher;
+
+    public HotFolderIngestor(OcrService ocrService,
+                             RecognizeUiMapper uiMapper,
+                             Img2DataPlatesService platesService,
+                             MeterRegistry registry,
+                             @Value("${ocr.hotfolder.dir}") String dir,
+                             @Value("${ocr.hotfolder.processed-dir:}") String processedDir,
+                             @Value("${ocr.hotfolder.failed-dir:}") String failedDir,
+                             @Value("${ocr.hotfolder.pattern:*.{jpg,jpeg,JPG,JPEG,png,PNG}}") String pattern,
+                             @Value("${ocr.hotfolder.settle-time:500ms}") Duration settleTime,
+                             @Value("${ocr.hotfolder.max-settle-time:30s}") Duration maxSettleTime,
+                             @Value("${ocr.hotfolder.ocr-timeout:120s}") Duration ocrTimeout,
+                             @Value("${ocr.hotfolder.auto-save:false}") boolean autoSave,
+                             @Value("${ocr.hotfolder.read.workers:1}") int readWorkers,
+                             @Value("${ocr.hotfolder.read.queue-capacity:32}") int readQueue,
+                             @Value("${ocr.hotfolder.ocr.workers:2}") int ocrWorkers,
+                             @Value("${ocr.hotfolder.ocr.queue-capacity:8}") int ocrQueue,
+                             @Value("${ocr.hotfolder.save.workers:1}") int saveWorkers,
+                             @Value("${ocr.hotfolder.save.queue-capacity:32}") int saveQueue) {
+        this.ocrService = ocrService;
+        this.uiMapper = uiMapper;
+        this.platesService = platesService;
+        this.inbox = Path.of(dir).toAbsolutePath().normalize();
+        this.processedDir = processedDir.isBlank() ? inbox.resolve("processed") : Path.of(processedDir).toAbsolutePath();
+        this.failedDir = failedDir.isBlank() ? inbox.resolve("failed") : Path.of(failedDir).toAbsolutePath();
+        this.matcher = FileSystems.getDefault().getPathMatcher("glob:" + pattern);
+        this.settleTime = settleTime;
+        this.maxSettleTime = maxSettleTime.compareTo(settleTime) < 0 ? settleTime : maxSettleTime;
+        this.ocrTimeout = ocrTimeout;
+        this.autoSave = autoSave;
+
+        this.readStage = stage("read", readWorkers, readQueue);
+        this.ocrStage = stage("ocr", ocrWorkers, ocrQueue);
+        this.saveStage = stage("save", saveWorkers, saveQueue);
+
+        this.processed = Counter.builder("ocr.hotfolder.files").tag("result", "processed")
+                .description("Sıcak klasörden işlenip processed'a taşınan dosya").register(registry);
+        this.failed = Counter.builder("ocr.hotfolder.files").tag("result", "failed")
+                .description("Sıcak klasörden failed'a taşınan dosya").register(registry);
+        this.lag = Timer.builder("ocr.hotfolder.lag")
+                .description("Dosyanın klasöre düşmesinden taşınmasına kadar geçen süre")
+                .publishPercentileHistogram()
+                .register(registry);
+        Gauge.builder("ocr.hotfolder.backlog", inFlight, Set::size)
+                .description("Boru hattında (kuyrukta ya da işlenmekte) olan dosya").register(registry);
+        this.readTimer = stageMetrics(registry, "read", readStage);
+        this.ocrTimer = stageMetrics(registry, "ocr", ocrStage);
+        this.saveTimer = stageMetrics(registry, "save", saveStage);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() throws IOException {
+        Files.createDirectories(inbox);
+        Files.createDirectories(processedDir);
+        Files.createDirectories(failedDir);
+        watchService = inbox.getFileSystem().newWatchService();
+        inbox.register(watchService, StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_MODIFY);
+        watcher = new Thread(this::watchLoop, "ocr-hotfolder-watch");
+        watcher.setDaemon(true);
+        watcher.start();
+        log.info("Sıcak klasör izleniyor: {} (processed={}, failed={}, autoSave={})",
+                inbox, processedDir, failedDir, autoSave);
+    }
+
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        running = false;
+        try {
+            if (watchService != null) watchService.close();
+        } catch (IOException ignored) {
+        }
+        // aşamalar sırayla boşaltılır: read bitmeden ocr kapatılırsa okunan dosyalar kaybolur
+        for (ThreadPoolExecutor stage : List.of(readStage, ocrStage, saveStage)) {
+            stage.shutdown();
+            if (!stage.awaitTermination(ocrTimeout.toMillis(), TimeUnit.MILLISECONDS)) stage.shutdownNow();
+        }
+    }
+
+    private void watchLoop() {
+        scanExisting(); // uygulama kapalıyken düşen dosyalar
+        while (running) {
+            WatchKey key;
+            try {
+                key = watchService.take();
+            } catch (InterruptedException | ClosedWatchServiceException e) {
+                return;
+            }
+            for (WatchEvent<?> event : key.pollEvents()) {
+                if (event.kind() == StandardWatchEventKinds.OVERFLOW) {
+                    scanExisting(); // olay kaçtıysa klasörü baştan tara
+                } else {
+                    offer(inbox.resolve((Path) event.context()));
+                }
+            }
+            if (!key.reset()) {
+                log.error("Sıcak klasör artık izlenemiyor: {}", inbox);
+                return;
+            }
+        }
+    }
+
+    private void scanExisting() {
+        try (DirectoryStream<Path> ds = Files.newDirectoryStream(inbox)) {
+            for (Path p : ds) offer(p);
+        } catch (IOException e) {
+            log.warn("Sıcak klasör taranamadı: {}", e.getMessage());
+        }
+    }
+
+    private void offer(Path path) {
+        if (!running || !matcher.matches(path.getFileName()) || !Files.isRegularFile(path)) return;
+        if (!inFlight.add(path)) return;
+        Dropped file = new Dropped(path, Instant.now());
+        submit(readStage, () -> read(file));
+    }
+
+    // --- aşamalar ---
+
+    private void read(Dropped file) {
+        long start = System.nanoTime();
+        try {
+            awaitSettled(file.path());
+            byte[] bytes = Files.readAllBytes(file.path());
+            checkImage(bytes);
+            OcrUpload upload = new OcrUpload(new ByteArrayResource(bytes), file.path().getFileName().toString(),
+                    Files.probeContentType(file.path()));
+            readTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            submit(ocrStage, () -> recognize(new Loaded(file, upload)));
+        } catch (Exception e) {
+            fail(file, "read", e);
+        }
+    }
+
+    private void recognize(Loaded loaded) {
+        long start = System.nanoTime();
+        try {
+            RecognizeUiResponse ui = uiMapper.toUiAsync(ocrService.recognize(loaded.upload()))
+                    .block(ocrTimeout);
+            if (ui == null) throw new IllegalStateException("OCR boş cevap döndü");
+            if (ui.getError() != null) throw new IllegalStateException(ui.getError());
+            ocrTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            submit(saveStage, () -> save(new Recognized(loaded.file(), ui)));
+        } catch (Exception e) {
+            fail(loaded.file(), "ocr", e);
+        }
+    }
+
+    private void save(Recognized r) {
+        long start = System.nanoTime();
+        try {
+            List<RecognizeUiItem> items = r.response().getItems() == null ? List.of() : r.response().getItems();
+            List<Long> lvdts = items.stream().map(RecognizeUiItem::getLvdt).filter(Objects::nonNull).distinct().toList();
+            if (autoSave && !lvdts.isEmpty()) {
+                Img2DataPlatesService.SaveResult result = platesService.saveAll(lvdts);
+                log.info("Sıcak klasör: {} → {} yeni, {} kayıtlı LVDT", r.file().path().getFileName(),
+                        result.created().size(), result.existing().size());
+            } else {
+                log.info("Sıcak klasör: {} → LVDT {}", r.file().path().getFileName(), lvdts);
+            }
+            move(r.file(), processedDir);
+            saveTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            processed.increment();
+        } catch (Exception e) {
+            fail(r.file(), "save", e);
+        }
+    }
+
+    private void fail(Dropped file, String stage, Exception e) {
+        if (!running) {
+            // kapanırken yarıda kalan dosya klasörde kalır, sonraki açılışta baştan işlenir
+            inFlight.remove(file.path());
+            return;
+        }
+        log.warn("Sıcak klasör dosyası işlenemedi ({}): {} - {}", stage, file.path().getFileName(), e.getMessage());
+        try {
+            move(file, failedDir);
+        } catch (IOException io) {
+            log.error("Dosya failed klasörüne taşınamadı: {} - {}", file.path(), io.getMessage());
+            inFlight.remove(file.path());
+        }
+        failed.increment();
+    }
+
+    private void move(Dropped file, Path targetDir) throws IOException {
+        Path name = file.path().getFileName();
+        Path target = targetDir.resolve(name);
+        if (Files.exists(target)) {
+            // kameralar aynı adı tekrar kullanabiliyor: eskisinin üstüne yazma
+            target = targetDir.resolve(LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyyMMdd-HHmmssSSS-")) + name);
+        }
+        try {
+            Files.move(file.path(), target, StandardCopyOption.ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(file.path(), target);
+        } finally {
+            inFlight.remove(file.path());
+        }
+        lag.record(Duration.between(file.seen(), Instant.now()));
+    }
+
+    // kamera dosyayı hâlâ yazıyor olabilir: son değişiklikten settle-time geçene ve boyut sabitlenene kadar bekle.
+    // max-settle-time içinde sabitlenmeyen (sürekli büyüyen, boş kalan) dosya read worker'ını tutmasın:
+    // hata fırlatılır, dosya failed'a taşınır
+    private void awaitSettled(Path path) throws IOException, InterruptedException {
+        long deadline = System.nanoTime() + maxSettleTime.toNanos();
+        long size = -1;
+        while (true) {
+            FileTime modified = Files.getLastModifiedTime(path);
+            long current = Files.size(path);
+            long quietMs = Duration.between(modified.toInstant(), Instant.now()).toMillis();
+            if (current == size && current > 0 && quietMs >= settleTime.toMillis()) return;
+            long left = deadline - System.nanoTime();
+            if (left <= 0) {
+                throw new IOException(current == 0
+                        ? "Dosya " + maxSettleTime + " boyunca boş kaldı"
+                        : "Dosya " + maxSettleTime + " içinde tamamlanmadı (" + current + " bayt)");
+            }
+            size = current;
+            long waitMs = Math.max(50, settleTime.toMillis() - Math.max(0, quietMs));
+            Thread.sleep(Math.min(waitMs, Math.max(1, TimeUnit.NANOSECONDS.toMillis(left))));
+        }
+    }
+
+    // tam decode yok: başlığı okuyup boyutları alabilen bir ImageReader varsa görsel kabul edilir
+    private static void checkImage(byte[] bytes) throws IOException {
+        try (ImageInputStream in = ImageIO.createImageInputStream(new ByteArrayInputStream(bytes))) {
+            Iterator<ImageReader> readers = in == null ? null : ImageIO.getImageReaders(in);
+            if (readers == null || !readers.hasNext()) throw new IOException("Görsel formatı tanınmadı");
+            ImageReader reader = readers.next();
+            try {
+                reader.setInput(in, true, true);
+                if (reader.getWidth(0) <= 0 || reader.getHeight(0) <= 0) throw new IOException("Görsel boyutu geçersiz");
+            } finally {
+                reader.dispose();
+            }
+        }
+    }
+
+    // --- altyapı ---
+
+    // sonraki aşamanın kuyruğu doluysa çağıran worker bekler: geri basınç watcher'a kadar yayılır
+    private void submit(ThreadPoolExecutor stage, Runnable task) {
+        try {
+            stage.execute(task);
+        } catch (RejectedExecutionException e) {
+            if (stage.isShutdown()) throw e;
+            try {
+                stage.getQueue().put(task);
+            } catch (InterruptedException ie) {
+                Thread.currentThread().interrupt();
+                throw new RejectedExecutionException("Aşama kuyruğuna eklenemedi", ie);
+            }
+        }
+    }
+
+    private static ThreadPoolExecutor stage(String name, int workers, int queueCapacity) {
+        AtomicInteger seq = new AtomicInteger();
+        int n = Math.max(1, workers);
+        return new ThreadPoolExecutor(n, n, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(Math.max(1, queueCapacity)),
+                r -> {
+                    Thread t = new Thread(r, "ocr-hotfolder-" + name + "-" + seq.incrementAndGet());
+                    t.setDaemon(true);
+                    return t;
+                },
+                new ThreadPoolExecutor.AbortPolicy());
+    }
+
+    private static Timer stageMetrics(MeterRegistry registry, String name, ThreadPoolExecutor stage) {
+        Gauge.builder("ocr.hotfolder.stage.queue", stage, e -> e.getQueue().size())
+                .tag("stage", name)
+                .description("Aşama kuyruğunda bekleyen dosya").register(registry);
+        Gauge.builder("ocr.hotfolder.stage.active", stage, ThreadPoolExecutor::getActiveCount)
+                .tag("stage", name)
+                .description("Aşamada işlenmekte olan dosya").register(registry);
+        return Timer.builder("ocr.hotfolder.stage.time")
+                .tag("stage", name)
+                .description("Aşamanın tek dosya için süresi").register(registry);
+    }
+}
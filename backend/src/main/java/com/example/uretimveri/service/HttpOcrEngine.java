@@ -0,0 +1,149 @@
+package com.example.uretimveri.service;
+
+import com.example.uretimveri.ocr.OcrApiResponse;
+import com.example.uretimveri.ocr.OcrEngine;
+import com.example.uretimveri.ocr.OcrStreamEvent;
+import com.example.uretimveri.ocr.OcrUpload;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.InvalidMediaTypeException;
+import org.springframework.http.MediaType;
+import org.springframework.http.client.MultipartBodyBuilder;
+import org.springframework.stereotype.Component;
+import org.springframework.util.MultiValueMap;
+import org.springframework.web.reactive.function.BodyInserters;
+import org.springframework.web.reactive.function.client.WebClient;
+import org.springframework.web.server.ResponseStatusException;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+// Varsayılan motor: FastAPI server.py. Python'a giden bütün çağrılar buradan geçer:
+// /process (ya da micro-batch açıksa /process_batch), /process_stream, /process_async.
+// Seçim OcrEngineConfig'te; seçilmezse hiç oluşturulmaz.
+@Component
+@Lazy
+public class HttpOcrEngine implements OcrEngine {
+
+    private final WebClient pythonClient;
+    private final OcrCallGuard guard;
+    private final OcrReplicaPool replicas;
+    private final OcrResponseDecoder decoder;
+    private final OcrMicroBatcher batcher;
+
+    public HttpOcrEngine(WebClient pythonClient,
+                         OcrCallGuard guard,
+                         OcrReplicaPool replicas,
+                         OcrResponseDecoder decoder,
+                         OcrMicroBatcher batcher) {
+        this.pythonClient = pythonClient;
+        this.guard = guard;
+        this.replicas = replicas;
+        this.decoder = decoder;
+        this.batcher = batcher;
+    }
+
+    @Override
+    public String name() {
+        return "http";
+    }
+
+    @Override
+    @SuppressWarnings("null")
+    public Mono<OcrApiResponse> process(OcrUpload upload) {
+        // micro-batch açıksa eşzamanlı çağrılar tek /process_batch isteğinde birleşir. Arka plan
+        // çağrıları katılmaz: parti kendi aboneliğinde gider, bulkhead payı kontrolü kaybolurdu.
+        return Mono.deferContextual(ctx -> {
+            if (batcher.isEnabled() && !OcrCallGuard.isBackground(ctx)) return batcher.submit(upload);
+            var body = multipart(upload, null);
+            return guard.protect(() -> replicas.execute(r -> pythonClient.post()
+                    .uri(r.getBaseUrl() + "/process")
+                    .contentType(MediaType.MULTIPART_FORM_DATA)
+                    .body(BodyInserters.fromMultipartData(body))
+                    .retrieve()
+                    .bodyToFlux(DataBuffer.class)
+                    .as(decoder::decode), true)); // cevap tamponlanmadan akışla çözülür
+        });
+    }
+
+    // ROI'ler Python'da hazır oldukça NDJSON satırı olarak gelir; satırlar Jackson'ın bloklamayan
+    // ayrıştırıcısıyla (Jackson2JsonDecoder) geldikçe çözülür, cevabın tamamı beklenmez
+    @Override
+    @SuppressWarnings("null")
+    public Flux<OcrStreamEvent> processEvents(OcrUpload upload) {
+        return Flux.defer(() -> {
+            var body = multipart(upload, null);
+            return guard.protectStream(() -> replicas.executeStream(r -> pythonClient.post()
+                    .uri(r.getBaseUrl() + "/process_stream")
+                    .contentType(MediaType.MULTIPART_FORM_DATA)
+                    .accept(MediaType.APPLICATION_NDJSON)
+                    .body(BodyInserters.fromMultipartData(body))
+                    .retrieve()
+                    .bodyToFlux(OcrStreamEvent.class)));
+        });
+    }
+
+    // Ham gövde DataBuffer parçaları halinde tamponlanmadan /process'e akar.
+    // Gövde bir kez okunabildiği için yeniden denenmez ve hedge edilmez.
+    @Override
+    @SuppressWarnings("null")
+    public Mono<OcrApiResponse> processBody(Flux<DataBuffer> body, String filename, String contentType) {
+        return Mono.defer(() -> {
+            MultipartBodyBuilder mb = new MultipartBodyBuilder();
+            mb.asyncPart("file", body, DataBuffer.class)
+              .filename(filename)
+              .contentType(partType(contentType));
+            return guard.protect(() -> replicas.execute(r -> pythonClient.post()
+                    .uri(r.getBaseUrl() + "/process")
+                    .contentType(MediaType.MULTIPART_FORM_DATA)
+                    .body(BodyInserters.fromMultipartData(mb.build()))
+                    .retrieve()
+                    .bodyToFlux(DataBuffer.class)
+                    .as(decoder::decode), false), false);
+        });
+    }
+
+    @Override
+    public boolean supportsCallback() {
+        return true;
+    }
+
+    // Callback modu: Python işi kabul eder (202), sonucu callbackUrl'e POST eder.
+    // İki kez işlenip iki callback üretmesin diye yeniden denenmez ve hedge edilmez.
+    @Override
+    @SuppressWarnings("null")
+    public Mono<Void> dispatch(OcrUpload upload, String callbackUrl) {
+        return Mono.defer(() -> {
+            var body = multipart(upload, callbackUrl);
+            return guard.protect(() -> replicas.execute(r -> pythonClient.post()
+                    .uri(r.getBaseUrl() + "/process_async")
+                    .contentType(MediaType.MULTIPART_FORM_DATA)
+                    .body(BodyInserters.fromMultipartData(body))
+                    .retrieve()
+                    .toBodilessEntity(), false), false);
+        }).then();
+    }
+
+    @SuppressWarnings("null")
+    private static MultiValueMap<String, HttpEntity<?>> multipart(OcrUpload upload, String callbackUrl) {
+        MultipartBodyBuilder mb = new MultipartBodyBuilder();
+        mb.part("file", upload.getContent())
+          .filename(upload.getFilename())
+          .contentType(partType(upload.getContentType()));
+        if (callbackUrl != null) {
+            mb.part("callback_url", callbackUrl);
+        }
+        return mb.build();
+    }
+
+    /** Dosya parçasının içerik tipi; bozuksa 400 (Python'a hiç gitmez) */
+    static MediaType partType(String contentType) {
+        if (contentType == null) return MediaType.APPLICATION_OCTET_STREAM;
+        try {
+            return MediaType.parseMediaType(contentType);
+        } catch (InvalidMediaTypeException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Geçersiz içerik tipi: " + contentType);
+        }
+    }
+}
@@ -0,0 +1,249 @@
+package com.example.uretimveri.service;
+
+import com.example.uretimveri.ocr.OcrUpload;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.ByteArrayResource;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+
+import javax.imageio.IIOImage;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageWriteParam;
+import javax.imageio.ImageWriter;
+import javax.imageio.stream.ImageOutputStream;
+import java.awt.image.BufferedImage;
+import java.awt.image.WritableRaster;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.TimeUnit;
+
+// Python'a göndermeden önce görseli küçültür: çöz → (kırp) → küçült/gri → JPEG olarak yeniden kodla.
+// Büyük görsellerde küçültme satır şeritlerine bölünüp ForkJoin havuzunda paralel yapılır
+// (havuz sadece ön işleme açıkken kurulur).
+@Component
+@Slf4j
+public class ImagePreprocessor {
+
+    private final boolean enabled;
+    private final int maxWidth;
+    private final boolean grayscale;
+    private final int[] crop; // x,y,w,h (piksel) ya da null
+    private final float jpegQuality;
+    private final int tileRows;
+    private final ForkJoinPool pool; // enabled=false iken null
+
+    private final Timer decodeTimer;
+    private final Timer cropTimer;
+    private final Timer resizeTimer;
+    private final Timer encodeTimer;
+    private final Counter bytesIn;
+    private final Counter bytesSaved;
+
+    public ImagePreprocessor(MeterRegistry registry,
+                             @Value("${ocr.preprocess.enabled:false}") boolean enabled,
+                             @Value("${ocr.preprocess.max-width:1600}") int maxWidth,
+                             @Value("${ocr.preprocess.grayscale:false}") boolean grayscale,
+                             @Value("${ocr.preprocess.crop:}") String crop,
+                             @Value("${ocr.preprocess.jpeg-quality:0.85}") float jpegQuality,
+                             @Value("${ocr.preprocess.tile-rows:64}") int tileRows,
+                             @Value("${ocr.preprocess.parallelism:0}") int parallelism) {
+        this.enabled = enabled;
+        this.maxWidth = maxWidth;
+        this.grayscale = grayscale;
+        this.crop = parseCrop(crop);
+        this.jpegQuality = jpegQuality;
+        this.tileRows = Math.max(1, tileRows);
+        this.pool = enabled
+                ? new ForkJoinPool(parallelism > 0 ? parallelism : Runtime.getRuntime().availableProcessors())
+                : null;
+
+        this.decodeTimer = stageTimer(registry, "decode");
+        this.cropTimer = stageTimer(registry, "crop");
+        this.resizeTimer = stageTimer(registry, "resize");
+        this.encodeTimer = stageTimer(registry, "encode");
+        this.bytesIn = Counter.builder("ocr.preprocess.bytes.in")
+                .description("Ön işlemeye giren toplam bayt").baseUnit("bytes").register(registry);
+        this.bytesSaved = Counter.builder("ocr.preprocess.bytes.saved")
+                .description("Ön işleme sayesinde Python'a gönderilmeyen bayt").baseUnit("bytes").register(registry);
+    }
+
+    private static Timer stageTimer(MeterRegistry registry, String stage) {
+        return Timer.builder("ocr.preprocess.stage")
+                .tag("stage", stage)
+                .description("Ön işleme aşaması süresi")
+                .register(registry);
+    }
+
+    public boolean isEnabled() { return enabled; }
+
+    /**
+     * Bloklayıcı (CPU + IO); reaktif thread'de çağırmayın. Çözülemeyen görselde orijinali döner. Kırpılmayan
+     * ve küçültülmeyen görsel yeniden kodlamayla büyüyorsa da orijinal gider; kırpma/küçültme varsa sonuç
+     * büyük olsa bile gönderilir (ROI dışı alan Python'a gitmemeli).
+     */
+    public OcrUpload apply(OcrUpload upload) throws IOException {
+        if (!enabled) return upload;
+        long inSize = upload.getContent().contentLength();
+
+        long t0 = System.nanoTime();
+        BufferedImage src;
+        try (InputStream in = upload.getContent().getInputStream()) {
+            src = ImageIO.read(in);
+        }
+        long t1 = System.nanoTime();
+        decodeTimer.record(t1 - t0, TimeUnit.NANOSECONDS);
+        if (src == null) return upload; // ImageIO bu formatı tanımıyor, olduğu gibi gönder
+
+        BufferedImage region = crop(src);
+        long t2 = System.nanoTime();
+        cropTimer.record(t2 - t1, TimeUnit.NANOSECONDS);
+
+        BufferedImage resized = resize(region);
+        long t3 = System.nanoTime();
+        resizeTimer.record(t3 - t2, TimeUnit.NANOSECONDS);
+
+        byte[] out = encodeJpeg(resized);
+        encodeTimer.record(System.nanoTime() - t3, TimeUnit.NANOSECONDS);
+
+        bytesIn.increment(inSize);
+        boolean reshaped = region != src || resized.getWidth() != region.getWidth();
+        if (!reshaped && out.length >= inSize) return upload;
+        bytesSaved.increment(Math.max(0, inSize - out.length));
+        log.debug("Ön işleme: {} → {} bayt ({}x{} → {}x{})", inSize, out.length,
+                src.getWidth(), src.getHeight(), resized.getWidth(), resized.getHeight());
+
+        return new OcrUpload(new ByteArrayResource(out), jpegName(upload.getFilename()), MediaType.IMAGE_JPEG_VALUE);
+    }
+
+    private BufferedImage crop(BufferedImage src) {
+        if (crop == null) return src;
+        int x = Math.min(crop[0], src.getWidth() - 1);
+        int y = Math.min(crop[1], src.getHeight() - 1);
+        int w = Math.min(crop[2], src.getWidth() - x);
+        int h = Math.min(crop[3], src.getHeight() - y);
+        return src.getSubimage(x, y, w, h);
+    }
+
+    BufferedImage resize(BufferedImage src) {
+        int sw = src.getWidth(), sh = src.getHeight();
+        double scale = sw > maxWidth ? (double) maxWidth / sw : 1.0;
+        int tw = Math.max(1, (int) Math.round(sw * scale));
+        int th = Math.max(1, (int) Math.round(sh * scale));
+        if (scale == 1.0 && !grayscale && !src.getColorModel().hasAlpha()) return src; // JPEG alfa taşıyamaz
+
+        BufferedImage dst = new BufferedImage(tw, th, grayscale ? BufferedImage.TYPE_BYTE_GRAY : BufferedImage.TYPE_INT_RGB);
+        pool.invoke(new BoxFilterStrip(src, dst, 0, th));
+        return dst;
+    }
+
+    // Alan ortalamalı (box filter) küçültme: her hedef piksel, kapsadığı kaynak piksellerin ortalaması.
+    // Şeritler birbirinden bağımsız olduğu için paralel işlenir.
+    private final class BoxFilterStrip extends RecursiveAction {
+        private final BufferedImage src;
+        private final BufferedImage dst;
+        private final int fromRow;
+        private final int toRow;
+
+        BoxFilterStrip(BufferedImage src, BufferedImage dst, int fromRow, int toRow) {
+            this.src = src;
+            this.dst = dst;
+            this.fromRow = fromRow;
+            this.toRow = toRow;
+        }
+
+        @Override
+        protected void compute() {
+            if (toRow - fromRow > tileRows) {
+                int mid = (fromRow + toRow) >>> 1;
+                invokeAll(new BoxFilterStrip(src, dst, fromRow, mid), new BoxFilterStrip(src, dst, mid, toRow));
+                return;
+            }
+            int sw = src.getWidth(), sh = src.getHeight();
+            int tw = dst.getWidth(), th = dst.getHeight();
+            WritableRaster raster = dst.getRaster();
+            int[] srcRows = null;
+            long[] sum = new long[tw * 3];
+            int[] count = new int[tw];
+            int[] outPixel = new int[grayscale ? 1 : 3];
+
+            for (int ty = fromRow; ty < toRow; ty++) {
+                int y0 = (int) ((long) ty * sh / th);
+                int y1 = Math.max(y0 + 1, (int) ((long) (ty + 1) * sh / th));
+                int rows = y1 - y0;
+                if (srcRows == null || srcRows.length < rows * sw) srcRows = new int[rows * sw];
+                src.getRGB(0, y0, sw, rows, srcRows, 0, sw);
+
+                Arrays.fill(sum, 0);
+                Arrays.fill(count, 0);
+                for (int r = 0; r < rows; r++) {
+                    int base = r * sw;
+                    for (int tx = 0; tx < tw; tx++) {
+                        int x0 = (int) ((long) tx * sw / tw);
+                        int x1 = Math.max(x0 + 1, (int) ((long) (tx + 1) * sw / tw));
+                        for (int x = x0; x < x1; x++) {
+                            int p = srcRows[base + x];
+                            sum[tx * 3] += (p >> 16) & 0xff;
+                            sum[tx * 3 + 1] += (p >> 8) & 0xff;
+                            sum[tx * 3 + 2] += p & 0xff;
+                        }
+                        count[tx] += x1 - x0;
+                    }
+                }
+                for (int tx = 0; tx < tw; tx++) {
+                    int n = count[tx];
+                    int r = (int) (sum[tx * 3] / n), g = (int) (sum[tx * 3 + 1] / n), b = (int) (sum[tx * 3 + 2] / n);
+                    if (grayscale) {
+                        outPixel[0] = (r * 299 + g * 587 + b * 114) / 1000;
+                    } else {
+                        outPixel[0] = r; outPixel[1] = g; outPixel[2] = b;
+                    }
+                    raster.setPixel(tx, ty, outPixel);
+                }
+            }
+        }
+    }
+
+    private byte[] encodeJpeg(BufferedImage img) throws IOException {
+        ImageWriter writer = ImageIO.getImageWritersByFormatName("jpeg").next();
+        ByteArrayOutputStream bos = new ByteArrayOutputStream();
+        try (ImageOutputStream ios = ImageIO.createImageOutputStream(bos)) {
+            writer.setOutput(ios);
+            ImageWriteParam param = writer.getDefaultWriteParam();
+            param.setCompressionMode(ImageWriteParam.MODE_EXPLICIT);
+            param.setCompressionQuality(jpegQuality);
+            writer.write(null, new IIOImage(img, null, null), param);
+        } finally {
+            writer.dispose();
+        }
+        return bos.toByteArray();
+    }
+
+    private static String jpegName(String filename) {
+        if (filename == null || filename.isBlank()) return "upload.jpg";
+        int dot = filename.lastIndexOf('.');
+        return (dot > 0 ? filename.substring(0, dot) : filename) + ".jpg";
+    }
+
+    private static int[] parseCrop(String crop) {
+        if (crop == null || crop.isBlank()) return null;
+        String[] parts = crop.split(",");
+        if (parts.length != 4) throw new IllegalArgumentException("ocr.preprocess.crop 'x,y,w,h' olmalı: " + crop);
+        int[] out = new int[4];
+        for (int i = 0; i < 4; i++) out[i] = Integer.parseInt(parts[i].trim());
+        return out;
+    }
+
+    @PreDestroy
+    void shutdown() {
+        if (pool != null) pool.shutdown();
+    }
+}
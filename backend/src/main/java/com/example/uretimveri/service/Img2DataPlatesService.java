@@ -1,63 +1,163 @@
 package com.example.uretimveri.service;
 
-import com.example.uretimveri.model.Plates;
-import com.example.uretimveri.model.Product;
-import com.example.uretimveri.repository.PlatesRepository;
-import com.example.uretimveri.repository.ProductRepository;
-import jakarta.transaction.Transactional;
-import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
 
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.util.ArrayList;
 import java.util.Collections;
+import java.util.HashSet;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
 
 @Service
-@RequiredArgsConstructor
 @Slf4j
 public class Img2DataPlatesService {
 
-    private final ProductRepository productRepo;
-    private final PlatesRepository platesRepo;
+    private final JdbcTemplate jdbc;
+    private final TransactionTemplate tx;
+    private final LvdtIndex index;
+    private final TablePageService tablePages;
+    private final int batchSize;
 
     private static final String PRODUCT_TYPE_PLATES = "plates";
     private static final String PROVIDER_IMG2DATA   = "İsdemir-Server";
     private static final String STATUS_IMAGE        = "IMAGE";
 
+    public Img2DataPlatesService(JdbcTemplate jdbc,
+                                 PlatformTransactionManager txManager,
+                                 LvdtIndex index,
+                                 TablePageService tablePages,
+                                 @Value("${ocr.save.batch-size:500}") int batchSize) {
+        this.jdbc = jdbc;
+        this.tx = new TransactionTemplate(txManager);
+        this.index = index;
+        this.tablePages = tablePages;
+        this.batchSize = Math.max(1, batchSize);
+    }
+
+    /** created: bu çağrıda açılanlar, existing: zaten kayıtlı olanlar (ikisi de product_id -> lvdt) */
+    public record SaveResult(Map<Long, Long> created, Map<Long, Long> existing) {}
 
-    @Transactional
-    public Map<Long, Long> saveAll(List<Long> lvdtValues) {
-        if (lvdtValues == null || lvdtValues.isEmpty()) return Collections.emptyMap();
+    // İdempotent: kayıtlı LVDT için yeni product açılmaz, mevcut product_id döner.
+    // Asıl garanti plates.lvdt üzerindeki UNIQUE indeks; aynı anda gelen iki kayıt çakışırsa
+    // işlem geri alınır ve mevcutlar yeniden okunarak bir kez daha denenir.
+    public SaveResult saveAll(List<Long> lvdtValues) {
+        if (lvdtValues == null || lvdtValues.isEmpty()) {
+            return new SaveResult(Collections.emptyMap(), Collections.emptyMap());
+        }
+        List<Long> lvdts = lvdtValues.stream().filter(Objects::nonNull).distinct().toList();
+        try {
+            return tx.execute(s -> upsert(lvdts));
+        } catch (DuplicateKeyException e) {
+            log.info("LVDT kaydında eşzamanlı çakışma, yeniden deneniyor: {}", e.getMostSpecificCause().getMessage());
+            return tx.execute(s -> upsert(lvdts));
+        }
+    }
 
+    private SaveResult upsert(List<Long> lvdts) {
+        Map<Long, Long> existing = new LinkedHashMap<>();
+        List<Long> unknown = new ArrayList<>();
+        for (Long lvdt : lvdts) {
+            long productId = index.find(lvdt);
+            if (productId != LvdtIndex.NOT_FOUND) existing.put(productId, lvdt);
+            else unknown.add(lvdt);
+        }
+
+        // indeks başka bir örneğin ya da elle yapılan yazımları görmeyebilir: eksikleri DB'de doğrula
+        Set<Long> found = new HashSet<>();
+        for (int from = 0; from < unknown.size(); from += batchSize) {
+            for (long[] row : findRegistered(unknown.subList(from, Math.min(from + batchSize, unknown.size())))) {
+                existing.put(row[0], row[1]);
+                found.add(row[1]);
+                index.put(row[1], row[0]);
+            }
+        }
+        List<Long> missing = found.isEmpty() ? unknown : unknown.stream().filter(l -> !found.contains(l)).toList();
+
+        // LVDT başına 3 gidiş-dönüş yerine parça başına çok satırlı INSERT'ler
         Map<Long, Long> created = new LinkedHashMap<>();
-        for (Long lvdt : lvdtValues) {
-            if (lvdt == null) continue;
-
-  
-            Product p = new Product();
-            p.setProductType(PRODUCT_TYPE_PLATES);
-            p.setProvider(PROVIDER_IMG2DATA);
-            p.setStatus(STATUS_IMAGE);
-            p = productRepo.save(p); // Long
-
-            Long pid = p.getProductId(); // Long
-
-            Product finalP = p;
-            Plates child = platesRepo.findById(pid).orElseGet(() -> {
-                Plates pl = new Plates();
-                pl.setProductId(pid);  // Plates.productId = Long
-                pl.setProduct(finalP); // finalP 
-                return pl;
-            });
-
-            // LVDT 
-            child.setLvdt(lvdt);
-            platesRepo.save(child);
-
-            created.put(pid, lvdt);
+        for (int from = 0; from < missing.size(); from += batchSize) {
+            List<Long> chunk = missing.subList(from, Math.min(from + batchSize, missing.size()));
+            List<Long> ids = insertProducts(chunk.size());
+            upsertPlates(ids, chunk);
+            for (int i = 0; i < ids.size(); i++) {
+                created.put(ids.get(i), chunk.get(i));
+                index.putAfterCommit(chunk.get(i), ids.get(i));
+            }
+        }
+        if (!created.isEmpty()) tablePages.invalidateTotals();
+        return new SaveResult(created, existing);
+    }
+
+    private List<long[]> findRegistered(List<Long> lvdts) {
+        StringBuilder sql = new StringBuilder("SELECT product_id, lvdt FROM plates WHERE lvdt IN (");
+        for (int i = 0; i < lvdts.size(); i++) sql.append(i == 0 ? "?" : ", ?");
+        sql.append(')');
+        return jdbc.query(sql.toString(), (rs, n) -> new long[] { rs.getLong(1), rs.getLong(2) }, lvdts.toArray());
+    }
+
+    private List<Long> insertProducts(int n) {
+        StringBuilder sql = new StringBuilder("INSERT INTO products (product_type, provider, status) VALUES ");
+        for (int i = 0; i < n; i++) sql.append(i == 0 ? "(?, ?, ?)" : ", (?, ?, ?)");
+
+        return jdbc.execute((ConnectionCallback<List<Long>>) con -> {
+            try (PreparedStatement ps = con.prepareStatement(sql.toString(), Statement.RETURN_GENERATED_KEYS)) {
+                int p = 1;
+                for (int i = 0; i < n; i++) {
+                    ps.setString(p++, PRODUCT_TYPE_PLATES);
+                    ps.setString(p++, PROVIDER_IMG2DATA);
+                    ps.setString(p++, STATUS_IMAGE);
+                }
+                ps.executeUpdate();
+
+                List<Long> ids = new ArrayList<>(n);
+                try (ResultSet rs = ps.getGeneratedKeys()) {
+                    while (rs.next()) ids.add(rs.getLong(1));
+                }
+                if (ids.size() != n) {
+                    throw new IllegalStateException("Beklenen " + n + " product id, gelen " + ids.size());
+                }
+                return ids;
+            }
+        });
+    }
+
+    private void upsertPlates(List<Long> ids, List<Long> lvdts) {
+        // TRIGGER yeni product için boş plates satırı açmış olabilir: varsa lvdt doldurulur, yoksa satır eklenir.
+        // Satır takma adı (AS new, MySQL 8.0.19+): VALUES(lvdt) kullanımdan kalktı.
+        StringBuilder sql = new StringBuilder("INSERT INTO plates (product_id, lvdt) VALUES ");
+        for (int i = 0; i < ids.size(); i++) sql.append(i == 0 ? "(?, ?)" : ", (?, ?)");
+        sql.append(" AS new ON DUPLICATE KEY UPDATE lvdt = new.lvdt");
+
+        Object[] args = new Object[ids.size() * 2];
+        for (int i = 0; i < ids.size(); i++) {
+            args[2 * i] = ids.get(i);
+            args[2 * i + 1] = lvdts.get(i);
+        }
+        jdbc.update(sql.toString(), args);
+
+        // ON DUPLICATE KEY, lvdt UNIQUE çakışmasını da yutar (LVDT'yi az önce başka bir kayıt açtıysa o satıra
+        // dokunur, yeni product lvdt'siz kalır). Eksik varsa çakışma olarak bildirilir; saveAll geri alıp
+        // mevcutları yeniden okuyarak tekrar dener.
+        StringBuilder check = new StringBuilder("SELECT COUNT(*) FROM plates WHERE lvdt IS NOT NULL AND product_id IN (");
+        for (int i = 0; i < ids.size(); i++) check.append(i == 0 ? "?" : ", ?");
+        check.append(')');
+        Integer written = jdbc.queryForObject(check.toString(), Integer.class, ids.toArray());
+        if (written == null || written != ids.size()) {
+            throw new DuplicateKeyException("plates: " + ids.size() + " LVDT'den " + written
+                    + " tanesi yazılabildi, LVDT başka bir kayıtta");
         }
-        return created;
     }
 }
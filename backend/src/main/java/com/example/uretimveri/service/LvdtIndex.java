@@ -0,0 +1,215 @@
+package com.example.uretimveri.service;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.Arrays;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+// plates tablosundaki LVDT → product_id eşlemesinin bellekteki kopyası.
+// Açık adresli (linear probing) iki long dizisi: kayıt başına ~16 bayt / doluluk oranı, nesne yok.
+// Başlangıçta DB'den yüklenir, yazma yapan servisler commit sonrasında günceller.
+@Component
+@Slf4j
+public class LvdtIndex {
+
+    public static final long NOT_FOUND = -1L;
+
+    private static final long EMPTY = Long.MIN_VALUE; // LVDT negatif olamaz
+    private static final double MAX_LOAD = 0.8;
+
+    private final JdbcTemplate jdbc;
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+    private long[] keys;
+    private long[] values;
+    private int size;
+    private volatile boolean loaded;
+
+    public LvdtIndex(JdbcTemplate jdbc, MeterRegistry registry) {
+        this.jdbc = jdbc;
+        allocate(1 << 10);
+
+        Gauge.builder("ocr.lvdt.index.size", this, LvdtIndex::size)
+                .description("Bellekteki LVDT sayısı").register(registry);
+        Gauge.builder("ocr.lvdt.index.bytes", this, LvdtIndex::memoryBytes)
+                .description("LVDT indeksinin dizi boyutu").baseUnit("bytes").register(registry);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void load() {
+        long start = System.nanoTime();
+        try {
+            jdbc.query(con -> {
+                var ps = con.prepareStatement("SELECT product_id, lvdt FROM plates WHERE lvdt IS NOT NULL",
+                        java.sql.ResultSet.TYPE_FORWARD_ONLY, java.sql.ResultSet.CONCUR_READ_ONLY);
+                ps.setFetchSize(Integer.MIN_VALUE); // MySQL: satırları akıt, hepsini belleğe alma
+                return ps;
+            }, rs -> {
+                put(rs.getLong(2), rs.getLong(1));
+            });
+            loaded = true;
+            log.info("LVDT indeksi yüklendi: {} kayıt, {} ms", size(), (System.nanoTime() - start) / 1_000_000);
+        } catch (Exception e) {
+            log.warn("LVDT indeksi yüklenemedi, kayıtlı slab işaretleme kapalı: {}", e.getMessage());
+        }
+    }
+
+    public boolean isLoaded() { return loaded; }
+
+    /** Kayıtlı değilse NOT_FOUND */
+    public long find(long lvdt) {
+        lock.readLock().lock();
+        try {
+            return findUnlocked(lvdt);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // çok sayıda arama yapan çağıran (LvdtSuggester) kilidi bir kez alsın
+    void readLocked(Runnable r) {
+        lock.readLock().lock();
+        try {
+            r.run();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    long findUnlocked(long lvdt) {
+        int mask = keys.length - 1;
+        for (int i = mix(lvdt) & mask; ; i = (i + 1) & mask) {
+            long k = keys[i];
+            if (k == EMPTY) return NOT_FOUND;
+            if (k == lvdt) return values[i];
+        }
+    }
+
+    public boolean contains(long lvdt) {
+        return find(lvdt) != NOT_FOUND;
+    }
+
+    public void put(long lvdt, long productId) {
+        if (lvdt < 0) return;
+        lock.writeLock().lock();
+        try {
+            if (size + 1 > keys.length * MAX_LOAD) rehash(keys.length << 1);
+            int mask = keys.length - 1;
+            for (int i = mix(lvdt) & mask; ; i = (i + 1) & mask) {
+                if (keys[i] == EMPTY) {
+                    keys[i] = lvdt;
+                    values[i] = productId;
+                    size++;
+                    return;
+                }
+                if (keys[i] == lvdt) {
+                    values[i] = productId;
+                    return;
+                }
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void remove(long lvdt) {
+        lock.writeLock().lock();
+        try {
+            int mask = keys.length - 1;
+            int i = mix(lvdt) & mask;
+            while (keys[i] != lvdt) {
+                if (keys[i] == EMPTY) return;
+                i = (i + 1) & mask;
+            }
+            // geriye kaydırmalı silme: mezar taşı bırakmadan zinciri onar
+            int gap = i;
+            for (int j = (gap + 1) & mask; keys[j] != EMPTY; j = (j + 1) & mask) {
+                int home = mix(keys[j]) & mask;
+                boolean movable = gap <= j ? (home <= gap || home > j) : (home <= gap && home > j);
+                if (movable) {
+                    keys[gap] = keys[j];
+                    values[gap] = values[j];
+                    gap = j;
+                }
+            }
+            keys[gap] = EMPTY;
+            size--;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /** İşlem varsa commit sonrasında, yoksa hemen uygular: geri alınan yazım indekse sızmaz */
+    public void putAfterCommit(long lvdt, long productId) {
+        afterCommit(() -> put(lvdt, productId));
+    }
+
+    public void removeAfterCommit(long lvdt) {
+        afterCommit(() -> remove(lvdt));
+    }
+
+    private static void afterCommit(Runnable r) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() { r.run(); }
+            });
+        } else {
+            r.run();
+        }
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return size;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    long memoryBytes() {
+        lock.readLock().lock();
+        try {
+            return (long) keys.length * 16;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private void allocate(int capacity) {
+        keys = new long[capacity];
+        values = new long[capacity];
+        Arrays.fill(keys, EMPTY);
+    }
+
+    private void rehash(int capacity) {
+        long[] oldKeys = keys, oldValues = values;
+        allocate(capacity);
+        int mask = capacity - 1;
+        for (int i = 0; i < oldKeys.length; i++) {
+            long k = oldKeys[i];
+            if (k == EMPTY) continue;
+            int j = mix(k) & mask;
+            while (keys[j] != EMPTY) j = (j + 1) & mask;
+            keys[j] = k;
+            values[j] = oldValues[i];
+        }
+    }
+
+    // ardışık LVDT'ler aynı bölgeye yığılmasın
+    private static int mix(long x) {
+        x ^= x >>> 33;
+        x *= 0xff51afd7ed558ccdL;
+        x ^= x >>> 33;
+        return (int) x;
+    }
+}
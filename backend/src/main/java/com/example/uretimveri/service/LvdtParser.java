@@ -0,0 +1,127 @@
+package com.example.uretimveri.service;
+
+import com.example.uretimveri.ocr.LvdtReading;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+// OCR metninden LVDT çıkarır: tek geçiş, ara String/regex yok.
+// Metin '|' ile bölümlere ayrılır, her bölümün rakamları birleştirilerek bir aday olur (eski split+replaceAll ile aynı).
+// Puan: hane sayısı [min,max] aralığındaysa öne geçer (aralıktakilerden ilki, yoksa son bölüm),
+// tesisin tanımladığı uzunluk ve önek eşleşmeleri bunun üstüne eklenir.
+@Component
+public class LvdtParser {
+
+    private static final int IN_RANGE  = 1_000_000;
+    private static final int PREF_LEN  = 20_000;
+    private static final int PREFIX    = 10_000;
+    private static final long OVERFLOW = -1L;
+
+    private final int minDigits;
+    private final int maxDigits;
+    private final boolean[] preferredLength = new boolean[20];
+    private final long[] prefixes;
+    private final int[] prefixLengths;
+
+    public LvdtParser(@Value("${ocr.lvdt.min-digits:10}") int minDigits,
+                      @Value("${ocr.lvdt.max-digits:18}") int maxDigits,
+                      @Value("${ocr.lvdt.preferred-lengths:}") List<Integer> preferredLengths,
+                      @Value("${ocr.lvdt.prefixes:}") List<String> prefixes) {
+        this.minDigits = minDigits;
+        this.maxDigits = maxDigits;
+        for (Integer len : preferredLengths) {
+            if (len != null && len > 0 && len < preferredLength.length) preferredLength[len] = true;
+        }
+        List<String> valid = prefixes.stream().map(String::trim)
+                .filter(p -> !p.isEmpty() && p.length() < 19 && p.chars().allMatch(c -> c >= '0' && c <= '9'))
+                .toList();
+        this.prefixes = new long[valid.size()];
+        this.prefixLengths = new int[valid.size()];
+        for (int i = 0; i < valid.size(); i++) {
+            this.prefixes[i] = Long.parseLong(valid.get(i));
+            this.prefixLengths[i] = valid.get(i).length();
+        }
+    }
+
+    /** En yüksek puanlı aday; rakam yoksa ya da seçilen aday long'a sığmıyorsa null */
+    public Long selectLvdt(CharSequence text) {
+        if (text == null) return null;
+        long best = OVERFLOW;
+        int bestScore = Integer.MIN_VALUE;
+        int segment = 0, digits = 0;
+        long value = 0;
+
+        for (int i = 0, n = text.length(); i <= n; i++) {
+            char c = i < n ? text.charAt(i) : '|';
+            if (c >= '0' && c <= '9') {
+                value = append(value, c);
+                digits++;
+            } else if (c == '|') {
+                if (digits > 0) {
+                    int s = score(value, digits, segment);
+                    if (s > bestScore) { bestScore = s; best = value; }
+                }
+                segment++;
+                digits = 0;
+                value = 0;
+            }
+        }
+        return bestScore == Integer.MIN_VALUE || best == OVERFLOW ? null : best;
+    }
+
+    /** Tüm adaylar, puana göre azalan (long'a sığmayanlar hariç) */
+    public List<LvdtReading> candidates(CharSequence text) {
+        List<LvdtReading> out = new ArrayList<>(2);
+        if (text == null) return out;
+        int segment = 0, digits = 0;
+        long value = 0;
+
+        for (int i = 0, n = text.length(); i <= n; i++) {
+            char c = i < n ? text.charAt(i) : '|';
+            if (c >= '0' && c <= '9') {
+                value = append(value, c);
+                digits++;
+            } else if (c == '|') {
+                if (digits > 0 && value != OVERFLOW) {
+                    out.add(new LvdtReading(value, digits, segment, score(value, digits, segment)));
+                }
+                segment++;
+                digits = 0;
+                value = 0;
+            }
+        }
+        if (out.size() > 1) out.sort(Comparator.comparing(LvdtReading::getScore).reversed());
+        return out;
+    }
+
+    private static long append(long value, char c) {
+        if (value == OVERFLOW) return OVERFLOW;
+        int d = c - '0';
+        if (value > (Long.MAX_VALUE - d) / 10) return OVERFLOW;
+        return value * 10 + d;
+    }
+
+    private int score(long value, int digits, int segment) {
+        int bonus = 0;
+        if (digits < preferredLength.length && preferredLength[digits]) bonus += PREF_LEN;
+        if (value != OVERFLOW && hasPrefix(value, digits)) bonus += PREFIX;
+        // aralıktakilerde ilk bölüm, diğerlerinde son bölüm öne geçer
+        return digits >= minDigits && digits <= maxDigits
+                ? IN_RANGE + bonus - segment
+                : bonus + segment;
+    }
+
+    private boolean hasPrefix(long value, int digits) {
+        for (int i = 0; i < prefixes.length; i++) {
+            int drop = digits - prefixLengths[i];
+            if (drop < 0) continue;
+            long head = value;
+            for (int j = 0; j < drop; j++) head /= 10;
+            if (head == prefixes[i]) return true;
+        }
+        return false;
+    }
+}
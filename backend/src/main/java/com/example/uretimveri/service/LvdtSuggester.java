@@ -0,0 +1,135 @@
+package com.example.uretimveri.service;
+
+import com.example.uretimveri.ocr.LvdtCandidate;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.LongConsumer;
+
+// OCR'ın yanlış okuduğu LVDT'ye yakın kayıtlı LVDT'leri bulur.
+// Ağaç kurmak yerine sorgunun komşuları (hane değiştirme/ekleme/silme) sayısal olarak üretilip
+// LvdtIndex'te O(1) aranır: maliyet kayıt sayısından bağımsız, 12 hane için k=1 ≈ 250, k=2 ≈ 60 bin arama.
+@Component
+public class LvdtSuggester {
+
+    private static final long[] POW10 = new long[19];
+    static {
+        POW10[0] = 1;
+        for (int i = 1; i < POW10.length; i++) POW10[i] = POW10[i - 1] * 10;
+    }
+
+    private final LvdtIndex index;
+    private final boolean enabled;
+    private final int defaultDistance;
+    private final int defaultLimit;
+    private final boolean[][] confusable = new boolean[10][10];
+
+    public LvdtSuggester(LvdtIndex index,
+                         @Value("${ocr.lvdt.suggest.enabled:true}") boolean enabled,
+                         @Value("${ocr.lvdt.suggest.max-distance:1}") int defaultDistance,
+                         @Value("${ocr.lvdt.suggest.limit:5}") int defaultLimit,
+                         @Value("${ocr.lvdt.suggest.confusable:83,17,08,56,68,59,27}") List<String> pairs) {
+        this.index = index;
+        this.enabled = enabled;
+        this.defaultDistance = clampDistance(defaultDistance);
+        this.defaultLimit = Math.max(1, defaultLimit);
+        for (String p : pairs) {
+            String s = p.trim();
+            if (s.length() != 2 || !Character.isDigit(s.charAt(0)) || !Character.isDigit(s.charAt(1))) continue;
+            int a = s.charAt(0) - '0', b = s.charAt(1) - '0';
+            confusable[a][b] = confusable[b][a] = true;
+        }
+    }
+
+    public boolean isEnabled() { return enabled; }
+
+    public List<LvdtCandidate> suggest(long lvdt) {
+        return suggest(lvdt, defaultDistance, defaultLimit);
+    }
+
+    /** Önce mesafe, sonra bilinen karışıklıklar, sonra sayısal yakınlık; sorgunun kendisi dahil değil */
+    public List<LvdtCandidate> suggest(long lvdt, int maxDistance, int limit) {
+        if (lvdt <= 0 || digits(lvdt) > 18) return List.of();
+        int k = clampDistance(maxDistance);
+
+        Map<Long, Integer> hits = new LinkedHashMap<>(); // lvdt -> en küçük mesafe
+        Map<Long, Long> products = new LinkedHashMap<>();
+        index.readLocked(() -> forEachNeighbor(lvdt, n1 -> {
+            probe(lvdt, n1, 1, hits, products);
+            if (k >= 2) forEachNeighbor(n1, n2 -> probe(lvdt, n2, 2, hits, products));
+        }));
+
+        List<LvdtCandidate> out = new ArrayList<>(hits.size());
+        for (Map.Entry<Long, Integer> e : hits.entrySet()) {
+            out.add(new LvdtCandidate(e.getKey(), products.get(e.getKey()), e.getValue(),
+                    isConfusable(lvdt, e.getKey())));
+        }
+        out.sort(Comparator.comparing(LvdtCandidate::getDistance)
+                .thenComparing(c -> !c.getConfusable())
+                .thenComparingLong(c -> Math.abs(c.getLvdt() - lvdt)));
+        return out.size() > limit ? out.subList(0, Math.max(0, limit)) : out;
+    }
+
+    // okuma kilidi altında çağrılır
+    private void probe(long query, long candidate, int distance, Map<Long, Integer> hits, Map<Long, Long> products) {
+        if (candidate == query) return;
+        long productId = index.findUnlocked(candidate);
+        if (productId == LvdtIndex.NOT_FOUND) return;
+        hits.merge(candidate, distance, Math::min);
+        products.put(candidate, productId);
+    }
+
+    // x'in tek düzenlemelik komşuları; baştaki sıfırlar üretilmez (sayı olarak kaybolurlar)
+    static void forEachNeighbor(long x, LongConsumer out) {
+        int len = digits(x);
+        for (int p = 0; p < len; p++) {
+            long pow = POW10[p];
+            int digit = (int) ((x / pow) % 10);
+
+            for (int d = (p == len - 1 ? 1 : 0); d <= 9; d++) {          // değiştirme
+                if (d != digit) out.accept(x + (d - digit) * pow);
+            }
+
+            if (len > 1) {                                                // silme
+                long y = (x / (pow * 10)) * pow + x % pow;
+                if (y >= POW10[len - 2]) out.accept(y);
+            }
+        }
+        if (len <= 17) {                                                  // ekleme
+            for (int p = 0; p <= len; p++) {
+                long pow = POW10[p];
+                long high = x / pow, low = x % pow;
+                for (int d = (p == len ? 1 : 0); d <= 9; d++) {
+                    out.accept((high * 10 + d) * pow + low);
+                }
+            }
+        }
+    }
+
+    // aynı uzunluktaki adayda her farklı hane bilinen bir karışıklık çifti mi
+    private boolean isConfusable(long a, long b) {
+        if (digits(a) != digits(b)) return false;
+        while (a > 0) {
+            int da = (int) (a % 10), db = (int) (b % 10);
+            if (da != db && !confusable[da][db]) return false;
+            a /= 10;
+            b /= 10;
+        }
+        return true;
+    }
+
+    static int digits(long x) {
+        int n = 1;
+        while (n < POW10.length && x >= POW10[n]) n++;
+        return n;
+    }
+
+    private static int clampDistance(int k) {
+        return Math.max(1, Math.min(k, 2));
+    }
+}
@@ -0,0 +1,291 @@
+package com.example.uretimveri.service;
+
+import java.io.ByteArrayInputStream;
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+// multipart/x-mixed-replace (MJPEG) akışını karelere ayırır. Kareler sabit sayıdaki önceden ayrılmış
+// tampona okunur (FramePool); 25 fps akışta kare başına byte[] üretilmez. Boş tampon yoksa kare
+// tampona alınmadan okunup atılır: soket boşalmaya devam eder, kullanıcı yavaşsa en eski değil yeni kare düşer.
+// Content-Length başlığı varsa doğrudan okunur, yoksa "\r\n--boundary" sınırına kadar taranır.
+public class MjpegFrameReader implements Closeable {
+
+    /** Havuzdan alınmış kare; işi biten release() ile havuza geri verir */
+    public static final class Frame {
+        private final FramePool pool;
+        private final byte[] data;
+        private int length;
+        private long sequence;
+
+        private Frame(FramePool pool, int capacity) {
+            this.pool = pool;
+            this.data = new byte[capacity];
+        }
+
+        public byte[] data() { return data; }
+        public int length() { return length; }
+        public long sequence() { return sequence; }
+
+        public InputStream stream() { return new ByteArrayInputStream(data, 0, length); }
+
+        /** Kare havuza döndükten sonra da kullanılacaksa (ör. OCR'a gidecekse) kopyası alınır */
+        public byte[] copy() { return Arrays.copyOf(data, length); }
+
+        public void release() { pool.free.offer(this); }
+    }
+
+    /** Sabit sayıda, sabit boyutlu kare tamponu; tümü kurulumda ayrılır */
+    public static final class FramePool {
+        private final BlockingQueue<Frame> free;
+        private final int frameCapacity;
+
+        public FramePool(int frames, int frameCapacity) {
+            this.free = new ArrayBlockingQueue<>(Math.max(1, frames));
+            this.frameCapacity = frameCapacity;
+            for (int i = 0; i < Math.max(1, frames); i++) free.add(new Frame(this, frameCapacity));
+        }
+
+        public int available() { return free.size(); }
+        public int frameCapacity() { return frameCapacity; }
+    }
+
+    private static final byte[] CONTENT_LENGTH = "content-length:".getBytes(StandardCharsets.US_ASCII);
+
+    private final InputStream in;
+    private final FramePool pool;
+    private final byte[] chunk;
+    private int pos;
+    private int lim;
+
+    private final byte[] line = new byte[1024];
+    private byte[] delimiter; // "\r\n--boundary"
+    private int[] fallback;   // delimiter için KMP geri dönüş tablosu
+    private boolean boundaryConsumed; // son kare taramayla bitti, sınır satırının başı okundu
+    private boolean finished;
+
+    private long sequence;
+    private long dropped;
+    private long oversized;
+
+    /** boundary null ise ilk "--" ile başlayan satırdan öğrenilir */
+    public MjpegFrameReader(InputStream in, String boundary, FramePool pool) {
+        this.in = in;
+        this.pool = pool;
+        this.chunk = new byte[64 * 1024];
+        if (boundary != null && !boundary.isBlank()) setBoundary(boundary.startsWith("--") ? boundary.substring(2) : boundary);
+    }
+
+    /** multipart/x-mixed-replace;boundary=xyz başlığından sınırı çıkarır; yoksa null */
+    public static String boundaryOf(String contentType) {
+        if (contentType == null) return null;
+        for (String part : contentType.split(";")) {
+            String p = part.trim();
+            if (p.regionMatches(true, 0, "boundary=", 0, 9)) {
+                String b = p.substring(9).trim();
+                if (b.length() >= 2 && b.startsWith("\"") && b.endsWith("\"")) b = b.substring(1, b.length() - 1);
+                return b.isEmpty() ? null : b;
+            }
+        }
+        return null;
+    }
+
+    /** Boş tampon bulunan sıradaki kare; akış bittiyse null */
+    public Frame next() throws IOException {
+        while (!finished) {
+            if (!seekPart()) return null;
+            int contentLength = readHeaders();
+            Frame frame = pool.free.poll();
+            boolean fits = frame != null && (contentLength < 0 || contentLength <= frame.data.length);
+
+            int n;
+            try {
+                if (contentLength >= 0) {
+                    if (fits) readFully(frame.data, contentLength); else skip(contentLength);
+                    n = contentLength;
+                } else {
+                    n = scanToDelimiter(fits ? frame.data : null);
+                    if (n > (fits ? frame.data.length : Integer.MAX_VALUE)) fits = false;
+                }
+            } catch (IOException | RuntimeException e) {
+                // bağlantı kare ortasında koptu: tampon havuza dönmezse her yeniden bağlanmada biri kaybolur
+                if (frame != null) frame.release();
+                throw e;
+            }
+            sequence++;
+
+            if (fits) {
+                frame.length = n;
+                frame.sequence = sequence;
+                return frame;
+            }
+            if (frame != null) {
+                frame.release();
+                oversized++;
+            } else {
+                dropped++;
+            }
+        }
+        return null;
+    }
+
+    /** Akışta görülen toplam kare (atılanlar dahil) */
+    public long frames() { return sequence; }
+
+    /** Boş tampon olmadığı için okunup atılan kare sayısı */
+    public long dropped() { return dropped; }
+
+    /** max-frame-size'a sığmadığı için atılan kare sayısı */
+    public long oversized() { return oversized; }
+
+    @Override
+    public void close() throws IOException {
+        in.close();
+    }
+
+    // --- ayrıştırma ---
+
+    // sınır satırına kadar ilerler; kapanış sınırı ("--boundary--") ya da EOF ise false
+    private boolean seekPart() throws IOException {
+        if (boundaryConsumed) {
+            boundaryConsumed = false;
+            int n = readLine();
+            if (n >= 2 && line[0] == '-' && line[1] == '-') { finished = true; return false; }
+            return n >= 0 || finish();
+        }
+        while (true) {
+            int n = readLine();
+            if (n < 0) return finish();
+            if (n < 2 || line[0] != '-' || line[1] != '-') continue;
+            if (delimiter == null) {
+                setBoundary(new String(line, 2, n - 2, StandardCharsets.US_ASCII));
+                return true;
+            }
+            int b = delimiter.length - 4; // "\r\n--" hariç
+            if (n < 2 + b || !Arrays.equals(line, 2, 2 + b, delimiter, 4, delimiter.length)) continue;
+            if (n >= 4 + b && line[2 + b] == '-' && line[3 + b] == '-') { finished = true; return false; }
+            return true;
+        }
+    }
+
+    // başlıkları boş satıra kadar okur; Content-Length yoksa -1
+    private int readHeaders() throws IOException {
+        int contentLength = -1;
+        while (true) {
+            int n = readLine();
+            if (n < 0) throw new EOFException("MJPEG başlığı yarıda kesildi");
+            if (n == 0) return contentLength;
+            if (n > CONTENT_LENGTH.length && startsWithIgnoreCase(line, CONTENT_LENGTH)) {
+                contentLength = parseInt(line, CONTENT_LENGTH.length, n);
+            }
+        }
+    }
+
+    // delimiter'a kadar okur; gövde uzunluğunu döner. target null ya da doluysa baytlar atılır ama sayılır.
+    private int scanToDelimiter(byte[] target) throws IOException {
+        int matched = 0;
+        int count = 0;
+        while (true) {
+            int b = readByte();
+            if (b < 0) throw new EOFException("MJPEG karesi yarıda kesildi");
+            if (target != null && count < target.length) target[count] = (byte) b;
+            count++;
+            while (matched > 0 && delimiter[matched] != (byte) b) matched = fallback[matched - 1];
+            if (delimiter[matched] == (byte) b) matched++;
+            if (matched == delimiter.length) {
+                boundaryConsumed = true;
+                return count - delimiter.length;
+            }
+        }
+    }
+
+    private void setBoundary(String boundary) {
+        delimiter = ("\r\n--" + boundary.trim()).getBytes(StandardCharsets.US_ASCII);
+        fallback = new int[delimiter.length];
+        for (int i = 1, k = 0; i < delimiter.length; i++) {
+            while (k > 0 && delimiter[i] != delimiter[k]) k = fallback[k - 1];
+            if (delimiter[i] == delimiter[k]) k++;
+            fallback[i] = k;
+        }
+    }
+
+    private boolean finish() {
+        finished = true;
+        return false;
+    }
+
+    // CRLF/LF'siz satır uzunluğu; EOF'ta -1. 1024 baytı aşan kısım kesilir.
+    private int readLine() throws IOException {
+        int n = 0;
+        while (true) {
+            int b = readByte();
+            if (b < 0) return n == 0 ? -1 : n;
+            if (b == '\n') break;
+            if (n < line.length) line[n++] = (byte) b;
+        }
+        if (n > 0 && line[n - 1] == '\r') n--;
+        return n;
+    }
+
+    private int readByte() throws IOException {
+        if (pos == lim && !fill()) return -1;
+        return chunk[pos++] & 0xff;
+    }
+
+    private boolean fill() throws IOException {
+        int n = in.read(chunk, 0, chunk.length);
+        if (n <= 0) return false;
+        pos = 0;
+        lim = n;
+        return true;
+    }
+
+    private void readFully(byte[] target, int len) throws IOException {
+        int off = 0;
+        while (off < len) {
+            if (pos == lim && !fill()) throw new EOFException("MJPEG karesi yarıda kesildi");
+            int n = Math.min(len - off, lim - pos);
+            System.arraycopy(chunk, pos, target, off, n);
+            pos += n;
+            off += n;
+        }
+    }
+
+    private void skip(int len) throws IOException {
+        int left = len;
+        while (left > 0) {
+            if (pos == lim && !fill()) throw new EOFException("MJPEG karesi yarıda kesildi");
+            int n = Math.min(left, lim - pos);
+            pos += n;
+            left -= n;
+        }
+    }
+
+    private static boolean startsWithIgnoreCase(byte[] s, byte[] lowerPrefix) {
+        for (int i = 0; i < lowerPrefix.length; i++) {
+            int c = s[i];
+            if (c >= 'A' && c <= 'Z') c += 'a' - 'A';
+            if (c != lowerPrefix[i]) return false;
+        }
+        return true;
+    }
+
+    private static int parseInt(byte[] s, int from, int to) throws IOException {
+        int v = 0;
+        boolean any = false;
+        for (int i = from; i < to; i++) {
+            byte c = s[i];
+            if (c == ' ' || c == '\t') { if (any) break; else continue; }
+            if (c < '0' || c > '9') throw new IOException("Geçersiz Content-Length");
+            v = Math.addExact(v * 10, c - '0');
+            any = true;
+        }
+        if (!any) throw new IOException("Geçersiz Content-Length");
+        return v;
+    }
+}
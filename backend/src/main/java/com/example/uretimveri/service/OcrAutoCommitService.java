@@ -0,0 +1,250 @@
+package com.example.uretimveri.service;
+
+import com.example.uretimveri.ocr.AutoCommitStats;
+import com.example.uretimveri.ocr.LvdtReading;
+import com.example.uretimveri.ocr.RecognizeUiItem;
+import com.example.uretimveri.ocr.RecognizeUiResponse;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Pattern;
+
+// Yüksek güvenli okumaları tanıma isteğinin içinde kaydeder (ocr.autocommit.enabled=true).
+// Kurallardan geçemeyen öğe review alanıyla operatöre döner; geçenler Img2DataPlatesService.saveAll
+// ile (idempotent) yazılır ve autoCommitted=true işaretlenir. Son bir saatteki otomatik/elle kayıt
+// sayıları dakikalık kovalarda tutulur: operatör kaydı/saat ve otomatik kayıt oranı buradan raporlanır.
+@Service
+@Slf4j
+public class OcrAutoCommitService {
+
+    /** Öğenin incelemeye düşme sebebi */
+    public enum Review {
+        NO_LVDT, DIGITS, FORMAT, REGISTERED, NEAR_MATCH, AMBIGUOUS, ROI_VOTES, PAGE, SAVE_FAILED;
+
+        public String code() { return name().toLowerCase(Locale.ROOT); }
+    }
+
+    /** Kayıtlı LVDT şartı: any = fark etmez, known = plates'te olmalı, unknown = yeni olmalı */
+    public enum Registered { ANY, KNOWN, UNKNOWN }
+
+    private final Img2DataPlatesService platesService;
+    private final boolean enabled;
+    private final int minDigits;
+    private final int maxDigits;
+    private final Pattern format;
+    private final Registered registered;
+    private final boolean rejectNearMatches;
+    private final int minRoiVotes;
+    private final boolean documents;
+
+    private final Counter committedCounter;
+    private final Counter manualCounter;
+    private final Map<Review, Counter> reviewCounters = new ConcurrentHashMap<>();
+    private final MeterRegistry registry;
+
+    // son 60 dakikanın kovaları: [dakika][0=otomatik, 1=inceleme, 2=elle kayıt]
+    private static final int WINDOW_MINUTES = 60;
+    private final long[][] buckets = new long[WINDOW_MINUTES][3];
+    private final long[] bucketMinute = new long[WINDOW_MINUTES];
+
+    public OcrAutoCommitService(Img2DataPlatesService platesService,
+                                MeterRegistry registry,
+                                @Value("${ocr.autocommit.enabled:false}") boolean enabled,
+                                @Value("${ocr.autocommit.min-digits:${ocr.lvdt.min-digits:10}}") int minDigits,
+                                @Value("${ocr.autocommit.max-digits:${ocr.lvdt.max-digits:18}}") int maxDigits,
+                                @Value("${ocr.autocommit.format:}") String format,
+                                @Value("${ocr.autocommit.registered:any}") String registered,
+                                @Value("${ocr.autocommit.reject-near-matches:true}") boolean rejectNearMatches,
+                                @Value("${ocr.autocommit.min-roi-votes:1}") int minRoiVotes,
+                                @Value("${ocr.autocommit.documents:false}") boolean documents) {
+        this.platesService = platesService;
+        this.registry = registry;
+        this.enabled = enabled;
+        this.minDigits = minDigits;
+        this.maxDigits = maxDigits;
+        this.format = format == null || format.isBlank() ? null : Pattern.compile(format.trim());
+        this.registered = Registered.valueOf(registered.trim().toUpperCase(Locale.ROOT));
+        this.rejectNearMatches = rejectNearMatches;
+        this.minRoiVotes = Math.max(1, minRoiVotes);
+        this.documents = documents;
+
+        this.committedCounter = Counter.builder("ocr.autocommit.items").tag("result", "committed")
+                .description("Tanıma isteği içinde otomatik kaydedilen LVDT").register(registry);
+        this.manualCounter = Counter.builder("ocr.save.manual.items")
+                .description("Operatörün /save ile onayladığı LVDT").register(registry);
+        Gauge.builder("ocr.autocommit.rate", this, s -> s.stats().getAutoCommitRate())
+                .description("Son bir saatte kaydedilen LVDT'lerden otomatik kaydedilenlerin oranı").register(registry);
+        Gauge.builder("ocr.operator.saves.per.hour", this, s -> s.stats().getManualLastHour())
+                .description("Son bir saatte operatörün elle kaydettiği LVDT").register(registry);
+    }
+
+    public boolean isEnabled() { return enabled; }
+
+    /**
+     * Kurallardan geçen öğeleri kaydeder, kalanları review sebebiyle işaretler. Girdi değişmez, işaretli
+     * kopya döner: girdi dedup penceresi ya da önbellekle paylaşılıyor olabilir. Daha önce otomatik
+     * kaydedilmiş ya da zaten kayıtlı öğeler tekrar yazılmaz ve sayılmaz. JDBC bloklar: çağıran
+     * boundedElastic'te çalıştırmalı. Kayıt hatası tanıma cevabını bozmaz, öğeler save_failed ile
+     * incelemeye döner.
+     */
+    public RecognizeUiResponse apply(RecognizeUiResponse resp) {
+        if (!enabled || resp == null || resp.getItems() == null || resp.getItems().isEmpty()) return resp;
+        if (resp.getError() != null) return resp;
+        RecognizeUiResponse out = resp.copy();
+
+        // aynı görselde (belgede aynı sayfada) kaç ROI aynı LVDT'yi okudu
+        Map<String, Integer> votes = new HashMap<>();
+        for (RecognizeUiItem it : out.getItems()) {
+            if (it.getLvdt() != null) votes.merge(voteKey(it), 1, Integer::sum);
+        }
+
+        List<RecognizeUiItem> accepted = new ArrayList<>();
+        for (RecognizeUiItem it : out.getItems()) {
+            if (Boolean.TRUE.equals(it.getAutoCommitted())) continue; // önceki bir istekte kaydedildi
+            Review reason = check(it, votes.getOrDefault(voteKey(it), 0));
+            if (reason != null) {
+                it.setAutoCommitted(false);
+                it.setReview(reason.code());
+                review(reason);
+            } else if (it.getExistingProductId() == null) {
+                accepted.add(it);
+            }
+            // kurallardan geçen ama zaten kayıtlı öğe: yazılacak bir şey yok, otomatik kayıt sayılmaz
+        }
+        if (!accepted.isEmpty()) commit(accepted);
+
+        int committed = (int) accepted.stream().filter(i -> Boolean.TRUE.equals(i.getAutoCommitted())).count();
+        out.setAutoCommittedCount(committed);
+        return out;
+    }
+
+    /** Operatörün /save ile kaydettiği LVDT sayısı (otomatik kayıt oranının paydası için) */
+    public void recordManual(int count) {
+        if (count <= 0) return;
+        manualCounter.increment(count);
+        add(2, count);
+    }
+
+    public AutoCommitStats stats() {
+        long now = minute();
+        long auto = 0, review = 0, manual = 0;
+        synchronized (buckets) {
+            for (int i = 0; i < WINDOW_MINUTES; i++) {
+                if (now - bucketMinute[i] >= WINDOW_MINUTES) continue;
+                auto += buckets[i][0];
+                review += buckets[i][1];
+                manual += buckets[i][2];
+            }
+        }
+        AutoCommitStats s = new AutoCommitStats();
+        s.setEnabled(enabled);
+        s.setAutoCommittedLastHour(auto);
+        s.setReviewLastHour(review);
+        s.setManualLastHour(manual);
+        s.setAutoCommitRate(auto + manual == 0 ? 0 : (double) auto / (auto + manual));
+        return s;
+    }
+
+    // --- kurallar ---
+
+    Review check(RecognizeUiItem it, int roiVotes) {
+        if (it.getLvdt() == null) return Review.NO_LVDT;
+        if (it.getPage() != null && !documents) return Review.PAGE;
+
+        List<LvdtReading> readings = it.getReadings() == null ? List.of() : it.getReadings();
+        LvdtReading top = readings.stream().filter(r -> Objects.equals(r.getLvdt(), it.getLvdt())).findFirst().orElse(null);
+        int digits = top != null && top.getDigits() != null ? top.getDigits() : Long.toString(it.getLvdt()).length();
+        if (digits < minDigits || digits > maxDigits) return Review.DIGITS;
+        if (format != null && !format.matcher(pad(it.getLvdt(), digits)).matches()) return Review.FORMAT;
+
+        // metinde aynı puanı alan farklı bir aday varsa seçim keyfidir
+        if (top != null && readings.stream().anyMatch(r -> r != top && !Objects.equals(r.getLvdt(), top.getLvdt())
+                && Objects.equals(r.getScore(), top.getScore()))) return Review.AMBIGUOUS;
+
+        boolean known = it.getExistingProductId() != null;
+        if (registered == Registered.KNOWN && !known) return Review.REGISTERED;
+        if (registered == Registered.UNKNOWN && known) return Review.REGISTERED;
+        // kayıtlı değil ama bir-iki hane ötesinde kayıtlı LVDT var: büyük olasılıkla yanlış okuma
+        if (!known && rejectNearMatches && it.getCandidates() != null && !it.getCandidates().isEmpty()) return Review.NEAR_MATCH;
+
+        if (roiVotes < minRoiVotes) return Review.ROI_VOTES;
+        return null;
+    }
+
+    private void commit(List<RecognizeUiItem> accepted) {
+        List<Long> lvdts = accepted.stream().map(RecognizeUiItem::getLvdt).distinct().toList();
+        Img2DataPlatesService.SaveResult result;
+        try {
+            result = platesService.saveAll(lvdts);
+        } catch (RuntimeException e) {
+            log.warn("Otomatik kayıt başarısız, {} LVDT incelemeye döndü: {}", lvdts.size(), e.getMessage());
+            for (RecognizeUiItem it : accepted) {
+                it.setAutoCommitted(false);
+                it.setReview(Review.SAVE_FAILED.code());
+            }
+            review(Review.SAVE_FAILED, accepted.size());
+            return;
+        }
+
+        Map<Long, Long> productByLvdt = new HashMap<>();
+        result.existing().forEach((productId, lvdt) -> productByLvdt.put(lvdt, productId));
+        result.created().forEach((productId, lvdt) -> productByLvdt.put(lvdt, productId));
+        for (RecognizeUiItem it : accepted) {
+            it.setAutoCommitted(true);
+            it.setReview(null);
+            Long productId = productByLvdt.get(it.getLvdt());
+            if (productId != null) it.setExistingProductId(productId);
+        }
+        committedCounter.increment(lvdts.size());
+        add(0, lvdts.size());
+    }
+
+    private void review(Review reason) {
+        review(reason, 1);
+    }
+
+    private void review(Review reason, int n) {
+        reviewCounters.computeIfAbsent(reason, r -> Counter.builder("ocr.autocommit.items")
+                .tag("result", "review").tag("reason", r.code())
+                .description("Kurallardan geçemeyip operatöre dönen öğe").register(registry)).increment(n);
+        add(1, n);
+    }
+
+    private static String voteKey(RecognizeUiItem it) {
+        return it.getPage() + ":" + it.getLvdt();
+    }
+
+    private static String pad(long lvdt, int digits) {
+        String s = Long.toString(lvdt);
+        return s.length() >= digits ? s : "0".repeat(digits - s.length()) + s;
+    }
+
+    // --- saatlik pencere ---
+
+    private void add(int kind, long n) {
+        long now = minute();
+        int i = (int) (now % WINDOW_MINUTES);
+        synchronized (buckets) {
+            if (bucketMinute[i] != now) {
+                bucketMinute[i] = now;
+                buckets[i][0] = buckets[i][1] = buckets[i][2] = 0;
+            }
+            buckets[i][kind] += n;
+        }
+    }
+
+    private static long minute() {
+        return System.currentTimeMillis() / 60_000L;
+    }
+}
@@ -0,0 +1,364 @@
+package com.example.uretimveri.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.function.client.WebClientResponseException;
+import org.springframework.web.server.ResponseStatusException;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.util.context.Context;
+import reactor.util.context.ContextView;
+import reactor.util.retry.Retry;
+
+import java.time.Duration;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+// Python çağrıları için koruma katmanı:
+//  - deneme başına süre sınırı (deadline) ve yeniden denemeler dahil toplam süre sınırı
+//  - bulkhead: aynı anda en fazla N çağrı, fazlası hemen 503; arka plan çağrıları (background)
+//    etkileşimli trafiğe ayrılan payı kullanamaz
+//  - devre kesici: son çağrılarda hata oranı eşiği aşarsa bir süre hiç çağırmadan 503
+//  - yeniden deneme bütçesi: yeniden denemeler toplam isteklerin belli bir oranını geçemez
+@Component
+@Slf4j
+public class OcrCallGuard {
+
+    enum State { CLOSED, HALF_OPEN, OPEN }
+
+    private static final String KEEP_FREE = OcrCallGuard.class.getName() + ".keepFree";
+
+    private final Duration callTimeout;
+    private final Duration totalTimeout;
+    // bulkhead'deki boş yer; pay kontrolü ile alma tek CAS'ta olsun diye Semaphore yerine sayaç
+    private final AtomicInteger bulkhead;
+    private final int maxConcurrent;
+
+    // devre kesici: son windowSize çağrının sonucu halka tamponda
+    private final boolean[] window;
+    private final int minCalls;
+    private final double failureRateThreshold;
+    private final Duration openDuration;
+    private int windowPos;
+    private int windowCount;
+    private int windowFailures;
+    private State state = State.CLOSED;
+    private long openUntilNanos;
+    private long probeSeq;
+    private long probeOwner; // HALF_OPEN deneme çağrısının numarası, 0 = yok
+
+    // yeniden deneme bütçesi: her istek ratio kadar jeton ekler, her yeniden deneme 1 jeton harcar
+    private final int maxRetries;
+    private final Duration retryBackoff;
+    private final double budgetRatio;
+    private final double budgetMax;
+    private double budgetTokens;
+
+    private final Counter rejectedBulkhead;
+    private final Counter rejectedReserve;
+    private final Counter rejectedOpen;
+    private final Counter retries;
+    private final Counter retriesDenied;
+
+    public OcrCallGuard(MeterRegistry registry,
+                        @Value("${python.api.call-timeout:90s}") Duration callTimeout,
+                        @Value("${python.api.bulkhead.max-concurrent:8}") int maxConcurrent,
+                        @Value("${python.api.circuit.window-size:20}") int windowSize,
+                        @Value("${python.api.circuit.min-calls:10}") int minCalls,
+                        @Value("${python.api.circuit.failure-rate-threshold:0.5}") double failureRateThreshold,
+                        @Value("${python.api.circuit.open-duration:30s}") Duration openDuration,
+                        @Value("${python.api.retry.max-attempts:2}") int maxRetries,
+                        @Value("${python.api.retry.backoff:200ms}") Duration retryBackoff,
+                        @Value("${python.api.retry.budget-ratio:0.2}") double budgetRatio,
+                        @Value("${python.api.retry.budget-max:10}") double budgetMax,
+                        @Value("${python.api.total-timeout:100s}") Duration totalTimeout,
+                        @Value("${spring.mvc.async.request-timeout:120s}") Duration asyncTimeout) {
+        // retry'lar dahil toplam süre, MVC async isteği zaman aşımına düşmeden bitmeli (%10 pay)
+        Duration ceiling = asyncTimeout.minus(asyncTimeout.dividedBy(10));
+        if (totalTimeout.compareTo(ceiling) > 0) {
+            log.warn("python.api.total-timeout={} async istek süresini aşıyor, {} ile sınırlandı", totalTimeout, ceiling);
+            totalTimeout = ceiling;
+        }
+        this.totalTimeout = totalTimeout;
+        this.callTimeout = callTimeout.compareTo(totalTimeout) > 0 ? totalTimeout : callTimeout;
+        this.maxConcurrent = maxConcurrent;
+        this.bulkhead = new AtomicInteger(maxConcurrent);
+        this.window = new boolean[windowSize];
+        this.minCalls = minCalls;
+        this.failureRateThreshold = failureRateThreshold;
+        this.openDuration = openDuration;
+        this.maxRetries = maxRetries;
+        this.retryBackoff = retryBackoff;
+        this.budgetRatio = budgetRatio;
+        this.budgetMax = budgetMax;
+        this.budgetTokens = budgetMax;
+
+        Gauge.builder("ocr.python.circuit.state", this, g -> g.state().ordinal())
+                .description("Devre kesici durumu: 0=CLOSED, 1=HALF_OPEN, 2=OPEN")
+                .register(registry);
+        Gauge.builder("ocr.python.inflight", this, g -> g.maxConcurrent - g.bulkhead.get())
+                .description("Python'da devam eden çağrı sayısı")
+                .register(registry);
+        this.rejectedBulkhead = Counter.builder("ocr.python.rejected").tag("reason", "bulkhead")
+                .description("Bulkhead dolu olduğu için reddedilen çağrı").register(registry);
+        this.rejectedReserve = Counter.builder("ocr.python.rejected").tag("reason", "reserve")
+                .description("Etkileşimli trafiğe ayrılan pay dolu olduğu için reddedilen arka plan çağrısı")
+                .register(registry);
+        this.rejectedOpen = Counter.builder("ocr.python.rejected").tag("reason", "circuit-open")
+                .description("Devre açık olduğu için reddedilen çağrı").register(registry);
+        this.retries = Counter.builder("ocr.python.retries")
+                .description("Yapılan yeniden deneme").register(registry);
+        this.retriesDenied = Counter.builder("ocr.python.retries.denied")
+                .description("Bütçe bittiği için yapılmayan yeniden deneme").register(registry);
+    }
+
+    /** Gövdesi tekrar okunabilen çağrılar için: deadline + bulkhead + devre kesici + bütçeli retry */
+    public <T> Mono<T> protect(Supplier<Mono<T>> call) {
+        return protect(call, true);
+    }
+
+    public <T> Mono<T> protect(Supplier<Mono<T>> call, boolean retryable) {
+        Mono<T> attempt = Mono.deferContextual(ctx -> guarded(call, keepFree(ctx)));
+        if (!retryable || maxRetries <= 0) {
+            return Mono.defer(() -> {
+                depositBudget(); // bütçe her abonelikte (gerçek istekte) artar, Mono kurulurken değil
+                return attempt;
+            }).timeout(totalTimeout);
+        }
+        return Mono.defer(() -> {
+            depositBudget();
+            // Retry filtresi son hatada da çağrılır; hak bitmişse jeton harcanmamalı
+            int[] used = {0};
+            return attempt.retryWhen(Retry.backoff(maxRetries, retryBackoff)
+                    .filter(OcrCallGuard::isTransient)
+                    .filter(e -> {
+                        if (used[0] >= maxRetries) return false;
+                        if (withdrawBudget()) { used[0]++; retries.increment(); return true; }
+                        retriesDenied.increment();
+                        return false;
+                    })
+                    .onRetryExhaustedThrow((spec, signal) -> signal.failure()));
+        }).timeout(totalTimeout);
+    }
+
+    /**
+     * Akan cevaplar için: bulkhead + devre kesici, deadline ardışık iki öğe arasına uygulanır.
+     * Yarıda kalan akış tekrar oynatılamayacağı için yeniden denenmez.
+     */
+    public <T> Flux<T> protectStream(Supplier<Flux<T>> call) {
+        return Flux.deferContextual(ctx -> {
+            Permit permit;
+            Flux<T> flux;
+            try {
+                permit = admit(keepFree(ctx));
+            } catch (ResponseStatusException rejected) {
+                return Flux.error(rejected);
+            }
+            try {
+                flux = call.get();
+            } catch (RuntimeException e) {
+                permit.release();
+                return Flux.error(e);
+            }
+            return flux
+                    .timeout(callTimeout)
+                    .doOnComplete(() -> record(true, permit.probe))
+                    .doOnError(e -> record(!countsAsFailure(e), permit.probe))
+                    .doFinally(sig -> permit.release());
+        });
+    }
+
+    /** Bulkhead'de boş yer; arka plan işleri etkileşimli trafiğe pay bırakmak için bakar */
+    public int availablePermits() {
+        return bulkhead.get();
+    }
+
+    /**
+     * Arka plan çağrısı bağlamı: bu Context ile yapılan çağrı bulkhead'de keepFree'den fazla boş yer
+     * yoksa 503 alır. Kontrol ve yer alma atomiktir; eşzamanlı arka plan çağrıları payı birlikte aşamaz.
+     */
+    public static Context background(int keepFree) {
+        return Context.of(KEEP_FREE, keepFree);
+    }
+
+    /** Çağrı arka plan bağlamında mı (motor bu çağrıları micro-batch'e katmaz) */
+    public static boolean isBackground(ContextView ctx) {
+        return ctx.hasKey(KEEP_FREE);
+    }
+
+    private static int keepFree(ContextView ctx) {
+        return ctx.getOrDefault(KEEP_FREE, 0);
+    }
+
+    // boş yer keepFree'den fazlaysa bir yer alır
+    private boolean tryAcquire(int keepFree) {
+        while (true) {
+            int free = bulkhead.get();
+            if (free <= keepFree) return false;
+            if (bulkhead.compareAndSet(free, free - 1)) return true;
+        }
+    }
+
+    // Çağrı başına alınan izin: bulkhead yeri ve (HALF_OPEN'da) deneme çağrısı sahipliği.
+    // release() her yolda (başarı, hata, iptal, senkron istisna) bir kez çalışır.
+    private final class Permit {
+        final long probe;
+        private final AtomicBoolean released = new AtomicBoolean();
+
+        Permit(long probe) {
+            this.probe = probe;
+        }
+
+        void release() {
+            if (!released.compareAndSet(false, true)) return;
+            bulkhead.incrementAndGet();
+            if (probe != 0) releaseProbe(probe);
+        }
+    }
+
+    // izin yoksa 503 fırlatır
+    private Permit admit(int keepFree) {
+        long probe = acquirePermission();
+        if (probe < 0) {
+            rejectedOpen.increment();
+            throw new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE,
+                    "OCR servisi geçici olarak devre dışı (devre kesici açık)");
+        }
+        if (!tryAcquire(keepFree)) {
+            if (probe != 0) releaseProbe(probe);
+            if (keepFree > 0 && bulkhead.get() > 0) {
+                rejectedReserve.increment();
+                throw new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE,
+                        "OCR servisinde boş yer etkileşimli trafiğe ayrıldı");
+            }
+            rejectedBulkhead.increment();
+            throw new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE,
+                    "OCR servisi meşgul, lütfen tekrar deneyin");
+        }
+        return new Permit(probe);
+    }
+
+    private <T> Mono<T> guarded(Supplier<Mono<T>> call, int keepFree) {
+        Permit permit;
+        Mono<T> mono;
+        try {
+            permit = admit(keepFree);
+        } catch (ResponseStatusException rejected) {
+            return Mono.error(rejected);
+        }
+        try {
+            mono = call.get();
+        } catch (RuntimeException e) {
+            permit.release(); // istek hiç gitmedi: Python'un sağlığı hakkında bilgi yok, kaydedilmez
+            return Mono.error(e);
+        }
+        return mono
+                .timeout(callTimeout)
+                .doOnSuccess(v -> record(true, permit.probe))
+                .doOnError(e -> record(!countsAsFailure(e), permit.probe))
+                .doFinally(sig -> permit.release());
+    }
+
+    // --- devre kesici ---
+
+    // -1: reddedildi, 0: normal çağrı, >0: bu çağrının sahip olduğu HALF_OPEN deneme numarası
+    private synchronized long acquirePermission() {
+        if (state == State.OPEN) {
+            if (System.nanoTime() < openUntilNanos) return -1;
+            state = State.HALF_OPEN;
+            log.info("OCR devre kesici HALF_OPEN: deneme çağrısına izin veriliyor");
+        }
+        if (state == State.HALF_OPEN) {
+            if (probeOwner != 0) return -1;
+            probeOwner = ++probeSeq;
+            return probeOwner;
+        }
+        return 0;
+    }
+
+    // sadece denemenin sahibi bırakabilir; başka çağrının iptali devam eden denemeyi silmez
+    private synchronized void releaseProbe(long probe) {
+        if (probeOwner == probe) probeOwner = 0;
+    }
+
+    private synchronized void record(boolean success, long probe) {
+        if (state == State.HALF_OPEN) {
+            // devre açılmadan önce başlamış çağrıların sonucu denemenin yerine geçmez
+            if (probe == 0 || probe != probeOwner) return;
+            probeOwner = 0;
+            if (success) {
+                state = State.CLOSED;
+                windowPos = windowCount = windowFailures = 0;
+                log.info("OCR devre kesici CLOSED");
+            } else {
+                open();
+            }
+            return;
+        }
+        if (state == State.OPEN) return;
+
+        if (windowCount == window.length) {
+            if (!window[windowPos]) windowFailures--;
+        } else {
+            windowCount++;
+        }
+        window[windowPos] = success;
+        if (!success) windowFailures++;
+        windowPos = (windowPos + 1) % window.length;
+
+        if (windowCount >= minCalls && (double) windowFailures / windowCount >= failureRateThreshold) {
+            open();
+        }
+    }
+
+    private void open() {
+        state = State.OPEN;
+        openUntilNanos = System.nanoTime() + openDuration.toNanos();
+        log.warn("OCR devre kesici OPEN: {} boyunca Python çağrılmayacak", openDuration);
+    }
+
+    synchronized State state() {
+        return state;
+    }
+
+    synchronized double budgetTokens() {
+        return budgetTokens;
+    }
+
+    Duration totalTimeout() {
+        return totalTimeout;
+    }
+
+    // --- yeniden deneme bütçesi ---
+
+    private synchronized void depositBudget() {
+        budgetTokens = Math.min(budgetMax, budgetTokens + budgetRatio);
+    }
+
+    private synchronized boolean withdrawBudget() {
+        if (budgetTokens < 1.0) return false;
+        budgetTokens -= 1.0;
+        return true;
+    }
+
+    // 4xx istemci hatası: Python sağlıklı, devreyi etkilemez ve yeniden denenmez
+    private static boolean countsAsFailure(Throwable e) {
+        return !(e instanceof WebClientResponseException w && w.getStatusCode().is4xxClientError());
+    }
+
+    private static boolean isTransient(Throwable e) {
+        if (e instanceof TimeoutException) return true;
+        if (e instanceof WebClientResponseException w) {
+            int s = w.getStatusCode().value();
+            return s == 502 || s == 503 || s == 504;
+        }
+        return e instanceof ResponseStatusException r && r.getStatusCode().value() == HttpStatus.BAD_GATEWAY.value();
+    }
+}
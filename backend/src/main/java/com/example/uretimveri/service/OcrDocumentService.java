@@ -0,0 +1,335 @@
+package com.example.uretimveri.service;
+
+import com.example.uretimveri.ocr.OcrUpload;
+import com.example.uretimveri.ocr.RecognizePage;
+import com.example.uretimveri.ocr.RecognizeUiItem;
+import com.example.uretimveri.ocr.RecognizeUiResponse;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.pdfbox.Loader;
+import org.apache.pdfbox.io.IOUtils;
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.pdmodel.common.PDRectangle;
+import org.apache.pdfbox.rendering.ImageType;
+import org.apache.pdfbox.rendering.PDFRenderer;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.ByteArrayResource;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Service;
+import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.server.ResponseStatusException;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+import javax.imageio.IIOImage;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReadParam;
+import javax.imageio.ImageReader;
+import javax.imageio.ImageWriteParam;
+import javax.imageio.ImageWriter;
+import javax.imageio.stream.ImageInputStream;
+import javax.imageio.stream.ImageOutputStream;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+
+// Çok sayfalı PDF/TIFF belgeler (sertifika, vardiya föyü): belge geçici dosyaya yazılır, sayfalar
+// tek tek ve sadece sırası gelince görüntüye çevrilir (JPEG), en fazla concurrency sayfa aynı anda
+// OCR'dadır. Bellekte aynı anda en çok concurrency sayfanın JPEG'i bulunur; 200 sayfalık tarama da
+// tek sayfalık kadar yer tutar. Sayfa sonuçları page alanıyla tek cevapta birleşir.
+@Service
+@Slf4j
+public class OcrDocumentService {
+
+    public enum Kind { PDF, TIFF }
+
+    private final OcrService ocrService;
+    private final RecognizeUiMapper uiMapper;
+    private final float dpi;
+    private final long maxPixels;
+    private final int maxPages;
+    private final int concurrency;
+    private final float jpegQuality;
+
+    private final Counter pagesCounter;
+
+    public OcrDocumentService(OcrService ocrService,
+                              RecognizeUiMapper uiMapper,
+                              MeterRegistry registry,
+                              @Value("${ocr.document.dpi:200}") float dpi,
+                              @Value("${ocr.document.max-pixels:12000000}") long maxPixels,
+                              @Value("${ocr.document.max-pages:300}") int maxPages,
+                              @Value("${ocr.document.concurrency:4}") int concurrency,
+                              @Value("${ocr.document.jpeg-quality:0.9}") float jpegQuality) {
+        this.ocrService = ocrService;
+        this.uiMapper = uiMapper;
+        this.dpi = dpi;
+        this.maxPixels = maxPixels;
+        this.maxPages = maxPages;
+        this.concurrency = Math.max(1, concurrency);
+        this.jpegQuality = jpegQuality;
+        this.pagesCounter = Counter.builder("ocr.document.pages")
+                .description("Belgelerden görüntüye çevrilip OCR'a gönderilen sayfa").register(registry);
+    }
+
+    /** İlk baytlara göre PDF ya da TIFF ise türü, tek görselse null */
+    public static Kind detect(byte[] head, int n) {
+        if (n >= 4 && head[0] == '%' && head[1] == 'P' && head[2] == 'D' && head[3] == 'F') return Kind.PDF;
+        if (n >= 4 && head[0] == 'I' && head[1] == 'I' && head[2] == 42 && head[3] == 0) return Kind.TIFF;
+        if (n >= 4 && head[0] == 'M' && head[1] == 'M' && head[2] == 0 && head[3] == 42) return Kind.TIFF;
+        return null;
+    }
+
+    /** Yüklenen dosya belge mi; okunamıyorsa null (tek görsel yolu hatayı zaten raporlar) */
+    public Kind detect(MultipartFile file) {
+        byte[] head = new byte[4];
+        try (InputStream in = file.getInputStream()) {
+            return detect(head, in.readNBytes(head, 0, head.length));
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    /** Ham gövde için: işaretlenebilir akışta ilk baytlara bakıp geri sarar */
+    public static Kind detect(InputStream markable) throws IOException {
+        byte[] head = new byte[4];
+        markable.mark(head.length);
+        int n = markable.readNBytes(head, 0, head.length);
+        markable.reset();
+        return detect(head, n);
+    }
+
+    public Mono<RecognizeUiResponse> recognize(MultipartFile file, Kind kind) {
+        return spool(() -> {
+            Path tmp = Files.createTempFile("ocr-doc-", kind == Kind.PDF ? ".pdf" : ".tif");
+            file.transferTo(tmp);
+            return tmp;
+        }, file.getOriginalFilename(), kind);
+    }
+
+    public Mono<RecognizeUiResponse> recognize(InputStream body, String filename, Kind kind) {
+        return spool(() -> {
+            Path tmp = Files.createTempFile("ocr-doc-", kind == Kind.PDF ? ".pdf" : ".tif");
+            Files.copy(body, tmp, StandardCopyOption.REPLACE_EXISTING);
+            return tmp;
+        }, filename, kind);
+    }
+
+    private interface TempFileSupplier {
+        Path get() throws IOException;
+    }
+
+    // belge geçici dosyaya alınır; sayfalar oradan okunur, iş bitince silinir
+    private Mono<RecognizeUiResponse> spool(TempFileSupplier supplier, String filename, Kind kind) {
+        return Mono.using(
+                supplier::get,
+                tmp -> recognize(tmp, filename, kind),
+                tmp -> {
+                    try {
+                        Files.deleteIfExists(tmp);
+                    } catch (IOException e) {
+                        log.warn("Geçici belge silinemedi: {} - {}", tmp, e.getMessage());
+                    }
+                })
+                .subscribeOn(Schedulers.boundedElastic());
+    }
+
+    Mono<RecognizeUiResponse> recognize(Path file, String filename, Kind kind) {
+        return Mono.using(
+                () -> open(file, kind),
+                pages -> {
+                    int count;
+                    try {
+                        count = pages.pageCount();
+                    } catch (IOException e) {
+                        return Mono.error(e);
+                    }
+                    if (count > maxPages) {
+                        return Mono.error(new ResponseStatusException(HttpStatus.PAYLOAD_TOO_LARGE,
+                                "Belgede " + count + " sayfa var, en fazla " + maxPages + " işlenir"));
+                    }
+                    String base = baseName(filename);
+                    return Flux.range(1, count)
+                            // flatMap en fazla concurrency sayfaya abone olur: sayfa ancak sırası gelince çizilir
+                            .flatMap(page -> Mono.fromCallable(() -> pages.render(page, base))
+                                            .subscribeOn(Schedulers.boundedElastic())
+                                            .doOnNext(u -> pagesCounter.increment())
+                                            .flatMap(this::recognize)
+                                            .map(ui -> new PageResult(page, ui, null))
+                                            .onErrorResume(ex -> {
+                                                log.warn("Belge sayfası tanınamadı: {} s.{} - {}", filename, page, ex.getMessage());
+                                                return Mono.just(new PageResult(page, null, ex.getMessage()));
+                                            }),
+                                    concurrency)
+                            .collectList()
+                            .map(results -> merge(filename, count, results));
+                },
+                pages -> {
+                    try {
+                        pages.close();
+                    } catch (IOException e) {
+                        log.warn("Belge kapatılamadı: {} - {}", filename, e.getMessage());
+                    }
+                });
+    }
+
+    // tek sayfanın tanınması; testler OCR'sız çalışmak için ezer
+    Mono<RecognizeUiResponse> recognize(OcrUpload page) {
+        return uiMapper.toUiAsync(ocrService.recognize(page));
+    }
+
+    private record PageResult(int page, RecognizeUiResponse ui, String error) {}
+
+    private static RecognizeUiResponse merge(String filename, int count, List<PageResult> results) {
+        results.sort(Comparator.comparingInt(PageResult::page));
+        List<RecognizeUiItem> items = new ArrayList<>();
+        List<RecognizePage> pages = new ArrayList<>(results.size());
+        int failed = 0;
+        for (PageResult r : results) {
+            RecognizePage p = new RecognizePage();
+            p.setPage(r.page());
+            if (r.ui() == null || r.ui().getError() != null) {
+                p.setError(r.ui() == null ? r.error() : r.ui().getError());
+                failed++;
+            } else {
+                p.setJobId(r.ui().getJobId());
+                List<RecognizeUiItem> pageItems = r.ui().getItems() == null ? List.of() : r.ui().getItems();
+                for (RecognizeUiItem it : pageItems) {
+                    it.setPage(r.page());
+                    items.add(it);
+                }
+                p.setDetectedCount(pageItems.size());
+            }
+            pages.add(p);
+        }
+        RecognizeUiResponse resp = new RecognizeUiResponse();
+        resp.setSourceImage(filename);
+        resp.setPageCount(count);
+        resp.setPages(pages);
+        resp.setItems(items);
+        resp.setDetectedCount(items.size());
+        if (count > 0 && failed == count) resp.setError("Hiçbir sayfa tanınamadı: " + pages.get(0).getError());
+        return resp;
+    }
+
+    // --- sayfa kaynakları ---
+
+    private interface PageSource extends Closeable {
+        int pageCount() throws IOException;
+
+        /** 1'den başlayan sayfayı JPEG'e çevirir; kaynaklar thread-safe değil, çağrılar sıralanır */
+        OcrUpload render(int page, String baseName) throws IOException;
+    }
+
+    private PageSource open(Path file, Kind kind) throws IOException {
+        return kind == Kind.PDF ? new PdfPages(file) : new TiffPages(file);
+    }
+
+    private final class PdfPages implements PageSource {
+        private final PDDocument doc;
+        private final PDFRenderer renderer;
+
+        PdfPages(Path file) throws IOException {
+            // akış önbelleği belleğe değil geçici dosyaya: büyük taramalar heap'i doldurmasın
+            this.doc = Loader.loadPDF(file.toFile(), IOUtils.createTempFileOnlyStreamCache());
+            this.renderer = new PDFRenderer(doc);
+            this.renderer.setSubsamplingAllowed(true);
+        }
+
+        @Override
+        public int pageCount() {
+            return doc.getNumberOfPages();
+        }
+
+        @Override
+        public synchronized OcrUpload render(int page, String baseName) throws IOException {
+            PDRectangle box = doc.getPage(page - 1).getCropBox();
+            // büyük sayfalarda (A0 çizim vb.) dpi düşürülür: tek sayfa max-pixels'i aşmasın
+            double inches = (box.getWidth() / 72.0) * (box.getHeight() / 72.0);
+            float pageDpi = inches <= 0 ? dpi : (float) Math.min(dpi, Math.sqrt(maxPixels / inches));
+            BufferedImage img = renderer.renderImageWithDPI(page - 1, pageDpi, ImageType.RGB);
+            return upload(img, baseName, page);
+        }
+
+        @Override
+        public void close() throws IOException {
+            doc.close();
+        }
+    }
+
+    private final class TiffPages implements PageSource {
+        private final ImageInputStream in;
+        private final ImageReader reader;
+
+        TiffPages(Path file) throws IOException {
+            this.in = ImageIO.createImageInputStream(file.toFile());
+            Iterator<ImageReader> readers = in == null ? null : ImageIO.getImageReaders(in);
+            if (readers == null || !readers.hasNext()) {
+                if (in != null) in.close();
+                throw new IOException("TIFF okunamadı");
+            }
+            this.reader = readers.next();
+            this.reader.setInput(in, false, true); // sayfalar arası gidip gelebilmek için seekForwardOnly=false
+        }
+
+        @Override
+        public synchronized int pageCount() throws IOException {
+            return reader.getNumImages(true);
+        }
+
+        @Override
+        public synchronized OcrUpload render(int page, String baseName) throws IOException {
+            int index = page - 1;
+            long pixels = (long) reader.getWidth(index) * reader.getHeight(index);
+            ImageReadParam param = reader.getDefaultReadParam();
+            int step = (int) Math.ceil(Math.sqrt((double) pixels / maxPixels));
+            if (step > 1) param.setSourceSubsampling(step, step, 0, 0);
+            return upload(reader.read(index, param), baseName, page);
+        }
+
+        @Override
+        public void close() throws IOException {
+            reader.dispose();
+            in.close();
+        }
+    }
+
+    private OcrUpload upload(BufferedImage img, String baseName, int page) throws IOException {
+        BufferedImage rgb = img;
+        if (img.getType() != BufferedImage.TYPE_INT_RGB && img.getType() != BufferedImage.TYPE_3BYTE_BGR
+                && img.getType() != BufferedImage.TYPE_BYTE_GRAY) {
+            // 1 bit faks TIFF'leri, CMYK vb. JPEG yazıcısının kabul ettiği biçime
+            rgb = new BufferedImage(img.getWidth(), img.getHeight(), BufferedImage.TYPE_INT_RGB);
+            rgb.createGraphics().drawImage(img, 0, 0, null);
+        }
+        ImageWriter writer = ImageIO.getImageWritersByFormatName("jpeg").next();
+        ByteArrayOutputStream bos = new ByteArrayOutputStream();
+        try (ImageOutputStream ios = ImageIO.createImageOutputStream(bos)) {
+            writer.setOutput(ios);
+            ImageWriteParam param = writer.getDefaultWriteParam();
+            param.setCompressionMode(ImageWriteParam.MODE_EXPLICIT);
+            param.setCompressionQuality(jpegQuality);
+            writer.write(null, new IIOImage(rgb, null, null), param);
+        } finally {
+            writer.dispose();
+        }
+        return new OcrUpload(new ByteArrayResource(bos.toByteArray()), baseName + "-p" + page + ".jpg", "image/jpeg");
+    }
+
+    private static String baseName(String filename) {
+        if (filename == null || filename.isBlank()) return "document";
+        int dot = filename.lastIndexOf('.');
+        return dot > 0 ? filename.substring(0, dot) : filename;
+    }
+}
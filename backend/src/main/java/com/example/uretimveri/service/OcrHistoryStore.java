@@ -0,0 +1,239 @@
+package com.example.uretimveri.service;
+
+import com.example.uretimveri.ocr.OcrApiResponse;
+import com.example.uretimveri.ocr.OcrHistoryEntry;
+import com.example.uretimveri.ocr.OcrItem;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import reactor.core.scheduler.Schedulers;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+// Python cevaplarının denetim kaydı: ocr_job (ham cevap gzip'li) + ocr_item (LVDT ile aranabilir).
+// İstek thread'i sadece sınırlı kuyruğa koyar; tek bir yazıcı thread kuyruğu toplu INSERT ile boşaltır.
+// Kuyruk doluysa: DROP kaydı hemen atar, BLOCK en fazla block-timeout bekler, sonra yine atar.
+// BLOCK sadece bloklanabilen thread'lerde (servlet, worker, boundedElastic) bekler; kayıt Netty event
+// loop'undan (WebClient cevabının doOnNext'i) geliyorsa beklemeden DROP gibi davranır.
+// Tanıma yolu hiçbir durumda DB'yi beklemez; atılan kayıtlar ocr.history.dropped ile sayılır.
+@Service
+@Slf4j
+public class OcrHistoryStore {
+
+    public enum Overflow { DROP, BLOCK }
+
+    private record Entry(Instant at, OcrApiResponse response) {}
+
+    private final JdbcTemplate jdbc;
+    private final ObjectMapper objectMapper;
+    private final LvdtParser lvdtParser;
+    private final boolean enabled;
+    private final int batchSize;
+    private final Duration flushInterval;
+    private final Overflow overflow;
+    private final Duration blockTimeout;
+    private final BlockingQueue<Entry> queue;
+
+    private final Counter written;
+    private final Counter dropped;
+    private final Counter failed;
+    private final Timer flushTimer;
+
+    private volatile boolean ready;
+    private volatile boolean running = true;
+    private Thread writer;
+
+    public OcrHistoryStore(JdbcTemplate jdbc,
+                           ObjectMapper objectMapper,
+                           LvdtParser lvdtParser,
+                           MeterRegistry registry,
+                           @Value("${ocr.history.enabled:true}") boolean enabled,
+                           @Value("${ocr.history.buffer-capacity:10000}") int capacity,
+                           @Value("${ocr.history.batch-size:200}") int batchSize,
+                           @Value("${ocr.history.flush-interval:1s}") Duration flushInterval,
+                           @Value("${ocr.history.overflow:DROP}") Overflow overflow,
+                           @Value("${ocr.history.block-timeout:20ms}") Duration blockTimeout) {
+        this.jdbc = jdbc;
+        this.objectMapper = objectMapper;
+        this.lvdtParser = lvdtParser;
+        this.enabled = enabled;
+        this.batchSize = Math.max(1, batchSize);
+        this.flushInterval = flushInterval;
+        this.overflow = overflow;
+        this.blockTimeout = blockTimeout;
+        this.queue = new ArrayBlockingQueue<>(Math.max(1, capacity));
+
+        Gauge.builder("ocr.history.queue.size", queue, BlockingQueue::size)
+                .description("Yazılmayı bekleyen OCR geçmiş kaydı").register(registry);
+        this.written = Counter.builder("ocr.history.written")
+                .description("DB'ye yazılan OCR işi").register(registry);
+        this.dropped = Counter.builder("ocr.history.dropped")
+                .description("Kuyruk dolu olduğu için atılan OCR geçmiş kaydı").register(registry);
+        this.failed = Counter.builder("ocr.history.failed")
+                .description("DB hatası nedeniyle yazılamayan OCR işi").register(registry);
+        this.flushTimer = Timer.builder("ocr.history.flush")
+                .description("Toplu yazım süresi").register(registry);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        if (!enabled) return;
+        try {
+            jdbc.queryForObject("SELECT COUNT(*) FROM ocr_job WHERE 1 = 0", Integer.class);
+            jdbc.queryForObject("SELECT COUNT(*) FROM ocr_item WHERE 1 = 0", Integer.class);
+        } catch (Exception e) {
+            log.warn("ocr_job/ocr_item tabloları yok, OCR geçmişi kaydedilmeyecek (ddl.sql): {}", e.getMessage());
+            return;
+        }
+        ready = true;
+        writer = new Thread(this::drainLoop, "ocr-history-writer");
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    public boolean isEnabled() { return enabled && ready; }
+
+    /** İstek ya da reaktif thread'den çağrılır; DB'yi beklemez, event loop'u hiç bekletmez */
+    public void record(OcrApiResponse response) {
+        if (!ready || response == null || response.getJobId() == null || response.getError() != null) return;
+        Entry e = new Entry(Instant.now(), response);
+        boolean accepted = queue.offer(e);
+        if (!accepted && overflow == Overflow.BLOCK && !Schedulers.isInNonBlockingThread()) {
+            try {
+                accepted = queue.offer(e, blockTimeout.toNanos(), TimeUnit.NANOSECONDS);
+            } catch (InterruptedException ie) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        if (!accepted) dropped.increment();
+    }
+
+    private void drainLoop() {
+        List<Entry> batch = new ArrayList<>(batchSize);
+        while (running || !queue.isEmpty()) {
+            try {
+                Entry first = queue.poll(flushInterval.toMillis(), TimeUnit.MILLISECONDS);
+                if (first == null) continue;
+                batch.add(first);
+                queue.drainTo(batch, batchSize - 1);
+                flushTimer.record(() -> write(batch));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (Exception e) {
+                failed.increment(batch.size());
+                log.warn("OCR geçmişi yazılamadı ({} iş): {}", batch.size(), e.getMessage());
+            } finally {
+                batch.clear();
+            }
+        }
+    }
+
+    private void write(List<Entry> batch) {
+        List<Object[]> jobs = new ArrayList<>(batch.size());
+        for (Entry e : batch) {
+            OcrApiResponse r = e.response();
+            jobs.add(new Object[] {
+                    r.getJobId(), Timestamp.from(e.at()), r.getSourceImage(), r.getResultsCsv(),
+                    r.getCount() != null ? r.getCount() : (r.getItems() != null ? r.getItems().size() : 0),
+                    gzip(r.getItems())
+            });
+        }
+        // aynı iş önbellekten tekrar dönebilir: INSERT IGNORE, öğeler sadece yeni eklenen işler için
+        int[] counts = jdbc.batchUpdate("INSERT IGNORE INTO ocr_job "
+                + "(job_id, created_at, source_image, results_csv, item_count, raw_gz) VALUES (?, ?, ?, ?, ?, ?)", jobs);
+
+        List<Object[]> items = new ArrayList<>();
+        int inserted = 0;
+        for (int i = 0; i < batch.size(); i++) {
+            if (counts[i] == 0) continue;
+            inserted++;
+            OcrApiResponse r = batch.get(i).response();
+            if (r.getItems() == null) continue;
+            for (OcrItem it : r.getItems()) {
+                if (it == null) continue;
+                items.add(new Object[] { r.getJobId(), it.getRoiIndex(), lvdtParser.selectLvdt(it.getText()) });
+            }
+        }
+        if (!items.isEmpty()) {
+            jdbc.batchUpdate("INSERT INTO ocr_item (job_id, roi_index, lvdt) VALUES (?, ?, ?)", items);
+        }
+        written.increment(inserted);
+    }
+
+    /** Zaman aralığı [from, to) ve isteğe bağlı LVDT ile, en yeni önce */
+    public List<OcrHistoryEntry> find(Instant from, Instant to, Long lvdt, int limit) {
+        StringBuilder sql = new StringBuilder(
+                "SELECT job_id, created_at, source_image, results_csv, item_count, raw_gz FROM ocr_job j "
+                + "WHERE j.created_at >= ? AND j.created_at < ?");
+        List<Object> args = new ArrayList<>(List.of(Timestamp.from(from), Timestamp.from(to)));
+        if (lvdt != null) {
+            sql.append(" AND EXISTS (SELECT 1 FROM ocr_item i WHERE i.job_id = j.job_id AND i.lvdt = ?)");
+            args.add(lvdt);
+        }
+        sql.append(" ORDER BY j.created_at DESC LIMIT ?");
+        args.add(Math.max(1, Math.min(limit, 500)));
+
+        return jdbc.query(sql.toString(), (rs, n) -> {
+            OcrHistoryEntry h = new OcrHistoryEntry();
+            h.setJobId(rs.getString(1));
+            h.setCreatedAt(rs.getTimestamp(2).toInstant());
+            h.setSourceImage(rs.getString(3));
+            h.setResultsCsv(rs.getString(4));
+            h.setCount(rs.getInt(5));
+            h.setItems(gunzip(rs.getBytes(6)));
+            return h;
+        }, args.toArray());
+    }
+
+    // kapanışta kuyrukta kalanlar yazılır (en fazla flush-interval + 5 sn beklenir)
+    @PreDestroy
+    void stop() throws InterruptedException {
+        running = false;
+        if (writer != null) writer.join(flushInterval.toMillis() + 5000);
+    }
+
+    private byte[] gzip(List<OcrItem> items) {
+        ByteArrayOutputStream bos = new ByteArrayOutputStream(256);
+        try (OutputStream out = new GZIPOutputStream(bos)) {
+            objectMapper.writeValue(out, items != null ? items : List.of());
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+        return bos.toByteArray();
+    }
+
+    private List<OcrItem> gunzip(byte[] raw) {
+        if (raw == null) return List.of();
+        try (InputStream in = new GZIPInputStream(new ByteArrayInputStream(raw))) {
+            return objectMapper.readValue(in, new TypeReference<List<OcrItem>>() {});
+        } catch (IOException e) {
+            log.warn("OCR geçmiş kaydı açılamadı: {}", e.getMessage());
+            return List.of();
+        }
+    }
+}
@@ -0,0 +1,187 @@
+package com.example.uretimveri.service;
+
+import com.example.uretimveri.ocr.OcrApiResponse;
+import com.example.uretimveri.ocr.OcrJob;
+import com.example.uretimveri.ocr.OcrUpload;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// Asenkron tanıma işleri: sınırlı kuyruk + sabit sayıda worker Python'u besler.
+// İstemci hemen job id alır; sonucu polling (GET /api/slabs/jobs/{id}) ya da
+// callback modunda Python'un /api/slabs/recognize/callback çağrısı ile tamamlanır.
+@Service
+@Slf4j
+public class OcrJobService {
+
+    private final OcrService ocrService;
+    private final RecognizeUiMapper uiMapper;
+    private final OcrHistoryStore history;
+    private final ThreadPoolExecutor executor;
+    private final Map<String, OcrJob> jobs = new ConcurrentHashMap<>();
+    private final Map<String, CompletableFuture<OcrApiResponse>> awaitingCallback = new ConcurrentHashMap<>();
+    private final Duration timeout;
+    private final Duration retention;
+    private final Duration purgeInterval;
+    private final String callbackUrl;
+    private ScheduledExecutorService purger;
+
+    private final Timer waitTimer;
+    private final Timer serviceTimer;
+    private final Counter rejected;
+
+    public OcrJobService(OcrService ocrService,
+                         RecognizeUiMapper uiMapper,
+                         OcrHistoryStore history,
+                         MeterRegistry registry,
+                         @Value("${ocr.jobs.workers:2}") int workers,
+                         @Value("${ocr.jobs.queue-capacity:50}") int queueCapacity,
+                         @Value("${ocr.jobs.timeout:120s}") Duration timeout,
+                         @Value("${ocr.jobs.retention:15m}") Duration retention,
+                         @Value("${ocr.jobs.purge-interval:1m}") Duration purgeInterval,
+                         @Value("${ocr.jobs.callback-url:}") String callbackUrl) {
+        this.ocrService = ocrService;
+        this.uiMapper = uiMapper;
+        this.history = history;
+        this.timeout = timeout;
+        this.retention = retention;
+        this.purgeInterval = purgeInterval;
+        // callback'i sadece Python (http) motoru verebilir; diğer motorlarda işler sonucu kendisi bekler
+        if (!callbackUrl.isBlank() && !ocrService.supportsCallback()) {
+            log.warn("ocr.jobs.callback-url yok sayıldı: seçili OCR motoru callback desteklemiyor");
+            callbackUrl = "";
+        }
+        this.callbackUrl = callbackUrl;
+
+        AtomicInteger seq = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(workers, workers, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity),
+                r -> {
+                    Thread t = new Thread(r, "ocr-job-" + seq.incrementAndGet());
+                    t.setDaemon(true);
+                    return t;
+                },
+                new ThreadPoolExecutor.AbortPolicy());
+
+        Gauge.builder("ocr.jobs.queue.depth", executor, e -> e.getQueue().size())
+                .description("Kuyrukta bekleyen OCR işi sayısı")
+                .register(registry);
+        Gauge.builder("ocr.jobs.active", executor, ThreadPoolExecutor::getActiveCount)
+                .description("Python'da işlenmekte olan OCR işi sayısı")
+                .register(registry);
+        this.waitTimer = Timer.builder("ocr.jobs.wait")
+                .description("İşin kuyrukta beklediği süre")
+                .publishPercentileHistogram()
+                .register(registry);
+        this.serviceTimer = Timer.builder("ocr.jobs.service")
+                .description("İşin Python tarafında işlenme süresi")
+                .publishPercentileHistogram()
+                .register(registry);
+        this.rejected = Counter.builder("ocr.jobs.rejected")
+                .description("Kuyruk dolu olduğu için reddedilen iş sayısı")
+                .register(registry);
+    }
+
+    // Bitmiş işler yeni iş gelmese de retention sonunda bellekten düşer
+    @PostConstruct
+    void start() {
+        if (purgeInterval.isZero() || purgeInterval.isNegative()) return;
+        purger = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "ocr-job-purge");
+            t.setDaemon(true);
+            return t;
+        });
+        purger.scheduleWithFixedDelay(this::purgeExpired,
+                purgeInterval.toMillis(), purgeInterval.toMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    /** Kuyruk doluysa RejectedExecutionException fırlatır */
+    public OcrJob submit(OcrUpload upload) {
+        purgeExpired();
+        OcrJob job = new OcrJob(UUID.randomUUID().toString(), Instant.now());
+        jobs.put(job.getId(), job);
+        try {
+            executor.execute(() -> run(job, upload));
+        } catch (RejectedExecutionException e) {
+            jobs.remove(job.getId());
+            rejected.increment();
+            throw e;
+        }
+        return job;
+    }
+
+    public Optional<OcrJob> find(String id) {
+        return Optional.ofNullable(jobs.get(id));
+    }
+
+    /** Callback ile gelen sonucu bekleyen işe teslim eder; bekleyen iş yoksa false */
+    public boolean complete(String jobId, OcrApiResponse py) {
+        CompletableFuture<OcrApiResponse> f = awaitingCallback.get(jobId);
+        if (f == null) return false;
+        if (py != null && py.getError() != null) {
+            return f.completeExceptionally(new IllegalStateException(py.getError()));
+        }
+        history.record(py);
+        return f.complete(py);
+    }
+
+    private void run(OcrJob job, OcrUpload upload) {
+        Instant started = Instant.now();
+        waitTimer.record(Duration.between(job.getSubmittedAt(), started));
+        job.setStartedAt(started);
+        job.setState(OcrJob.State.RUNNING);
+        try {
+            OcrApiResponse py = callbackUrl.isBlank()
+                    ? ocrService.recognize(upload).block(timeout)
+                    : awaitCallback(job, upload);
+            job.setResult(uiMapper.toUi(py));
+            job.setState(OcrJob.State.DONE);
+        } catch (Exception e) {
+            Throwable cause = e instanceof ExecutionException && e.getCause() != null ? e.getCause() : e;
+            log.warn("OCR işi başarısız: {} - {}", job.getId(), cause.getMessage());
+            job.setError(cause.getMessage());
+            job.setState(OcrJob.State.FAILED);
+        } finally {
+            job.setFinishedAt(Instant.now());
+            serviceTimer.record(Duration.between(started, job.getFinishedAt()));
+        }
+    }
+
+    // Worker callback gelene kadar slotunu tutar: eşzamanlılık yine worker sayısıyla sınırlı kalır
+    private OcrApiResponse awaitCallback(OcrJob job, OcrUpload upload) throws Exception {
+        CompletableFuture<OcrApiResponse> f = new CompletableFuture<>();
+        awaitingCallback.put(job.getId(), f);
+        try {
+            String url = callbackUrl + (callbackUrl.contains("?") ? "&" : "?") + "jobId=" + job.getId();
+            ocrService.dispatch(upload, url).block(timeout);
+            return f.get(timeout.toMillis(), TimeUnit.MILLISECONDS);
+        } finally {
+            awaitingCallback.remove(job.getId());
+        }
+    }
+
+    private void purgeExpired() {
+        Instant limit = Instant.now().minus(retention);
+        jobs.values().removeIf(j -> j.isFinished() && j.getFinishedAt() != null && j.getFinishedAt().isBefore(limit));
+    }
+
+    @PreDestroy
+    void shutdown() {
+        if (purger != null) purger.shutdownNow();
+        executor.shutdownNow();
+    }
+}
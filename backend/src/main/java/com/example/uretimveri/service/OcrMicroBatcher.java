@@ -0,0 +1,197 @@
+package com.example.uretimveri.service;
+
+import com.example.uretimveri.ocr.OcrApiResponse;
+import com.example.uretimveri.ocr.OcrUpload;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.MediaType;
+import org.springframework.http.client.MultipartBodyBuilder;
+import org.springframework.stereotype.Component;
+import org.springframework.util.MultiValueMap;
+import org.springframework.web.reactive.function.BodyInserters;
+import org.springframework.web.reactive.function.client.WebClient;
+import org.springframework.web.server.ResponseStatusException;
+import reactor.core.Disposable;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.MonoSink;
+import reactor.core.scheduler.Schedulers;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+// Aynı anda gelen recognize çağrılarını toplayıp tek /process_batch isteğiyle gönderir:
+// Python modelleri birden çok görseli tek çağrıda işler (CPU'da görsel başına daha ucuz).
+// Parti, hedef boyuta ulaşınca ya da ilk istekten max-wait sonra gider; sonuçlar sıraya göre dağıtılır.
+// Hedef boyut AIMD ile ayarlanır: parti target-latency altında biterse +1, aşarsa yarıya iner.
+@Component
+@Slf4j
+public class OcrMicroBatcher {
+
+    private record Pending(OcrUpload upload, MonoSink<OcrApiResponse> sink) {}
+
+    private final WebClient pythonClient;
+    private final OcrCallGuard guard;
+    private final OcrReplicaPool replicas;
+    private final OcrResponseDecoder decoder;
+    private final boolean enabled;
+    private final int maxSize;
+    private final Duration maxWait;
+    private final Duration targetLatency;
+
+    private final List<Pending> pending = new ArrayList<>();
+    private Disposable flushTimer;
+    private volatile int targetSize;
+
+    private final DistributionSummary batchSizes;
+    private final Timer batchLatency;
+
+    public OcrMicroBatcher(WebClient pythonClient,
+                           OcrCallGuard guard,
+                           OcrReplicaPool replicas,
+                           OcrResponseDecoder decoder,
+                           MeterRegistry registry,
+                           @Value("${ocr.batching.enabled:false}") boolean enabled,
+                           @Value("${ocr.batching.max-size:8}") int maxSize,
+                           @Value("${ocr.batching.max-wait:25ms}") Duration maxWait,
+                           @Value("${ocr.batching.target-latency:3s}") Duration targetLatency) {
+        this.pythonClient = pythonClient;
+        this.guard = guard;
+        this.replicas = replicas;
+        this.decoder = decoder;
+        this.enabled = enabled;
+        this.maxSize = Math.max(1, maxSize);
+        this.maxWait = maxWait;
+        this.targetLatency = targetLatency;
+        this.targetSize = Math.max(1, this.maxSize / 2);
+
+        Gauge.builder("ocr.batch.target.size", this, b -> b.targetSize)
+                .description("Micro-batch hedef boyutu (AIMD)").register(registry);
+        this.batchSizes = DistributionSummary.builder("ocr.batch.size")
+                .description("Gönderilen partideki görsel sayısı").register(registry);
+        this.batchLatency = Timer.builder("ocr.batch.latency")
+                .description("/process_batch süresi").register(registry);
+    }
+
+    public boolean isEnabled() { return enabled; }
+
+    int targetSize() { return targetSize; }
+
+    public Mono<OcrApiResponse> submit(OcrUpload upload) {
+        return Mono.create(sink -> {
+            Pending p = new Pending(upload, sink);
+            // gönderilmeden iptal edilen istek partiden çıkar; kuyruğa girmeden kaydedilir ki
+            // parti bu arada başka thread'de gönderilse de iptal kaçmasın
+            sink.onCancel(() -> {
+                synchronized (this) {
+                    pending.remove(p);
+                }
+            });
+            List<Pending> ready = null;
+            synchronized (this) {
+                pending.add(p);
+                if (pending.size() >= targetSize) {
+                    ready = takeBatch();
+                } else if (pending.size() == 1) {
+                    flushTimer = Schedulers.parallel().schedule(this::flushOnTimer,
+                            maxWait.toNanos(), TimeUnit.NANOSECONDS);
+                }
+            }
+            if (ready != null) send(ready);
+        });
+    }
+
+    private void flushOnTimer() {
+        List<Pending> ready;
+        synchronized (this) {
+            if (pending.isEmpty()) return;
+            ready = takeBatch();
+        }
+        send(ready);
+    }
+
+    // kilit altında çağrılır
+    private List<Pending> takeBatch() {
+        if (flushTimer != null) {
+            flushTimer.dispose();
+            flushTimer = null;
+        }
+        int n = Math.min(pending.size(), targetSize);
+        List<Pending> batch = new ArrayList<>(pending.subList(0, n));
+        pending.subList(0, n).clear();
+        if (!pending.isEmpty()) {
+            // hedef küçüldüyse kalanlar bir sonraki partiye
+            flushTimer = Schedulers.parallel().schedule(this::flushOnTimer, maxWait.toNanos(), TimeUnit.NANOSECONDS);
+        }
+        return batch;
+    }
+
+    private void send(List<Pending> batch) {
+        long start = System.nanoTime();
+        List<Pending> sent = new ArrayList<>(batch.size());
+        Mono.defer(() -> {
+                    MultiValueMap<String, HttpEntity<?>> body = multipart(batch, sent);
+                    if (sent.isEmpty()) return Mono.<List<OcrApiResponse>>empty();
+                    batchSizes.record(sent.size());
+                    return guard.protect(() -> replicas.execute(r -> pythonClient.post()
+                            .uri(r.getBaseUrl() + "/process_batch")
+                            .contentType(MediaType.MULTIPART_FORM_DATA)
+                            .body(BodyInserters.fromMultipartData(body))
+                            .retrieve()
+                            .bodyToFlux(DataBuffer.class)
+                            .as(decoder::decodeBatch), false)); // partinin kopyası ikinci kez işlenmesin (hedge yok)
+                })
+                .defaultIfEmpty(List.of())
+                .subscribe(results -> {
+                    long nanos = System.nanoTime() - start;
+                    if (!sent.isEmpty()) {
+                        batchLatency.record(nanos, TimeUnit.NANOSECONDS);
+                        adapt(sent.size(), nanos);
+                    }
+                    for (int i = 0; i < sent.size(); i++) {
+                        if (i < results.size()) sent.get(i).sink().success(results.get(i));
+                        else sent.get(i).sink().error(new IllegalStateException("Parti cevabında sonuç eksik"));
+                    }
+                }, ex -> {
+                    synchronized (this) {
+                        targetSize = Math.max(1, targetSize / 2);
+                    }
+                    // multipart kurulurken patladıysa sent eksik kalabilir: partideki herkes hata alır
+                    batch.forEach(p -> p.sink().error(ex));
+                });
+    }
+
+    // İçerik tipi bozuk olan istek partiyi düşürmez: sadece kendisi hata alır, gönderilenler sent'e eklenir
+    @SuppressWarnings("null")
+    private static MultiValueMap<String, HttpEntity<?>> multipart(List<Pending> batch, List<Pending> sent) {
+        MultipartBodyBuilder mb = new MultipartBodyBuilder();
+        for (Pending p : batch) {
+            OcrUpload u = p.upload();
+            MediaType type;
+            try {
+                type = HttpOcrEngine.partType(u.getContentType());
+            } catch (ResponseStatusException e) {
+                p.sink().error(e);
+                continue;
+            }
+            mb.part("files", u.getContent()).filename(u.getFilename()).contentType(type);
+            sent.add(p);
+        }
+        return mb.build();
+    }
+
+    private synchronized void adapt(int size, long nanos) {
+        if (nanos > targetLatency.toNanos()) {
+            targetSize = Math.max(1, targetSize / 2);
+        } else if (size >= targetSize && targetSize < maxSize) {
+            targetSize++; // dolu parti hedefin altında bitti: büyüt
+        }
+    }
+}
@@ -0,0 +1,223 @@
+package com.example.uretimveri.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.function.client.WebClient;
+import org.springframework.web.reactive.function.client.WebClientResponseException;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Function;
+
+// Birden çok Python OCR kopyası (python.api.base virgülle ayrılmış liste) arasında yönlendirme:
+//  - en az bekleyen isteği olan sağlıklı kopya seçilir
+//  - /health periyodik yoklanır, art arda hata veren kopya havuzdan çıkarılır
+//  - istenirse ilk çağrı p95 gecikmeyi aşınca başka kopyaya ikinci (hedged) istek gönderilir
+@Component
+@Slf4j
+public class OcrReplicaPool {
+
+    public static final class Replica {
+        private final String baseUrl;
+        private final AtomicInteger outstanding = new AtomicInteger();
+        private final AtomicInteger consecutiveFailures = new AtomicInteger();
+        private volatile boolean healthy = true;
+
+        Replica(String baseUrl) { this.baseUrl = baseUrl; }
+
+        public String getBaseUrl() { return baseUrl; }
+        public int getOutstanding() { return outstanding.get(); }
+        public boolean isHealthy() { return healthy; }
+    }
+
+    private final WebClient pythonClient;
+    private final List<Replica> replicas;
+    private final Duration healthInterval;
+    private final int ejectAfter;
+    private final boolean hedgeEnabled;
+    private final int hedgeMinSamples;
+    private final Counter hedges;
+
+    // son gecikmeler (ms), p95 hesabı için halka tampon
+    private final long[] latencies = new long[256];
+    private int latencyPos;
+    private int latencyCount;
+
+    private ScheduledExecutorService prober;
+
+    public OcrReplicaPool(WebClient pythonClient,
+                          MeterRegistry registry,
+                          @Value("${python.api.base:http://127.0.0.1:8000}") String bases,
+                          @Value("${python.api.health-interval:5s}") Duration healthInterval,
+                          @Value("${python.api.eject-after:2}") int ejectAfter,
+                          @Value("${python.api.hedge.enabled:false}") boolean hedgeEnabled,
+                          @Value("${python.api.hedge.min-samples:20}") int hedgeMinSamples) {
+        this.pythonClient = pythonClient;
+        this.replicas = Arrays.stream(bases.split(","))
+                .map(String::trim)
+                .filter(s -> !s.isEmpty())
+                .map(s -> s.endsWith("/") ? s.substring(0, s.length() - 1) : s)
+                .map(Replica::new)
+                .toList();
+        if (replicas.isEmpty()) throw new IllegalArgumentException("python.api.base boş olamaz");
+        this.healthInterval = healthInterval;
+        this.ejectAfter = ejectAfter;
+        this.hedgeEnabled = hedgeEnabled;
+        this.hedgeMinSamples = hedgeMinSamples;
+
+        Gauge.builder("ocr.python.replicas.healthy", this, p -> p.replicas.stream().filter(Replica::isHealthy).count())
+                .description("Sağlıklı OCR kopyası sayısı")
+                .register(registry);
+        for (Replica r : replicas) {
+            Gauge.builder("ocr.python.replica.outstanding", r, Replica::getOutstanding)
+                    .tag("replica", r.baseUrl)
+                    .description("Kopyada bekleyen istek sayısı")
+                    .register(registry);
+        }
+        this.hedges = Counter.builder("ocr.python.hedges")
+                .description("p95 aşıldığı için gönderilen ikinci istek")
+                .register(registry);
+    }
+
+    @PostConstruct
+    void start() {
+        if (healthInterval.isZero() || healthInterval.isNegative()) return;
+        prober = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "ocr-health-probe");
+            t.setDaemon(true);
+            return t;
+        });
+        prober.scheduleWithFixedDelay(this::probeAll,
+                healthInterval.toMillis(), healthInterval.toMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    void stop() {
+        if (prober != null) prober.shutdownNow();
+    }
+
+    public List<Replica> getReplicas() { return replicas; }
+
+    /**
+     * call, seçilen kopyanın base URL'i ile isteği kurar.
+     * hedgeable=false: gövdesi tekrar okunamayan ya da iki kez işlenmemesi gereken çağrılar.
+     */
+    public <T> Mono<T> execute(Function<Replica, Mono<T>> call, boolean hedgeable) {
+        AtomicReference<Replica> first = new AtomicReference<>();
+        Mono<T> primary = Mono.defer(() -> {
+            Replica r = select(null);
+            first.set(r);
+            return run(r, call);
+        });
+        if (!hedgeable || !hedgeEnabled || replicas.size() < 2) return primary;
+
+        Duration p95 = p95();
+        if (p95 == null) return primary;
+
+        Mono<T> hedged = Mono.delay(p95).then(Mono.defer(() -> {
+            Replica r = select(first.get());
+            if (r == first.get()) return Mono.never(); // başka sağlıklı kopya yok
+            hedges.increment();
+            return run(r, call);
+        }));
+        return Mono.firstWithValue(primary, hedged);
+    }
+
+    /** Akan cevaplar: hedge edilmez, gecikme akışın tamamı için ölçülmez */
+    public <T> Flux<T> executeStream(Function<Replica, Flux<T>> call) {
+        return Flux.defer(() -> {
+            Replica r = select(null);
+            r.outstanding.incrementAndGet();
+            return call.apply(r)
+                    .doOnComplete(() -> markSuccess(r))
+                    .doOnError(e -> markFailure(r, e))
+                    .doFinally(sig -> r.outstanding.decrementAndGet());
+        });
+    }
+
+    Replica select(Replica exclude) {
+        Replica best = null;
+        for (Replica r : replicas) {
+            if (r == exclude || !r.healthy) continue;
+            if (best == null || r.outstanding.get() < best.outstanding.get()) best = r;
+        }
+        if (best != null) return best;
+        // hepsi çıkarılmışsa yine de en az yüklü olanı dene (yoklama geri alana kadar)
+        for (Replica r : replicas) {
+            if (r == exclude) continue;
+            if (best == null || r.outstanding.get() < best.outstanding.get()) best = r;
+        }
+        return best != null ? best : exclude;
+    }
+
+    private <T> Mono<T> run(Replica r, Function<Replica, Mono<T>> call) {
+        long start = System.nanoTime();
+        r.outstanding.incrementAndGet();
+        return call.apply(r)
+                .doOnSuccess(v -> {
+                    recordLatency(Duration.ofNanos(System.nanoTime() - start).toMillis());
+                    markSuccess(r);
+                })
+                .doOnError(e -> markFailure(r, e))
+                .doFinally(sig -> r.outstanding.decrementAndGet());
+    }
+
+    void probeAll() {
+        for (Replica r : replicas) {
+            try {
+                pythonClient.get()
+                        .uri(r.baseUrl + "/health")
+                        .retrieve()
+                        .toBodilessEntity()
+                        .block(Duration.ofSeconds(2));
+                markSuccess(r);
+            } catch (Exception e) {
+                markFailure(r, e);
+            }
+        }
+    }
+
+    private void markSuccess(Replica r) {
+        r.consecutiveFailures.set(0);
+        if (!r.healthy) {
+            r.healthy = true;
+            log.info("OCR kopyası havuza geri alındı: {}", r.baseUrl);
+        }
+    }
+
+    private void markFailure(Replica r, Throwable e) {
+        // 4xx: kopya ayakta, istek hatalı
+        if (e instanceof WebClientResponseException w && w.getStatusCode().is4xxClientError()) return;
+        if (r.consecutiveFailures.incrementAndGet() >= ejectAfter && r.healthy) {
+            r.healthy = false;
+            log.warn("OCR kopyası havuzdan çıkarıldı: {} - {}", r.baseUrl, e.getMessage());
+        }
+    }
+
+    private synchronized void recordLatency(long ms) {
+        latencies[latencyPos] = ms;
+        latencyPos = (latencyPos + 1) % latencies.length;
+        if (latencyCount < latencies.length) latencyCount++;
+    }
+
+    synchronized Duration p95() {
+        if (latencyCount < hedgeMinSamples) return null;
+        long[] copy = Arrays.copyOf(latencies, latencyCount);
+        Arrays.sort(copy);
+        return Duration.ofMillis(copy[(int) Math.ceil(copy.length * 0.95) - 1]);
+    }
+}
@@ -0,0 +1,530 @@
+package com.example.uretimveri.service;
+
+import com.example.uretimveri.ocr.LvdtCandidate;
+import com.example.uretimveri.ocr.OcrUpload;
+import com.example.uretimveri.ocr.RecognizeUiItem;
+import com.example.uretimveri.ocr.RecognizeUiResponse;
+import com.example.uretimveri.ocr.ReprocessDiff;
+import com.example.uretimveri.ocr.ReprocessStatus;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.http.HttpStatus;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.support.GeneratedKeyHolder;
+import org.springframework.jdbc.support.KeyHolder;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.server.ResponseStatusException;
+
+import jakarta.annotation.PreDestroy;
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.PathMatcher;
+import java.sql.PreparedStatement;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+// Ağırlıklar yeniden eğitildiğinde arşivdeki görselleri yeniden OCR'dan geçirir ve okunan LVDT'leri
+// plates ile karşılaştırır. Arşiv isme göre sıralı gezilir, dosyalar checkpoint-every'lik parçalar halinde
+// parallelism worker ile işlenir; parça bitince farklar ve checkpoint tek transaction'da yazılır,
+// böylece durdurulan/çöken iş son parçadan devam eder ve fark satırı iki kez yazılmaz.
+// Etkileşimli trafiği boğmamak için: saniyede en fazla rate görsel, ve bulkhead'de reserve-permits'ten
+// fazla boş yer yoksa çağrı 503 alır ve biraz sonra yeniden denenir (OcrCallGuard.background; kontrol ve
+// yer alma atomik). Önbellek atlanır (eski ağırlıkların sonucu dönmesin), sonuçlar geçmişe yazılmaz.
+@Service
+@Slf4j
+public class OcrReprocessService {
+
+    public enum Kind { MISMATCH, UNKNOWN, NO_READ, ERROR }
+
+    private final OcrService ocrService;
+    private final RecognizeUiMapper uiMapper;
+    private final LvdtSuggester suggester;
+    private final JdbcTemplate jdbc;
+    private final TransactionTemplate tx;
+
+    private final String defaultArchiveDir;
+    private final PathMatcher matcher;
+    private final int parallelism;
+    private final double rate;
+    private final int reservePermits;
+    private final int chunkSize;
+    private final int maxDistance;
+    private final Duration timeout;
+
+    private final AtomicLong processed = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
+    private final AtomicLong diffs = new AtomicLong();
+    private final Counter imagesCounter;
+    private final Counter diffCounter;
+
+    private volatile Run current;
+    private long nextSlotNanos;
+
+    // tek bir koşunun bellekteki durumu
+    private static final class Run {
+        final long id;
+        final Path root;
+        final Instant startedAt = Instant.now();
+        final long startedNanos = System.nanoTime();
+        final AtomicLong sessionDone = new AtomicLong();
+        volatile String state = "RUNNING";
+        volatile String checkpoint;
+        volatile Long remaining;
+        volatile boolean stopRequested;
+        Thread thread;
+
+        Run(long id, Path root, String checkpoint) {
+            this.id = id;
+            this.root = root;
+            this.checkpoint = checkpoint;
+        }
+    }
+
+    public OcrReprocessService(OcrService ocrService,
+                               RecognizeUiMapper uiMapper,
+                               LvdtSuggester suggester,
+                               JdbcTemplate jdbc,
+                               PlatformTransactionManager txManager,
+                               MeterRegistry registry,
+                               @Value("${ocr.reprocess.archive-dir:}") String defaultArchiveDir,
+                               @Value("${ocr.reprocess.pattern:*.{jpg,jpeg,JPG,JPEG,png,PNG}}") String pattern,
+                               @Value("${ocr.reprocess.parallelism:2}") int parallelism,
+                               @Value("${ocr.reprocess.rate:2}") double rate,
+                               @Value("${ocr.reprocess.reserve-permits:2}") int reservePermits,
+                               @Value("${ocr.reprocess.checkpoint-every:50}") int chunkSize,
+                               @Value("${ocr.reprocess.max-distance:2}") int maxDistance,
+                               @Value("${ocr.reprocess.timeout:120s}") Duration timeout) {
+        this.ocrService = ocrService;
+        this.uiMapper = uiMapper;
+        this.suggester = suggester;
+        this.jdbc = jdbc;
+        this.tx = new TransactionTemplate(txManager);
+        this.defaultArchiveDir = defaultArchiveDir;
+        this.matcher = FileSystems.getDefault().getPathMatcher("glob:" + pattern);
+        this.parallelism = Math.max(1, parallelism);
+        this.rate = rate;
+        this.reservePermits = Math.max(0, reservePermits);
+        this.chunkSize = Math.max(1, chunkSize);
+        this.maxDistance = maxDistance;
+        this.timeout = timeout;
+
+        this.imagesCounter = Counter.builder("ocr.reprocess.images")
+                .description("Yeniden OCR'dan geçirilen görsel").register(registry);
+        this.diffCounter = Counter.builder("ocr.reprocess.diffs")
+                .description("plates ile örtüşmeyen okuma").register(registry);
+        Gauge.builder("ocr.reprocess.rate", this, s -> s.status().getImagesPerSecond())
+                .description("Yeniden işleme hızı (görsel/sn)").register(registry);
+        Gauge.builder("ocr.reprocess.eta", this, s -> {
+                    Long eta = s.status().getEtaSeconds();
+                    return eta == null ? Double.NaN : eta;
+                })
+                .description("Tahmini kalan süre").baseUnit("seconds").register(registry);
+    }
+
+    /**
+     * Arşiv için yarım kalmış koşu varsa checkpoint'ten devam eder, yoksa yenisini başlatır.
+     * Zaten çalışan bir koşu varsa 409.
+     */
+    public synchronized ReprocessStatus start(String archiveDir) {
+        Run running = current;
+        if (running != null && running.thread != null && running.thread.isAlive()) {
+            throw new ResponseStatusException(HttpStatus.CONFLICT, "Yeniden işleme zaten çalışıyor (run " + running.id + ")");
+        }
+        String dir = archiveDir == null || archiveDir.isBlank() ? defaultArchiveDir : archiveDir;
+        if (dir == null || dir.isBlank()) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Arşiv dizini verilmedi (ocr.reprocess.archive-dir)");
+        }
+        Path root = Path.of(dir).toAbsolutePath().normalize();
+        if (!defaultArchiveDir.isBlank() && !root.startsWith(Path.of(defaultArchiveDir).toAbsolutePath().normalize())) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Arşiv dizini ocr.reprocess.archive-dir altında olmalı");
+        }
+        if (!Files.isDirectory(root)) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Arşiv dizini yok: " + root);
+        }
+
+        Run run = resumeOrCreate(root);
+        Map<String, Object> counts = jdbc.queryForMap(
+                "SELECT processed, failed, diffs FROM ocr_reprocess_run WHERE run_id = ?", run.id);
+        processed.set(((Number) counts.get("processed")).longValue());
+        failed.set(((Number) counts.get("failed")).longValue());
+        diffs.set(((Number) counts.get("diffs")).longValue());
+
+        run.thread = new Thread(() -> execute(run), "ocr-reprocess-" + run.id);
+        run.thread.setDaemon(true);
+        current = run;
+        run.thread.start();
+        log.info("Yeniden işleme başladı: run={} arşiv={} checkpoint={}", run.id, root, run.checkpoint);
+        return status();
+    }
+
+    /** Sürmekte olan parça bitince durur; tekrar start ile kaldığı yerden devam eder */
+    public ReprocessStatus stop() {
+        Run run = current;
+        if (run != null && "RUNNING".equals(run.state)) {
+            run.stopRequested = true;
+            run.state = "STOPPING";
+        }
+        return status();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        Run run = current;
+        if (run == null || run.thread == null) return;
+        run.stopRequested = true;
+        try {
+            run.thread.join(timeout.toMillis());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    public ReprocessStatus status() {
+        ReprocessStatus s = new ReprocessStatus();
+        Run run = current;
+        if (run == null) {
+            s.setState("IDLE");
+            return s;
+        }
+        s.setRunId(run.id);
+        s.setArchiveDir(run.root.toString());
+        s.setState(run.state);
+        s.setCheckpoint(run.checkpoint);
+        s.setProcessed(processed.get());
+        s.setFailed(failed.get());
+        s.setDiffs(diffs.get());
+        s.setRemaining(run.remaining);
+        s.setStartedAt(run.startedAt);
+        double seconds = (System.nanoTime() - run.startedNanos) / 1e9;
+        double ips = seconds > 0 ? run.sessionDone.get() / seconds : 0.0;
+        s.setImagesPerSecond(Math.round(ips * 100) / 100.0);
+        if (run.remaining != null && ips > 0 && "RUNNING".equals(run.state)) {
+            s.setEtaSeconds((long) Math.ceil(run.remaining / ips));
+        }
+        return s;
+    }
+
+    public List<ReprocessDiff> diffs(long runId, String kind, int limit) {
+        StringBuilder sql = new StringBuilder("SELECT run_id, image_path, roi_index, new_lvdt, plate_lvdt, product_id, "
+                + "distance, kind, detail, created_at FROM ocr_reprocess_diff WHERE run_id = ?");
+        List<Object> args = new ArrayList<>(List.of(runId));
+        if (kind != null && !kind.isBlank()) {
+            sql.append(" AND kind = ?");
+            args.add(kind);
+        }
+        sql.append(" ORDER BY id LIMIT ?");
+        args.add(Math.max(1, Math.min(limit, 1000)));
+        return jdbc.query(sql.toString(), (rs, n) -> {
+            ReprocessDiff d = new ReprocessDiff();
+            d.setRunId(rs.getLong(1));
+            d.setImagePath(rs.getString(2));
+            d.setRoiIndex((Integer) rs.getObject(3));
+            d.setNewLvdt((Long) rs.getObject(4));
+            d.setPlateLvdt((Long) rs.getObject(5));
+            d.setProductId((Long) rs.getObject(6));
+            d.setDistance((Integer) rs.getObject(7));
+            d.setKind(rs.getString(8));
+            d.setDetail(rs.getString(9));
+            d.setCreatedAt(rs.getTimestamp(10).toInstant());
+            return d;
+        }, args.toArray());
+    }
+
+    // --- koşu ---
+
+    private Run resumeOrCreate(Path root) {
+        List<Map<String, Object>> open = jdbc.queryForList(
+                "SELECT run_id, checkpoint FROM ocr_reprocess_run WHERE archive_dir = ? AND status <> 'DONE' "
+                + "ORDER BY run_id DESC LIMIT 1", root.toString());
+        if (!open.isEmpty()) {
+            long id = ((Number) open.get(0).get("run_id")).longValue();
+            jdbc.update("UPDATE ocr_reprocess_run SET status = 'RUNNING', updated_at = ? WHERE run_id = ?",
+                    Timestamp.from(Instant.now()), id);
+            return new Run(id, root, (String) open.get(0).get("checkpoint"));
+        }
+        KeyHolder key = new GeneratedKeyHolder();
+        Timestamp now = Timestamp.from(Instant.now());
+        jdbc.update(con -> {
+            PreparedStatement ps = con.prepareStatement(
+                    "INSERT INTO ocr_reprocess_run (archive_dir, started_at, updated_at, status) VALUES (?, ?, ?, 'RUNNING')",
+                    Statement.RETURN_GENERATED_KEYS);
+            ps.setString(1, root.toString());
+            ps.setTimestamp(2, now);
+            ps.setTimestamp(3, now);
+            return ps;
+        }, key);
+        return new Run(key.getKey().longValue(), root, null);
+    }
+
+    private void execute(Run run) {
+        AtomicInteger seq = new AtomicInteger();
+        ExecutorService workers = Executors.newFixedThreadPool(parallelism, r -> {
+            Thread t = new Thread(r, "ocr-reprocess-worker-" + seq.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        });
+        String finalState = "DONE";
+        try {
+            // ETA için kalan dosya sayısı; liste tutulmaz, sadece sayılır
+            AtomicLong count = new AtomicLong();
+            walk(run.root, run.checkpoint, matcher, p -> count.incrementAndGet());
+            run.remaining = count.get();
+
+            List<String> chunk = new ArrayList<>(chunkSize);
+            walk(run.root, run.checkpoint, matcher, rel -> {
+                if (run.stopRequested) throw new StopWalk();
+                chunk.add(rel);
+                if (chunk.size() >= chunkSize) {
+                    processChunk(run, chunk, workers);
+                    chunk.clear();
+                }
+            });
+            if (!chunk.isEmpty()) processChunk(run, chunk, workers);
+        } catch (StopWalk e) {
+            finalState = "PAUSED";
+        } catch (Exception e) {
+            log.error("Yeniden işleme hata ile durdu: run={} - {}", run.id, e.getMessage(), e);
+            finalState = "FAILED";
+        } finally {
+            workers.shutdownNow();
+        }
+        run.state = finalState;
+        jdbc.update("UPDATE ocr_reprocess_run SET status = ?, updated_at = ?, finished_at = ? WHERE run_id = ?",
+                finalState, Timestamp.from(Instant.now()),
+                "DONE".equals(finalState) ? Timestamp.from(Instant.now()) : null, run.id);
+        log.info("Yeniden işleme {}: run={} işlenen={} fark={} hata={}",
+                finalState, run.id, processed.get(), diffs.get(), failed.get());
+    }
+
+    // parça paralel işlenir; hepsi bitince farklar + checkpoint atomik yazılır
+    private void processChunk(Run run, List<String> chunk, ExecutorService workers) {
+        List<ReprocessDiff> found = Collections.synchronizedList(new ArrayList<>());
+        AtomicInteger chunkFailed = new AtomicInteger();
+        AtomicBoolean aborted = new AtomicBoolean();
+        List<Future<?>> futures = new ArrayList<>(chunk.size());
+        for (String rel : chunk) {
+            futures.add(workers.submit(() -> {
+                try {
+                    if (!processOne(run, rel, found)) chunkFailed.incrementAndGet();
+                } catch (InterruptedRuntime e) {
+                    aborted.set(true);
+                }
+            }));
+        }
+        for (Future<?> f : futures) {
+            try {
+                f.get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new StopWalk();
+            } catch (ExecutionException e) {
+                throw new IllegalStateException(e.getCause());
+            }
+        }
+        // durdurulduysa yarım parça checkpoint'lenmez, devam edildiğinde baştan işlenir
+        if (aborted.get()) throw new StopWalk();
+
+        String last = chunk.get(chunk.size() - 1);
+        Timestamp now = Timestamp.from(Instant.now());
+        tx.executeWithoutResult(status -> {
+            if (!found.isEmpty()) {
+                jdbc.batchUpdate("INSERT INTO ocr_reprocess_diff (run_id, image_path, roi_index, new_lvdt, plate_lvdt, "
+                                + "product_id, distance, kind, detail, created_at) VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?)",
+                        found, 200, (ps, d) -> {
+                            ps.setLong(1, run.id);
+                            ps.setString(2, d.getImagePath());
+                            ps.setObject(3, d.getRoiIndex());
+                            ps.setObject(4, d.getNewLvdt());
+                            ps.setObject(5, d.getPlateLvdt());
+                            ps.setObject(6, d.getProductId());
+                            ps.setObject(7, d.getDistance());
+                            ps.setString(8, d.getKind());
+                            ps.setString(9, d.getDetail());
+                            ps.setTimestamp(10, now);
+                        });
+            }
+            jdbc.update("UPDATE ocr_reprocess_run SET checkpoint = ?, processed = processed + ?, failed = failed + ?, "
+                            + "diffs = diffs + ?, updated_at = ? WHERE run_id = ?",
+                    last, chunk.size(), chunkFailed.get(), found.size(), now, run.id);
+        });
+        run.checkpoint = last;
+        processed.addAndGet(chunk.size());
+        failed.addAndGet(chunkFailed.get());
+        diffs.addAndGet(found.size());
+        diffCounter.increment(found.size());
+        run.sessionDone.addAndGet(chunk.size());
+        if (run.remaining != null) run.remaining = Math.max(0, run.remaining - chunk.size());
+    }
+
+    // false: görsel okunamadı/OCR hatası (ERROR farkı yazılır)
+    private boolean processOne(Run run, String rel, List<ReprocessDiff> out) {
+        Path file = run.root.resolve(rel);
+        while (true) {
+            try {
+                awaitTurn(run);
+                OcrUpload upload = new OcrUpload(new FileSystemResource(file), file.getFileName().toString(),
+                        Files.probeContentType(file));
+                RecognizeUiResponse ui = uiMapper.toUiAsync(ocrService.recognizeFresh(upload, false)
+                        .contextWrite(OcrCallGuard.background(reservePermits))).block(timeout);
+                imagesCounter.increment();
+                if (ui == null || ui.getError() != null) {
+                    out.add(diff(rel, null, Kind.ERROR, ui == null ? "boş cevap" : ui.getError()));
+                    return false;
+                }
+                compare(rel, ui, out);
+                return true;
+            } catch (ResponseStatusException e) {
+                // bulkhead dolu, pay etkileşimli trafiğe ayrılmış ya da devre açık: görsel hatalı sayılmaz,
+                // biraz bekleyip yeniden denenir. Bu arada durdurulduysa görsel hiç işlenmemiş sayılır:
+                // parça checkpoint'lenmez, devam edildiğinde yeniden denenir.
+                if (e.getStatusCode().value() != 503) {
+                    out.add(diff(rel, null, Kind.ERROR, e.getReason()));
+                    return false;
+                }
+                if (run.stopRequested) throw new InterruptedRuntime();
+                sleep(1000);
+            } catch (InterruptedRuntime e) {
+                throw e;
+            } catch (Exception e) {
+                out.add(diff(rel, null, Kind.ERROR, e.getMessage()));
+                return false;
+            }
+        }
+    }
+
+    // okunan her LVDT plates'te var mı; yoksa en yakın kayıtlı LVDT ile fark
+    private void compare(String rel, RecognizeUiResponse ui, List<ReprocessDiff> out) {
+        List<RecognizeUiItem> items = ui.getItems() == null ? List.of() : ui.getItems();
+        if (items.isEmpty()) {
+            out.add(diff(rel, null, Kind.NO_READ, "ROI bulunamadı"));
+            return;
+        }
+        for (RecognizeUiItem it : items) {
+            if (it.getLvdt() == null) {
+                out.add(diff(rel, it.getRoiIndex(), Kind.NO_READ, it.getText()));
+                continue;
+            }
+            if (it.getExistingProductId() != null) continue; // plates ile aynı: fark yok
+            List<LvdtCandidate> near = suggester.suggest(it.getLvdt(), maxDistance, 1);
+            ReprocessDiff d = diff(rel, it.getRoiIndex(), near.isEmpty() ? Kind.UNKNOWN : Kind.MISMATCH, it.getText());
+            d.setNewLvdt(it.getLvdt());
+            if (!near.isEmpty()) {
+                d.setPlateLvdt(near.get(0).getLvdt());
+                d.setProductId(near.get(0).getProductId());
+                d.setDistance(near.get(0).getDistance());
+            }
+            out.add(d);
+        }
+    }
+
+    private static ReprocessDiff diff(String rel, Integer roi, Kind kind, String detail) {
+        ReprocessDiff d = new ReprocessDiff();
+        d.setImagePath(rel);
+        d.setRoiIndex(roi);
+        d.setKind(kind.name());
+        d.setDetail(detail != null && detail.length() > 255 ? detail.substring(0, 255) : detail);
+        return d;
+    }
+
+    // hız sınırı (eşit aralıklı slotlar); bulkhead payı çağrı anında OcrCallGuard'da uygulanır
+    private void awaitTurn(Run run) {
+        if (run.stopRequested) throw new InterruptedRuntime();
+        if (rate > 0) {
+            long slot;
+            synchronized (this) {
+                long now = System.nanoTime();
+                slot = Math.max(now, nextSlotNanos);
+                nextSlotNanos = slot + (long) (1e9 / rate);
+            }
+            long wait = slot - System.nanoTime();
+            if (wait > 0) sleep(TimeUnit.NANOSECONDS.toMillis(wait) + 1);
+        }
+    }
+
+    private static void sleep(long ms) {
+        try {
+            Thread.sleep(ms);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedRuntime();
+        }
+    }
+
+    private static final class StopWalk extends RuntimeException {
+        StopWalk() { super(null, null, false, false); }
+    }
+
+    private static final class InterruptedRuntime extends RuntimeException {
+        InterruptedRuntime() { super(null, null, false, false); }
+    }
+
+    // --- arşiv gezintisi ---
+
+    /**
+     * root altındaki eşleşen dosyaları, yol parçalarına göre sözlük sırasıyla ve checkpoint'ten
+     * sonrakileri verir (arşive göre "/" ayraçlı yol). Checkpoint'ten önceki dizinlere hiç girilmez;
+     * bellekte her seferinde tek dizinin listesi tutulur.
+     */
+    static void walk(Path root, String checkpoint, PathMatcher matcher, Consumer<String> sink) throws IOException {
+        String[] cp = checkpoint == null || checkpoint.isBlank() ? null : checkpoint.split("/");
+        walkDir(root, new ArrayList<>(), cp, matcher, sink);
+    }
+
+    private static void walkDir(Path dir, List<String> prefix, String[] cp, PathMatcher matcher,
+                                Consumer<String> sink) throws IOException {
+        List<Path> children = new ArrayList<>();
+        try (DirectoryStream<Path> ds = Files.newDirectoryStream(dir)) {
+            for (Path p : ds) children.add(p);
+        }
+        children.sort((a, b) -> a.getFileName().toString().compareTo(b.getFileName().toString()));
+        for (Path child : children) {
+            prefix.add(child.getFileName().toString());
+            try {
+                int c = cp == null ? 1 : compareSegments(prefix, cp);
+                if (Files.isDirectory(child)) {
+                    // checkpoint bu dizinin altındaysa ya da dizin checkpoint'ten sonraysa gir
+                    if (c > 0 || isPrefix(prefix, cp)) walkDir(child, prefix, cp, matcher, sink);
+                } else if (c > 0 && Files.isRegularFile(child) && matcher.matches(child.getFileName())) {
+                    sink.accept(String.join("/", prefix));
+                }
+            } finally {
+                prefix.remove(prefix.size() - 1);
+            }
+        }
+    }
+
+    private static int compareSegments(List<String> a, String[] b) {
+        int n = Math.min(a.size(), b.length);
+        for (int i = 0; i < n; i++) {
+            int c = a.get(i).compareTo(b[i]);
+            if (c != 0) return c;
+        }
+        return Integer.compare(a.size(), b.length);
+    }
+
+    private static boolean isPrefix(List<String> a, String[] b) {
+        if (b == null || a.size() > b.length) return false;
+        for (int i = 0; i < a.size(); i++) if (!a.get(i).equals(b[i])) return false;
+        return true;
+    }
+}
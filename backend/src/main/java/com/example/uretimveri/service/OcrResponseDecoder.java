@@ -0,0 +1,489 @@
+package com.example.uretimveri.service;
+
+import com.example.uretimveri.ocr.OcrApiResponse;
+import com.example.uretimveri.ocr.OcrItem;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.core.async.ByteBufferFeeder;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.attribute.FileTime;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+
+// /process cevabını tamponlamadan çözer: gelen DataBuffer'lar Jackson'ın bloklamayan ayrıştırıcısına
+// beslenir, öğeler token token kurulur. Cevabın tamamı ya da ağaç (JsonNode) hiç bellekte tutulmaz.
+// spill-threshold'dan uzun image alanları String'e çevrilmeden geçici dosyaya yazılır,
+// öğede "spill:<id>" kalır (GET /api/slabs/spill/{id}).
+// Jackson bir string token'ı ancak tamamı gelince verir; bu yüzden "image" değerleri ayrıştırıcıya gitmeden
+// bayt düzeyinde ayıklanır: eşiği aşan değer gelen parçalardan doğrudan dosyaya akar, Jackson'a yerine
+// "spill:<id>" beslenir. Ayırma ve tepe bellek cevap ya da alan boyutuyla büyümez.
+@Component
+@Slf4j
+public class OcrResponseDecoder {
+
+    public static final String SPILL_PREFIX = "spill:";
+    private static final Pattern SPILL_ID = Pattern.compile("[0-9a-f]{32}");
+    private static final byte[] IMAGE_KEY = "image".getBytes(StandardCharsets.US_ASCII);
+
+    private final ObjectMapper objectMapper;
+    private final int spillThreshold;
+    private final Path spillDir;
+    private final Duration spillTtl;
+    private volatile Instant lastSweep = Instant.now();
+
+    private final DistributionSummary responseBytes;
+    private final Counter spilledFields;
+
+    public OcrResponseDecoder(ObjectMapper objectMapper,
+                              MeterRegistry registry,
+                              @Value("${ocr.response.spill-threshold:65536}") int spillThreshold,
+                              @Value("${ocr.response.spill-dir:}") String spillDir,
+                              @Value("${ocr.response.spill-ttl:30m}") Duration spillTtl) {
+        this.objectMapper = objectMapper;
+        this.spillThreshold = spillThreshold;
+        this.spillDir = spillDir.isBlank()
+                ? Paths.get(System.getProperty("java.io.tmpdir"), "ocr-spill")
+                : Paths.get(spillDir);
+        this.spillTtl = spillTtl;
+
+        this.responseBytes = DistributionSummary.builder("ocr.response.bytes")
+                .description("Akışla çözülen Python cevap boyutu").baseUnit("bytes").register(registry);
+        this.spilledFields = Counter.builder("ocr.response.spilled")
+                .description("Geçici dosyaya yazılan büyük image alanı").register(registry);
+    }
+
+    public Mono<OcrApiResponse> decode(Flux<DataBuffer> body) {
+        return run(body, false).map(st -> st.response);
+    }
+
+    /** /process_batch cevabı: {"results": [ /process cevabı, ... ]}, sıra gönderilen dosya sırası */
+    public Mono<List<OcrApiResponse>> decodeBatch(Flux<DataBuffer> body) {
+        return run(body, true).map(st -> st.results);
+    }
+
+    private Mono<State> run(Flux<DataBuffer> body, boolean batch) {
+        return Mono.defer(() -> {
+            State st = new State(batch);
+            return body
+                    .publishOn(Schedulers.boundedElastic()) // büyük alan diske yazılabilir
+                    .doOnNext(buf -> {
+                        try {
+                            st.feed(buf);
+                        } finally {
+                            DataBufferUtils.release(buf);
+                        }
+                    })
+                    .doOnDiscard(DataBuffer.class, DataBufferUtils::release)
+                    .then(Mono.fromCallable(st::finish))
+                    .doFinally(sig -> st.close());
+        });
+    }
+
+    /** Süresi dolmamış spill dosyası */
+    public Optional<Path> spilled(String id) {
+        if (id == null || !SPILL_ID.matcher(id).matches()) return Optional.empty();
+        Path p = spillDir.resolve(id);
+        return Files.isRegularFile(p) ? Optional.of(p) : Optional.empty();
+    }
+
+    /**
+     * Önbellekten dönecek cevabın spill dosyaları hâlâ duruyor mu. Duruyorsa süreleri yenilenir (istemci
+     * id'leri şimdi alıyor, spill-ttl buradan sayılır); biri bile silinmişse false: önbellek kaydı ölü
+     * id taşıyor, isabet sayılmamalı.
+     */
+    public boolean retainSpilled(OcrApiResponse response) {
+        if (response == null || response.getItems() == null) return true;
+        FileTime now = FileTime.from(Instant.now());
+        for (OcrItem it : response.getItems()) {
+            String image = it.getImage();
+            if (image == null || !image.startsWith(SPILL_PREFIX)) continue;
+            Optional<Path> p = spilled(image.substring(SPILL_PREFIX.length()));
+            if (p.isEmpty()) return false;
+            try {
+                Files.setLastModifiedTime(p.get(), now);
+            } catch (IOException e) {
+                return false; // arada süpürüldü
+            }
+        }
+        return true;
+    }
+
+    // Tek cevapta kök nesne cevabın kendisidir (base=0); partide her cevap "results" dizisinin
+    // elemanıdır (base=2). Derinlikler cevabın köküne göre (depth - base) yorumlanır.
+    private final class State {
+        private final JsonParser parser;
+        private final ByteBufferFeeder feeder;
+        private final boolean batch;
+        private final int base;
+        private final List<OcrApiResponse> results = new ArrayList<>();
+        private OcrApiResponse response;
+        private List<OcrItem> items = new ArrayList<>();
+        private long bytes;
+
+        private int depth;          // mevcut nesne/dizi derinliği
+        private int skipUntil = -1; // bilinmeyen iç içe yapı: bu derinliğe dönene kadar atla
+        private boolean inResults;
+        private boolean inItems;
+        private OcrItem item;
+        private String field;
+
+        // Jackson'dan önce bayt düzeyinde "image" değeri ayıklama
+        private boolean inString;
+        private boolean escaped;        // string içinde, önceki bayt kaçış ters bölüsü
+        private int keyMatch;           // açık string'in "image" ile eşleşen önek uzunluğu; -1 eşleşmiyor
+        private boolean lastStringImage;
+        private boolean imageValue;     // "image": görüldü, sıradaki değer ayıklanacak
+        private boolean diverting;      // image string'inin içindeyiz
+        private byte[] head;            // eşik aşılana kadar ham (kaçışlı) baytlar; aşılmazsa Jackson'a gider
+        private int headLen;
+        private Path spillFile;
+        private OutputStream spillOut;
+        private byte[] out;             // çözülmüş baytlar için yazma tamponu
+        private int outLen;
+        private boolean backslash;      // çözücü: kaçış dizisi başladı
+        private int hexDigits = -1;     // çözücü: "u" kaçışından sonra okunan hane; -1 değil
+        private int codeUnit;
+        private int highSurrogate = -1;
+
+        State(boolean batch) {
+            try {
+                this.parser = objectMapper.getFactory().createNonBlockingByteBufferParser();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            this.feeder = (ByteBufferFeeder) parser.getNonBlockingInputFeeder();
+            this.batch = batch;
+            this.base = batch ? 2 : 0;
+            if (!batch) response = new OcrApiResponse();
+        }
+
+        void feed(DataBuffer buf) {
+            try (DataBuffer.ByteBufferIterator it = buf.readableByteBuffers()) {
+                while (it.hasNext()) {
+                    ByteBuffer bb = it.next();
+                    bytes += bb.remaining();
+                    filter(bb);
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        State finish() throws IOException {
+            feeder.endOfInput();
+            drain();
+            if (depth != 0) throw new IOException("OCR cevabı eksik geldi");
+            responseBytes.record(bytes);
+            if (!batch) response.setItems(items);
+            return this;
+        }
+
+        void close() {
+            try {
+                parser.close();
+            } catch (IOException ignored) {
+            }
+            if (spillOut != null) { // cevap image alanının ortasında kesildi
+                try {
+                    spillOut.close();
+                    Files.deleteIfExists(spillFile);
+                } catch (IOException ignored) {
+                }
+                spillOut = null;
+            }
+        }
+
+        // Baytları Jackson'a dilimler halinde (kopyasız) geçirir; "image" string değerleri hariç tutulur
+        private void filter(ByteBuffer bb) throws IOException {
+            int end = bb.limit();
+            int pass = diverting ? -1 : bb.position();
+            for (int i = bb.position(); i < end; i++) {
+                byte b = bb.get(i);
+                if (diverting) {
+                    if (escaped) {
+                        escaped = false;
+                    } else if (b == '\\') {
+                        escaped = true;
+                    } else if (b == '"') {
+                        endDivert();
+                        pass = i; // kapanış tırnağı Jackson'a gider
+                        continue;
+                    }
+                    divert(b);
+                } else if (inString) {
+                    if (escaped) {
+                        escaped = false;
+                        keyMatch = -1;
+                    } else if (b == '\\') {
+                        escaped = true;
+                        keyMatch = -1;
+                    } else if (b == '"') {
+                        inString = false;
+                        lastStringImage = keyMatch == IMAGE_KEY.length;
+                    } else if (keyMatch >= 0) {
+                        keyMatch = keyMatch < IMAGE_KEY.length && IMAGE_KEY[keyMatch] == b ? keyMatch + 1 : -1;
+                    }
+                } else if (b != ' ' && b != '\t' && b != '\r' && b != '\n') {
+                    if (b == '"' && imageValue) {
+                        emit(bb.slice(pass, i + 1 - pass)); // açılış tırnağı dahil
+                        pass = -1;
+                        diverting = true;
+                        headLen = 0;
+                    } else if (b == '"') {
+                        inString = true;
+                        keyMatch = 0;
+                    }
+                    imageValue = b == ':' && lastStringImage;
+                }
+            }
+            if (pass >= 0 && pass < end) emit(bb.slice(pass, end - pass));
+        }
+
+        private void emit(ByteBuffer bb) throws IOException {
+            if (!bb.hasRemaining()) return;
+            feeder.feedInput(bb);
+            drain();
+        }
+
+        private void divert(byte b) throws IOException {
+            if (spillOut == null) {
+                if (head == null) head = new byte[spillThreshold];
+                if (headLen < head.length) {
+                    head[headLen++] = b;
+                    return;
+                }
+                Files.createDirectories(spillDir);
+                spillFile = spillDir.resolve(UUID.randomUUID().toString().replace("-", ""));
+                spillOut = Files.newOutputStream(spillFile);
+                if (out == null) out = new byte[8192];
+                for (int i = 0; i < headLen; i++) unescape(head[i]);
+            }
+            unescape(b);
+        }
+
+        // Eşiği aşmayan değer olduğu gibi Jackson'a, aşan değerin yerine spill referansı
+        private void endDivert() throws IOException {
+            diverting = false;
+            if (spillOut == null) {
+                emit(ByteBuffer.wrap(head, 0, headLen));
+                return;
+            }
+            if (hexDigits >= 0 || backslash) throw new IOException("OCR cevabında yarım kaçış dizisi");
+            if (highSurrogate >= 0) put('?');
+            highSurrogate = -1;
+            spillOut.write(out, 0, outLen);
+            outLen = 0;
+            spillOut.close();
+            spillOut = null;
+            spilledFields.increment();
+            sweep();
+            emit(ByteBuffer.wrap((SPILL_PREFIX + spillFile.getFileName()).getBytes(StandardCharsets.US_ASCII)));
+        }
+
+        // JSON string kaçışlarını çözer; diğer baytlar zaten UTF-8
+        private void unescape(byte b) throws IOException {
+            if (hexDigits >= 0) {
+                int d = Character.digit(b, 16);
+                if (d < 0) throw new IOException("OCR cevabında geçersiz \\u kaçışı");
+                codeUnit = codeUnit << 4 | d;
+                if (++hexDigits == 4) {
+                    hexDigits = -1;
+                    codeUnit(codeUnit);
+                }
+                return;
+            }
+            if (highSurrogate >= 0 && (backslash ? b != 'u' : b != '\\')) {
+                highSurrogate = -1;
+                put('?'); // eşsiz vekil: String'in UTF-8 kodlamasındaki gibi
+            }
+            if (backslash) {
+                backslash = false;
+                switch (b) {
+                    case 'u' -> { hexDigits = 0; codeUnit = 0; }
+                    case 'b' -> put('\b');
+                    case 'f' -> put('\f');
+                    case 'n' -> put('\n');
+                    case 'r' -> put('\r');
+                    case 't' -> put('\t');
+                    default -> put(b); // " \\ /
+                }
+            } else if (b == '\\') {
+                backslash = true;
+            } else {
+                put(b);
+            }
+        }
+
+        private void codeUnit(int c) throws IOException {
+            if (Character.isHighSurrogate((char) c)) {
+                if (highSurrogate >= 0) put('?');
+                highSurrogate = c;
+                return;
+            }
+            int cp = c;
+            if (Character.isLowSurrogate((char) c)) {
+                if (highSurrogate < 0) {
+                    put('?');
+                    return;
+                }
+                cp = Character.toCodePoint((char) highSurrogate, (char) c);
+            }
+            highSurrogate = -1;
+            if (cp < 0x80) {
+                put(cp);
+            } else if (cp < 0x800) {
+                put(0xC0 | cp >> 6);
+                put(0x80 | cp & 0x3F);
+            } else if (cp < 0x10000) {
+                put(0xE0 | cp >> 12);
+                put(0x80 | cp >> 6 & 0x3F);
+                put(0x80 | cp & 0x3F);
+            } else {
+                put(0xF0 | cp >> 18);
+                put(0x80 | cp >> 12 & 0x3F);
+                put(0x80 | cp >> 6 & 0x3F);
+                put(0x80 | cp & 0x3F);
+            }
+        }
+
+        private void put(int b) throws IOException {
+            if (outLen == out.length) {
+                spillOut.write(out, 0, outLen);
+                outLen = 0;
+            }
+            out[outLen++] = (byte) b;
+        }
+
+        private void drain() throws IOException {
+            JsonToken t;
+            while ((t = parser.nextToken()) != null && t != JsonToken.NOT_AVAILABLE) {
+                onToken(t);
+            }
+        }
+
+        private void onToken(JsonToken t) throws IOException {
+            if (t.isStructStart()) depth++;
+            if (skipUntil >= 0) {
+                if (t.isStructEnd()) {
+                    depth--;
+                    if (depth == skipUntil) skipUntil = -1;
+                }
+                return;
+            }
+            if (t.isStructEnd()) depth--;
+            int rel = depth - base;
+
+            switch (t) {
+                case FIELD_NAME -> field = parser.currentName();
+                case START_ARRAY -> {
+                    if (batch && response == null && depth == 2 && "results".equals(field)) inResults = true;
+                    else if (response != null && rel == 2 && "items".equals(field)) inItems = true;
+                    else skipUntil = depth - 1;
+                }
+                case END_ARRAY -> {
+                    if (inItems && rel == 1) inItems = false;
+                    else if (inResults && depth == 1) inResults = false;
+                }
+                case START_OBJECT -> {
+                    if (depth == 1) return;                           // kök
+                    if (inResults && response == null && depth == 3) {
+                        response = new OcrApiResponse();              // partideki sıradaki cevap
+                        items = new ArrayList<>();
+                    } else if (inItems && rel == 3) {
+                        item = new OcrItem();
+                    } else {
+                        skipUntil = depth - 1;
+                    }
+                }
+                case END_OBJECT -> {
+                    if (item != null && rel == 2) {
+                        items.add(item);
+                        item = null;
+                    } else if (batch && response != null && depth == 2) {
+                        response.setItems(items);
+                        results.add(response);
+                        response = null;
+                    }
+                }
+                default -> {
+                    if (!t.isScalarValue()) return;
+                    if (item != null) itemValue(t);
+                    else if (response != null && rel == 1) rootValue(t);
+                }
+            }
+        }
+
+        private void rootValue(JsonToken t) throws IOException {
+            boolean isNull = t == JsonToken.VALUE_NULL;
+            switch (field) {
+                case "job_id" -> response.setJobId(isNull ? null : parser.getText());
+                case "source_image" -> response.setSourceImage(isNull ? null : parser.getText());
+                case "results_csv" -> response.setResultsCsv(isNull ? null : parser.getText());
+                case "saved_image" -> response.setSavedImage(isNull ? null : parser.getText());
+                case "count" -> response.setCount(isNull ? null : parser.getValueAsInt());
+                case "error" -> response.setError(isNull ? null : parser.getText());
+                default -> { }
+            }
+        }
+
+        private void itemValue(JsonToken t) throws IOException {
+            boolean isNull = t == JsonToken.VALUE_NULL;
+            switch (field) {
+                case "roi_index" -> item.setRoiIndex(isNull ? null : parser.getValueAsInt());
+                case "text" -> item.setText(isNull ? null : parser.getText());
+                case "image" -> item.setImage(isNull ? null : parser.getText()); // büyükse filter() spill:<id> yazdı
+                default -> { }
+            }
+        }
+    }
+
+    private void sweep() {
+        Instant now = Instant.now();
+        if (Duration.between(lastSweep, now).compareTo(spillTtl.dividedBy(2)) < 0) return;
+        lastSweep = now;
+        Instant cutoff = now.minus(spillTtl);
+        try (Stream<Path> files = Files.list(spillDir)) {
+            files.filter(p -> {
+                try {
+                    return Files.getLastModifiedTime(p).toInstant().isBefore(cutoff);
+                } catch (IOException e) {
+                    return false;
+                }
+            }).forEach(p -> {
+                try {
+                    Files.deleteIfExists(p);
+                } catch (IOException e) {
+                    log.debug("Spill dosyası silinemedi: {}", p);
+                }
+            });
+        } catch (IOException e) {
+            log.warn("Spill klasörü temizlenemedi: {}", e.getMessage());
+        }
+    }
+}
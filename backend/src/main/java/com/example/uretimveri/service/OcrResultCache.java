@@ -0,0 +1,213 @@
+package com.example.uretimveri.service;
+
+import com.example.uretimveri.ocr.OcrApiResponse;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Görsel içeriğinin SHA-256 özetine göre Python sonuçlarını tutan sınırlı LRU + TTL önbellek.
+// ocr.cache.disk-dir verilirse sonuçlar JSON olarak diske de yazılır ve yeniden başlatmada okunur.
+// Kayıtlar kopya olarak saklanır ve verilir: isteğin cevabı değiştirmesi önbelleğe ya da başka isteğe sızmaz.
+// spill:<id> taşıyan kayıt, spill dosyası silindiyse (spill-ttl önbellek TTL'lerinden kısa) isabet sayılmaz;
+// isabette dosyaların süresi yenilenir.
+@Component
+@Slf4j
+public class OcrResultCache {
+
+    private final ObjectMapper objectMapper;
+    private final OcrResponseDecoder decoder;
+    private final boolean enabled;
+    private final int maxEntries;
+    private final long maxBytes;
+    private final Duration ttl;
+    private final Duration diskTtl;
+    private final Path diskDir;
+
+    // erişim sırasına göre LRU; tüm erişimler this üzerinde senkron
+    private final LinkedHashMap<String, Entry> entries = new LinkedHashMap<>(64, 0.75f, true);
+    private long bytesHeld;
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong diskHits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+
+    private record Entry(OcrApiResponse value, long size, Instant expiresAt) {}
+
+    public OcrResultCache(ObjectMapper objectMapper,
+                          OcrResponseDecoder decoder,
+                          MeterRegistry registry,
+                          @Value("${ocr.cache.enabled:true}") boolean enabled,
+                          @Value("${ocr.cache.max-entries:500}") int maxEntries,
+                          @Value("${ocr.cache.max-bytes:67108864}") long maxBytes,
+                          @Value("${ocr.cache.ttl:10m}") Duration ttl,
+                          @Value("${ocr.cache.disk-ttl:7d}") Duration diskTtl,
+                          @Value("${ocr.cache.disk-dir:}") String diskDir) {
+        this.objectMapper = objectMapper;
+        this.decoder = decoder;
+        this.enabled = enabled;
+        this.maxEntries = maxEntries;
+        this.maxBytes = maxBytes;
+        this.ttl = ttl;
+        this.diskTtl = diskTtl;
+        this.diskDir = diskDir.isBlank() ? null : Path.of(diskDir);
+
+        FunctionCounter.builder("ocr.cache.requests", hits, AtomicLong::get).tag("result", "hit")
+                .description("Bellekten karşılanan tanıma").register(registry);
+        FunctionCounter.builder("ocr.cache.requests", diskHits, AtomicLong::get).tag("result", "disk-hit")
+                .description("Disk katmanından karşılanan tanıma").register(registry);
+        FunctionCounter.builder("ocr.cache.requests", misses, AtomicLong::get).tag("result", "miss")
+                .description("Python'a giden tanıma").register(registry);
+        FunctionCounter.builder("ocr.cache.evictions", evictions, AtomicLong::get)
+                .description("Boyut/süre sınırı nedeniyle atılan kayıt").register(registry);
+        Gauge.builder("ocr.cache.size", this, OcrResultCache::size)
+                .description("Bellekteki kayıt sayısı").register(registry);
+        Gauge.builder("ocr.cache.bytes", this, OcrResultCache::bytesHeld)
+                .description("Bellekteki kayıtların yaklaşık JSON boyutu").baseUnit("bytes").register(registry);
+        Gauge.builder("ocr.cache.hit.ratio", this, OcrResultCache::hitRatio)
+                .description("(bellek + disk) isabet oranı").register(registry);
+    }
+
+    public boolean isEnabled() { return enabled; }
+
+    /** İsabet yoksa null döner, varsa çağırana ait kopya; disk okuması yapabilir, reaktif thread'de çağırmayın */
+    public OcrApiResponse get(String hash) {
+        Entry cached;
+        synchronized (this) {
+            cached = entries.get(hash);
+            if (cached != null && !cached.expiresAt().isAfter(Instant.now())) {
+                remove(hash, cached);
+                cached = null;
+            }
+        }
+        if (cached != null) {
+            if (decoder.retainSpilled(cached.value())) {
+                hits.incrementAndGet();
+                return cached.value().copy();
+            }
+            // diskteki kopya da aynı ölü id'leri taşır
+            synchronized (this) {
+                if (entries.get(hash) == cached) remove(hash, cached);
+            }
+            deleteDisk(hash);
+            misses.incrementAndGet();
+            return null;
+        }
+        OcrApiResponse fromDisk = readDisk(hash);
+        if (fromDisk != null) {
+            if (decoder.retainSpilled(fromDisk)) {
+                diskHits.incrementAndGet();
+                putMemory(hash, fromDisk);
+                return fromDisk.copy();
+            }
+            deleteDisk(hash);
+        }
+        misses.incrementAndGet();
+        return null;
+    }
+
+    public void put(String hash, OcrApiResponse value) {
+        if (value == null) return;
+        putMemory(hash, value.copy());
+        writeDisk(hash, value);
+    }
+
+    private void putMemory(String hash, OcrApiResponse value) {
+        long size = estimateSize(value);
+        synchronized (this) {
+            Entry old = entries.put(hash, new Entry(value, size, Instant.now().plus(ttl)));
+            if (old != null) bytesHeld -= old.size();
+            bytesHeld += size;
+
+            Iterator<Map.Entry<String, Entry>> it = entries.entrySet().iterator();
+            while ((entries.size() > maxEntries || bytesHeld > maxBytes) && it.hasNext()) {
+                Map.Entry<String, Entry> eldest = it.next();
+                if (eldest.getKey().equals(hash)) continue; // yeni ekleneni tek başına atma
+                it.remove();
+                bytesHeld -= eldest.getValue().size();
+                evictions.incrementAndGet();
+            }
+        }
+    }
+
+    private void remove(String hash, Entry e) {
+        entries.remove(hash);
+        bytesHeld -= e.size();
+        evictions.incrementAndGet();
+    }
+
+    private long estimateSize(OcrApiResponse value) {
+        try {
+            return objectMapper.writeValueAsBytes(value).length;
+        } catch (IOException e) {
+            return 0;
+        }
+    }
+
+    private Path diskPath(String hash) {
+        return diskDir.resolve(hash.substring(0, 2)).resolve(hash + ".json");
+    }
+
+    private OcrApiResponse readDisk(String hash) {
+        if (diskDir == null) return null;
+        Path p = diskPath(hash);
+        try {
+            if (!Files.exists(p)) return null;
+            if (Files.getLastModifiedTime(p).toInstant().plus(diskTtl).isBefore(Instant.now())) {
+                Files.deleteIfExists(p);
+                return null;
+            }
+            return objectMapper.readValue(p.toFile(), OcrApiResponse.class);
+        } catch (IOException e) {
+            log.warn("OCR önbellek dosyası okunamadı: {} - {}", p, e.getMessage());
+            return null;
+        }
+    }
+
+    private void deleteDisk(String hash) {
+        if (diskDir == null) return;
+        try {
+            Files.deleteIfExists(diskPath(hash));
+        } catch (IOException e) {
+            log.debug("OCR önbellek dosyası silinemedi: {}", diskPath(hash));
+        }
+    }
+
+    private void writeDisk(String hash, OcrApiResponse value) {
+        if (diskDir == null) return;
+        Path p = diskPath(hash);
+        try {
+            Files.createDirectories(p.getParent());
+            Path tmp = Files.createTempFile(p.getParent(), hash, ".tmp");
+            objectMapper.writeValue(tmp.toFile(), value);
+            Files.move(tmp, p, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            log.warn("OCR önbellek dosyası yazılamadı: {} - {}", p, e.getMessage());
+        }
+    }
+
+    synchronized int size() { return entries.size(); }
+
+    synchronized long bytesHeld() { return bytesHeld; }
+
+    double hitRatio() {
+        long h = hits.get() + diskHits.get();
+        long total = h + misses.get();
+        return total == 0 ? 0.0 : (double) h / total;
+    }
+}
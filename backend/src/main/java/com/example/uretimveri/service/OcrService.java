@@ -1,46 +1,253 @@
 package com.example.uretimveri.service;
 
 import com.example.uretimveri.ocr.OcrApiResponse;
-import lombok.RequiredArgsConstructor;
+import com.example.uretimveri.ocr.OcrEngine;
+import com.example.uretimveri.ocr.OcrItem;
+import com.example.uretimveri.ocr.OcrStreamEvent;
+import com.example.uretimveri.ocr.OcrUpload;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 import lombok.extern.slf4j.Slf4j;
-import org.springframework.http.MediaType;
-import org.springframework.http.client.MultipartBodyBuilder;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.Resource;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.core.io.buffer.DefaultDataBufferFactory;
 import org.springframework.stereotype.Service;
 import org.springframework.web.multipart.MultipartFile;
-import org.springframework.web.reactive.function.BodyInserters;
-import org.springframework.web.reactive.function.client.WebClient;
 import org.springframework.web.reactive.function.client.WebClientResponseException;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
 
 @Service
-@RequiredArgsConstructor
 @Slf4j
 public class OcrService {
 
-    private final WebClient pythonClient;
+    private final OcrResultCache cache;
+    private final ImagePreprocessor preprocessor;
+    private final OcrHistoryStore history;
+    private final OcrEngine engine;
+    private final Timer engineLatency;
+    private final int streamBufferSize;
+
+    // aynı içerik için devam eden Python çağrısı: sonradan gelenler buna abone olur
+    private final Map<String, Mono<OcrApiResponse>> inFlight = new ConcurrentHashMap<>();
+
+    private final AtomicInteger activeStreams = new AtomicInteger();
+    private final DistributionSummary streamedBytes;
+
+    public OcrService(OcrResultCache cache,
+                      ImagePreprocessor preprocessor,
+                      OcrHistoryStore history,
+                      OcrEngine engine,
+                      MeterRegistry registry,
+                      @Value("${ocr.stream.buffer-size:65536}") int streamBufferSize) {
+        this.cache = cache;
+        this.preprocessor = preprocessor;
+        this.history = history;
+        this.engine = engine;
+        this.engineLatency = Timer.builder("ocr.engine.latency")
+                .description("Motor başına tek görsel çıkarım süresi (önbellek isabetleri hariç)")
+                .tag("engine", engine.name())
+                .register(registry);
+        this.streamBufferSize = streamBufferSize;
+
+        this.streamedBytes = DistributionSummary.builder("ocr.upload.streamed.bytes")
+                .description("Gövdesi tamponlanmadan motora akıtılan yükleme boyutu")
+                .baseUnit("bytes")
+                .register(registry);
+        Gauge.builder("ocr.upload.streams.active", activeStreams, AtomicInteger::get)
+                .description("Devam eden akış yüklemesi; her biri en fazla birkaç buffer-size tampon tutar")
+                .register(registry);
+        Gauge.builder("ocr.upload.stream.buffer.size", () -> this.streamBufferSize)
+                .description("Akış yüklemesinde tek okuma tamponunun boyutu")
+                .baseUnit("bytes")
+                .register(registry);
+    }
+
+    // Bloklamaz: Python çalışırken servlet thread'i serbest kalır, sonuç Mono ile döner
+    public Mono<OcrApiResponse> recognize(MultipartFile file) {
+        return recognize(OcrUpload.of(file));
+    }
+
+    // Önce içerik özetiyle önbelleğe bakar; aynı görsel zaten işleniyorsa o çağrıyı bekler
+    public Mono<OcrApiResponse> recognize(OcrUpload upload) {
+        if (!cache.isEnabled()) return prepareAndCall(upload, true);
+
+        return Mono.fromCallable(() -> sha256(upload.getContent()))
+                .subscribeOn(Schedulers.boundedElastic())
+                .flatMap(hash -> {
+                    OcrApiResponse hit = cache.get(hash);
+                    if (hit != null) return Mono.just(hit);
+                    // birleştirilen çağrının sonucu tek nesne: her abone kendi kopyasını alır
+                    return inFlight.computeIfAbsent(hash, h -> prepareAndCall(upload, true)
+                            .doOnNext(r -> cache.put(h, r))
+                            .doFinally(sig -> inFlight.remove(h))
+                            .cache())
+                            .map(OcrApiResponse::copy);
+                });
+    }
+
+    // Önbelleği ve coalescing'i atlar: ağırlıklar yeniden eğitildiyse eski sonuç dönmemeli (toplu yeniden işleme).
+    // recordHistory=false: arşivden yeniden okuma canlı trafik gibi geçmişe yazılmaz.
+    public Mono<OcrApiResponse> recognizeFresh(OcrUpload upload, boolean recordHistory) {
+        return prepareAndCall(upload, recordHistory);
+    }
+
+    // Ham gövde (image/*, octet-stream) DataBuffer parçaları halinde motora akar (http: tamponlanmadan Python'a).
+    // Özet akış sırasında hesaplanır: önbellek sorgulanamaz ama sonuç önbelleğe yazılır.
+    public Mono<OcrApiResponse> recognizeStream(InputStream body, String filename, String contentType) {
+        MessageDigest md = newSha256();
+        CountingInputStream counting = new CountingInputStream(new DigestInputStream(body, md));
+
+        Flux<DataBuffer> chunks = DataBufferUtils
+                .readInputStream(() -> counting, DefaultDataBufferFactory.sharedInstance, streamBufferSize)
+                .subscribeOn(Schedulers.boundedElastic()); // servlet okuması bloklayıcı, event-loop'ta yapılmaz
+
+        return Mono.defer(() -> {
+                    activeStreams.incrementAndGet();
+                    Timer.Sample sample = Timer.start();
+                    return engine.processBody(chunks, filename, contentType)
+                            .doOnSuccess(r -> sample.stop(engineLatency));
+                })
+                .doOnNext(r -> {
+                    history.record(r);
+                    if (cache.isEnabled()) cache.put(HexFormat.of().formatHex(md.digest()), r);
+                })
+                .doOnError(this::logError)
+                .doFinally(sig -> {
+                    activeStreams.decrementAndGet();
+                    streamedBytes.record(counting.count);
+                });
+    }
+
+    // ROI'ler motor hazırladıkça olay olarak gelir, cevabın tamamı beklenmez.
+    // Sonuç tamamlanınca normal recognize ile aynı önbelleğe yazılır.
+    public Flux<OcrStreamEvent> recognizeEvents(MultipartFile file) {
+        OcrUpload upload = OcrUpload.of(file);
+        if (!cache.isEnabled()) return prepareAndStream(upload, null);
+
+        return Mono.fromCallable(() -> sha256(upload.getContent()))
+                .subscribeOn(Schedulers.boundedElastic())
+                .flatMapMany(hash -> {
+                    OcrApiResponse hit = cache.get(hash);
+                    return hit != null
+                            ? Flux.fromIterable(OcrStreamEvent.replay(hit))
+                            : prepareAndStream(upload, hash);
+                });
+    }
+
+    private Flux<OcrStreamEvent> prepareAndStream(OcrUpload upload, String hash) {
+        Mono<OcrUpload> prepared = preprocessor.isEnabled()
+                ? Mono.fromCallable(() -> preprocessor.apply(upload)).subscribeOn(Schedulers.boundedElastic())
+                : Mono.just(upload);
+
+        // olaylar Netty event loop'unda gelir: ROI'ler orada hemen aktarılır, ama önbellek yazımı (JSON + disk)
+        // ve geçmiş kaydı boundedElastic'te yapılır; done olayı yazım bitince iletilir
+        List<OcrItem> items = new ArrayList<>();
+        return prepared
+                .flatMapMany(engine::processEvents)
+                .concatMap(e -> {
+                    if (e.isItem()) items.add(e.toItem());
+                    if (!e.isDone() || e.getError() != null) return Mono.just(e);
+                    OcrApiResponse r = e.toResponse(List.copyOf(items));
+                    return Mono.fromRunnable(() -> {
+                                history.record(r);
+                                if (hash != null) cache.put(hash, r);
+                            })
+                            .subscribeOn(Schedulers.boundedElastic())
+                            .thenReturn(e);
+                })
+                .doOnError(this::logError);
+    }
+
+    // önbellek anahtarı orijinal içeriktir; ön işleme sadece Python'a giden kopyayı küçültür
+    private Mono<OcrApiResponse> prepareAndCall(OcrUpload upload, boolean recordHistory) {
+        if (!preprocessor.isEnabled()) return callEngine(upload, recordHistory);
+        return Mono.fromCallable(() -> preprocessor.apply(upload))
+                .subscribeOn(Schedulers.boundedElastic())
+                .flatMap(prepared -> callEngine(prepared, recordHistory));
+    }
+
+    private Mono<OcrApiResponse> callEngine(OcrUpload upload, boolean recordHistory) {
+        return Mono.defer(() -> {
+                    Timer.Sample sample = Timer.start();
+                    return engine.process(upload).doOnSuccess(r -> sample.stop(engineLatency));
+                })
+                .doOnNext(r -> {
+                    if (recordHistory) history.record(r);
+                })
+                .doOnError(this::logError);
+    }
+
+    /** Motor sonucu callback ile teslim edebiliyor mu (job servisi buna göre mod seçer) */
+    public boolean supportsCallback() {
+        return engine.supportsCallback();
+    }
+
+    // Callback modu: motor işi kabul eder, sonucu callbackUrl'e POST eder
+    public Mono<Void> dispatch(OcrUpload upload, String callbackUrl) {
+        return engine.dispatch(upload, callbackUrl).doOnError(this::logError);
+    }
+
+    static String sha256(Resource content) throws IOException {
+        MessageDigest md = newSha256();
+        byte[] buf = new byte[8192];
+        try (InputStream in = content.getInputStream()) {
+            for (int n; (n = in.read(buf)) > 0; ) md.update(buf, 0, n);
+        }
+        return HexFormat.of().formatHex(md.digest());
+    }
 
-    @SuppressWarnings("null")
-    public OcrApiResponse recognize(MultipartFile file) {
+    private static MessageDigest newSha256() {
         try {
-            MultipartBodyBuilder mb = new MultipartBodyBuilder();
-            mb.part("file", file.getResource())
-              .filename(file.getOriginalFilename())
-              .contentType(file.getContentType() != null
-                      ? MediaType.parseMediaType(file.getContentType())
-                      : MediaType.APPLICATION_OCTET_STREAM);
-
-            return pythonClient.post()
-                    .uri("/process")
-                    .contentType(MediaType.MULTIPART_FORM_DATA)
-                    .body(BodyInserters.fromMultipartData(mb.build()))
-                    .retrieve()
-                    .bodyToMono(OcrApiResponse.class)
-                    .block();
-        } catch (WebClientResponseException ex) {
-            log.error("Python HTTP hata: {} - {}", ex.getStatusCode(), ex.getResponseBodyAsString());
-            throw ex;
-        } catch (Exception ex) {
-            log.error("Python entegrasyon hatası", ex);
-            throw ex;
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static final class CountingInputStream extends FilterInputStream {
+        private long count;
+
+        CountingInputStream(InputStream in) { super(in); }
+
+        @Override
+        public int read() throws IOException {
+            int b = super.read();
+            if (b >= 0) count++;
+            return b;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            int n = super.read(b, off, len);
+            if (n > 0) count += n;
+            return n;
+        }
+    }
+
+    private void logError(Throwable ex) {
+        if (ex instanceof WebClientResponseException wex) {
+            log.error("Python HTTP hata: {} - {}", wex.getStatusCode(), wex.getResponseBodyAsString());
+        } else {
+            log.error("OCR motoru hatası ({})", engine.name(), ex);
         }
     }
 }
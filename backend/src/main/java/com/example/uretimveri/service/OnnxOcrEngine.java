@@ -0,0 +1,457 @@
+package com.example.uretimveri.service;
+
+import ai.onnxruntime.OnnxTensor;
+import ai.onnxruntime.OrtEnvironment;
+import ai.onnxruntime.OrtException;
+import ai.onnxruntime.OrtSession;
+import ai.onnxruntime.TensorInfo;
+import com.example.uretimveri.ocr.OcrApiResponse;
+import com.example.uretimveri.ocr.OcrEngine;
+import com.example.uretimveri.ocr.OcrItem;
+import com.example.uretimveri.ocr.OcrUpload;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferLimitException;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
+import org.springframework.web.server.ResponseStatusException;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+
+import javax.imageio.ImageIO;
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferByte;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.FloatBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.RejectedExecutionException;
+
+// ocr.engine=onnx: Python servisine gitmeden, ultralytics'ten aktarılmış iki YOLOv8 modeliyle
+// (yolo export format=onnx) ocr/OCR.py'deki boru hattını süreç içinde çalıştırır:
+//  - iki model de görselin tamamında çalışır; görsel letterbox ile (oran korunur, 114 gri dolgu) modele ölçeklenir
+//  - çıktı [1, 4+nc, N]: cx, cy, w, h + sınıf skorları; önce sınıf bazlı NMS (ultralytics), sonra merge-iou ile
+//    sınıftan bağımsız birleştirme (nms_agnostic_keep_best)
+//  - ROI'ler merkezlerinin ana eksenine (PCA) göre üstten alta sıralanır (order_rois_pca)
+//  - merkezi ROI içinde kalan rakamlar satırlara ayrılır (group_digits_rows), satırlar '|' ile birleşir
+// Çıkarım sınırlı bir Scheduler'da yapılır: aynı anda en fazla concurrency görsel, fazlası kuyrukta bekler.
+// Callback (process_async) yoktur: job servisi bu motorda sonucu kendisi bekler.
+@Component
+@Lazy
+@Slf4j
+public class OnnxOcrEngine implements OcrEngine, AutoCloseable {
+
+    static final double CLASS_NMS_IOU = 0.7; // ultralytics predict varsayılanı
+    static final int MAX_DET = 300;
+
+    private final OrtEnvironment env;
+    private final Model roiModel;
+    private final Model digitModel;
+    private final double roiConf;
+    private final double digitConf;
+    private final double mergeIou;
+    private final int maxBytes;
+    private final Scheduler scheduler;
+
+    public OnnxOcrEngine(@Value("${ocr.onnx.roi-model:}") String roiModelPath,
+                         @Value("${ocr.onnx.digit-model:}") String digitModelPath,
+                         @Value("${ocr.onnx.roi-conf:0.6}") double roiConf,
+                         @Value("${ocr.onnx.digit-conf:0.1}") double digitConf,
+                         @Value("${ocr.onnx.merge-iou:0.35}") double mergeIou,
+                         @Value("${ocr.onnx.input-size:1024}") int inputSize,
+                         @Value("${ocr.onnx.intra-op-threads:0}") int intraOpThreads,
+                         @Value("${ocr.onnx.concurrency:2}") int concurrency,
+                         @Value("${ocr.onnx.queue-capacity:64}") int queueCapacity,
+                         @Value("${ocr.onnx.max-bytes:20MB}") DataSize maxBytes) throws OrtException {
+        if (roiModelPath.isBlank() || digitModelPath.isBlank()) {
+            throw new IllegalStateException("ocr.engine=onnx için ocr.onnx.roi-model ve ocr.onnx.digit-model gerekli");
+        }
+        this.env = OrtEnvironment.getEnvironment();
+        try (OrtSession.SessionOptions opts = new OrtSession.SessionOptions()) {
+            if (intraOpThreads > 0) opts.setIntraOpNumThreads(intraOpThreads);
+            this.roiModel = new Model(env.createSession(roiModelPath, opts), inputSize);
+            this.digitModel = new Model(env.createSession(digitModelPath, opts), inputSize);
+        }
+        this.roiConf = roiConf;
+        this.digitConf = digitConf;
+        this.mergeIou = mergeIou;
+        this.maxBytes = (int) Math.min(Integer.MAX_VALUE - 8, maxBytes.toBytes());
+        this.scheduler = Schedulers.newBoundedElastic(concurrency, queueCapacity, "ocr-onnx");
+        log.info("ONNX OCR motoru hazır: roi={} ({}px), digit={} ({}px)",
+                roiModelPath, roiModel.size, digitModelPath, digitModel.size);
+    }
+
+    @Override
+    public String name() {
+        return "onnx";
+    }
+
+    @Override
+    public Mono<OcrApiResponse> process(OcrUpload upload) {
+        return Mono.fromCallable(() -> {
+                    byte[] bytes;
+                    try (InputStream in = upload.getContent().getInputStream()) {
+                        bytes = in.readNBytes(maxBytes + 1);
+                    }
+                    if (bytes.length > maxBytes) throw tooLarge();
+                    return infer(bytes, upload.getFilename());
+                })
+                .subscribeOn(scheduler)
+                .onErrorMap(RejectedExecutionException.class, OnnxOcrEngine::busy);
+    }
+
+    // Model tüm görseli ister: gövde max-bytes sınırıyla birleştirilir, sınırı aşan 413
+    @Override
+    public Mono<OcrApiResponse> processBody(Flux<DataBuffer> body, String filename, String contentType) {
+        return DataBufferUtils.join(body, maxBytes)
+                .onErrorMap(DataBufferLimitException.class, e -> tooLarge())
+                .map(buf -> {
+                    try {
+                        byte[] bytes = new byte[buf.readableByteCount()];
+                        buf.read(bytes);
+                        return bytes;
+                    } finally {
+                        DataBufferUtils.release(buf);
+                    }
+                })
+                .flatMap(bytes -> Mono.fromCallable(() -> infer(bytes, filename))
+                        .subscribeOn(scheduler)
+                        .onErrorMap(RejectedExecutionException.class, OnnxOcrEngine::busy));
+    }
+
+    // server.py /process ile aynı biçim; dosya yazılmadığı için results_csv ve saved_image boş
+    OcrApiResponse infer(byte[] bytes, String filename) throws OrtException, IOException {
+        BufferedImage img = ImageIO.read(new ByteArrayInputStream(bytes));
+        List<OcrItem> items = new ArrayList<>();
+        if (img == null) {
+            log.warn("Görsel okunamadı: {}", filename);
+        } else {
+            List<Det> digits = detect(digitModel, img, digitConf);
+            List<Det> rois = orderRois(detect(roiModel, img, roiConf));
+            for (int idx = 0; idx < rois.size(); idx++) {
+                items.add(item(filename, idx, text(groupRows(inside(rois.get(idx), digits)))));
+            }
+        }
+        if (items.isEmpty()) items.add(item(filename, -1, "-")); // ROI yok: Python da tek "-" satırı yazar
+
+        OcrApiResponse r = new OcrApiResponse();
+        r.setJobId(System.currentTimeMillis() / 1000 + "_" + UUID.randomUUID().toString().substring(0, 8));
+        r.setSourceImage(filename);
+        r.setCount(items.size());
+        r.setItems(items);
+        return r;
+    }
+
+    private List<Det> detect(Model model, BufferedImage img, double conf) throws OrtException {
+        Letterbox lb = letterbox(img, model.size);
+        long[] shape = {1, 3, model.size, model.size};
+        try (OnnxTensor in = OnnxTensor.createTensor(env, FloatBuffer.wrap(lb.chw), shape);
+             OrtSession.Result out = model.session.run(Map.of(model.input, in))) {
+            OnnxTensor y = (OnnxTensor) out.get(0);
+            long[] yShape = y.getInfo().getShape(); // [1, 4+nc, N]
+            List<Det> dets = decode(y.getFloatBuffer(), (int) yShape[1], (int) yShape[2], conf, lb,
+                    img.getWidth(), img.getHeight());
+            return nms(nms(dets, CLASS_NMS_IOU, true, false), mergeIou, false, true);
+        }
+    }
+
+    @Override
+    public void close() {
+        scheduler.dispose();
+        roiModel.close();
+        digitModel.close();
+    }
+
+    // --- OCR.py karşılıkları (saf fonksiyonlar, modelden bağımsız test edilir) ---
+
+    record Det(int cls, double conf, double x1, double y1, double x2, double y2) {
+        double cx() { return (x1 + x2) / 2.0; }
+        double cy() { return (y1 + y2) / 2.0; }
+        double area() { return Math.max(0, x2 - x1) * Math.max(0, y2 - y1); }
+    }
+
+    record Letterbox(float[] chw, double gain, int left, int top) { }
+
+    // ultralytics LetterBox: oran korunur, görsel ortalanır, kenarlar 114 griyle dolar; RGB, 0-1, CHW
+    static Letterbox letterbox(BufferedImage img, int size) {
+        int w = img.getWidth();
+        int h = img.getHeight();
+        double gain = Math.min((double) size / h, (double) size / w);
+        int nw = (int) Math.round(w * gain);
+        int nh = (int) Math.round(h * gain);
+        int left = (int) Math.round((size - nw) / 2.0 - 0.1);
+        int top = (int) Math.round((size - nh) / 2.0 - 0.1);
+
+        BufferedImage canvas = new BufferedImage(size, size, BufferedImage.TYPE_3BYTE_BGR);
+        Graphics2D g = canvas.createGraphics();
+        try {
+            g.setColor(new Color(114, 114, 114));
+            g.fillRect(0, 0, size, size);
+            g.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+            g.drawImage(img, left, top, nw, nh, null);
+        } finally {
+            g.dispose();
+        }
+
+        byte[] bgr = ((DataBufferByte) canvas.getRaster().getDataBuffer()).getData();
+        int plane = size * size;
+        float[] chw = new float[3 * plane];
+        for (int i = 0, p = 0; i < plane; i++, p += 3) {
+            chw[i] = (bgr[p + 2] & 0xFF) / 255f;
+            chw[plane + i] = (bgr[p + 1] & 0xFF) / 255f;
+            chw[2 * plane + i] = (bgr[p] & 0xFF) / 255f;
+        }
+        return new Letterbox(chw, gain, left, top);
+    }
+
+    // [4+nc, N] satır öncelikli: en yüksek skorlu sınıf conf'u geçen kutular, orijinal görsel koordinatında
+    static List<Det> decode(FloatBuffer y, int rows, int n, double conf, Letterbox lb, int width, int height) {
+        List<Det> out = new ArrayList<>();
+        for (int j = 0; j < n; j++) {
+            int best = -1;
+            float score = 0;
+            for (int c = 4; c < rows; c++) {
+                float s = y.get(c * n + j);
+                if (best < 0 || s > score) {
+                    best = c - 4;
+                    score = s;
+                }
+            }
+            if (best < 0 || score <= conf) continue;
+            double cx = y.get(j), cy = y.get(n + j), bw = y.get(2 * n + j), bh = y.get(3 * n + j);
+            out.add(new Det(best, score,
+                    clamp((cx - bw / 2 - lb.left()) / lb.gain(), width),
+                    clamp((cy - bh / 2 - lb.top()) / lb.gain(), height),
+                    clamp((cx + bw / 2 - lb.left()) / lb.gain(), width),
+                    clamp((cy + bh / 2 - lb.top()) / lb.gain(), height)));
+        }
+        return out;
+    }
+
+    private static double clamp(double v, int max) {
+        return Math.max(0, Math.min(max, v));
+    }
+
+    // perClass: ultralytics NMS (farklı sınıflar birbirini bastırmaz, iou > eşik, en fazla MAX_DET)
+    // agnostik + inclusive: OCR.py nms_agnostic_keep_best (iou >= eşik)
+    static List<Det> nms(List<Det> dets, double iouThr, boolean perClass, boolean inclusive) {
+        List<Det> sorted = new ArrayList<>(dets);
+        sorted.sort(Comparator.comparingDouble(Det::conf).reversed());
+        List<Det> keep = new ArrayList<>();
+        boolean[] suppressed = new boolean[sorted.size()];
+        for (int i = 0; i < sorted.size() && (!perClass || keep.size() < MAX_DET); i++) {
+            if (suppressed[i]) continue;
+            Det a = sorted.get(i);
+            keep.add(a);
+            for (int j = i + 1; j < sorted.size(); j++) {
+                if (suppressed[j]) continue;
+                Det b = sorted.get(j);
+                if (perClass && a.cls() != b.cls()) continue;
+                double iou = iou(a, b);
+                if (inclusive ? iou >= iouThr : iou > iouThr) suppressed[j] = true;
+            }
+        }
+        return keep;
+    }
+
+    static double iou(Det a, Det b) {
+        double iw = Math.max(0, Math.min(a.x2(), b.x2()) - Math.max(a.x1(), b.x1()));
+        double ih = Math.max(0, Math.min(a.y2(), b.y2()) - Math.max(a.y1(), b.y1()));
+        double inter = iw * ih;
+        if (inter <= 0) return 0;
+        double union = a.area() + b.area() - inter;
+        return union > 0 ? inter / union : 0;
+    }
+
+    // order_rois_pca: merkezlerin birinci ana ekseni (2x2 kovaryansın en büyük özvektörü) yukarı bakacak
+    // şekilde yönlendirilir, ROI'ler bu eksendeki izdüşüme göre büyükten küçüğe (üstten alta) sıralanır
+    static List<Det> orderRois(List<Det> rois) {
+        if (rois.size() < 2) return rois;
+        double mx = 0, my = 0;
+        for (Det r : rois) {
+            mx += r.cx();
+            my += r.cy();
+        }
+        mx /= rois.size();
+        my /= rois.size();
+        double sxx = 0, sxy = 0, syy = 0;
+        for (Det r : rois) {
+            double dx = r.cx() - mx, dy = r.cy() - my;
+            sxx += dx * dx;
+            sxy += dx * dy;
+            syy += dy * dy;
+        }
+        double vx, vy;
+        if (Math.abs(sxy) > 1e-12) {
+            double lambda = (sxx + syy) / 2 + Math.sqrt((sxx - syy) * (sxx - syy) / 4 + sxy * sxy);
+            vx = lambda - syy;
+            vy = sxy;
+        } else if (sxx >= syy) {
+            vx = 1;
+            vy = 0;
+        } else {
+            vx = 0;
+            vy = 1;
+        }
+        if (vy > 0) { // yukarı (0, -1) ile ters yönde
+            vx = -vx;
+            vy = -vy;
+        }
+        double fx = vx, fy = vy, cx = mx, cy = my;
+        List<Det> ordered = new ArrayList<>(rois);
+        ordered.sort(Comparator.comparingDouble((Det r) -> (r.cx() - cx) * fx + (r.cy() - cy) * fy).reversed());
+        return ordered;
+    }
+
+    // digits_inside_roi: merkezi ROI kutusunun içinde (sınır dahil) olan rakamlar
+    static List<Det> inside(Det roi, List<Det> digits) {
+        List<Det> out = new ArrayList<>();
+        for (Det d : digits) {
+            if (roi.x1() <= d.cx() && d.cx() <= roi.x2() && roi.y1() <= d.cy() && d.cy() <= roi.y2()) out.add(d);
+        }
+        return out;
+    }
+
+    // group_digits_rows: en az 6 rakam ve belirgin dikey yayılım varsa 2-ortalamayla iki satır,
+    // yoksa merkez y'si row_gap içinde olanlar aynı satır; satırlar üstten alta, rakamlar soldan sağa
+    static List<List<Det>> groupRows(List<Det> digits) {
+        if (digits.isEmpty()) return List.of();
+        int n = digits.size();
+        double[] cys = new double[n];
+        double[] hs = new double[n];
+        double minY = Double.MAX_VALUE, maxY = -Double.MAX_VALUE;
+        for (int i = 0; i < n; i++) {
+            cys[i] = digits.get(i).cy();
+            hs[i] = digits.get(i).y2() - digits.get(i).y1();
+            minY = Math.min(minY, cys[i]);
+            maxY = Math.max(maxY, cys[i]);
+        }
+        double medianH = Math.max(1.0, median(hs));
+        Comparator<Det> leftToRight = Comparator.comparingDouble(Det::cx);
+
+        if (n >= 6 && maxY - minY >= 0.7 * medianH) {
+            boolean[] assign0 = new boolean[n];
+            double[] cent = kmeans2(cys, assign0);
+            if (cent != null && Math.abs(cent[0] - cent[1]) >= 0.55 * medianH) {
+                boolean topIs0 = cent[0] < cent[1];
+                List<Det> top = new ArrayList<>();
+                List<Det> bottom = new ArrayList<>();
+                for (int i = 0; i < n; i++) (assign0[i] == topIs0 ? top : bottom).add(digits.get(i));
+                top.sort(leftToRight);
+                bottom.sort(leftToRight);
+                return List.of(top, bottom);
+            }
+        }
+
+        Integer[] orderY = new Integer[n];
+        for (int i = 0; i < n; i++) orderY[i] = i;
+        Arrays.sort(orderY, Comparator.comparingDouble(i -> cys[i]));
+        boolean[] used = new boolean[n];
+        double rowGap = Math.max(10.0, medianH * 0.60);
+        List<List<Det>> groups = new ArrayList<>();
+        for (int i : orderY) {
+            if (used[i]) continue;
+            used[i] = true;
+            List<Det> row = new ArrayList<>(List.of(digits.get(i)));
+            for (int j : orderY) {
+                if (!used[j] && Math.abs(cys[j] - cys[i]) <= rowGap) {
+                    used[j] = true;
+                    row.add(digits.get(j));
+                }
+            }
+            row.sort(leftToRight);
+            groups.add(row);
+        }
+        groups.sort(Comparator.comparingDouble(row -> row.stream().mapToDouble(Det::cy).average().orElse(0)));
+        return groups;
+    }
+
+    // kmeans1d_y (k=2): merkezler min/max'tan başlar, 12 tur; bir küme boşalırsa null
+    private static double[] kmeans2(double[] ys, boolean[] assign0) {
+        double[] cent = {Arrays.stream(ys).min().orElse(0), Arrays.stream(ys).max().orElse(0)};
+        for (int it = 0; it < 12; it++) {
+            double s0 = 0, s1 = 0;
+            int n0 = 0, n1 = 0;
+            for (int i = 0; i < ys.length; i++) {
+                assign0[i] = Math.abs(ys[i] - cent[0]) <= Math.abs(ys[i] - cent[1]);
+                if (assign0[i]) { s0 += ys[i]; n0++; } else { s1 += ys[i]; n1++; }
+            }
+            if (n0 == 0 || n1 == 0) return null;
+            cent[0] = s0 / n0;
+            cent[1] = s1 / n1;
+        }
+        return cent;
+    }
+
+    private static double median(double[] v) {
+        double[] s = v.clone();
+        Arrays.sort(s);
+        int m = s.length / 2;
+        return s.length % 2 == 1 ? s[m] : (s[m - 1] + s[m]) / 2;
+    }
+
+    // sort_digits_line: satırlar '|' ile; hiç rakam yoksa "-"
+    static String text(List<List<Det>> rows) {
+        StringBuilder sb = new StringBuilder();
+        for (List<Det> row : rows) {
+            if (!sb.isEmpty()) sb.append('|');
+            for (Det d : row) sb.append(d.cls());
+        }
+        return sb.isEmpty() ? "-" : sb.toString();
+    }
+
+    private static OcrItem item(String filename, int roiIndex, String text) {
+        OcrItem it = new OcrItem();
+        it.setImage(filename);
+        it.setRoiIndex(roiIndex);
+        it.setText(text);
+        return it;
+    }
+
+    private ResponseStatusException tooLarge() {
+        return new ResponseStatusException(HttpStatus.PAYLOAD_TOO_LARGE,
+                "Görsel ocr.onnx.max-bytes sınırını aşıyor (" + maxBytes + " bayt)");
+    }
+
+    private static ResponseStatusException busy(Throwable e) {
+        return new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE, "OCR motoru meşgul, lütfen tekrar deneyin");
+    }
+
+    private static final class Model implements AutoCloseable {
+        final OrtSession session;
+        final String input;
+        final int size;
+
+        // ultralytics dışa aktarımı sabit [1, 3, S, S] girişli; dinamik boyutta input-size kullanılır
+        Model(OrtSession session, int fallbackSize) throws OrtException {
+            this.session = session;
+            this.input = session.getInputNames().iterator().next();
+            long[] shape = ((TensorInfo) session.getInputInfo().get(input).getInfo()).getShape();
+            this.size = shape.length == 4 && shape[3] > 0 ? (int) shape[3] : fallbackSize;
+        }
+
+        @Override
+        public void close() {
+            try {
+                session.close();
+            } catch (OrtException e) {
+                log.debug("ONNX oturumu kapatılamadı: {}", e.getMessage());
+            }
+        }
+    }
+}
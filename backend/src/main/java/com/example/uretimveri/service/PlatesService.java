@@ -16,15 +16,22 @@ public class PlatesService {
 
     private final PlatesRepository platesRepository;
     private final ProductRepository productRepository;
+    private final LvdtIndex lvdtIndex;
+    private final TablePageService tablePages;
 
     public PlatesService(PlatesRepository platesRepository,
-                         ProductRepository productRepository) {
+                         ProductRepository productRepository,
+                         LvdtIndex lvdtIndex,
+                         TablePageService tablePages) {
         this.platesRepository = platesRepository;
         this.productRepository = productRepository;
+        this.lvdtIndex = lvdtIndex;
+        this.tablePages = tablePages;
     }
 
     @Transactional
     public Plates createWithNewProduct(Plates payload) {
+        tablePages.invalidateTotals();
         Product p = new Product();
         p.setProductType("plates");
         p = productRepository.save(p);                   // TRIGGER plates satırını açar
@@ -34,18 +41,20 @@ public class PlatesService {
 
         if (existing == null) {
             payload.setProduct(p);
-            return platesRepository.save(payload);
+            return indexed(null, platesRepository.save(payload));
         }
 
+        Long oldLvdt = existing.getLvdt();
         if (payload.getLvdt() != null)          existing.setLvdt(payload.getLvdt());
         if (payload.getPressureValue() != null) existing.setPressureValue(payload.getPressureValue());
         if (payload.getSpeedValue() != null)    existing.setSpeedValue(payload.getSpeedValue());
 
-        return platesRepository.save(existing);
+        return indexed(oldLvdt, platesRepository.save(existing));
     }
 
     @Transactional
     public Plates createForExistingProduct(Long productId, Plates payload) {
+        tablePages.invalidateTotals();
         Product p = productRepository.findById(productId)
                 .orElseThrow(() -> new EntityNotFoundException("Product bulunamadı: " + productId));
 
@@ -53,14 +62,15 @@ public class PlatesService {
 
         if (existing == null) {
             payload.setProduct(p);
-            return platesRepository.save(payload);
+            return indexed(null, platesRepository.save(payload));
         }
 
+        Long oldLvdt = existing.getLvdt();
         if (payload.getLvdt() != null)          existing.setLvdt(payload.getLvdt());
         if (payload.getPressureValue() != null) existing.setPressureValue(payload.getPressureValue());
         if (payload.getSpeedValue() != null)    existing.setSpeedValue(payload.getSpeedValue());
 
-        return platesRepository.save(existing);
+        return indexed(oldLvdt, platesRepository.save(existing));
     }
 
     @Transactional
@@ -68,24 +78,34 @@ public class PlatesService {
         Plates existing = platesRepository.findById(id)
                 .orElseThrow(() -> new EntityNotFoundException("Plates bulunamadı: " + id));
 
+        Long oldLvdt = existing.getLvdt();
         if (updated.getSpeedValue() != null)    existing.setSpeedValue(updated.getSpeedValue());
         if (updated.getPressureValue() != null) existing.setPressureValue(updated.getPressureValue());
         if (updated.getLvdt() != null)          existing.setLvdt(updated.getLvdt());
 
-        return platesRepository.save(existing);
+        return indexed(oldLvdt, platesRepository.save(existing));
     }
 
     @Transactional
     public void delete(Long id) {
-        if (!platesRepository.existsById(id)) {
-            throw new EntityNotFoundException("Plates bulunamadı: " + id);
-        }
+        tablePages.invalidateTotals();
+        Plates existing = platesRepository.findById(id)
+                .orElseThrow(() -> new EntityNotFoundException("Plates bulunamadı: " + id));
+        if (existing.getLvdt() != null) lvdtIndex.removeAfterCommit(existing.getLvdt());
         platesRepository.deleteById(id);
         if(!platesRepository.existsById(id)) {
             productRepository.deleteById(id);
         }
     }
 
+    // LVDT indeksini commit sonrasına göre güncelle
+    private Plates indexed(Long oldLvdt, Plates saved) {
+        Long lvdt = saved.getLvdt();
+        if (oldLvdt != null && !oldLvdt.equals(lvdt)) lvdtIndex.removeAfterCommit(oldLvdt);
+        if (lvdt != null) lvdtIndex.putAfterCommit(lvdt, saved.getProductId());
+        return saved;
+    }
+
     @Transactional(readOnly = true)
     public List<PlatesDTO> getAllDTO() {
         return platesRepository.findAll().stream()
@@ -22,13 +22,21 @@ import java.util.List;
 public class ProductService {
 
     private final ProductRepository repo;
+    private final PlatesRepository platesRepo;
+    private final LvdtIndex lvdtIndex;
+    private final TablePageService tablePages;
 
 
     public ProductService(ProductRepository repo,
                           HotCoilRepository hotCoilRepo,
                           ColdCoilRepository coldCoilRepo,
-                          PlatesRepository platesRepo) {
+                          PlatesRepository platesRepo,
+                          LvdtIndex lvdtIndex,
+                          TablePageService tablePages) {
         this.repo = repo;
+        this.platesRepo = platesRepo;
+        this.lvdtIndex = lvdtIndex;
+        this.tablePages = tablePages;
     }
 
 
@@ -39,6 +47,7 @@ public class ProductService {
 
     @Transactional
     public Product save(Product product) {
+        tablePages.invalidateTotals();
         // Yeni kayıt veya full update için kullanılabilir
         return repo.save(product);
     }
@@ -57,6 +66,7 @@ public class ProductService {
 
     @Transactional
     public void delete(Long id) {
+        tablePages.invalidateTotals();
         // Önce var mı kontrol et
         if (!repo.existsById(id)) {
             throw new EntityNotFoundException("Product bulunamadı: " + id);
@@ -66,6 +76,7 @@ public class ProductService {
         // alt tabloları manuel silmeye gerek yoktur. JPA bunu yönetir.
         // Eğer cascade yoksa, bu yaklaşım DataIntegrityViolationException fırlatacaktır.
         try {
+            forgetLvdts(List.of(id));
             repo.deleteById(id);
         } catch (DataIntegrityViolationException ex) {
             // İlişkiler yüzünden silinemiyorsa anlaşılır mesaj
@@ -74,6 +85,7 @@ public class ProductService {
     }
     @Transactional
     public void bulkDeleteProducts(List<Long> ids) {
+        tablePages.invalidateTotals();
         if (ids == null || ids.isEmpty()) return;
 
         // null ve tekrarları temizle
@@ -85,9 +97,17 @@ public class ProductService {
 
         // ÖNEMLİ: ON DELETE CASCADE aktif olduğu için alt tablolar otomatik silinir.
         // Toplu ve hızlı silme:
+        forgetLvdts(distinct);
         repo.deleteAllByIdInBatch(distinct);
     }
 
+    // CASCADE ile silinecek plates satırlarının LVDT'lerini indeksten düş (commit sonrası)
+    private void forgetLvdts(List<Long> productIds) {
+        for (var plate : platesRepo.findAllById(productIds)) {
+            if (plate.getLvdt() != null) lvdtIndex.removeAfterCommit(plate.getLvdt());
+        }
+    }
+
     @org.springframework.transaction.annotation.Transactional(readOnly = true)
     public java.util.List<com.example.uretimveri.model.Product> getRecentProducts(int limit) {
         int size = Math.max(1, Math.min(limit, 50));        // 1..50 aralığına sabitle
@@ -0,0 +1,118 @@
+package com.example.uretimveri.service;
+
+import com.example.uretimveri.ocr.LvdtReading;
+import com.example.uretimveri.ocr.OcrApiResponse;
+import com.example.uretimveri.ocr.OcrItem;
+import com.example.uretimveri.ocr.RecognizeUiItem;
+import com.example.uretimveri.ocr.RecognizeUiResponse;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+// Python cevabını (OcrApiResponse) ekranın kullandığı RecognizeUiResponse'a çevirir.
+// Senkron recognize ve job API aynı dönüşümü kullanır. Görseller (Python'un işaretli çıktısı, satır içi
+// base64 öğe görselleri) SlabImageStore'a alınır, cevapta /api/slabs/images/{hash} URL'si taşınır.
+@Component
+public class RecognizeUiMapper {
+
+    private final LvdtIndex lvdtIndex;
+    private final LvdtSuggester suggester;
+    private final LvdtParser parser;
+    private final SlabImageStore images;
+    private final OcrResponseDecoder decoder;
+    private final boolean imagesEnabled;
+
+    public RecognizeUiMapper(LvdtIndex lvdtIndex, LvdtSuggester suggester, LvdtParser parser,
+                             SlabImageStore images, OcrResponseDecoder decoder,
+                             @Value("${ocr.images.enabled:true}") boolean imagesEnabled) {
+        this.lvdtIndex = lvdtIndex;
+        this.suggester = suggester;
+        this.parser = parser;
+        this.images = images;
+        this.decoder = decoder;
+        this.imagesEnabled = imagesEnabled;
+    }
+
+    public RecognizeUiResponse toUi(OcrApiResponse py) {
+        List<RecognizeUiItem> items = new ArrayList<>();
+        if (py != null && py.getItems() != null) {
+            for (OcrItem it : py.getItems()) {
+                RecognizeUiItem ui = toUiItem(it);
+                if (ui != null) items.add(ui);
+            }
+        }
+
+        RecognizeUiResponse out = new RecognizeUiResponse();
+        out.setJobId(py != null ? py.getJobId() : null);
+        out.setSourceImage(py != null ? py.getSourceImage() : null);
+        out.setImageUrl(py != null ? imageUrl(py.getSavedImage()) : null);
+        out.setDetectedCount(py != null && py.getCount() != null ? py.getCount() : items.size());
+        out.setItems(items);
+        return out;
+    }
+
+    /**
+     * toUi görselleri depoya yazar (base64 çözme, disk, spill dosyası okuma): reaktif zincirde Netty
+     * event loop'unu tutmaması için eşleme boundedElastic'te yapılır. Boş Mono boş kalır.
+     */
+    public Mono<RecognizeUiResponse> toUiAsync(Mono<OcrApiResponse> py) {
+        return py.publishOn(Schedulers.boundedElastic()).map(this::toUi);
+    }
+
+    // tek ROI; akış (SSE) her öğeyi geldiği anda buradan geçirir. Metni olmayan öğe null
+    public RecognizeUiItem toUiItem(OcrItem it) {
+        if (it == null || it.getText() == null) return null;
+        RecognizeUiItem ui = new RecognizeUiItem();
+        String url = imageUrl(it.getImage());
+        ui.setImage(url != null ? url : it.getImage());
+        ui.setRoiIndex(it.getRoiIndex());
+        ui.setText(it.getText());
+        // adaylar puana göre sıralı: ilk aday seçilen LVDT (10–18 hane öncelik), metin bir kez taranır
+        List<LvdtReading> readings = parser.candidates(it.getText());
+        ui.setLvdt(readings.isEmpty() ? null : readings.get(0).getLvdt());
+        ui.setReadings(readings);
+        annotate(ui);
+        return ui;
+    }
+
+    // her öğeye LVDT'nin kayıtlı product_id'sini yazar (indeksten O(1)),
+    // kayıtlı değilse yanlış okunmuş olabileceği yakın LVDT'leri ekler
+    public RecognizeUiResponse annotate(RecognizeUiResponse resp) {
+        if (resp == null || resp.getItems() == null) return resp;
+        resp.getItems().forEach(this::annotate);
+        return resp;
+    }
+
+    private void annotate(RecognizeUiItem it) {
+        long productId = it.getLvdt() != null ? lvdtIndex.find(it.getLvdt()) : LvdtIndex.NOT_FOUND;
+        boolean known = productId != LvdtIndex.NOT_FOUND;
+        it.setExistingProductId(known ? productId : null);
+        it.setCandidates(!known && it.getLvdt() != null && suggester.isEnabled()
+                ? suggester.suggest(it.getLvdt()) : null);
+    }
+
+    // depoya alınabilen görsel için URL; dosya adı gibi alınamayanlar için null
+    private String imageUrl(String value) {
+        if (!imagesEnabled || value == null) return null;
+        if (value.startsWith(OcrResponseDecoder.SPILL_PREFIX)) {
+            return decoder.spilled(value.substring(OcrResponseDecoder.SPILL_PREFIX.length())).map(p -> {
+                try {
+                    return SlabImageStore.url(images.ingestBase64(p));
+                } catch (IOException e) {
+                    return null; // görsel değil: spill bağlantısı kalır
+                }
+            }).orElse(null);
+        }
+        return images.ingest(value);
+    }
+
+    // --- yardımcı: metinden LVDT seçimi ---
+    public Long selectLvdt(String text) {
+        return parser.selectLvdt(text);
+    }
+}
@@ -0,0 +1,324 @@
+package com.example.uretimveri.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import javax.imageio.IIOImage;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReadParam;
+import javax.imageio.ImageReader;
+import javax.imageio.ImageWriteParam;
+import javax.imageio.ImageWriter;
+import javax.imageio.stream.ImageInputStream;
+import javax.imageio.stream.ImageOutputStream;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.SequenceInputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.security.DigestOutputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Base64;
+import java.util.HexFormat;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Optional;
+import java.util.regex.Pattern;
+
+// İçerik adresli görsel deposu: dosya adı içeriğin SHA-256'sı, aynı görsel bir kez yazılır.
+// Yazım geçici dosyaya akarken özet çıkarılır, sonra atomik taşınır (yarım dosya hiç görünmez).
+// Küçük resimler ilk istendiğinde üretilir ve yanına yazılır; genişlik thumb-widths'ten birine yuvarlanır,
+// böylece her görsel için en fazla o kadar varyant olur. Dosyalar değişmediği için ETag = özet.
+//   <dir>/ab/abcdef...            özgün
+//   <dir>/thumbs/320/ab/abcdef... 320 px genişlikte JPEG
+@Service
+@Slf4j
+public class SlabImageStore {
+
+    public static final String URL_PREFIX = "/api/slabs/images/";
+    private static final Pattern HASH = Pattern.compile("[0-9a-f]{64}");
+    private static final String DATA_URI = "data:";
+
+    private final Path dir;
+    private final Path pythonOutputDir;
+    private final long maxBytes;
+    private final int[] thumbWidths;
+    private final Object[] thumbLocks = new Object[32];
+
+    private final Counter storedNew;
+    private final Counter storedDuplicate;
+    private final Counter thumbnails;
+
+    public SlabImageStore(MeterRegistry registry,
+                          @Value("${ocr.images.dir:}") String dir,
+                          @Value("${ocr.images.python-output-dir:../ocr/outputs_jobs}") String pythonOutputDir,
+                          @Value("${ocr.images.max-bytes:33554432}") long maxBytes,
+                          @Value("${ocr.images.thumb-widths:160,320,640}") List<Integer> thumbWidths) {
+        this.dir = dir.isBlank()
+                ? Paths.get(System.getProperty("java.io.tmpdir"), "ocr-images")
+                : Paths.get(dir);
+        this.pythonOutputDir = pythonOutputDir.isBlank() ? null : Paths.get(pythonOutputDir).toAbsolutePath().normalize();
+        this.maxBytes = maxBytes;
+        this.thumbWidths = thumbWidths.stream().filter(w -> w != null && w > 0).mapToInt(Integer::intValue).sorted().distinct().toArray();
+        for (int i = 0; i < thumbLocks.length; i++) thumbLocks[i] = new Object();
+
+        this.storedNew = Counter.builder("ocr.images.stored").tag("result", "new")
+                .description("Depoya yazılan yeni görsel").register(registry);
+        this.storedDuplicate = Counter.builder("ocr.images.stored").tag("result", "duplicate")
+                .description("Zaten depoda olduğu için yazılmayan görsel").register(registry);
+        this.thumbnails = Counter.builder("ocr.images.thumbnails")
+                .description("İlk istekte üretilen küçük resim").register(registry);
+    }
+
+    public static boolean isHash(String s) {
+        return s != null && HASH.matcher(s).matches();
+    }
+
+    public static String url(String hash) {
+        return URL_PREFIX + hash;
+    }
+
+    /** Akışı depoya yazar, içerik özetini döner; aynı içerik zaten varsa yeniden yazılmaz */
+    public String put(InputStream in) throws IOException {
+        Files.createDirectories(dir);
+        Path tmp = Files.createTempFile(dir, ".put-", ".tmp");
+        try {
+            MessageDigest sha = sha256();
+            long size;
+            try (OutputStream out = new DigestOutputStream(Files.newOutputStream(tmp), sha)) {
+                size = copy(in, out);
+            }
+            String hash = HexFormat.of().formatHex(sha.digest());
+            Path target = original(hash);
+            if (Files.exists(target)) {
+                storedDuplicate.increment();
+                return hash;
+            }
+            Files.createDirectories(target.getParent());
+            try {
+                Files.move(tmp, target, StandardCopyOption.ATOMIC_MOVE);
+            } catch (FileAlreadyExistsException e) {
+                // aynı içerik aynı anda iki kez yazıldı; ilki kazanır
+                storedDuplicate.increment();
+                return hash;
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(tmp, target, StandardCopyOption.REPLACE_EXISTING);
+            }
+            storedNew.increment();
+            log.debug("Görsel depoya yazıldı: {} ({} bayt)", hash, size);
+            return hash;
+        } finally {
+            Files.deleteIfExists(tmp);
+        }
+    }
+
+    public String put(Path file) throws IOException {
+        try (InputStream in = Files.newInputStream(file)) {
+            return put(in);
+        }
+    }
+
+    /**
+     * OCR cevabındaki görsel alanını depo URL'sine çevirir: "data:image/...;base64," içerik
+     * ya da Python'un çıktı klasöründeki bir dosya yolu. Çevrilemiyorsa (dosya adı, klasör dışı yol,
+     * okunamayan dosya) null; çağıran özgün değeri bırakır. Dosya okur, bloklar.
+     */
+    public String ingest(String value) {
+        if (value == null || value.isBlank()) return null;
+        try {
+            if (value.startsWith(URL_PREFIX)) return value;
+            if (value.regionMatches(true, 0, DATA_URI, 0, DATA_URI.length())) {
+                int comma = value.indexOf(',');
+                if (comma < 0 || !value.substring(0, comma).endsWith(";base64")) return null;
+                return url(putImage(Base64.getMimeDecoder().wrap(new ByteArrayInputStream(
+                        value.substring(comma + 1).getBytes(StandardCharsets.US_ASCII)))));
+            }
+            Path p = pythonFile(value);
+            return p == null ? null : url(put(p));
+        } catch (IOException | IllegalArgumentException e) {
+            log.debug("Görsel depoya alınamadı: {} - {}", value.length() > 120 ? value.substring(0, 120) + "…" : value, e.getMessage());
+            return null;
+        }
+    }
+
+    /** Büyük base64 alanı (OcrResponseDecoder spill dosyası) String'e çevrilmeden çözülüp yazılır */
+    public String ingestBase64(Path textFile) throws IOException {
+        try (InputStream in = Files.newInputStream(textFile)) {
+            // olası "data:image/jpeg;base64," önekini atla
+            byte[] head = in.readNBytes(64);
+            String h = new String(head, StandardCharsets.US_ASCII);
+            int comma = h.regionMatches(true, 0, DATA_URI, 0, DATA_URI.length()) ? h.indexOf(',') : -1;
+            InputStream rest = new SequenceInputStream(
+                    new ByteArrayInputStream(head, comma + 1, head.length - comma - 1), in);
+            return putImage(Base64.getMimeDecoder().wrap(rest));
+        }
+    }
+
+    // çözülen baytlar görsel değilse (base64 olmayan metin) depoya yazılmaz
+    private String putImage(InputStream decoded) throws IOException {
+        BufferedInputStream in = new BufferedInputStream(decoded);
+        in.mark(16);
+        byte[] head = in.readNBytes(12);
+        in.reset();
+        if (!sniff(head, head.length).startsWith("image/")) throw new IOException("Görsel değil");
+        return put(in);
+    }
+
+    public Optional<Path> find(String hash) {
+        if (!isHash(hash)) return Optional.empty();
+        Path p = original(hash);
+        return Files.isRegularFile(p) ? Optional.of(p) : Optional.empty();
+    }
+
+    /** İstenen genişliğe en yakın (büyük ya da eşit) izinli genişlik; istenen en büyükten de büyükse en büyük */
+    public int snapWidth(int requested) {
+        if (thumbWidths.length == 0) return 0;
+        for (int w : thumbWidths) if (w >= requested) return w;
+        return thumbWidths[thumbWidths.length - 1];
+    }
+
+    /** Küçük resim; yoksa üretilir. Özgün zaten o genişlikten darsa özgün döner. */
+    public Optional<Path> thumbnail(String hash, int width) throws IOException {
+        Optional<Path> src = find(hash);
+        if (src.isEmpty() || width <= 0) return src;
+        Path thumb = dir.resolve("thumbs").resolve(Integer.toString(width)).resolve(hash.substring(0, 2)).resolve(hash);
+        if (Files.isRegularFile(thumb)) return Optional.of(thumb);
+
+        synchronized (thumbLocks[Math.floorMod(hash.hashCode() ^ width, thumbLocks.length)]) {
+            if (Files.isRegularFile(thumb)) return Optional.of(thumb);
+            BufferedImage img = readScaled(src.get(), width);
+            if (img == null) return src; // görsel değil, okunamadı ya da zaten dar: özgünü ver
+            Files.createDirectories(thumb.getParent());
+            Path tmp = Files.createTempFile(thumb.getParent(), ".thumb-", ".tmp");
+            try {
+                writeJpeg(img, tmp);
+                Files.move(tmp, thumb, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            } finally {
+                Files.deleteIfExists(tmp);
+            }
+            thumbnails.increment();
+            return Optional.of(thumb);
+        }
+    }
+
+    /** Baştaki sihirli baytlara göre içerik türü */
+    public static String contentType(Path file) throws IOException {
+        byte[] h = new byte[12];
+        int n;
+        try (InputStream in = Files.newInputStream(file)) {
+            n = in.readNBytes(h, 0, h.length);
+        }
+        return sniff(h, n);
+    }
+
+    private static String sniff(byte[] h, int n) {
+        if (n >= 3 && (h[0] & 0xff) == 0xFF && (h[1] & 0xff) == 0xD8 && (h[2] & 0xff) == 0xFF) return "image/jpeg";
+        if (n >= 8 && (h[0] & 0xff) == 0x89 && h[1] == 'P' && h[2] == 'N' && h[3] == 'G') return "image/png";
+        if (n >= 4 && h[0] == 'G' && h[1] == 'I' && h[2] == 'F') return "image/gif";
+        if (n >= 2 && h[0] == 'B' && h[1] == 'M') return "image/bmp";
+        if (n >= 12 && h[0] == 'R' && h[1] == 'I' && h[2] == 'F' && h[3] == 'F'
+                && h[8] == 'W' && h[9] == 'E' && h[10] == 'B' && h[11] == 'P') return "image/webp";
+        if (n >= 4 && ((h[0] == 'I' && h[1] == 'I' && h[2] == 42) || (h[0] == 'M' && h[1] == 'M' && h[3] == 42))) return "image/tiff";
+        return "application/octet-stream";
+    }
+
+    // --- yardımcılar ---
+
+    private Path original(String hash) {
+        return dir.resolve(hash.substring(0, 2)).resolve(hash);
+    }
+
+    // Python'un çıktı klasörü altındaki mevcut dosya; klasör dışına çıkan yollar kabul edilmez
+    private Path pythonFile(String value) {
+        if (pythonOutputDir == null || value.length() > 4096) return null;
+        Path p;
+        try {
+            p = Paths.get(value);
+        } catch (RuntimeException e) {
+            return null;
+        }
+        if (!p.isAbsolute()) return null;
+        p = p.normalize();
+        return p.startsWith(pythonOutputDir) && Files.isRegularFile(p) ? p : null;
+    }
+
+    // büyük görselde ImageIO alt örneklemesiyle (satır/sütun atlayarak) okunur, sonra yumuşak ölçeklenir
+    private BufferedImage readScaled(Path file, int width) throws IOException {
+        try (ImageInputStream in = ImageIO.createImageInputStream(file.toFile())) {
+            Iterator<ImageReader> readers = in == null ? null : ImageIO.getImageReaders(in);
+            if (readers == null || !readers.hasNext()) return null;
+            ImageReader reader = readers.next();
+            try {
+                reader.setInput(in, true, true);
+                int w = reader.getWidth(0);
+                int h = reader.getHeight(0);
+                if (w <= width) return null;
+                ImageReadParam param = reader.getDefaultReadParam();
+                int step = Math.max(1, w / (width * 2)); // hedefin en az iki katı çözünürlükte oku
+                if (step > 1) param.setSourceSubsampling(step, step, 0, 0);
+                BufferedImage src = reader.read(0, param);
+                int th = Math.max(1, (int) Math.round((double) h * width / w));
+                BufferedImage out = new BufferedImage(width, th, BufferedImage.TYPE_INT_RGB);
+                Graphics2D g = out.createGraphics();
+                try {
+                    g.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+                    g.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+                    g.drawImage(src, 0, 0, width, th, null);
+                } finally {
+                    g.dispose();
+                }
+                return out;
+            } finally {
+                reader.dispose();
+            }
+        }
+    }
+
+    private static void writeJpeg(BufferedImage img, Path target) throws IOException {
+        ImageWriter writer = ImageIO.getImageWritersByFormatName("jpeg").next();
+        try (ImageOutputStream out = ImageIO.createImageOutputStream(target.toFile())) {
+            writer.setOutput(out);
+            ImageWriteParam param = writer.getDefaultWriteParam();
+            param.setCompressionMode(ImageWriteParam.MODE_EXPLICIT);
+            param.setCompressionQuality(0.85f);
+            writer.write(null, new IIOImage(img, null, null), param);
+        } finally {
+            writer.dispose();
+        }
+    }
+
+    private long copy(InputStream in, OutputStream out) throws IOException {
+        byte[] buf = new byte[64 * 1024];
+        long total = 0;
+        int n;
+        while ((n = in.read(buf)) > 0) {
+            total += n;
+            if (total > maxBytes) throw new IOException("Görsel " + maxBytes + " baytı aşıyor");
+            out.write(buf, 0, n);
+        }
+        return total;
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -0,0 +1,240 @@
+package com.example.uretimveri.service;
+
+import com.example.uretimveri.dto.DataTablesRequest;
+import com.example.uretimveri.dto.DataTablesResponse;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+// Ürün tablolarının DataTables sunucu tarafı sayfalaması (/api/{tablo}/page).
+// Tek sorgu sadece istenen sayfanın satırlarını okur: önce alt sorguda PK indeksi üzerinden sayfanın
+// anahtarları seçilir (OFFSET satırları tam satır okunmadan atlanır), sonra yalnız o satırlar products ile
+// birleştirilir. Varlık (entity) kurulmaz, sadece ekrandaki kolonlar döner.
+// Süreyi tablo boyundan bağımsız tutmak için:
+//  - sıralama yalnız indeksli kolonlarda: productId, lvdt; createdAt ekleme sırasıdır, PK ile sıralanır
+//  - arama: sayıysa productId / lvdt'de önek (indeks üzerinde aralıklar), metinse products metin kolonlarında
+//    önek (LIKE 'x%'); alt tablolarda metin araması için alt sorgu products ile birleştirilir
+//  - recordsTotal COUNT(*) sonucu count-cache-ttl boyunca önbellekte, bu örnekteki yazımlarda (commit sonrası)
+//    düşülür; aramada recordsFiltered count-cap'te kesilir
+@Service
+public class TablePageService {
+
+    private enum Kind { LONG, INT, DOUBLE, TEXT, TIMESTAMP }
+
+    /** key: JSON alanı; sortExpr null ise sıralanamaz; numeric: sayısal aramada önek (indeksli kolon) */
+    private record Column(String key, String expr, Kind kind, String sortExpr, boolean numeric) {}
+
+    /** textSearch: metin aramasında önek aranan products kolonları (p.* ise alt sorguya birleşim gerekir) */
+    private record Table(String name, String from, List<Column> columns, List<String> textSearch) {}
+
+    private record Filter(String from, String where, List<Object> args) {}
+
+    private record CachedCount(long value, long expiresAt) {}
+
+    private static final String PK = "t.product_id";
+    private static final int MAX_DIGITS = 18; // LVDT en fazla 18 hane; aralık üst sınırı long'a sığar
+    private static final Map<String, Table> TABLES = new LinkedHashMap<>();
+
+    static {
+        Column productId = new Column("productId", PK, Kind.LONG, PK, true);
+        // created_at ekleme anında DB'de atanır ve değişmez: AUTO_INCREMENT PK ile aynı sırada
+        Column createdAtOwn = new Column("createdAt", "t.created_at", Kind.TIMESTAMP, PK, false);
+        Column createdAt = new Column("createdAt", "p.created_at", Kind.TIMESTAMP, PK, false);
+        String withProduct = " t JOIN products p ON p.product_id = t.product_id";
+        List<String> productText = List.of("p.provider", "p.product_type", "p.material", "p.status");
+
+        add(new Table("products", "products t", List.of(productId,
+                new Column("provider", "t.provider", Kind.TEXT, null, false),
+                new Column("productType", "t.product_type", Kind.TEXT, null, false),
+                new Column("material", "t.material", Kind.TEXT, null, false),
+                new Column("status", "t.status", Kind.TEXT, null, false),
+                createdAtOwn),
+                List.of("t.provider", "t.product_type", "t.material", "t.status")));
+        add(new Table("cold_coil", "cold_coil" + withProduct, List.of(productId,
+                new Column("loadCell", "t.load_cell", Kind.INT, null, false),
+                new Column("irPiro", "t.ir_piro", Kind.INT, null, false),
+                new Column("termokup", "t.termokup", Kind.INT, null, false),
+                createdAt), productText));
+        add(new Table("hot_coil", "hot_coil" + withProduct, List.of(productId,
+                new Column("lazerDistance", "t.lazer_distance", Kind.DOUBLE, null, false),
+                new Column("irPiro", "t.ir_piro", Kind.DOUBLE, null, false),
+                new Column("pressureValue", "t.pressure_value", Kind.DOUBLE, null, false),
+                createdAt), productText));
+        add(new Table("plates", "plates" + withProduct, List.of(productId,
+                new Column("speedValue", "t.speed_value", Kind.INT, null, false),
+                new Column("pressureValue", "t.pressure_value", Kind.INT, null, false),
+                new Column("lvdt", "t.lvdt", Kind.LONG, "t.lvdt", true), // uk_plates_lvdt
+                createdAt), productText));
+    }
+
+    private static void add(Table t) {
+        TABLES.put(t.name(), t);
+    }
+
+    private final JdbcTemplate jdbc;
+    private final int maxLength;
+    private final long countTtlMillis;
+    private final int countCap;
+    private final Map<String, CachedCount> totals = new ConcurrentHashMap<>();
+
+    public TablePageService(JdbcTemplate jdbc,
+                            @Value("${table.page.max-length:500}") int maxLength,
+                            @Value("${table.page.count-cache-ttl:30s}") Duration countTtl,
+                            @Value("${table.page.count-cap:10000}") int countCap) {
+        this.jdbc = jdbc;
+        this.maxLength = Math.max(1, maxLength);
+        this.countTtlMillis = countTtl.toMillis();
+        this.countCap = Math.max(1, countCap);
+    }
+
+    public DataTablesResponse<Map<String, Object>> page(String tableName, DataTablesRequest req) {
+        Table table = TABLES.get(tableName);
+        if (table == null) throw new IllegalArgumentException("Bilinmeyen tablo: " + tableName);
+
+        Filter filter = filter(table, req.getSearch());
+        String order = orderBy(table, req.getOrder());
+        int length = req.getLength() <= 0 ? maxLength : Math.min(req.getLength(), maxLength);
+
+        StringBuilder select = new StringBuilder("SELECT ");
+        for (int i = 0; i < table.columns().size(); i++) {
+            if (i > 0) select.append(", ");
+            select.append(table.columns().get(i).expr());
+        }
+        String sql = select + " FROM " + table.from()
+                + " JOIN (SELECT " + PK + " AS k FROM " + filter.from() + filter.where() + order
+                + " LIMIT ? OFFSET ?) pg ON pg.k = " + PK
+                + order;
+        List<Object> pageArgs = new ArrayList<>(filter.args());
+        pageArgs.add(length);
+        pageArgs.add(req.getStart());
+        List<Map<String, Object>> rows = jdbc.query(sql, (rs, n) -> row(table, rs), pageArgs.toArray());
+
+        long total = total(table);
+        long filtered = req.getSearch() == null ? total : jdbc.queryForObject(
+                "SELECT COUNT(*) FROM (SELECT 1 FROM " + filter.from() + filter.where() + " LIMIT " + countCap + ") c",
+                Long.class, filter.args().toArray());
+
+        DataTablesResponse<Map<String, Object>> resp = new DataTablesResponse<>();
+        resp.setDraw(req.getDraw());
+        resp.setRecordsTotal(total);
+        resp.setRecordsFiltered(filtered);
+        resp.setData(rows);
+        return resp;
+    }
+
+    // --- SQL parçaları ---
+
+    // Sıralama ve sayısal arama tablonun kendi kolonlarına (t.*) bakar: alt sorguda products birleşimi gerekmez.
+    // Alt tablolarda metin araması products kolonlarında olduğu için o durumda alt sorgu da birleşir.
+    private static Filter filter(Table table, String search) {
+        String base = table.name() + " t";
+        if (search == null) return new Filter(base, "", List.of());
+
+        List<String> terms = new ArrayList<>();
+        List<Object> args = new ArrayList<>();
+        boolean numeric = search.length() <= MAX_DIGITS && search.chars().allMatch(Character::isDigit)
+                && (search.length() == 1 || search.charAt(0) != '0');
+        if (numeric) {
+            for (Column c : table.columns()) {
+                if (c.numeric()) numericPrefix(c.expr(), search, terms, args);
+            }
+        }
+        boolean join = table.textSearch().stream().anyMatch(e -> !e.startsWith("t."));
+        // sayısal aramada birleşimli OR indeks aralıklarını kullanamaz: metin önekine sadece tablo kendi
+        // kolonlarını taşıyorsa (products) bakılır
+        if (numeric && join) return new Filter(base, " WHERE (" + String.join(" OR ", terms) + ")", args);
+
+        String prefix = search.replace("\\", "\\\\").replace("%", "\\%").replace("_", "\\_") + "%";
+        for (String expr : table.textSearch()) {
+            terms.add(expr + " LIKE ?");
+            args.add(prefix);
+        }
+        return new Filter(join ? table.from() : base, " WHERE (" + String.join(" OR ", terms) + ")", args);
+    }
+
+    // "2024" → = 2024, [20240, 20250), [202400, 202500), ... MAX_DIGITS haneye kadar: her biri indekste aralık
+    private static void numericPrefix(String expr, String digits, List<String> terms, List<Object> args) {
+        long lo = Long.parseLong(digits);
+        terms.add(expr + " = ?");
+        args.add(lo);
+        if (lo == 0) return;
+        long hi = lo + 1;
+        for (int n = digits.length() + 1; n <= MAX_DIGITS; n++) {
+            lo *= 10;
+            hi *= 10;
+            terms.add("(" + expr + " >= ? AND " + expr + " < ?)");
+            args.add(lo);
+            args.add(hi);
+        }
+    }
+
+    private static String orderBy(Table table, List<DataTablesRequest.Order> order) {
+        List<String> parts = new ArrayList<>();
+        boolean pk = false;
+        for (DataTablesRequest.Order o : order) {
+            Column c = table.columns().stream().filter(x -> x.key().equals(o.column())).findFirst().orElse(null);
+            if (c == null || c.sortExpr() == null) continue;
+            if (c.sortExpr().equals(PK)) {
+                if (pk) continue;
+                pk = true;
+            }
+            parts.add(c.sortExpr() + (o.ascending() ? " ASC" : " DESC"));
+        }
+        if (!pk) parts.add(PK + " ASC"); // sayfalar arası kararlı sıra
+        return " ORDER BY " + String.join(", ", parts);
+    }
+
+    /**
+     * Kayıt ekleyen/silen yazımlardan sonra çağrılır: önbellekteki recordsTotal'lar commit sonrasında (işlem
+     * yoksa hemen) düşülür. Alt tablo yazımı products sayısını da değiştirdiği için hepsi birden temizlenir.
+     * Başka örneklerin ya da doğrudan DB'nin yazımları count-cache-ttl sonunda görünür.
+     */
+    public void invalidateTotals() {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() { totals.clear(); }
+            });
+        } else {
+            totals.clear();
+        }
+    }
+
+    private long total(Table table) {
+        long now = System.currentTimeMillis();
+        CachedCount c = totals.get(table.name());
+        if (c != null && c.expiresAt() > now) return c.value();
+        Long n = jdbc.queryForObject("SELECT COUNT(*) FROM " + table.name(), Long.class);
+        long value = n == null ? 0 : n;
+        totals.put(table.name(), new CachedCount(value, now + countTtlMillis));
+        return value;
+    }
+
+    private static Map<String, Object> row(Table table, ResultSet rs) throws SQLException {
+        Map<String, Object> out = new LinkedHashMap<>();
+        int i = 1;
+        for (Column c : table.columns()) {
+            Object v = switch (c.kind()) {
+                case LONG -> rs.getLong(i);
+                case INT -> rs.getInt(i);
+                case DOUBLE -> rs.getDouble(i);
+                case TEXT -> rs.getString(i);
+                case TIMESTAMP -> rs.getTimestamp(i);
+            };
+            out.put(c.key(), rs.wasNull() ? null : v);
+            i++;
+        }
+        return out;
+    }
+}
@@ -0,0 +1,26 @@
+package com.example.uretimveri.config;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.util.unit.DataSize;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MultipartConfigTest {
+
+    @Test
+    void derivesRequestLimitFromBatchFilesAndFileSize() {
+        DataSize limit = MultipartConfig.maxRequestSize(DataSize.ofMegabytes(20), 10, "");
+        assertEquals(DataSize.ofMegabytes(201), limit);
+        assertEquals(DataSize.ofMegabytes(41), MultipartConfig.maxRequestSize(DataSize.ofMegabytes(20), 2, null));
+    }
+
+    @Test
+    void explicitRequestLimitWins() {
+        assertEquals(DataSize.ofMegabytes(50), MultipartConfig.maxRequestSize(DataSize.ofMegabytes(20), 10, "50MB"));
+    }
+
+    @Test
+    void rejectsNonPositiveFileCount() {
+        assertThrows(IllegalStateException.class, () -> MultipartConfig.maxRequestSize(DataSize.ofMegabytes(20), 0, ""));
+    }
+}
@@ -0,0 +1,134 @@
+package com.example.uretimveri.config;
+
+import com.example.uretimveri.repository.UserRepository;
+import jakarta.servlet.http.Cookie;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Import;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.config.annotation.web.configuration.EnableWebSecurity;
+import org.springframework.security.web.csrf.CsrfToken;
+import org.springframework.security.web.csrf.DefaultCsrfToken;
+import org.springframework.security.web.csrf.XorCsrfTokenRequestAttributeHandler;
+import org.springframework.test.context.junit.jupiter.web.SpringJUnitWebConfig;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.WebApplicationContext;
+import org.springframework.web.servlet.config.annotation.EnableWebMvc;
+
+import java.lang.reflect.Proxy;
+
+import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.user;
+import static org.springframework.security.test.web.servlet.setup.SecurityMockMvcConfigurers.springSecurity;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+// Gerçek SecurityConfig filtre zinciri, uçların yerine sabit cevap dönen bir probe controller ile.
+// Uygulama sınıfındaki JPA kurulumu yüklenmesin diye Boot yerine düz bir web context kullanılır.
+@SpringJUnitWebConfig(SecurityConfigCsrfTest.Config.class)
+class SecurityConfigCsrfTest {
+
+    private static final String JSON = "application/json";
+
+    @Configuration
+    @EnableWebMvc
+    @EnableWebSecurity
+    @Import(SecurityConfig.class)
+    static class Config {
+        @Bean
+        UserRepository userRepository() {
+            return (UserRepository) Proxy.newProxyInstance(UserRepository.class.getClassLoader(),
+                    new Class<?>[]{UserRepository.class}, (p, m, a) -> switch (m.getName()) {
+                        case "hashCode" -> System.identityHashCode(p);
+                        case "equals" -> p == a[0];
+                        case "toString" -> "UserRepository(test)";
+                        default -> throw new UnsupportedOperationException(m.getName());
+                    });
+        }
+
+        @Bean
+        Probe probe() {
+            return new Probe();
+        }
+    }
+
+    @RestController
+    static class Probe {
+        @PostMapping({"/api/slabs/recognize/stream", "/api/slabs/jobs", "/api/slabs/recognize-batch"})
+        String ok() {
+            return "ok";
+        }
+    }
+
+    @Autowired
+    WebApplicationContext context;
+
+    MockMvc mvc;
+
+    @BeforeEach
+    void setUp() {
+        mvc = MockMvcBuilders.webAppContextSetup(context).apply(springSecurity()).build();
+    }
+
+    // Sayfa render edilirken _csrf.token'ın aldığı değer (her çağrıda farklı maske)
+    private static String masked(String raw) {
+        MockHttpServletRequest req = new MockHttpServletRequest();
+        new XorCsrfTokenRequestAttributeHandler().handle(req, new MockHttpServletResponse(),
+                () -> new DefaultCsrfToken("X-XSRF-TOKEN", "_csrf", raw));
+        return ((CsrfToken) req.getAttribute(CsrfToken.class.getName())).getToken();
+    }
+
+    @Test
+    void streamAcceptsRawCookieToken() throws Exception {
+        // img2data.html fallback'i: XSRF-TOKEN çerezindeki ham değer X-XSRF-TOKEN başlığında
+        mvc.perform(post("/api/slabs/recognize/stream").with(user("op").roles("OPERATOR"))
+                        .cookie(new Cookie("XSRF-TOKEN", "raw-token"))
+                        .header("X-XSRF-TOKEN", "raw-token").accept(JSON))
+                .andExpect(status().isOk());
+    }
+
+    @Test
+    void streamAcceptsMaskedPageToken() throws Exception {
+        // _csrf meta etiketine basılan XOR maskeli token
+        mvc.perform(post("/api/slabs/recognize/stream").with(user("op").roles("OPERATOR"))
+                        .cookie(new Cookie("XSRF-TOKEN", "raw-token"))
+                        .header("X-XSRF-TOKEN", masked("raw-token")).accept(JSON))
+                .andExpect(status().isOk());
+    }
+
+    @Test
+    void batchAcceptsCookieTokenAndRejectsMissingToken() throws Exception {
+        mvc.perform(post("/api/slabs/recognize-batch").with(user("op").roles("OPERATOR"))
+                        .cookie(new Cookie("XSRF-TOKEN", "raw-token"))
+                        .header("X-XSRF-TOKEN", "raw-token").accept(JSON))
+                .andExpect(status().isOk());
+        mvc.perform(post("/api/slabs/recognize-batch").with(user("op").roles("OPERATOR")).accept(JSON))
+                .andExpect(status().isForbidden());
+    }
+
+    @Test
+    void jobsAcceptCookieTokenAndRejectMissingToken() throws Exception {
+        mvc.perform(post("/api/slabs/jobs").with(user("op").roles("OPERATOR"))
+                        .cookie(new Cookie("XSRF-TOKEN", "raw-token"))
+                        .header("X-XSRF-TOKEN", "raw-token").accept(JSON))
+                .andExpect(status().isOk());
+        mvc.perform(post("/api/slabs/jobs").with(user("op").roles("OPERATOR")).accept(JSON))
+                .andExpect(status().isForbidden());
+    }
+
+    @Test
+    void streamRejectsMissingOrForeignToken() throws Exception {
+        mvc.perform(post("/api/slabs/recognize/stream").with(user("op").roles("OPERATOR")).accept(JSON))
+                .andExpect(status().isForbidden());
+        mvc.perform(post("/api/slabs/recognize/stream").with(user("op").roles("OPERATOR"))
+                        .cookie(new Cookie("XSRF-TOKEN", "raw-token"))
+                        .header("X-XSRF-TOKEN", "other-token").accept(JSON))
+                .andExpect(status().isForbidden());
+    }
+}
@@ -0,0 +1,208 @@
+package com.example.uretimveri.controller;
+
+import com.example.uretimveri.ocr.OcrApiResponse;
+import com.example.uretimveri.service.HttpOcrEngine;
+import com.example.uretimveri.service.ImagePreprocessor;
+import com.example.uretimveri.service.LvdtParser;
+import com.example.uretimveri.service.OcrCallGuard;
+import com.example.uretimveri.service.OcrHistoryStore;
+import com.example.uretimveri.service.OcrMicroBatcher;
+import com.example.uretimveri.service.OcrReplicaPool;
+import com.example.uretimveri.service.OcrResponseDecoder;
+import com.example.uretimveri.service.OcrResultCache;
+import com.example.uretimveri.service.OcrService;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sun.net.httpserver.HttpServer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.servlet.MultipartConfigElement;
+import jakarta.servlet.ServletRegistration;
+import org.apache.coyote.AbstractProtocol;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.web.embedded.tomcat.TomcatServletWebServerFactory;
+import org.springframework.boot.web.server.WebServer;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestPart;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.support.AnnotationConfigWebApplicationContext;
+import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.reactive.function.client.WebClient;
+import org.springframework.web.servlet.DispatcherServlet;
+import org.springframework.web.servlet.config.annotation.EnableWebMvc;
+import reactor.core.publisher.Mono;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// Tomcat thread sayısı kısıtlıyken Mono dönen tanıma ucu, block() eden eşdeğerinden daha çok isteği
+// aynı anda Python'a taşıyabilmeli (mvn test -Pperf). Yavaş /process yerel stub'dır; servis zinciri gerçektir.
+@Tag("perf")
+class OcrRecognizeLoadTest {
+
+    private static final int TOMCAT_THREADS = 4;
+    private static final int REQUESTS = 16;
+    private static final Duration INFERENCE = Duration.ofMillis(400);
+    private static final String BOUNDARY = "load-test-boundary";
+
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final AtomicInteger peak = new AtomicInteger();
+    private HttpServer python;
+    private WebServer tomcat;
+    private String base;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        python = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        python.setExecutor(Executors.newCachedThreadPool());
+        python.createContext("/process", ex -> {
+            ex.getRequestBody().readAllBytes();
+            peak.accumulateAndGet(inFlight.incrementAndGet(), Math::max);
+            try {
+                Thread.sleep(INFERENCE.toMillis());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } finally {
+                inFlight.decrementAndGet();
+            }
+            byte[] body = "{\"job_id\":\"j\",\"source_image\":\"a.jpg\",\"count\":0,\"items\":[]}"
+                    .getBytes(StandardCharsets.UTF_8);
+            ex.getResponseHeaders().add("Content-Type", "application/json");
+            ex.sendResponseHeaders(200, body.length);
+            try (OutputStream out = ex.getResponseBody()) {
+                out.write(body);
+            }
+        });
+        python.start();
+        OcrService service = service("http://127.0.0.1:" + python.getAddress().getPort());
+
+        TomcatServletWebServerFactory factory = new TomcatServletWebServerFactory(0);
+        factory.addConnectorCustomizers(c -> ((AbstractProtocol<?>) c.getProtocolHandler()).setMaxThreads(TOMCAT_THREADS));
+        tomcat = factory.getWebServer(servletContext -> {
+            AnnotationConfigWebApplicationContext context = new AnnotationConfigWebApplicationContext();
+            context.register(Config.class);
+            context.addBeanFactoryPostProcessor(bf -> bf.registerSingleton("probe", new Probe(service)));
+            ServletRegistration.Dynamic reg = servletContext.addServlet("dispatcher", new DispatcherServlet(context));
+            reg.setAsyncSupported(true);
+            reg.setLoadOnStartup(1);
+            reg.setMultipartConfig(new MultipartConfigElement(""));
+            reg.addMapping("/");
+        });
+        tomcat.start();
+        base = "http://127.0.0.1:" + tomcat.getPort();
+    }
+
+    @AfterEach
+    void tearDown() {
+        if (tomcat != null) tomcat.stop();
+        if (python != null) python.stop(0);
+    }
+
+    @Configuration
+    @EnableWebMvc
+    static class Config {
+    }
+
+    // OcrController.recognize'ın iki biçimi: Mono döndüren (async) ve eski block() eden
+    @RestController
+    static class Probe {
+        private final OcrService service;
+
+        Probe(OcrService service) {
+            this.service = service;
+        }
+
+        @PostMapping("/mono")
+        Mono<OcrApiResponse> mono(@RequestPart("file") MultipartFile file) {
+            return service.recognize(file);
+        }
+
+        @PostMapping("/block")
+        OcrApiResponse block(@RequestPart("file") MultipartFile file) {
+            return service.recognize(file).block();
+        }
+    }
+
+    @Test
+    void monoEndpointHoldsMoreConcurrentRequestsThanBlockingBaseline() throws Exception {
+        HttpClient client = HttpClient.newBuilder().executor(Executors.newCachedThreadPool()).build();
+        run(client, "/mono", 4); // ısınma
+        run(client, "/block", 4);
+
+        long blockMillis = run(client, "/block", REQUESTS);
+        int blockPeak = peak.getAndSet(0);
+        long monoMillis = run(client, "/mono", REQUESTS);
+        int monoPeak = peak.getAndSet(0);
+
+        System.out.printf("%d istek, %d Tomcat thread'i, %d ms çıkarım: block %d ms (eşzamanlı %d), mono %d ms (eşzamanlı %d)%n",
+                REQUESTS, TOMCAT_THREADS, INFERENCE.toMillis(), blockMillis, blockPeak, monoMillis, monoPeak);
+        assertTrue(blockPeak <= TOMCAT_THREADS, "block() Tomcat thread'inden fazla çağrı taşıyamaz: " + blockPeak);
+        assertTrue(monoPeak >= 3 * TOMCAT_THREADS, "Mono ucu thread sayısıyla sınırlı kaldı: " + monoPeak);
+        assertTrue(monoMillis * 2 < blockMillis, "mono " + monoMillis + " ms, block " + blockMillis + " ms");
+    }
+
+    // tüm istekler aynı anda; her dosya farklı içerik (önbellek/birleştirme devreye girmesin)
+    private long run(HttpClient client, String path, int requests) {
+        peak.set(0);
+        long start = System.nanoTime();
+        List<CompletableFuture<HttpResponse<String>>> calls = new ArrayList<>();
+        for (int i = 0; i < requests; i++) {
+            HttpRequest req = HttpRequest.newBuilder(URI.create(base + path))
+                    .header("Content-Type", "multipart/form-data; boundary=" + BOUNDARY)
+                    .timeout(Duration.ofSeconds(30))
+                    .POST(HttpRequest.BodyPublishers.ofByteArray(multipart(path + i)))
+                    .build();
+            calls.add(client.sendAsync(req, HttpResponse.BodyHandlers.ofString()));
+        }
+        for (CompletableFuture<HttpResponse<String>> call : calls) {
+            HttpResponse<String> r = call.join();
+            assertEquals(200, r.statusCode(), r.body());
+        }
+        return (System.nanoTime() - start) / 1_000_000;
+    }
+
+    private static byte[] multipart(String content) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        out.writeBytes(("--" + BOUNDARY + "\r\n"
+                + "Content-Disposition: form-data; name=\"file\"; filename=\"a.jpg\"\r\n"
+                + "Content-Type: image/jpeg\r\n\r\n" + content + "\r\n"
+                + "--" + BOUNDARY + "--\r\n").getBytes(StandardCharsets.US_ASCII));
+        return out.toByteArray();
+    }
+
+    private static OcrService service(String pythonBase) {
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        WebClient client = WebClient.create();
+        OcrResponseDecoder decoder = new OcrResponseDecoder(new ObjectMapper(), registry, 65536, "", Duration.ofMinutes(30));
+        OcrResultCache cache = new OcrResultCache(new ObjectMapper(), decoder, registry, false, 10, 1 << 20,
+                Duration.ofMinutes(1), Duration.ofDays(1), "");
+        OcrCallGuard guard = new OcrCallGuard(registry, Duration.ofSeconds(10), 4 * REQUESTS, 10, 5, 0.5,
+                Duration.ofSeconds(1), 0, Duration.ofMillis(10), 0.2, 10,
+                Duration.ofSeconds(100), Duration.ofSeconds(120));
+        OcrReplicaPool pool = new OcrReplicaPool(client, registry, pythonBase, Duration.ZERO, 2, false, 1);
+        ImagePreprocessor pre = new ImagePreprocessor(registry, false, 1600, false, "", 0.85f, 64, 0);
+        OcrHistoryStore history = new OcrHistoryStore(null, new ObjectMapper(), new LvdtParser(10, 18, List.of(), List.of()),
+                registry, false, 10, 10, Duration.ofSeconds(1), OcrHistoryStore.Overflow.DROP, Duration.ZERO);
+        return new OcrService(cache, pre, history,
+                new HttpOcrEngine(client, guard, pool, decoder,
+                        new OcrMicroBatcher(client, guard, pool, decoder, registry, false, 8, Duration.ofMillis(10), Duration.ofSeconds(2))),
+                registry, 65536);
+    }
+}
@@ -0,0 +1,113 @@
+package com.example.uretimveri.controller;
+
+import com.example.uretimveri.service.SlabImageStore;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.http.HttpHeaders;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.hamcrest.Matchers.containsString;
+import static org.junit.jupiter.api.Assertions.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.head;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+class SlabImageControllerTest {
+
+    @TempDir
+    Path tmp;
+
+    private MockMvc mvc;
+    private byte[] png;
+    private String hash;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        SlabImageStore store = new SlabImageStore(new SimpleMeterRegistry(), tmp.resolve("store").toString(),
+                tmp.resolve("py").toString(), 1 << 20, List.of(160));
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ImageIO.write(new BufferedImage(400, 200, BufferedImage.TYPE_INT_RGB), "png", out);
+        png = out.toByteArray();
+        hash = store.put(new ByteArrayInputStream(png));
+
+        SlabImageController controller = new SlabImageController(store);
+        ReflectionTestUtils.setField(controller, "cacheMaxAge", Duration.ofDays(365));
+        ReflectionTestUtils.setField(controller, "sendfile", true);
+        mvc = MockMvcBuilders.standaloneSetup(controller).build();
+    }
+
+    @Test
+    void servesFullBodyWithImmutableCaching() throws Exception {
+        MvcResult r = mvc.perform(get("/api/slabs/images/" + hash))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.ETAG, "\"" + hash + "\""))
+                .andExpect(header().string(HttpHeaders.CONTENT_TYPE, "image/png"))
+                .andExpect(header().string(HttpHeaders.CACHE_CONTROL, containsString("immutable")))
+                .andReturn();
+        assertArrayEquals(png, r.getResponse().getContentAsByteArray());
+    }
+
+    @Test
+    void headHasNoBodyAndSendfileSkipsIt() throws Exception {
+        mvc.perform(head("/api/slabs/images/" + hash))
+                .andExpect(status().isOk())
+                .andExpect(header().longValue(HttpHeaders.CONTENT_LENGTH, png.length))
+                .andExpect(content().bytes(new byte[0]));
+        // Tomcat sendfile destekliyorsa gövde yazılmaz, dosya istek özniteliğiyle devredilir
+        MvcResult r = mvc.perform(get("/api/slabs/images/" + hash)
+                        .requestAttr("org.apache.tomcat.sendfile.support", true))
+                .andExpect(status().isOk())
+                .andExpect(content().bytes(new byte[0]))
+                .andReturn();
+        assertEquals((long) png.length, r.getRequest().getAttribute("org.apache.tomcat.sendfile.end"));
+    }
+
+    @Test
+    void answersMatchingEtagWith304() throws Exception {
+        mvc.perform(get("/api/slabs/images/" + hash).header(HttpHeaders.IF_NONE_MATCH, "\"" + hash + "\""))
+                .andExpect(status().isNotModified())
+                .andExpect(content().bytes(new byte[0]));
+        // küçük resmin ETag'i ayrı: özgünün ETag'i onu doğrulamaz
+        mvc.perform(get("/api/slabs/images/" + hash).param("w", "160")
+                        .header(HttpHeaders.IF_NONE_MATCH, "\"" + hash + "\""))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.ETAG, "\"" + hash + "-w160\""));
+    }
+
+    @Test
+    void servesRangeWith206() throws Exception {
+        MvcResult r = mvc.perform(get("/api/slabs/images/" + hash).header(HttpHeaders.RANGE, "bytes=0-9"))
+                .andExpect(status().isPartialContent())
+                .andExpect(header().string(HttpHeaders.CONTENT_RANGE, "bytes 0-9/" + png.length))
+                .andReturn();
+        assertArrayEquals(Arrays.copyOf(png, 10), r.getResponse().getContentAsByteArray());
+
+        // If-Range eski ETag taşıyorsa aralık yerine tam gövde
+        MvcResult full = mvc.perform(get("/api/slabs/images/" + hash).header(HttpHeaders.RANGE, "bytes=0-9")
+                        .header(HttpHeaders.IF_RANGE, "\"eski\""))
+                .andExpect(status().isOk())
+                .andReturn();
+        assertEquals(png.length, full.getResponse().getContentAsByteArray().length);
+    }
+
+    @Test
+    void rejectsNonHashAndUnknownHashWith404() throws Exception {
+        mvc.perform(get("/api/slabs/images/not-a-hash")).andExpect(status().isNotFound());
+        mvc.perform(get("/api/slabs/images/" + hash.toUpperCase())).andExpect(status().isNotFound());
+        mvc.perform(get("/api/slabs/images/" + "0".repeat(hash.length()))).andExpect(status().isNotFound());
+    }
+}
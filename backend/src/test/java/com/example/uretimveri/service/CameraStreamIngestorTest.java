@@ -0,0 +1,216 @@
+package com.example.uretimveri.service;
+
+import com.example.uretimveri.ocr.OcrUpload;
+import com.example.uretimveri.ocr.RecognizeUiResponse;
+import com.sun.net.httpserver.HttpServer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.util.unit.DataSize;
+import reactor.core.publisher.Mono;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.lang.management.ManagementFactory;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.stream.Stream;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+// ../ocr/images altındaki JPEG'leri 25 fps MJPEG olarak yeniden oynatan yerel stub'a karşı
+class CameraStreamIngestorTest {
+
+    private static final String BOUNDARY = "frame";
+
+    private static List<byte[]> images;
+    private HttpServer server;
+    private String base;
+    private final AtomicInteger connections = new AtomicInteger();
+
+    // kamera kareleri: depodaki gerçek slab fotoğrafları (cwd = backend)
+    @BeforeAll
+    static void readFrames() throws IOException {
+        Path dir = Path.of("../ocr/images");
+        assumeTrue(Files.isDirectory(dir), "../ocr/images yok");
+        images = new ArrayList<>();
+        try (Stream<Path> files = Files.list(dir)) {
+            for (Path f : files.filter(f -> f.getFileName().toString().toLowerCase().endsWith(".jpg")).sorted().toList()) {
+                images.add(Files.readAllBytes(f));
+            }
+        }
+        assumeTrue(images.size() >= 2, "../ocr/images içinde yeterli jpg yok");
+    }
+
+    @BeforeEach
+    void startStub() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.setExecutor(Executors.newCachedThreadPool());
+        // her bağlantıda görseller bir kez oynatılır, sonra bağlantı kapanır (kamera kopması)
+        server.createContext("/mjpeg", ex -> {
+            connections.incrementAndGet();
+            boolean withLength = !"0".equals(ex.getRequestURI().getQuery());
+            ex.getResponseHeaders().add("Content-Type", "multipart/x-mixed-replace; boundary=" + BOUNDARY);
+            ex.sendResponseHeaders(200, 0);
+            try (OutputStream out = ex.getResponseBody()) {
+                for (byte[] img : images) {
+                    out.write(part(img, withLength));
+                    out.flush();
+                    Thread.sleep(40);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } catch (IOException ignored) {
+                // istemci bağlantıyı kapattı
+            }
+        });
+        server.start();
+        base = "http://127.0.0.1:" + server.getAddress().getPort();
+    }
+
+    @AfterEach
+    void stop() {
+        server.stop(0);
+    }
+
+    @Test
+    void readerSplitsFramesWithAndWithoutContentLength() throws IOException {
+        for (boolean withLength : new boolean[] {true, false}) {
+            ByteArrayOutputStream body = new ByteArrayOutputStream();
+            body.write("\r\n".getBytes(StandardCharsets.US_ASCII)); // bazı kameralar ön boşlukla başlar
+            for (byte[] img : images) body.write(part(img, withLength));
+            body.write(("--" + BOUNDARY + "--\r\n").getBytes(StandardCharsets.US_ASCII));
+
+            MjpegFrameReader.FramePool pool = new MjpegFrameReader.FramePool(2, 2 * 1024 * 1024);
+            Set<byte[]> buffers = Collections.newSetFromMap(new IdentityHashMap<>());
+            List<byte[]> read = new ArrayList<>();
+            try (MjpegFrameReader reader = new MjpegFrameReader(new ByteArrayInputStream(body.toByteArray()),
+                    withLength ? BOUNDARY : null, pool)) {
+                MjpegFrameReader.Frame f;
+                while ((f = reader.next()) != null) {
+                    buffers.add(f.data());
+                    read.add(f.copy());
+                    f.release();
+                }
+                assertEquals(0, reader.dropped());
+            }
+            assertEquals(images.size(), read.size());
+            for (int i = 0; i < images.size(); i++) assertArrayEquals(images.get(i), read.get(i));
+            assertTrue(buffers.size() <= 2, "tampon havuzu dışına çıkıldı");
+        }
+    }
+
+    @Test
+    void readerDoesNotAllocatePerFrame() throws IOException {
+        ByteArrayOutputStream body = new ByteArrayOutputStream();
+        for (int rep = 0; rep < 4; rep++) for (byte[] img : images) body.write(part(img, rep % 2 == 0));
+        body.write(("--" + BOUNDARY + "--\r\n").getBytes(StandardCharsets.US_ASCII));
+        byte[] stream = body.toByteArray();
+
+        com.sun.management.ThreadMXBean mx = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        MjpegFrameReader.FramePool pool = new MjpegFrameReader.FramePool(2, 2 * 1024 * 1024);
+        long frames = 0;
+        long before = mx.getCurrentThreadAllocatedBytes();
+        try (MjpegFrameReader reader = new MjpegFrameReader(new ByteArrayInputStream(stream), BOUNDARY, pool)) {
+            MjpegFrameReader.Frame f;
+            while ((f = reader.next()) != null) {
+                frames++;
+                f.release();
+            }
+        }
+        long allocated = mx.getCurrentThreadAllocatedBytes() - before;
+        assertEquals(4L * images.size(), frames);
+        assertTrue(allocated < 256 * 1024, "kare başına ayırma var: " + allocated);
+    }
+
+    @Test
+    void cutConnectionsReturnBuffersToPool() throws IOException {
+        int buffers = 2;
+        MjpegFrameReader.FramePool pool = new MjpegFrameReader.FramePool(buffers, 2 * 1024 * 1024);
+        // her bağlantı ikinci karenin ortasında kopar; havuz sızdırırsa üçüncü bağlantıda tampon kalmaz
+        for (int attempt = 0; attempt < 3 * buffers; attempt++) {
+            boolean withLength = attempt % 2 == 0;
+            byte[] first = part(images.get(0), withLength);
+            byte[] second = part(images.get(1), withLength);
+            byte[] body = Arrays.copyOf(first, first.length + second.length / 2);
+            System.arraycopy(second, 0, body, first.length, second.length / 2);
+
+            try (MjpegFrameReader reader = new MjpegFrameReader(new ByteArrayInputStream(body), BOUNDARY, pool)) {
+                MjpegFrameReader.Frame f = reader.next();
+                assertNotNull(f, "bağlantı " + attempt + " için boş tampon kalmadı");
+                f.release();
+                assertThrows(IOException.class, reader::next);
+            }
+            assertEquals(buffers, pool.available(), "bağlantı " + attempt + " sonrası tampon sızdı");
+        }
+    }
+
+    @Test
+    void samplesFramesAndReconnects() throws Exception {
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        FrameDedupFilter dedup = new FrameDedupFilter(registry, false, 2, 32, Duration.ofSeconds(10), "");
+        AtomicInteger recognized = new AtomicInteger();
+        List<String> names = Collections.synchronizedList(new ArrayList<>());
+
+        CameraStreamIngestor ingestor = new CameraStreamIngestor(null, null, dedup, null, registry,
+                List.of(base + "/mjpeg?0"), Duration.ofMillis(300), Duration.ofMillis(100), 10, 3,
+                DataSize.ofMegabytes(2), Duration.ofSeconds(2), Duration.ofSeconds(2),
+                Duration.ofMillis(50), Duration.ofMillis(200), false) {
+            @Override
+            Mono<RecognizeUiResponse> recognize(OcrUpload upload) {
+                recognized.incrementAndGet();
+                names.add(upload.getFilename());
+                RecognizeUiResponse r = new RecognizeUiResponse();
+                r.setSourceImage(upload.getFilename());
+                return Mono.just(r).delayElement(Duration.ofMillis(30));
+            }
+        };
+        ingestor.start();
+        try {
+            long deadline = System.currentTimeMillis() + 10_000;
+            while ((connections.get() < 3 || recognized.get() < 3) && System.currentTimeMillis() < deadline) Thread.sleep(20);
+        } finally {
+            ingestor.stop();
+        }
+
+        String camera = CameraStreamIngestor.nameOf(base);
+        double read = registry.get("ocr.camera.frames").tag("result", "read").counter().count();
+        double reconnects = registry.get("ocr.camera.reconnects").counter().count();
+
+        assertTrue(connections.get() >= 3, "yeniden bağlanmadı");
+        assertTrue(reconnects >= 2);
+        // Content-Length'siz akışta bağlantı kapanış sınırı olmadan kesildiği için son kare yarım kalır
+        assertTrue(read >= 2 * (images.size() - 1));
+        assertTrue(recognized.get() >= 3);
+        assertTrue(recognized.get() < read, "her kare OCR'a gitmemeli");
+        assertTrue(names.stream().allMatch(n -> n != null && n.endsWith(".jpg")), names::toString);
+        assertNotNull(ingestor.latest().get(camera));
+    }
+
+    private static byte[] part(byte[] img, boolean withLength) {
+        String head = "--" + BOUNDARY + "\r\nContent-Type: image/jpeg\r\n"
+                + (withLength ? "Content-Length: " + img.length + "\r\n" : "") + "\r\n";
+        byte[] h = head.getBytes(StandardCharsets.US_ASCII);
+        byte[] out = Arrays.copyOf(h, h.length + img.length + 2);
+        System.arraycopy(img, 0, out, h.length, img.length);
+        out[out.length - 2] = '\r';
+        out[out.length - 1] = '\n';
+        return out;
+    }
+}
@@ -0,0 +1,139 @@
+package com.example.uretimveri.service;
+
+import com.example.uretimveri.ocr.RecognizeUiItem;
+import com.example.uretimveri.ocr.RecognizeUiResponse;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.io.ByteArrayResource;
+
+import javax.imageio.ImageIO;
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class FrameDedupFilterTest {
+
+    private static FrameDedupFilter filter(Duration ttl, String region) {
+        return new FrameDedupFilter(new SimpleMeterRegistry(), true, 2, 32, ttl, region);
+    }
+
+    @Test
+    void nearDuplicateFrameHitsAndDifferentContentMisses() throws IOException {
+        FrameDedupFilter dedup = filter(Duration.ofSeconds(10), "");
+        long hash = dedup.hashOf(png(scene(0, 0, 7)));
+        dedup.remember(hash, response(202410150083L));
+
+        // aynı sahne, birkaç piksellik gürültü
+        Optional<RecognizeUiResponse> hit = dedup.lookup(dedup.hashOf(png(scene(0, 3, 7))));
+        assertTrue(hit.isPresent());
+        assertEquals(202410150083L, hit.get().getItems().get(0).getLvdt());
+
+        // farklı sahne
+        assertTrue(dedup.lookup(dedup.hashOf(png(scene(180, 0, 99)))).isEmpty());
+    }
+
+    @Test
+    void entriesExpireAfterTtl() throws Exception {
+        FrameDedupFilter dedup = filter(Duration.ofMillis(50), "");
+        long hash = dedup.hashOf(png(scene(0, 0, 7)));
+        dedup.remember(hash, response(1L));
+        assertTrue(dedup.lookup(hash).isPresent());
+        Thread.sleep(80);
+        assertTrue(dedup.lookup(hash).isEmpty());
+    }
+
+    @Test
+    void hitsAreIsolatedCopies() throws IOException {
+        FrameDedupFilter dedup = filter(Duration.ofSeconds(10), "");
+        long hash = dedup.hashOf(png(scene(0, 0, 7)));
+        RecognizeUiResponse original = response(5L);
+        original.getItems().get(0).setAutoCommitted(true);
+        original.setAutoCommittedCount(1);
+        dedup.remember(hash, original);
+
+        // kaydedildikten sonra çağıranın yaptığı değişiklik pencereye sızmaz
+        original.getItems().get(0).setLvdt(999L);
+        RecognizeUiResponse first = dedup.lookup(hash).orElseThrow();
+        assertEquals(5L, first.getItems().get(0).getLvdt());
+        assertNull(first.getItems().get(0).getAutoCommitted()); // önceki isteğin otomatik kaydı taşınmaz
+        assertNull(first.getAutoCommittedCount());
+
+        first.getItems().get(0).setExistingProductId(42L);
+        first.getItems().add(new RecognizeUiItem());
+        RecognizeUiResponse second = dedup.lookup(hash).orElseThrow();
+        assertNotSame(first, second);
+        assertEquals(1, second.getItems().size());
+        assertNull(second.getItems().get(0).getExistingProductId());
+    }
+
+    @Test
+    void regionHashSeesOnlyTheLabelArea() throws IOException {
+        // etiket bölgesi 0..64 x 0..64; sahnenin geri kalanı aynı
+        FrameDedupFilter dedup = filter(Duration.ofSeconds(10), "0,0,64,64");
+        BufferedImage a = scene(0, 0, 7);
+        BufferedImage sameLabelOtherBackground = scene(0, 0, 7);
+        fill(sameLabelOtherBackground, 64, 0, 192, 128, Color.WHITE);
+        BufferedImage otherLabel = scene(0, 0, 7);
+        fill(otherLabel, 8, 8, 24, 48, Color.BLACK);
+
+        dedup.remember(dedup.hashOf(png(a)), response(1L));
+        assertTrue(dedup.lookup(dedup.hashOf(png(sameLabelOtherBackground))).isPresent());
+        assertTrue(dedup.lookup(dedup.hashOf(png(otherLabel))).isEmpty());
+    }
+
+    // yatay gradyan + seed'e bağlı bloklar; jitter birkaç pikselde küçük gürültü
+    private static BufferedImage scene(int hueShift, int jitter, int seed) {
+        BufferedImage img = new BufferedImage(256, 128, BufferedImage.TYPE_INT_RGB);
+        Graphics2D g = img.createGraphics();
+        try {
+            for (int x = 0; x < 256; x++) {
+                int v = (x + hueShift) % 256;
+                g.setColor(new Color(v, v, v));
+                g.drawLine(x, 0, x, 127);
+            }
+            java.util.Random rnd = new java.util.Random(seed);
+            for (int i = 0; i < 6; i++) {
+                g.setColor(new Color(rnd.nextInt(256), rnd.nextInt(256), rnd.nextInt(256)));
+                g.fillRect(rnd.nextInt(200), rnd.nextInt(100), 20 + rnd.nextInt(40), 10 + rnd.nextInt(20));
+            }
+        } finally {
+            g.dispose();
+        }
+        for (int i = 0; i < jitter; i++) img.setRGB(10 + i * 30, 60, 0xFFFFFF);
+        return img;
+    }
+
+    private static void fill(BufferedImage img, int x, int y, int w, int h, Color c) {
+        Graphics2D g = img.createGraphics();
+        try {
+            g.setColor(c);
+            g.fillRect(x, y, w, h);
+        } finally {
+            g.dispose();
+        }
+    }
+
+    private static ByteArrayResource png(BufferedImage img) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ImageIO.write(img, "png", out);
+        return new ByteArrayResource(out.toByteArray());
+    }
+
+    private static RecognizeUiResponse response(long lvdt) {
+        RecognizeUiItem item = new RecognizeUiItem();
+        item.setRoiIndex(0);
+        item.setLvdt(lvdt);
+        RecognizeUiResponse r = new RecognizeUiResponse();
+        r.setItems(new ArrayList<>(List.of(item)));
+        r.setDetectedCount(1);
+        return r;
+    }
+}
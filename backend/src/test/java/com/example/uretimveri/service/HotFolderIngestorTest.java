@@ -0,0 +1,140 @@
+package com.example.uretimveri.service;
+
+import com.example.uretimveri.ocr.OcrApiResponse;
+import com.example.uretimveri.ocr.OcrEngine;
+import com.example.uretimveri.ocr.OcrUpload;
+import com.example.uretimveri.ocr.RecognizeUiResponse;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.core.io.buffer.DataBuffer;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// Gerçek WatchService ile: OCR ve eşleme sabit cevap döner, dosyaların nereye taşındığına bakılır
+class HotFolderIngestorTest {
+
+    @TempDir
+    Path dir;
+
+    private final Map<String, Integer> ocrBytes = new ConcurrentHashMap<>();
+    private HotFolderIngestor ingestor;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        OcrService ocr = new OcrService(null, null, null, new OcrEngine() {
+            @Override public String name() { return "test"; }
+            @Override public Mono<OcrApiResponse> process(OcrUpload upload) { return Mono.empty(); }
+            @Override public Mono<OcrApiResponse> processBody(Flux<DataBuffer> body, String filename, String contentType) {
+                return Mono.empty();
+            }
+        }, registry, 65536) {
+            @Override
+            public Mono<OcrApiResponse> recognize(OcrUpload upload) {
+                return Mono.fromCallable(() -> {
+                    ocrBytes.put(upload.getFilename(), upload.getContent().getContentAsByteArray().length);
+                    return new OcrApiResponse();
+                });
+            }
+        };
+        RecognizeUiMapper mapper = new RecognizeUiMapper(null, null, null, null, null, false) {
+            @Override
+            public RecognizeUiResponse toUi(OcrApiResponse py) {
+                RecognizeUiResponse r = new RecognizeUiResponse();
+                r.setItems(new ArrayList<>());
+                return r;
+            }
+        };
+        ingestor = new HotFolderIngestor(ocr, mapper, null, registry, dir.resolve("in").toString(), "", "",
+                "*.{jpg,png}", Duration.ofMillis(200), Duration.ofMillis(800), Duration.ofSeconds(5), false,
+                1, 8, 1, 8, 1, 8);
+        ingestor.start();
+    }
+
+    @AfterEach
+    void tearDown() throws InterruptedException {
+        ingestor.stop();
+    }
+
+    @Test
+    void movesRecognizedImageToProcessed() throws Exception {
+        Files.write(dir.resolve("in/a.png"), png());
+        assertTrue(awaitFile(dir.resolve("in/processed/a.png")));
+        assertFalse(Files.exists(dir.resolve("in/a.png")));
+    }
+
+    @Test
+    void waitsUntilWriteSettlesBeforeReading() throws Exception {
+        byte[] bytes = png();
+        Path file = dir.resolve("in/slow.png");
+        try (OutputStream out = Files.newOutputStream(file)) {
+            out.write(bytes, 0, bytes.length / 2);
+            out.flush();
+            Thread.sleep(120); // settle-time dolmadan ikinci yarı
+            out.write(bytes, bytes.length / 2, bytes.length - bytes.length / 2);
+        }
+        assertTrue(awaitFile(dir.resolve("in/processed/slow.png")));
+        assertEquals(bytes.length, ocrBytes.get("slow.png"));
+    }
+
+    @Test
+    void movesUnreadableFileToFailed() throws Exception {
+        Files.writeString(dir.resolve("in/bad.jpg"), "görsel değil");
+        assertTrue(awaitFile(dir.resolve("in/failed/bad.jpg")));
+        assertFalse(ocrBytes.containsKey("bad.jpg"));
+    }
+
+    @Test
+    void movesZeroByteAndNeverSettlingFilesToFailed() throws Exception {
+        Files.createFile(dir.resolve("in/empty.png"));
+        Path growing = dir.resolve("in/growing.png");
+        Files.write(growing, new byte[] {1});
+        Thread writer = new Thread(() -> {
+            try {
+                for (int i = 0; i < 40 && Files.exists(growing); i++) {
+                    Files.write(growing, new byte[] {1}, StandardOpenOption.APPEND);
+                    Thread.sleep(50);
+                }
+            } catch (Exception ignored) {
+                // taşındıktan sonra yazma hatası beklenir
+            }
+        });
+        writer.start();
+
+        // settle beklemesi max-settle-time (800ms) ile sınırlı: read worker sonsuza kadar beklemez
+        assertTrue(awaitFile(dir.resolve("in/failed/empty.png")));
+        assertTrue(awaitFile(dir.resolve("in/failed/growing.png")));
+        writer.join();
+        assertTrue(ocrBytes.isEmpty());
+    }
+
+    private static boolean awaitFile(Path p) throws InterruptedException {
+        long deadline = System.nanoTime() + Duration.ofSeconds(10).toNanos();
+        while (!Files.exists(p) && System.nanoTime() < deadline) Thread.sleep(20);
+        return Files.exists(p);
+    }
+
+    private static byte[] png() throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ImageIO.write(new BufferedImage(64, 32, BufferedImage.TYPE_INT_RGB), "png", out);
+        return out.toByteArray();
+    }
+}
@@ -0,0 +1,197 @@
+package com.example.uretimveri.service;
+
+import com.example.uretimveri.ocr.OcrUpload;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.io.ByteArrayResource;
+
+import javax.imageio.ImageIO;
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+class ImagePreprocessorTest {
+
+    private static ImagePreprocessor preprocessor(int maxWidth, boolean grayscale, String crop) {
+        return new ImagePreprocessor(new SimpleMeterRegistry(), true, maxWidth, grayscale, crop, 0.85f, 16, 2);
+    }
+
+    @Test
+    void keepsCropEvenWhenJpegIsLargerThanOriginal() throws IOException {
+        // tek renk PNG birkaç yüz bayt: kırpılmış JPEG daha büyük çıkar ama ROI yine de gönderilmeli
+        OcrUpload upload = png(solid(200, 200), "a.png");
+        ImagePreprocessor p = preprocessor(1600, false, "10,20,30,40");
+        try {
+            OcrUpload out = p.apply(upload);
+            assertNotSame(upload, out);
+            assertTrue(out.getContent().contentLength() > upload.getContent().contentLength());
+            assertEquals("a.jpg", out.getFilename());
+            assertEquals("image/jpeg", out.getContentType());
+            BufferedImage img = read(out);
+            assertEquals(30, img.getWidth());
+            assertEquals(40, img.getHeight());
+        } finally {
+            p.shutdown();
+        }
+    }
+
+    @Test
+    void clipsCropToImageBounds() throws IOException {
+        ImagePreprocessor p = preprocessor(1600, false, "150,150,500,500");
+        try {
+            BufferedImage img = read(p.apply(png(solid(200, 100), "a.png")));
+            assertEquals(50, img.getWidth());
+            assertEquals(1, img.getHeight()); // y 99'a çekilir, tek satır kalır
+        } finally {
+            p.shutdown();
+        }
+    }
+
+    @Test
+    void resizesToMaxWidthKeepingAspect() throws IOException {
+        ImagePreprocessor p = preprocessor(100, false, "");
+        try {
+            BufferedImage img = read(p.apply(png(noise(400, 120), "b.png")));
+            assertEquals(100, img.getWidth());
+            assertEquals(30, img.getHeight());
+        } finally {
+            p.shutdown();
+        }
+    }
+
+    @Test
+    void convertsToGrayscale() throws IOException {
+        ImagePreprocessor p = preprocessor(1600, true, "");
+        try {
+            BufferedImage img = read(p.apply(png(noise(120, 80), "c.png")));
+            assertEquals(120, img.getWidth());
+            assertEquals(1, img.getRaster().getNumBands());
+        } finally {
+            p.shutdown();
+        }
+    }
+
+    @Test
+    void fallsBackToOriginalWhenNothingShrinks() throws IOException {
+        ImagePreprocessor p = preprocessor(1600, false, "");
+        try {
+            // kırpma/küçültme yok, JPEG tek renk PNG'den büyük: orijinal gider
+            OcrUpload small = png(solid(64, 64), "d.png");
+            assertSame(small, p.apply(small));
+
+            // ImageIO'nun tanımadığı içerik olduğu gibi gider
+            OcrUpload unknown = new OcrUpload(new ByteArrayResource(new byte[] {1, 2, 3}), "e.bin", "application/octet-stream");
+            assertSame(unknown, p.apply(unknown));
+        } finally {
+            p.shutdown();
+        }
+    }
+
+    @Test
+    void disabledPreprocessorPassesThroughWithoutPool() throws IOException {
+        ImagePreprocessor p = new ImagePreprocessor(new SimpleMeterRegistry(), false, 10, true, "0,0,1,1", 0.85f, 16, 2);
+        OcrUpload upload = png(noise(40, 40), "f.png");
+        assertSame(upload, p.apply(upload));
+        p.shutdown();
+    }
+
+    // Depodaki gerçek slab fotoğrafları (cwd = backend): aşama süreleri ve Python'a gitmeyen bayt (mvn test -Pperf)
+    @Test
+    @Tag("perf")
+    void benchmarkOnSampleImages() throws IOException {
+        Path dir = Path.of("../ocr/images");
+        assumeTrue(Files.isDirectory(dir), "../ocr/images yok");
+        List<Path> files;
+        try (Stream<Path> s = Files.list(dir)) {
+            files = s.filter(f -> f.getFileName().toString().toLowerCase().endsWith(".jpg")).sorted().toList();
+        }
+        assumeTrue(!files.isEmpty(), "../ocr/images içinde jpg yok");
+
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        ImagePreprocessor p = new ImagePreprocessor(registry, true, 1600, true, "", 0.85f, 64, 0);
+        try {
+            for (Path f : files) p.apply(jpg(f)); // ısınma
+            registry.clear();
+            ImagePreprocessor measured = new ImagePreprocessor(registry, true, 1600, true, "", 0.85f, 64, 0);
+            try {
+                long in = 0, out = 0;
+                int grown = 0;
+                int rounds = 3;
+                for (int r = 0; r < rounds; r++) {
+                    for (Path f : files) {
+                        OcrUpload upload = jpg(f);
+                        OcrUpload result = measured.apply(upload);
+                        long before = upload.getContent().contentLength();
+                        long after = result.getContent().contentLength();
+                        // yeniden boyutlanan görsel az sıkıştırılmış orijinalden büyük çıkabilir; toplam küçülmeli
+                        if (after > before) grown++;
+                        in += before;
+                        out += after;
+                    }
+                }
+                StringBuilder stages = new StringBuilder();
+                for (String stage : List.of("decode", "crop", "resize", "encode")) {
+                    Timer t = registry.get("ocr.preprocess.stage").tag("stage", stage).timer();
+                    stages.append(String.format("%s %.1f ms, ", stage, t.mean(TimeUnit.MILLISECONDS)));
+                }
+                double saved = registry.get("ocr.preprocess.bytes.saved").counter().count();
+                System.out.printf("ön işleme, %d görsel x %d: %sgiren %d KB, çıkan %d KB, kazanç %.0f KB (%%%.0f), büyüyen %d%n",
+                        files.size(), rounds, stages, in / 1024, out / 1024, saved / 1024, 100.0 * (in - out) / in, grown / rounds);
+                assertTrue(out < in, "ön işleme toplamda küçültmedi: " + in + " -> " + out + " bayt");
+                assertTrue(grown < files.size() * rounds / 2, "görsellerin çoğu büyüdü: " + grown / rounds);
+            } finally {
+                measured.shutdown();
+            }
+        } finally {
+            p.shutdown();
+        }
+    }
+
+    private static OcrUpload jpg(Path f) throws IOException {
+        return new OcrUpload(new ByteArrayResource(Files.readAllBytes(f)), f.getFileName().toString(), "image/jpeg");
+    }
+
+    private static BufferedImage solid(int w, int h) {
+        BufferedImage img = new BufferedImage(w, h, BufferedImage.TYPE_INT_RGB);
+        Graphics2D g = img.createGraphics();
+        g.setColor(new Color(40, 120, 200));
+        g.fillRect(0, 0, w, h);
+        g.dispose();
+        return img;
+    }
+
+    private static BufferedImage noise(int w, int h) {
+        Random rnd = new Random(42);
+        BufferedImage img = new BufferedImage(w, h, BufferedImage.TYPE_INT_RGB);
+        for (int y = 0; y < h; y++) {
+            for (int x = 0; x < w; x++) img.setRGB(x, y, rnd.nextInt(0xffffff));
+        }
+        return img;
+    }
+
+    private static OcrUpload png(BufferedImage img, String name) throws IOException {
+        ByteArrayOutputStream bos = new ByteArrayOutputStream();
+        ImageIO.write(img, "png", bos);
+        return new OcrUpload(new ByteArrayResource(bos.toByteArray()), name, "image/png");
+    }
+
+    private static BufferedImage read(OcrUpload upload) throws IOException {
+        try (InputStream in = upload.getContent().getInputStream()) {
+            return ImageIO.read(in);
+        }
+    }
+}
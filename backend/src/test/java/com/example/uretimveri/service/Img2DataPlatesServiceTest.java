@@ -0,0 +1,231 @@
+package com.example.uretimveri.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.TransactionStatus;
+import org.springframework.transaction.support.SimpleTransactionStatus;
+
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// DB'siz: FakeDb products/plates tablolarını ve MySQL'in ON DUPLICATE KEY davranışını bellekte taklit eder
+class Img2DataPlatesServiceTest {
+
+    @Test
+    void insertsMissingLvdtsInMultiRowChunks() {
+        FakeDb db = new FakeDb();
+        db.trigger = true; // products trigger'ı boş plates satırı açar
+        LvdtIndex index = new LvdtIndex(null, new SimpleMeterRegistry());
+        Img2DataPlatesService service = new Img2DataPlatesService(db, db, index, pages(db), 2);
+
+        var result = service.saveAll(List.of(105L, 101L, 104L, 101L, 103L, 102L));
+
+        assertEquals(List.of(105L, 101L, 104L, 103L, 102L), List.copyOf(result.created().values())); // giriş sırası
+        assertTrue(result.existing().isEmpty());
+        assertEquals(List.of(2, 2, 1), db.productBatches);
+        assertEquals(3, db.upserts.size());
+        assertTrue(db.upserts.get(0).endsWith("AS new ON DUPLICATE KEY UPDATE lvdt = new.lvdt"), db.upserts.get(0));
+        assertFalse(db.upserts.get(0).contains("VALUES(lvdt)"));
+        result.created().forEach((pid, lvdt) -> {
+            assertEquals(lvdt, db.plates.get(pid)); // trigger satırı dolduruldu, ikinci satır açılmadı
+            assertEquals(pid, index.find(lvdt));
+        });
+        assertEquals(5, db.plates.size());
+    }
+
+    @Test
+    void returnsRegisteredLvdtsWithoutNewProducts() {
+        FakeDb db = new FakeDb();
+        db.plates.put(7L, 201L); // başka bir örneğin yazdığı, indekste yok
+        LvdtIndex index = new LvdtIndex(null, new SimpleMeterRegistry());
+        index.put(202L, 8L);
+        Img2DataPlatesService service = new Img2DataPlatesService(db, db, index, pages(db), 500);
+
+        var result = service.saveAll(List.of(201L, 202L, 203L));
+
+        assertEquals(Map.of(7L, 201L, 8L, 202L), result.existing());
+        assertEquals(List.of(203L), List.copyOf(result.created().values()));
+        assertEquals(List.of(1), db.productBatches);
+        assertEquals(7L, index.find(201L));
+    }
+
+    @Test
+    void concurrentRegistrationIsDetectedAndRetried() {
+        FakeDb db = new FakeDb();
+        // ilk upsert'ten hemen önce başka bir örnek 302'yi kaydeder: ON DUPLICATE KEY çakışmayı yutar
+        db.beforeUpsert = () -> db.plates.put(99L, 302L);
+        LvdtIndex index = new LvdtIndex(null, new SimpleMeterRegistry());
+        Img2DataPlatesService service = new Img2DataPlatesService(db, db, index, pages(db), 500);
+
+        var result = service.saveAll(List.of(301L, 302L));
+
+        assertEquals(1, db.rollbacks);
+        assertEquals(Map.of(99L, 302L), result.existing());
+        assertEquals(List.of(301L), List.copyOf(result.created().values()));
+        assertEquals(2, db.plates.size()); // geri alınan ilk denemeden artık satır yok
+        assertEquals(List.of(99L), db.plates.entrySet().stream()
+                .filter(e -> e.getValue() == 302L).map(Map.Entry::getKey).toList());
+    }
+
+    @Test
+    void conflictThatPersistsAfterRetryIsReported() {
+        FakeDb db = new FakeDb();
+        db.beforeUpsert = () -> db.plates.putIfAbsent(99L, 401L);
+        db.hideFromSelect = true; // okuma çakışan kaydı hiç görmez
+        LvdtIndex index = new LvdtIndex(null, new SimpleMeterRegistry());
+        Img2DataPlatesService service = new Img2DataPlatesService(db, db, index, pages(db), 500);
+
+        assertThrows(DuplicateKeyException.class, () -> service.saveAll(List.of(401L)));
+        assertEquals(2, db.rollbacks);
+    }
+
+    private static TablePageService pages(JdbcTemplate db) {
+        return new TablePageService(db, 100, Duration.ofSeconds(30), 1000);
+    }
+
+    private static final class FakeDb extends JdbcTemplate implements PlatformTransactionManager {
+        final Map<Long, Long> plates = new LinkedHashMap<>(); // product_id -> lvdt (null = trigger satırı)
+        final List<Integer> productBatches = new ArrayList<>();
+        final List<String> upserts = new ArrayList<>();
+        boolean trigger;
+        boolean hideFromSelect;
+        Runnable beforeUpsert;
+        int rollbacks;
+        private long nextId = 1;
+        private Map<Long, Long> snapshot;
+
+        @Override
+        public <T> List<T> query(String sql, RowMapper<T> rowMapper, Object... args) {
+            assertTrue(sql.startsWith("SELECT product_id, lvdt FROM plates WHERE lvdt IN ("), sql);
+            List<long[]> rows = new ArrayList<>();
+            if (!hideFromSelect) {
+                for (Object a : args) {
+                    plates.forEach((pid, lvdt) -> {
+                        if (a.equals(lvdt)) rows.add(new long[] {pid, lvdt});
+                    });
+                }
+            }
+            List<T> out = new ArrayList<>();
+            try (ResultSet rs = resultSet(rows)) {
+                for (int i = 0; rs.next(); i++) out.add(rowMapper.mapRow(rs, i));
+            } catch (SQLException e) {
+                throw new IllegalStateException(e);
+            }
+            return out;
+        }
+
+        @Override
+        public <T> T execute(ConnectionCallback<T> action) {
+            Connection con = (Connection) Proxy.newProxyInstance(getClass().getClassLoader(),
+                    new Class<?>[] {Connection.class}, (proxy, m, a) -> {
+                        assertEquals("prepareStatement", m.getName());
+                        return productInsert((String) a[0]);
+                    });
+            try {
+                return action.doInConnection(con);
+            } catch (SQLException e) {
+                throw new IllegalStateException(e);
+            }
+        }
+
+        private PreparedStatement productInsert(String sql) {
+            assertTrue(sql.startsWith("INSERT INTO products"), sql);
+            int rows = sql.split("\\(\\?, \\?, \\?\\)", -1).length - 1;
+            List<long[]> keys = new ArrayList<>();
+            return (PreparedStatement) Proxy.newProxyInstance(getClass().getClassLoader(),
+                    new Class<?>[] {PreparedStatement.class}, (proxy, m, a) -> switch (m.getName()) {
+                        case "executeUpdate" -> {
+                            productBatches.add(rows);
+                            for (int i = 0; i < rows; i++) {
+                                long id = nextId++;
+                                keys.add(new long[] {id});
+                                if (trigger) plates.put(id, null);
+                            }
+                            yield rows;
+                        }
+                        case "getGeneratedKeys" -> resultSet(keys);
+                        default -> null; // setString, close
+                    });
+        }
+
+        // INSERT ... AS new ON DUPLICATE KEY UPDATE lvdt = new.lvdt: PK ya da lvdt çakışırsa o satır güncellenir
+        @Override
+        public int update(String sql, Object... args) {
+            assertTrue(sql.startsWith("INSERT INTO plates (product_id, lvdt) VALUES "), sql);
+            upserts.add(sql);
+            if (beforeUpsert != null) beforeUpsert.run();
+            for (int i = 0; i < args.length; i += 2) {
+                Long pid = (Long) args[i];
+                Long lvdt = (Long) args[i + 1];
+                Long owner = plates.entrySet().stream().filter(e -> lvdt.equals(e.getValue()))
+                        .map(Map.Entry::getKey).findFirst().orElse(null);
+                if (plates.containsKey(pid)) {
+                    if (owner != null && !owner.equals(pid)) throw new DuplicateKeyException("lvdt " + lvdt);
+                    plates.put(pid, lvdt);
+                } else if (owner == null) {
+                    plates.put(pid, lvdt);
+                } // else: lvdt sahibinin satırı aynı değerle güncellenir, hata yok
+            }
+            return args.length / 2;
+        }
+
+        @Override
+        public <T> T queryForObject(String sql, Class<T> requiredType, Object... args) {
+            assertTrue(sql.startsWith("SELECT COUNT(*) FROM plates WHERE lvdt IS NOT NULL AND product_id IN ("), sql);
+            int n = 0;
+            for (Object a : args) if (plates.get((Long) a) != null) n++;
+            return requiredType.cast(n);
+        }
+
+        @Override
+        public TransactionStatus getTransaction(TransactionDefinition definition) {
+            snapshot = new LinkedHashMap<>(plates);
+            return new SimpleTransactionStatus();
+        }
+
+        @Override
+        public void commit(TransactionStatus status) {
+            snapshot = null;
+        }
+
+        @Override
+        public void rollback(TransactionStatus status) {
+            // çakışan kayıt başka örneğin işlemi: geri alınmaz
+            Map<Long, Long> foreign = new LinkedHashMap<>();
+            plates.forEach((pid, lvdt) -> {
+                if (pid >= 99 && !snapshot.containsKey(pid)) foreign.put(pid, lvdt);
+            });
+            plates.clear();
+            plates.putAll(snapshot);
+            plates.putAll(foreign);
+            snapshot = null;
+            rollbacks++;
+        }
+    }
+
+    private static ResultSet resultSet(List<long[]> rows) {
+        int[] pos = {-1};
+        return (ResultSet) Proxy.newProxyInstance(Img2DataPlatesServiceTest.class.getClassLoader(),
+                new Class<?>[] {ResultSet.class}, (proxy, m, a) -> switch (m.getName()) {
+                    case "next" -> ++pos[0] < rows.size();
+                    case "getLong" -> rows.get(pos[0])[(Integer) a[0] - 1];
+                    default -> null; // close
+                });
+    }
+}
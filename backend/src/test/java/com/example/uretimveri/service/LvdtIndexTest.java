@@ -0,0 +1,36 @@
+package com.example.uretimveri.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class LvdtIndexTest {
+
+    @Test
+    void matchesHashMapUnderRandomPutsAndRemoves() {
+        LvdtIndex index = new LvdtIndex(null, new SimpleMeterRegistry());
+        Map<Long, Long> expected = new HashMap<>();
+        Random rnd = new Random(42);
+
+        for (int i = 0; i < 200_000; i++) {
+            long lvdt = 1_000_000_000L + rnd.nextInt(20_000); // dar aralık: çakışma ve silme zincirleri
+            if (rnd.nextInt(3) == 0) {
+                index.remove(lvdt);
+                expected.remove(lvdt);
+            } else {
+                index.put(lvdt, i);
+                expected.put(lvdt, (long) i);
+            }
+        }
+
+        assertEquals(expected.size(), index.size());
+        for (long lvdt = 1_000_000_000L; lvdt < 1_000_020_000L; lvdt++) {
+            assertEquals(expected.getOrDefault(lvdt, LvdtIndex.NOT_FOUND), index.find(lvdt));
+        }
+    }
+}
@@ -0,0 +1,99 @@
+package com.example.uretimveri.service;
+
+import com.example.uretimveri.ocr.LvdtReading;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.Random;
+import java.util.regex.Pattern;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LvdtParserTest {
+
+    private final LvdtParser parser = new LvdtParser(10, 18, List.of(), List.of());
+
+    // önceki RecognizeUiMapper.selectLvdt: split + replaceAll + stream
+    private static final Pattern NOT_DIGIT = Pattern.compile("[^0-9]");
+
+    private static Long legacy(String text) {
+        if (text == null) return null;
+        String[] parts = text.trim().split("\\|");
+        List<String> nums = new ArrayList<>();
+        for (String p : parts) {
+            String only = NOT_DIGIT.matcher(p == null ? "" : p).replaceAll("");
+            if (!only.isEmpty()) nums.add(only);
+        }
+        if (nums.isEmpty()) return null;
+        Optional<String> longLike = nums.stream().filter(s -> s.length() >= 10 && s.length() <= 18).findFirst();
+        String chosen = longLike.orElse(nums.get(nums.size() - 1));
+        try { return Long.parseLong(chosen); }
+        catch (NumberFormatException e) { return null; }
+    }
+
+    @Test
+    void matchesLegacySelection() {
+        String alphabet = "0123456789||| -AbŞ.\t";
+        Random rnd = new Random(1);
+        for (int i = 0; i < 200_000; i++) {
+            StringBuilder sb = new StringBuilder();
+            int len = rnd.nextInt(60);
+            for (int j = 0; j < len; j++) {
+                // uzun rakam dizileri de üretilsin (taşma durumu)
+                sb.append(rnd.nextInt(4) == 0 ? alphabet.charAt(rnd.nextInt(alphabet.length())) : (char) ('0' + rnd.nextInt(10)));
+            }
+            String text = sb.toString();
+            assertEquals(legacy(text), parser.selectLvdt(text), () -> "metin: " + text);
+        }
+        assertNull(parser.selectLvdt(null));
+        assertNull(parser.selectLvdt("LVDT | abc"));
+    }
+
+    @Test
+    void ranksByFormat() {
+        LvdtParser plant = new LvdtParser(10, 18, List.of(12), List.of("2024"));
+        String text = "1234567890 | 2024 1015 0083 | 99";
+
+        List<LvdtReading> r = plant.candidates(text);
+        assertEquals(3, r.size());
+        assertEquals(202410150083L, r.get(0).getLvdt());
+        assertEquals(1234567890L, r.get(1).getLvdt());
+        assertEquals(202410150083L, plant.selectLvdt(text));
+        assertEquals(1234567890L, parser.selectLvdt(text)); // biçim yoksa eski davranış: ilk aralıktaki
+    }
+
+    // ROI başına eski ve yeni yol (mvn test -Pperf): tek geçişli tarayıcı regex'li yoldan yavaş olmamalı
+    @Test
+    @Tag("perf")
+    void fasterThanLegacy() {
+        String[] samples = {
+                "LVDT | 202410150083 | 12", "20241O150083", "A-12|B-3456789012345|C", "no digits here",
+                "2024 1015 0083 | 7", "1|2|3|4|5|6|7|8|9|10"
+        };
+        long legacyNanos = 0, scanNanos = 0, legacySum = 0, scanSum = 0;
+        for (int round = 0; round < 5; round++) {
+            long t0 = System.nanoTime();
+            for (int i = 0; i < 300_000; i++) {
+                Long v = legacy(samples[i % samples.length]);
+                if (v != null) legacySum += v;
+            }
+            long t1 = System.nanoTime();
+            for (int i = 0; i < 300_000; i++) {
+                Long v = parser.selectLvdt(samples[i % samples.length]);
+                if (v != null) scanSum += v;
+            }
+            long t2 = System.nanoTime();
+            if (round >= 2) { // ilk turlar ısınma
+                legacyNanos += t1 - t0;
+                scanNanos += t2 - t1;
+            }
+        }
+        assertEquals(legacySum, scanSum);
+        long legacy = legacyNanos, scan = scanNanos;
+        assertTrue(scan < legacy, () -> String.format("selectLvdt: eski %.0f ns, yeni %.0f ns / ROI",
+                legacy / 900_000.0, scan / 900_000.0));
+    }
+}
@@ -0,0 +1,64 @@
+package com.example.uretimveri.service;
+
+import com.example.uretimveri.ocr.LvdtCandidate;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LvdtSuggesterTest {
+
+    private final LvdtIndex index = new LvdtIndex(null, new SimpleMeterRegistry());
+    private final LvdtSuggester suggester = new LvdtSuggester(index, true, 1, 5, List.of("83", "17"));
+
+    @Test
+    void findsSubstitutionInsertionAndDeletion() {
+        index.put(202410150083L, 1);
+        index.put(20241015008L, 2);
+        index.put(2024101500831L, 3);
+
+        List<LvdtCandidate> c = suggester.suggest(202410150088L); // 3 -> 8 okunmuş
+        assertEquals(202410150083L, c.get(0).getLvdt());
+        assertEquals(1, c.get(0).getDistance());
+        assertTrue(c.get(0).getConfusable());
+
+        assertEquals(1L, suggester.suggest(20241015083L).stream()           // bir hane düşmüş
+                .filter(x -> x.getLvdt() == 202410150083L).findFirst().orElseThrow().getProductId());
+        assertTrue(suggester.suggest(202410150083L).stream()                // kendisi öneri değil
+                .noneMatch(x -> x.getLvdt() == 202410150083L));
+        assertTrue(suggester.suggest(202410159999L, 1, 5).isEmpty());
+        assertFalse(suggester.suggest(202410159983L, 2, 5).isEmpty());
+    }
+
+    // 10^6 kayıtta gecikme: komşu üretimi kayıt sayısından bağımsız olmalı (mvn test -Pperf)
+    @Test
+    @Tag("perf")
+    void latencyAtOneMillionEntries() {
+        Random rnd = new Random(7);
+        long[] stored = new long[1_000_000];
+        for (int i = 0; i < stored.length; i++) {
+            stored[i] = 100_000_000_000L + (long) (rnd.nextDouble() * 899_999_999_999L);
+            index.put(stored[i], i);
+        }
+
+        for (int k = 1; k <= 2; k++) {
+            for (int i = 0; i < 200; i++) suggester.suggest(stored[i] + 1, k, 5); // ısınma
+            int queries = 1000;
+            long start = System.nanoTime();
+            for (int i = 0; i < queries; i++) {
+                long q = stored[rnd.nextInt(stored.length)];
+                List<LvdtCandidate> c = suggester.suggest(q ^ 1, k, 5);   // son bit: bir hane farkı
+                assertTrue(c.stream().anyMatch(x -> x.getLvdt() == q) || index.contains(q ^ 1));
+            }
+            double micros = (System.nanoTime() - start) / 1000.0 / queries;
+            int dist = k;
+            // k=2'de komşu sayısı ~1e4 mertebesinde; 10^6 kaydı taramak bunun çok üstünde kalır
+            assertTrue(micros < (k == 1 ? 500 : 20_000),
+                    () -> String.format("lvdt-suggest k=%d: %.1f µs/sorgu (10^6 kayıt)", dist, micros));
+        }
+    }
+}
@@ -0,0 +1,132 @@
+package com.example.uretimveri.service;
+
+import com.example.uretimveri.ocr.LvdtCandidate;
+import com.example.uretimveri.ocr.LvdtReading;
+import com.example.uretimveri.ocr.RecognizeUiItem;
+import com.example.uretimveri.ocr.RecognizeUiResponse;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class OcrAutoCommitServiceTest {
+
+    private final List<List<Long>> saved = new ArrayList<>();
+
+    // DB'siz: saveAll her LVDT için 1000 + sıra no ile product açar
+    private final Img2DataPlatesService plates = new Img2DataPlatesService(null, null, null, null, 500) {
+        @Override
+        public SaveResult saveAll(List<Long> lvdts) {
+            saved.add(lvdts);
+            Map<Long, Long> created = new LinkedHashMap<>();
+            for (int i = 0; i < lvdts.size(); i++) created.put(1000L + i, lvdts.get(i));
+            return new SaveResult(created, Map.of());
+        }
+    };
+
+    @Test
+    void commitsPlausibleItemsAndSendsRestToReview() {
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        OcrAutoCommitService svc = new OcrAutoCommitService(plates, registry, true, 10, 12, "20\\d+", "any", true, 1, false);
+
+        RecognizeUiResponse resp = new RecognizeUiResponse();
+        resp.setItems(new ArrayList<>(List.of(
+                item(0, 202400000001L, 12),          // geçer
+                item(1, 123456789012L, 12),          // format
+                item(2, 20240001L, 8),               // hane
+                near(item(3, 202400000002L, 12)),    // kayıtlı LVDT'ye bir hane uzak
+                item(4, null, 0))));                 // LVDT yok
+        resp = svc.apply(resp);
+
+        assertEquals(1, resp.getAutoCommittedCount());
+        assertEquals(List.of(List.of(202400000001L)), saved);
+        RecognizeUiItem ok = resp.getItems().get(0);
+        assertTrue(ok.getAutoCommitted());
+        assertNull(ok.getReview());
+        assertEquals(1000L, ok.getExistingProductId());
+        assertEquals(List.of("format", "digits", "near_match", "no_lvdt"),
+                resp.getItems().subList(1, 5).stream().map(RecognizeUiItem::getReview).toList());
+
+        svc.recordManual(3);
+        assertEquals(1, svc.stats().getAutoCommittedLastHour());
+        assertEquals(4, svc.stats().getReviewLastHour());
+        assertEquals(0.25, svc.stats().getAutoCommitRate(), 1e-9);
+        assertEquals(1.0, registry.get("ocr.autocommit.items").tag("reason", "format").counter().count());
+    }
+
+    @Test
+    void requiresRoiAgreementAndRegistrationPolicy() {
+        OcrAutoCommitService svc = new OcrAutoCommitService(plates, new SimpleMeterRegistry(), true, 10, 18, "", "unknown", false, 2, false);
+
+        RecognizeUiItem known = item(2, 202500000009L, 12);
+        known.setExistingProductId(7L);
+        RecognizeUiResponse resp = new RecognizeUiResponse();
+        resp.setItems(new ArrayList<>(List.of(
+                item(0, 202500000001L, 12), item(1, 202500000001L, 12), // iki ROI aynı okuma
+                known, known(item(3, 202500000009L, 12)),
+                item(4, 202500000005L, 12))));                         // tek ROI
+        resp = svc.apply(resp);
+
+        assertEquals(List.of(List.of(202500000001L)), saved);
+        assertEquals(2, resp.getAutoCommittedCount());
+        assertEquals("registered", resp.getItems().get(2).getReview());
+        assertEquals("roi_votes", resp.getItems().get(4).getReview());
+
+        // kapalıyken dokunmaz
+        OcrAutoCommitService off = new OcrAutoCommitService(plates, new SimpleMeterRegistry(), false, 10, 18, "", "any", true, 1, false);
+        RecognizeUiResponse untouched = new RecognizeUiResponse();
+        untouched.setItems(new ArrayList<>(List.of(item(0, 202500000001L, 12))));
+        off.apply(untouched);
+        assertNull(untouched.getAutoCommittedCount());
+        assertNull(untouched.getItems().get(0).getAutoCommitted());
+    }
+
+    @Test
+    void leavesSharedInputUntouchedAndSkipsCommittedOrRegisteredItems() {
+        OcrAutoCommitService svc = new OcrAutoCommitService(plates, new SimpleMeterRegistry(), true, 10, 18, "", "any", true, 1, false);
+
+        // dedup penceresinden gelen paylaşılan sonuç gibi
+        RecognizeUiResponse shared = new RecognizeUiResponse();
+        shared.setItems(new ArrayList<>(List.of(item(0, 202600000001L, 12), known(item(1, 202600000002L, 12)))));
+        RecognizeUiResponse first = svc.apply(shared);
+
+        assertNotSame(shared, first);
+        assertNull(shared.getAutoCommittedCount());
+        assertNull(shared.getItems().get(0).getAutoCommitted());
+        assertNull(shared.getItems().get(0).getExistingProductId());
+        assertEquals(List.of(List.of(202600000001L)), saved); // kayıtlı olan tekrar yazılmaz
+        assertEquals(1, first.getAutoCommittedCount());
+        assertNull(first.getItems().get(1).getAutoCommitted());
+        assertNull(first.getItems().get(1).getReview());
+
+        // aynı sonuç tekrar gelirse (önceki istekte kaydedilmiş öğe) yazılmaz ve sayılmaz
+        RecognizeUiResponse again = svc.apply(first);
+        assertEquals(1, saved.size());
+        assertEquals(0, again.getAutoCommittedCount());
+        assertTrue(again.getItems().get(0).getAutoCommitted());
+        assertEquals(1, svc.stats().getAutoCommittedLastHour());
+    }
+
+    private static RecognizeUiItem item(int roi, Long lvdt, int digits) {
+        RecognizeUiItem it = new RecognizeUiItem();
+        it.setRoiIndex(roi);
+        it.setLvdt(lvdt);
+        it.setReadings(lvdt == null ? List.of() : List.of(new LvdtReading(lvdt, digits, 0, 1_000_000)));
+        return it;
+    }
+
+    private static RecognizeUiItem near(RecognizeUiItem it) {
+        it.setCandidates(List.of(new LvdtCandidate()));
+        return it;
+    }
+
+    private static RecognizeUiItem known(RecognizeUiItem it) {
+        it.setExistingProductId(7L);
+        return it;
+    }
+}
@@ -0,0 +1,154 @@
+package com.example.uretimveri.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.web.reactive.function.client.WebClientResponseException;
+import org.springframework.web.server.ResponseStatusException;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+
+import java.time.Duration;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class OcrCallGuardTest {
+
+    private static OcrCallGuard guard(int maxConcurrent, int retries, Duration openDuration, Duration asyncTimeout) {
+        return new OcrCallGuard(new SimpleMeterRegistry(), Duration.ofSeconds(90), maxConcurrent, 4, 2, 0.5,
+                openDuration, retries, Duration.ofMillis(1), 0.5, 10, Duration.ofSeconds(100), asyncTimeout);
+    }
+
+    private static WebClientResponseException status(int code) {
+        return WebClientResponseException.create(code, "x", HttpHeaders.EMPTY, new byte[0], null);
+    }
+
+    @Test
+    void synchronousThrowReleasesBulkheadPermit() {
+        OcrCallGuard g = guard(1, 0, Duration.ofSeconds(30), Duration.ofSeconds(120));
+        for (int i = 0; i < 3; i++) {
+            Mono<String> m = g.protect(() -> { throw new IllegalArgumentException("bozuk istek"); });
+            assertThrows(IllegalArgumentException.class, m::block);
+            Flux<String> f = g.protectStream(() -> { throw new IllegalArgumentException("bozuk istek"); });
+            assertThrows(IllegalArgumentException.class, f::blockLast);
+        }
+        assertEquals(1, g.availablePermits());
+        assertEquals("ok", g.protect(() -> Mono.just("ok")).block());
+    }
+
+    @Test
+    void cancelOfNonProbeCallKeepsProbeOwnership() throws Exception {
+        OcrCallGuard g = guard(8, 0, Duration.ofMillis(50), Duration.ofSeconds(120));
+
+        // devre kapalıyken başlamış, sonra iptal edilecek çağrı
+        Sinks.One<String> early = Sinks.one();
+        Disposable earlyCall = g.protect(early::asMono, false).subscribe();
+
+        for (int i = 0; i < 2; i++) {
+            Mono<String> failing = g.protect(() -> Mono.error(status(500)), false);
+            assertThrows(WebClientResponseException.class, failing::block);
+        }
+        assertEquals(OcrCallGuard.State.OPEN, g.state());
+        Thread.sleep(80);
+
+        Sinks.One<String> probe = Sinks.one();
+        Disposable probeCall = g.protect(probe::asMono, false).subscribe();
+        assertEquals(OcrCallGuard.State.HALF_OPEN, g.state());
+
+        earlyCall.dispose(); // deneme çağrısı değil: denemeyi serbest bırakmamalı
+        Mono<String> second = g.protect(() -> Mono.just("x"), false);
+        ResponseStatusException rejected = assertThrows(ResponseStatusException.class, second::block);
+        assertEquals(503, rejected.getStatusCode().value());
+
+        probe.tryEmitValue("ok");
+        assertEquals(OcrCallGuard.State.CLOSED, g.state());
+        probeCall.dispose();
+        assertEquals(8, g.availablePermits());
+    }
+
+    @Test
+    void budgetIsDepositedPerSubscriptionNotPerAssembly() {
+        OcrCallGuard g = new OcrCallGuard(new SimpleMeterRegistry(), Duration.ofSeconds(90), 8, 20, 10, 0.5,
+                Duration.ofSeconds(30), 1, Duration.ofMillis(1), 0.5, 10, Duration.ofSeconds(100), Duration.ofSeconds(120));
+        Mono<String> unavailable = g.protect(() -> Mono.error(status(503)));
+        assertThrows(WebClientResponseException.class, unavailable::block);
+        double afterRetry = g.budgetTokens();
+        assertEquals(9.0, afterRetry, 1e-9); // +0.5 yatırıldı (10'da kırpıldı), 1 yeniden deneme harcandı
+
+        for (int i = 0; i < 5; i++) g.protect(() -> Mono.just("x"), false); // kurulur ama abone olunmaz
+        assertEquals(afterRetry, g.budgetTokens(), 1e-9);
+
+        g.protect(() -> Mono.just("x"), false).block();
+        assertEquals(9.5, g.budgetTokens(), 1e-9);
+    }
+
+    @Test
+    void totalDeadlineStaysBelowAsyncRequestTimeout() {
+        OcrCallGuard g = guard(8, 2, Duration.ofSeconds(30), Duration.ofMillis(400));
+        assertEquals(Duration.ofMillis(360), g.totalTimeout());
+
+        long start = System.nanoTime();
+        Mono<String> hanging = g.protect(Mono::never);
+        Throwable e = assertThrows(RuntimeException.class, hanging::block);
+        long tookMs = (System.nanoTime() - start) / 1_000_000;
+
+        assertInstanceOf(TimeoutException.class, e.getCause());
+        assertTrue(tookMs < 2_000, "toplam süre sınırı uygulanmadı: " + tookMs + " ms");
+        assertEquals(8, g.availablePermits());
+        assertEquals(Duration.ofSeconds(100), guard(8, 2, Duration.ofSeconds(30), Duration.ofSeconds(300)).totalTimeout());
+    }
+    @Test
+    void backgroundCallsNeverTakeTheReservedPermits() throws Exception {
+        OcrCallGuard g = guard(4, 0, Duration.ofSeconds(30), Duration.ofSeconds(120));
+        Sinks.Empty<Void> release = Sinks.empty();
+
+        // eşzamanlı arka plan çağrıları: kontrol ve alma atomik, en fazla 4 - 2 yer alınır
+        int callers = 16;
+        CountDownLatch go = new CountDownLatch(1);
+        AtomicInteger admitted = new AtomicInteger();
+        AtomicInteger rejected = new AtomicInteger();
+        ExecutorService pool = Executors.newFixedThreadPool(callers);
+        try {
+            for (int i = 0; i < callers; i++) {
+                pool.submit(() -> {
+                    go.await();
+                    g.protect(() -> {
+                                admitted.incrementAndGet();
+                                return release.asMono().then(Mono.just("ok"));
+                            }, false)
+                            .contextWrite(OcrCallGuard.background(2))
+                            .subscribe(v -> { }, e -> {
+                                if (e instanceof ResponseStatusException r && r.getStatusCode().value() == 503) {
+                                    rejected.incrementAndGet();
+                                }
+                            });
+                    return null;
+                });
+            }
+            go.countDown();
+            pool.shutdown();
+            assertTrue(pool.awaitTermination(5, TimeUnit.SECONDS));
+        } finally {
+            pool.shutdownNow();
+        }
+        assertEquals(2, admitted.get());
+        assertEquals(callers - 2, rejected.get());
+        assertEquals(2, g.availablePermits());
+
+        // etkileşimli trafik ayrılan payı kullanabilir
+        Disposable interactive = g.protect(() -> release.asMono().then(Mono.just("ok")), false).subscribe();
+        assertEquals(1, g.availablePermits());
+
+        release.tryEmitEmpty();
+        interactive.dispose();
+        assertEquals(4, g.availablePermits());
+    }
+}
@@ -0,0 +1,126 @@
+package com.example.uretimveri.service;
+
+import com.example.uretimveri.ocr.OcrUpload;
+import com.example.uretimveri.ocr.RecognizeUiItem;
+import com.example.uretimveri.ocr.RecognizeUiResponse;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.pdmodel.PDPage;
+import org.apache.pdfbox.pdmodel.common.PDRectangle;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.web.server.ResponseStatusException;
+import reactor.core.publisher.Mono;
+
+import javax.imageio.IIOImage;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageWriter;
+import javax.imageio.stream.ImageOutputStream;
+import java.awt.image.BufferedImage;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class OcrDocumentServiceTest {
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void detectsDocumentsByMagicBytes() {
+        assertEquals(OcrDocumentService.Kind.PDF, OcrDocumentService.detect("%PDF-1.7".getBytes(), 4));
+        assertEquals(OcrDocumentService.Kind.TIFF, OcrDocumentService.detect(new byte[] {'I', 'I', 42, 0}, 4));
+        assertEquals(OcrDocumentService.Kind.TIFF, OcrDocumentService.detect(new byte[] {'M', 'M', 0, 42}, 4));
+        assertNull(OcrDocumentService.detect(new byte[] {(byte) 0xFF, (byte) 0xD8, (byte) 0xFF, 0}, 4));
+    }
+
+    @Test
+    void splitsTiffPagesAndMergesInPageOrder() throws Exception {
+        Path tiff = dir.resolve("foy.tif");
+        try (ImageOutputStream out = ImageIO.createImageOutputStream(tiff.toFile())) {
+            ImageWriter w = ImageIO.getImageWritersByFormatName("tiff").next();
+            w.setOutput(out);
+            w.prepareWriteSequence(null);
+            for (int i = 0; i < 5; i++) w.writeToSequence(new IIOImage(new BufferedImage(120, 80, BufferedImage.TYPE_BYTE_BINARY), null, null), null);
+            w.endWriteSequence();
+            w.dispose();
+        }
+
+        AtomicInteger inFlight = new AtomicInteger();
+        AtomicInteger maxInFlight = new AtomicInteger();
+        OcrDocumentService svc = stub(2, 10, inFlight, maxInFlight, 3);
+        RecognizeUiResponse r = svc.recognize(tiff, "foy.tif", OcrDocumentService.Kind.TIFF).block();
+
+        assertNotNull(r);
+        assertEquals(5, r.getPageCount());
+        assertEquals(5, r.getPages().size());
+        assertEquals(4, r.getDetectedCount()); // 3. sayfa hatalı
+        assertNull(r.getError());
+        assertNotNull(r.getPages().get(2).getError());
+        assertEquals(List.of(1, 2, 4, 5), r.getItems().stream().map(RecognizeUiItem::getPage).toList());
+        assertTrue(maxInFlight.get() <= 2, "eşzamanlılık sınırı aşıldı: " + maxInFlight.get());
+    }
+
+    @Test
+    void rendersPdfPagesAndRejectsLongDocuments() throws Exception {
+        Path pdf = dir.resolve("sertifika.pdf");
+        try (PDDocument doc = new PDDocument()) {
+            for (int i = 0; i < 3; i++) doc.addPage(new PDPage(PDRectangle.A4));
+            doc.save(pdf.toFile());
+        }
+
+        Set<String> seen = ConcurrentHashMap.newKeySet();
+        OcrDocumentService svc = new OcrDocumentService(null, null, new SimpleMeterRegistry(), 100, 12_000_000, 10, 2, 0.8f) {
+            @Override
+            Mono<RecognizeUiResponse> recognize(OcrUpload page) {
+                seen.add(page.getFilename());
+                return Mono.just(single(page.getFilename()));
+            }
+        };
+        RecognizeUiResponse r = svc.recognize(pdf, "sertifika.pdf", OcrDocumentService.Kind.PDF).block();
+        assertNotNull(r);
+        assertEquals(3, r.getPageCount());
+        assertEquals(3, r.getDetectedCount());
+        assertTrue(seen.contains("sertifika-p3.jpg"));
+
+        OcrDocumentService small = new OcrDocumentService(null, null, new SimpleMeterRegistry(), 100, 12_000_000, 2, 2, 0.8f);
+        assertThrows(ResponseStatusException.class,
+                () -> small.recognize(pdf, "sertifika.pdf", OcrDocumentService.Kind.PDF).block());
+        assertTrue(Files.exists(pdf));
+    }
+
+    private static OcrDocumentService stub(int concurrency, int maxPages, AtomicInteger inFlight,
+                                           AtomicInteger maxInFlight, int failingPage) {
+        return new OcrDocumentService(null, null, new SimpleMeterRegistry(), 200, 12_000_000, maxPages, concurrency, 0.8f) {
+            @Override
+            Mono<RecognizeUiResponse> recognize(OcrUpload page) {
+                int now = inFlight.incrementAndGet();
+                maxInFlight.accumulateAndGet(now, Math::max);
+                if (page.getFilename().endsWith("-p" + failingPage + ".jpg")) {
+                    inFlight.decrementAndGet();
+                    return Mono.error(new IllegalStateException("OCR hatası"));
+                }
+                // sonuç yayılmadan önce düşülür: doFinally, flatMap sıradaki sayfaya abone olduktan sonra çalışır
+                return Mono.delay(Duration.ofMillis(20))
+                        .doOnNext(x -> inFlight.decrementAndGet())
+                        .map(x -> single(page.getFilename()));
+            }
+        };
+    }
+
+    private static RecognizeUiResponse single(String name) {
+        RecognizeUiItem item = new RecognizeUiItem();
+        RecognizeUiResponse r = new RecognizeUiResponse();
+        r.setJobId(name);
+        r.setItems(new ArrayList<>(List.of(item)));
+        r.setDetectedCount(1);
+        return r;
+    }
+}
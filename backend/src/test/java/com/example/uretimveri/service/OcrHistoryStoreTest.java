@@ -0,0 +1,150 @@
+package com.example.uretimveri.service;
+
+import com.example.uretimveri.ocr.OcrApiResponse;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// DB'siz: JdbcTemplate toplu INSERT'leri kaydeder; gate açılana kadar yazıcı thread ilk partide bekler
+class OcrHistoryStoreTest {
+
+    private final List<Integer> batches = new CopyOnWriteArrayList<>();
+    private final CountDownLatch gate = new CountDownLatch(1);
+    private final CountDownLatch writerBusy = new CountDownLatch(1);
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    private OcrHistoryStore store;
+
+    private final JdbcTemplate jdbc = new JdbcTemplate() {
+        @Override
+        public <T> T queryForObject(String sql, Class<T> requiredType) {
+            return null; // tablolar var
+        }
+
+        @Override
+        public int[] batchUpdate(String sql, List<Object[]> batchArgs) {
+            if (!sql.contains("ocr_job")) return new int[batchArgs.size()];
+            writerBusy.countDown();
+            try {
+                gate.await(5, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            batches.add(batchArgs.size());
+            int[] counts = new int[batchArgs.size()];
+            Arrays.fill(counts, 1);
+            return counts;
+        }
+    };
+
+    @AfterEach
+    void tearDown() throws InterruptedException {
+        gate.countDown();
+        if (store != null) store.stop();
+    }
+
+    private OcrHistoryStore store(int capacity, int batchSize, OcrHistoryStore.Overflow overflow, Duration blockTimeout) {
+        store = new OcrHistoryStore(jdbc, new ObjectMapper(), new LvdtParser(10, 18, List.of(), List.of()), registry,
+                true, capacity, batchSize, Duration.ofMillis(20), overflow, blockTimeout);
+        store.start();
+        return store;
+    }
+
+    private static OcrApiResponse response(int i) {
+        OcrApiResponse r = new OcrApiResponse();
+        r.setJobId("job-" + i);
+        return r;
+    }
+
+    private double dropped() {
+        return registry.get("ocr.history.dropped").counter().count();
+    }
+
+    @Test
+    void writesQueuedEntriesInBatchesOfAtMostBatchSize() throws Exception {
+        OcrHistoryStore s = store(100, 4, OcrHistoryStore.Overflow.DROP, Duration.ZERO);
+        s.record(response(0));
+        assertTrue(writerBusy.await(5, TimeUnit.SECONDS));
+        for (int i = 1; i <= 10; i++) s.record(response(i)); // yazıcı meşgulken birikir
+        gate.countDown();
+        s.stop();
+
+        assertEquals(List.of(1, 4, 4, 2), batches);
+        assertEquals(11.0, registry.get("ocr.history.written").counter().count());
+        assertEquals(0.0, dropped());
+    }
+
+    @Test
+    void dropDiscardsImmediatelyWhenFull() throws Exception {
+        OcrHistoryStore s = store(1, 10, OcrHistoryStore.Overflow.DROP, Duration.ofSeconds(1));
+        s.record(response(0));
+        assertTrue(writerBusy.await(5, TimeUnit.SECONDS));
+        s.record(response(1)); // kuyruğu doldurur
+        long start = System.nanoTime();
+        s.record(response(2));
+        assertTrue(System.nanoTime() - start < TimeUnit.MILLISECONDS.toNanos(500));
+        assertEquals(1.0, dropped());
+    }
+
+    @Test
+    void blockWaitsOnWorkerThreadsUntilTimeout() throws Exception {
+        OcrHistoryStore s = store(1, 10, OcrHistoryStore.Overflow.BLOCK, Duration.ofMillis(150));
+        s.record(response(0));
+        assertTrue(writerBusy.await(5, TimeUnit.SECONDS));
+        s.record(response(1));
+
+        // yer açılmazsa block-timeout kadar bekler, sonra atar
+        long start = System.nanoTime();
+        s.record(response(2));
+        assertTrue(System.nanoTime() - start >= TimeUnit.MILLISECONDS.toNanos(140));
+        assertEquals(1.0, dropped());
+
+        // beklerken yazıcı kuyruğu boşaltırsa kayıt kabul edilir
+        Thread release = new Thread(() -> {
+            try {
+                Thread.sleep(30);
+            } catch (InterruptedException ignored) {
+            }
+            gate.countDown();
+        });
+        release.start();
+        s.record(response(3));
+        release.join();
+        assertEquals(1.0, dropped());
+    }
+
+    @Test
+    void blockNeverWaitsOnNonBlockingThreads() throws Exception {
+        OcrHistoryStore s = store(1, 10, OcrHistoryStore.Overflow.BLOCK, Duration.ofSeconds(2));
+        s.record(response(0));
+        assertTrue(writerBusy.await(5, TimeUnit.SECONDS));
+        s.record(response(1));
+
+        // Reactor'ın parallel thread'leri Netty event loop'u gibi NonBlocking işaretlidir
+        Scheduler loop = Schedulers.newParallel("fake-event-loop", 1);
+        try {
+            long elapsed = Mono.fromCallable(() -> {
+                long start = System.nanoTime();
+                s.record(response(2));
+                return System.nanoTime() - start;
+            }).subscribeOn(loop).block(Duration.ofSeconds(5));
+            assertTrue(elapsed < TimeUnit.MILLISECONDS.toNanos(500), "event loop bekletildi: " + elapsed);
+        } finally {
+            loop.dispose();
+        }
+        assertEquals(1.0, dropped());
+    }
+}
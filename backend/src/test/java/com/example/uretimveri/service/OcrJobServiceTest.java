@@ -0,0 +1,55 @@
+package com.example.uretimveri.service;
+
+import com.example.uretimveri.ocr.OcrApiResponse;
+import com.example.uretimveri.ocr.OcrEngine;
+import com.example.uretimveri.ocr.OcrJob;
+import com.example.uretimveri.ocr.OcrUpload;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.io.ByteArrayResource;
+import org.springframework.core.io.buffer.DataBuffer;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// Bitmiş işler yeni submit gelmeden de zamanlı temizlikle silinir
+class OcrJobServiceTest {
+
+    private OcrJobService jobs;
+
+    @AfterEach
+    void tearDown() {
+        if (jobs != null) jobs.shutdown();
+    }
+
+    @Test
+    void purgesFinishedJobsWithoutNewSubmits() throws Exception {
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        OcrService failing = new OcrService(null, null, null, new OcrEngine() {
+            @Override public String name() { return "test"; }
+            @Override public Mono<OcrApiResponse> process(OcrUpload upload) { return Mono.empty(); }
+            @Override public Mono<OcrApiResponse> processBody(Flux<DataBuffer> body, String filename, String contentType) {
+                return Mono.empty();
+            }
+        }, registry, 65536) {
+            @Override
+            public Mono<OcrApiResponse> recognize(OcrUpload upload) {
+                return Mono.error(new IllegalStateException("python kapalı"));
+            }
+        };
+        jobs = new OcrJobService(failing, null, null, registry, 1, 5, Duration.ofSeconds(5),
+                Duration.ofMillis(50), Duration.ofMillis(20), "");
+        jobs.start();
+
+        OcrJob job = jobs.submit(new OcrUpload(new ByteArrayResource(new byte[] {1}), "a.jpg", "image/jpeg"));
+        long deadline = System.nanoTime() + Duration.ofSeconds(5).toNanos();
+        while (jobs.find(job.getId()).isPresent() && System.nanoTime() < deadline) Thread.sleep(10);
+
+        assertEquals(OcrJob.State.FAILED, job.getState());
+        assertTrue(jobs.find(job.getId()).isEmpty());
+    }
+}
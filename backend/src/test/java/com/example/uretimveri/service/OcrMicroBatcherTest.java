@@ -0,0 +1,265 @@
+package com.example.uretimveri.service;
+
+import com.example.uretimveri.ocr.OcrApiResponse;
+import com.example.uretimveri.ocr.OcrUpload;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.core.io.ByteArrayResource;
+import org.springframework.web.reactive.function.client.WebClient;
+import org.springframework.web.server.ResponseStatusException;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// Yerel /process ve /process_batch stub'ı: hangi dosyaların hangi çağrıda gittiği kaydedilir
+class OcrMicroBatcherTest {
+
+    private static final int REQUESTS = 48;
+    private static final int MAX_SIZE = 8;
+
+    @TempDir
+    Path spillDir;
+
+    private HttpServer server;
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    private WebClient client;
+    private OcrCallGuard guard;
+    private OcrReplicaPool pool;
+    private OcrResponseDecoder decoder;
+    private volatile int imageChars;
+    private volatile boolean modelDelay;      // tekil 40 ms, parti 30 + 5 ms/görsel (CPU'da çıkarım gibi)
+    private volatile long extraBatchDelayMillis;
+    private volatile boolean failBatches;
+    private final AtomicInteger singleCalls = new AtomicInteger();
+    private final List<List<String>> batches = Collections.synchronizedList(new ArrayList<>());
+
+    @BeforeEach
+    void startStub() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 128);
+        server.setExecutor(Executors.newSingleThreadExecutor()); // tek çekirdekli Python gibi sırayla
+        server.createContext("/process", ex -> {
+            singleCalls.incrementAndGet();
+            String name = filenames(ex).get(0);
+            if (modelDelay) sleep(40);
+            reply(ex, result(name));
+        });
+        server.createContext("/process_batch", ex -> {
+            List<String> names = filenames(ex);
+            batches.add(names);
+            if (modelDelay) sleep(30 + 5L * names.size());
+            sleep(extraBatchDelayMillis);
+            if (failBatches) {
+                ex.sendResponseHeaders(500, -1);
+                ex.close();
+                return;
+            }
+            StringBuilder sb = new StringBuilder("{\"model\":\"x\",\"results\":[");
+            for (int i = 0; i < names.size(); i++) sb.append(i > 0 ? "," : "").append(result(names.get(i)));
+            reply(ex, sb.append("]}").toString());
+        });
+        server.start();
+        String base = "http://127.0.0.1:" + server.getAddress().getPort();
+
+        client = WebClient.create();
+        guard = new OcrCallGuard(registry, Duration.ofSeconds(30), 128, 20, 10, 0.5,
+                Duration.ofSeconds(1), 0, Duration.ofMillis(10), 0.2, 10,
+                Duration.ofSeconds(100), Duration.ofSeconds(120));
+        pool = new OcrReplicaPool(client, registry, base, Duration.ZERO, 2, false, 1);
+        decoder = new OcrResponseDecoder(new ObjectMapper(), registry, 65536, spillDir.toString(), Duration.ofMinutes(30));
+    }
+
+    @AfterEach
+    void stop() {
+        server.stop(0);
+    }
+
+    @Test
+    void concurrentCallsShareBatchesAndGetTheirOwnResult() {
+        OcrMicroBatcher batcher = batcher(true);
+        List<OcrApiResponse> results = submitAll(batcher, REQUESTS);
+
+        assertEquals(0, singleCalls.get());
+        assertTrue(batches.size() < REQUESTS, "istekler partilerde birleşmeli");
+        assertTrue(batches.size() >= REQUESTS / MAX_SIZE);
+        assertTrue(batches.stream().allMatch(b -> !b.isEmpty() && b.size() <= MAX_SIZE), batches::toString);
+        // her dosya tam bir kez gitti
+        List<String> sent = batches.stream().flatMap(List::stream).sorted().toList();
+        assertEquals(IntStream.range(0, REQUESTS).mapToObj(i -> "img" + i + ".jpg").sorted().toList(), sent);
+        // her çağıran kendi görselinin sonucunu aldı
+        results.forEach(r -> assertEquals(r.getSourceImage(), r.getJobId()));
+        results.forEach(r -> assertEquals(r.getSourceImage(), r.getItems().get(0).getText()));
+    }
+
+    @Test
+    void disabledBatchingCallsProcessOncePerRequest() {
+        HttpOcrEngine engine = new HttpOcrEngine(client, guard, pool, decoder, batcher(false));
+        List<OcrApiResponse> results = Flux.range(0, REQUESTS)
+                .flatMap(i -> engine.process(upload("img" + i + ".jpg", "image/jpeg")), REQUESTS)
+                .collectList()
+                .block(Duration.ofSeconds(30));
+
+        assertEquals(REQUESTS, results.size());
+        assertEquals(REQUESTS, singleCalls.get());
+        assertTrue(batches.isEmpty());
+    }
+
+    // Parti cevabı WebClient'ın bellek sınırını (burada varsayılan 256 KB) aşsa da akışla çözülür
+    @Test
+    void largeBatchResponsesAreDecodedIncrementally() {
+        imageChars = 200_000;
+        List<OcrApiResponse> results = submitAll(batcher(true), 16);
+
+        assertEquals(16, results.size());
+        assertTrue(batches.stream().anyMatch(b -> b.size() > 1));
+        results.forEach(r -> assertTrue(r.getItems().get(0).getImage().startsWith(OcrResponseDecoder.SPILL_PREFIX)));
+    }
+
+    @Test
+    void invalidContentTypeFailsOnlyItsOwnRequest() {
+        OcrMicroBatcher batcher = batcher(true);
+        List<Object> outcomes = Flux.range(0, 3)
+                .flatMap(i -> batcher.submit(upload("img" + i + ".jpg", i == 1 ? "not a type" : "image/jpeg"))
+                        .<Object>map(r -> r)
+                        .onErrorResume(Mono::just), 3)
+                .collectList()
+                .block(Duration.ofSeconds(10));
+
+        assertEquals(3, outcomes.size());
+        assertEquals(2, outcomes.stream().filter(o -> o instanceof OcrApiResponse).count());
+        ResponseStatusException bad = (ResponseStatusException) outcomes.stream()
+                .filter(o -> o instanceof Throwable).findFirst().orElseThrow();
+        assertEquals(400, bad.getStatusCode().value());
+        assertFalse(batches.stream().flatMap(List::stream).anyMatch("img1.jpg"::equals));
+    }
+
+    // Dolu parti target-latency altında biterse hedef +1 (max-size'a kadar); yavaş parti ya da hata yarıya indirir
+    @Test
+    void targetSizeGrowsOnFastFullBatchesAndHalvesOnSlowOrFailedOnes() {
+        submitAll(batcher(true), 2); // ilk bağlantı/ısınma süresi hedef gecikmeye sayılmasın
+        OcrMicroBatcher batcher = new OcrMicroBatcher(client, guard, pool, decoder, registry, true, MAX_SIZE,
+                Duration.ofMillis(50), Duration.ofMillis(500));
+        assertEquals(MAX_SIZE / 2, batcher.targetSize());
+
+        for (int expected = MAX_SIZE / 2 + 1; expected <= MAX_SIZE; expected++) {
+            submitAll(batcher, batcher.targetSize());
+            assertEquals(expected, batcher.targetSize());
+        }
+        submitAll(batcher, MAX_SIZE);
+        assertEquals(MAX_SIZE, batcher.targetSize(), "max-size aşılmamalı");
+
+        extraBatchDelayMillis = 700;
+        submitAll(batcher, MAX_SIZE);
+        assertEquals(MAX_SIZE / 2, batcher.targetSize(), "yavaş parti hedefi yarıya indirmeli");
+
+        extraBatchDelayMillis = 0;
+        failBatches = true;
+        List<Object> failed = Flux.range(0, MAX_SIZE / 2)
+                .flatMap(i -> batcher.submit(upload("img" + i + ".jpg", "image/jpeg"))
+                        .<Object>map(r -> r)
+                        .onErrorResume(Mono::just), MAX_SIZE / 2)
+                .collectList()
+                .block(Duration.ofSeconds(10));
+        assertTrue(failed.stream().allMatch(o -> o instanceof Throwable));
+        assertEquals(MAX_SIZE / 4, batcher.targetSize(), "hatalı parti hedefi yarıya indirmeli");
+
+        // hedefin altında kalan (zamanlayıcıyla giden) hızlı parti hedefi büyütmez
+        failBatches = false;
+        submitAll(batcher, 1);
+        assertEquals(MAX_SIZE / 4, batcher.targetSize());
+    }
+
+    // Çıkarım gecikmeli stub'da 48 eşzamanlı çağrı: partiler tekil çağrılardan belirgin hızlı bitmeli (mvn test -Pperf)
+    @Test
+    @Tag("perf")
+    void batchingRaisesThroughput() {
+        modelDelay = true;
+        long single = timeAll(new HttpOcrEngine(client, guard, pool, decoder, batcher(false)));
+        long batched = timeAll(new HttpOcrEngine(client, guard, pool, decoder, batcher(true)));
+
+        System.out.printf("%d eşzamanlı istek: tekil %d ms, micro-batch %d ms (%d parti)%n",
+                REQUESTS, single, batched, batches.size());
+        assertEquals(REQUESTS, singleCalls.get());
+        assertTrue(batches.size() < REQUESTS);
+        assertTrue(batched < single * 0.7, "micro-batch belirgin şekilde hızlı olmalı: tekil " + single + " ms, parti " + batched + " ms");
+    }
+
+    private static long timeAll(HttpOcrEngine engine) {
+        long start = System.nanoTime();
+        List<OcrApiResponse> results = Flux.range(0, REQUESTS)
+                .flatMap(i -> engine.process(upload("img" + i + ".jpg", "image/jpeg")), REQUESTS)
+                .collectList()
+                .block(Duration.ofSeconds(30));
+        long elapsed = (System.nanoTime() - start) / 1_000_000;
+        assertEquals(REQUESTS, results.size());
+        // her çağıran kendi görselinin sonucunu almalı
+        results.forEach(r -> assertEquals(r.getSourceImage(), r.getItems().get(0).getText()));
+        return elapsed;
+    }
+
+    private OcrMicroBatcher batcher(boolean enabled) {
+        return new OcrMicroBatcher(client, guard, pool, decoder, registry, enabled, MAX_SIZE,
+                Duration.ofMillis(10), Duration.ofSeconds(2));
+    }
+
+    private static List<OcrApiResponse> submitAll(OcrMicroBatcher batcher, int n) {
+        List<OcrApiResponse> results = Flux.range(0, n)
+                .flatMap(i -> batcher.submit(upload("img" + i + ".jpg", "image/jpeg")), n)
+                .collectList()
+                .block(Duration.ofSeconds(30));
+        assertEquals(n, results.size());
+        return results;
+    }
+
+    private static OcrUpload upload(String name, String contentType) {
+        return new OcrUpload(new ByteArrayResource(name.getBytes(StandardCharsets.UTF_8)), name, contentType);
+    }
+
+    private static List<String> filenames(HttpExchange ex) throws IOException {
+        String body = new String(ex.getRequestBody().readAllBytes(), StandardCharsets.ISO_8859_1);
+        return java.util.regex.Pattern.compile("filename=\"([^\"]+)\"").matcher(body).results()
+                .map(m -> m.group(1)).toList();
+    }
+
+    private String result(String name) {
+        return "{\"job_id\":\"" + name + "\",\"source_image\":\"" + name + "\",\"count\":1,"
+                + "\"items\":[{\"image\":\"" + (imageChars > 0 ? "A".repeat(imageChars) : name)
+                + "\",\"roi_index\":0,\"text\":\"" + name + "\"}]}";
+    }
+
+    private static void reply(HttpExchange ex, String json) throws IOException {
+        byte[] b = json.getBytes(StandardCharsets.UTF_8);
+        ex.getResponseHeaders().add("Content-Type", "application/json");
+        ex.sendResponseHeaders(200, b.length);
+        ex.getResponseBody().write(b);
+        ex.close();
+    }
+
+    private static void sleep(long ms) {
+        if (ms <= 0) return;
+        try {
+            Thread.sleep(ms);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
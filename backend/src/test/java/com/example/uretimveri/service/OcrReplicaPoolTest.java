@@ -0,0 +1,117 @@
+package com.example.uretimveri.service;
+
+import com.sun.net.httpserver.HttpServer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Mono;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// Farklı portlarda yerel stub Python sunucularıyla havuz davranışı
+class OcrReplicaPoolTest {
+
+    private final List<HttpServer> servers = new ArrayList<>();
+    private final WebClient client = WebClient.create();
+
+    @AfterEach
+    void tearDown() {
+        servers.forEach(s -> s.stop(0));
+    }
+
+    private String stub(String name, int healthStatus, long delayMs, CountDownLatch gate) throws IOException {
+        HttpServer s = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        s.setExecutor(Executors.newCachedThreadPool());
+        s.createContext("/health", ex -> {
+            ex.sendResponseHeaders(healthStatus, -1);
+            ex.close();
+        });
+        s.createContext("/process", ex -> {
+            try {
+                if (gate != null) gate.await(5, TimeUnit.SECONDS);
+                if (delayMs > 0) Thread.sleep(delayMs);
+            } catch (InterruptedException ignored) {
+                Thread.currentThread().interrupt();
+            }
+            byte[] body = name.getBytes(StandardCharsets.UTF_8);
+            ex.sendResponseHeaders(200, body.length);
+            ex.getResponseBody().write(body);
+            ex.close();
+        });
+        s.start();
+        servers.add(s);
+        return "http://127.0.0.1:" + s.getAddress().getPort();
+    }
+
+    private OcrReplicaPool pool(String bases, boolean hedge) {
+        return new OcrReplicaPool(client, new SimpleMeterRegistry(), bases, Duration.ZERO, 2, hedge, 1);
+    }
+
+    private Mono<String> process(OcrReplicaPool pool, boolean hedgeable) {
+        return pool.execute(r -> client.post().uri(r.getBaseUrl() + "/process")
+                .retrieve().bodyToMono(String.class), hedgeable);
+    }
+
+    @Test
+    void routesToReplicaWithFewestOutstandingRequests() throws Exception {
+        CountDownLatch gate = new CountDownLatch(1);
+        String a = stub("a", 200, 0, gate);
+        String b = stub("b", 200, 0, gate);
+        OcrReplicaPool pool = pool(a + "," + b, false);
+
+        // ilk istek bir kopyada asılı kalırken ikincisi diğerine gitmeli
+        var first = process(pool, false).toFuture();
+        Thread.sleep(200);
+        var second = process(pool, false).toFuture();
+        Thread.sleep(200);
+        gate.countDown();
+
+        assertNotEquals(first.get(5, TimeUnit.SECONDS), second.get(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    void ejectsReplicaThatFailsHealthProbes() throws Exception {
+        String a = stub("a", 200, 0, null);
+        String b = stub("b", 500, 0, null);
+        OcrReplicaPool pool = pool(a + "," + b, false);
+
+        pool.probeAll();
+        pool.probeAll();
+
+        assertTrue(pool.getReplicas().get(0).isHealthy());
+        assertFalse(pool.getReplicas().get(1).isHealthy());
+        for (int i = 0; i < 5; i++) {
+            assertEquals("a", process(pool, false).block(Duration.ofSeconds(5)));
+        }
+    }
+
+    @Test
+    void hedgesSlowRequestToAnotherReplica() throws Exception {
+        String slow = stub("slow", 200, 3000, null);
+        String fast = stub("fast", 200, 0, null);
+        OcrReplicaPool pool = pool(slow + "," + fast, true);
+
+        // p95 için tek ve kısa bir gecikme örneği (hızlı kopyaya doğrudan)
+        pool.execute(r -> client.post().uri(fast + "/process").retrieve().bodyToMono(String.class), false)
+                .block(Duration.ofSeconds(5));
+
+        // eşit yükte ilk sıradaki (yavaş) kopya seçilir; p95 aşılınca hızlı kopyaya hedge gider
+        long start = System.nanoTime();
+        String winner = process(pool, true).block(Duration.ofSeconds(5));
+        long tookMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+
+        assertEquals("fast", winner);
+        assertTrue(tookMs < 2000, "hedge yavaş kopyayı beklememeli: " + tookMs + "ms");
+    }
+}
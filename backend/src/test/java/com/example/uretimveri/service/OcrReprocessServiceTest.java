@@ -0,0 +1,313 @@
+package com.example.uretimveri.service;
+
+import com.example.uretimveri.ocr.OcrApiResponse;
+import com.example.uretimveri.ocr.OcrEngine;
+import com.example.uretimveri.ocr.OcrUpload;
+import com.example.uretimveri.ocr.RecognizeUiResponse;
+import com.example.uretimveri.ocr.ReprocessDiff;
+import com.example.uretimveri.ocr.ReprocessStatus;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.http.HttpStatus;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.ParameterizedPreparedStatementSetter;
+import org.springframework.jdbc.core.PreparedStatementCreator;
+import org.springframework.jdbc.support.KeyHolder;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.TransactionStatus;
+import org.springframework.transaction.support.SimpleTransactionStatus;
+import org.springframework.web.server.ResponseStatusException;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+
+import java.io.IOException;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.PathMatcher;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// Arşiv gezintisi: sıra kararlı olmalı ve checkpoint'ten sonra tam olarak kalan dosyalar gelmeli.
+// Koşu testleri DB'siz: FakeDb tek run satırını bellekte tutar, transaction içindeki yazılar commit'e kadar bekler.
+class OcrReprocessServiceTest {
+
+    private static final PathMatcher JPG = FileSystems.getDefault().getPathMatcher("glob:*.jpg");
+
+    @Test
+    void resumesAfterCheckpointInWalkOrder(@TempDir Path root) throws IOException {
+        // "2025-01" ile "2025-01-b" ve "2025-01/..." sıralaması: yol parçası bazında karşılaştırılmalı
+        for (String f : List.of("2025-01/a.jpg", "2025-01/b.jpg", "2025-01/x/c.jpg", "2025-01-b/d.jpg",
+                "2025-02/e.jpg", "2025-02/notes.txt", "z.jpg")) {
+            Path p = root.resolve(f);
+            Files.createDirectories(p.getParent());
+            Files.write(p, new byte[] {1});
+        }
+
+        List<String> all = new ArrayList<>();
+        OcrReprocessService.walk(root, null, JPG, all::add);
+        assertEquals(List.of("2025-01/a.jpg", "2025-01/b.jpg", "2025-01/x/c.jpg", "2025-01-b/d.jpg",
+                "2025-02/e.jpg", "z.jpg"), all);
+
+        // her noktadan devam edildiğinde kalan liste, tam listenin sonrası ile aynı
+        for (int i = 0; i < all.size(); i++) {
+            List<String> rest = new ArrayList<>();
+            OcrReprocessService.walk(root, all.get(i), JPG, rest::add);
+            assertEquals(all.subList(i + 1, all.size()), rest, "checkpoint=" + all.get(i));
+        }
+    }
+    @Test
+    void failedChunkIsRolledBackAndRunResumesFromLastCheckpoint(@TempDir Path root) throws Exception {
+        files(root, "a.jpg", "b.jpg", "c.jpg", "d.jpg", "e.jpg");
+        FakeDb db = new FakeDb();
+        db.failCheckpointAt = "d.jpg"; // ikinci parçanın transaction'ı patlar
+        List<String> calls = new CopyOnWriteArrayList<>();
+        OcrReprocessService service = service(db, root, calls, 0, 2, () -> Mono.just(new OcrApiResponse()));
+
+        service.start(null);
+        assertEquals("FAILED", await(service).getState());
+        // ilk parça kalıcı, ikincinin farkları checkpoint ile birlikte geri alındı
+        assertEquals("b.jpg", db.checkpoint);
+        assertEquals(List.of("a.jpg", "b.jpg"), db.diffs);
+        assertEquals(2, db.processed);
+
+        db.failCheckpointAt = null;
+        calls.clear();
+        ReprocessStatus resumed = service.start(null);
+        assertEquals(1L, resumed.getRunId()); // yeni koşu açılmadı
+        assertEquals("DONE", await(service).getState());
+        assertEquals(List.of("c.jpg", "d.jpg", "e.jpg"), calls.stream().sorted().toList());
+        assertEquals(List.of("a.jpg", "b.jpg", "c.jpg", "d.jpg", "e.jpg"), db.diffs); // her dosya bir kez
+        assertEquals(5, db.processed);
+        assertEquals("e.jpg", db.checkpoint);
+        assertEquals(5, service.status().getProcessed());
+    }
+
+    @Test
+    void spacesCallsAtConfiguredRate(@TempDir Path root) throws Exception {
+        files(root, "1.jpg", "2.jpg", "3.jpg", "4.jpg", "5.jpg", "6.jpg");
+        FakeDb db = new FakeDb();
+        List<String> calls = new CopyOnWriteArrayList<>();
+        OcrReprocessService service = service(db, root, calls, 20, 6, () -> Mono.just(new OcrApiResponse()));
+
+        long start = System.nanoTime();
+        service.start(null);
+        assertEquals("DONE", await(service).getState());
+        long elapsedMs = (System.nanoTime() - start) / 1_000_000;
+        // 3 worker olsa da 20/sn: 6 görsel arasında 5 aralık (>= 250 ms)
+        assertTrue(elapsedMs >= 240, "hız sınırı uygulanmadı: " + elapsedMs + " ms");
+        assertEquals(6, calls.size());
+    }
+
+    @Test
+    void retriesWhileReservedPermitsAreBusy(@TempDir Path root) throws Exception {
+        files(root, "a.jpg");
+        FakeDb db = new FakeDb();
+        OcrCallGuard guard = new OcrCallGuard(new SimpleMeterRegistry(), Duration.ofSeconds(10), 3, 10, 5, 0.5,
+                Duration.ofSeconds(1), 0, Duration.ofMillis(10), 0.2, 10,
+                Duration.ofSeconds(100), Duration.ofSeconds(120));
+        // etkileşimli bir çağrı bulkhead'de yer tutuyor: 2 boş yer, reserve-permits=2 -> arka plan bekler
+        Sinks.Empty<Void> interactive = Sinks.empty();
+        guard.protect(() -> interactive.asMono().then(Mono.just("x")), false).subscribe();
+        new Thread(() -> {
+            try {
+                Thread.sleep(300);
+            } catch (InterruptedException ignored) {
+            }
+            interactive.tryEmitEmpty();
+        }).start();
+
+        List<String> calls = new CopyOnWriteArrayList<>();
+        OcrReprocessService service = service(db, root, calls, 0, 10,
+                () -> guard.protect(() -> Mono.just(new OcrApiResponse()), false));
+        long start = System.nanoTime();
+        service.start(null);
+        assertEquals("DONE", await(service).getState());
+        assertTrue((System.nanoTime() - start) / 1_000_000 >= 300, "pay doluyken çağrı yapıldı");
+        // 503 ile geri çevrilen deneme görseli hatalı saydırmaz
+        assertEquals(0, db.failed);
+        assertEquals(3, guard.availablePermits());
+    }
+
+    @Test
+    void stopDuringRejectedCallLeavesChunkUncheckpointed(@TempDir Path root) throws Exception {
+        files(root, "a.jpg", "b.jpg");
+        FakeDb db = new FakeDb();
+        List<String> calls = new CopyOnWriteArrayList<>();
+        AtomicReference<OcrReprocessService> ref = new AtomicReference<>();
+        AtomicBoolean busy = new AtomicBoolean(true);
+        // bulkhead dolu (503) iken kullanıcı durdurur: reddedilen görsel ERROR farkı olarak kaydedilmemeli
+        OcrReprocessService service = service(db, root, calls, 0, 10, () -> {
+            if (!busy.get()) return Mono.just(new OcrApiResponse());
+            ref.get().stop();
+            return Mono.error(new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE, "bulkhead dolu"));
+        });
+        ref.set(service);
+
+        service.start(null);
+        assertEquals("PAUSED", await(service).getState());
+        assertNull(db.checkpoint);
+        assertEquals(List.of(), db.diffs);
+        assertEquals(0, db.failed);
+
+        busy.set(false);
+        calls.clear();
+        service.start(null);
+        assertEquals("DONE", await(service).getState());
+        assertEquals(List.of("a.jpg", "b.jpg"), calls.stream().sorted().toList());
+        assertEquals(List.of("a.jpg", "b.jpg"), db.diffs);
+        assertEquals(0, db.failed);
+    }
+
+    private static void files(Path root, String... names) throws IOException {
+        for (String n : names) Files.write(root.resolve(n), new byte[] {1});
+    }
+
+    // her görsel ROI'siz döner: dosya başına tek NO_READ farkı yazılır
+    private static OcrReprocessService service(FakeDb db, Path root, List<String> calls, double rate, int chunkSize,
+                                               Supplier<Mono<OcrApiResponse>> call) {
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        OcrService ocr = new OcrService(null, null, null, new NoEngine(), registry, 65536) {
+            @Override
+            public Mono<OcrApiResponse> recognizeFresh(OcrUpload upload, boolean recordHistory) {
+                assertFalse(recordHistory, "yeniden işleme geçmişe yazılmamalı");
+                return Mono.defer(() -> {
+                    calls.add(upload.getFilename());
+                    return call.get();
+                });
+            }
+        };
+        RecognizeUiMapper mapper = new RecognizeUiMapper(null, null, null, null, null, false) {
+            @Override
+            public RecognizeUiResponse toUi(OcrApiResponse py) {
+                return new RecognizeUiResponse();
+            }
+        };
+        return new OcrReprocessService(ocr, mapper, null, db, db, registry, root.toString(),
+                "*.jpg", 3, rate, 2, chunkSize, 2, Duration.ofSeconds(10));
+    }
+
+    private static ReprocessStatus await(OcrReprocessService service) throws InterruptedException {
+        long deadline = System.nanoTime() + Duration.ofSeconds(10).toNanos();
+        while (System.nanoTime() < deadline) {
+            ReprocessStatus s = service.status();
+            if (!"RUNNING".equals(s.getState()) && !"STOPPING".equals(s.getState())) {
+                service.shutdown(); // koşu thread'i bitene kadar bekler
+                return s;
+            }
+            Thread.sleep(10);
+        }
+        fail("koşu bitmedi");
+        return null;
+    }
+
+    private static final class NoEngine implements OcrEngine {
+        @Override
+        public String name() {
+            return "test";
+        }
+
+        @Override
+        public Mono<OcrApiResponse> process(OcrUpload upload) {
+            return Mono.error(new UnsupportedOperationException());
+        }
+
+        @Override
+        public Mono<OcrApiResponse> processBody(Flux<DataBuffer> body, String filename, String contentType) {
+            return Mono.error(new UnsupportedOperationException());
+        }
+    }
+
+    // tek run satırı (run_id=1) + fark listesi; transaction içindeki yazılar commit'te uygulanır
+    private static final class FakeDb extends JdbcTemplate implements PlatformTransactionManager {
+        volatile String failCheckpointAt;
+        String status;
+        String checkpoint;
+        long processed;
+        long failed;
+        final List<String> diffs = new ArrayList<>();
+        private List<Runnable> pending;
+
+        @Override
+        public synchronized List<Map<String, Object>> queryForList(String sql, Object... args) {
+            if (status == null || "DONE".equals(status)) return List.of();
+            Map<String, Object> row = new HashMap<>();
+            row.put("run_id", 1L);
+            row.put("checkpoint", checkpoint);
+            return List.of(row);
+        }
+
+        @Override
+        public synchronized Map<String, Object> queryForMap(String sql, Object... args) {
+            return Map.of("processed", processed, "failed", failed, "diffs", (long) diffs.size());
+        }
+
+        @Override
+        public synchronized int update(PreparedStatementCreator psc, KeyHolder generatedKeyHolder) {
+            status = "RUNNING";
+            generatedKeyHolder.getKeyList().add(Map.of("run_id", 1L));
+            return 1;
+        }
+
+        @Override
+        public synchronized int update(String sql, Object... args) {
+            if (sql.contains("SET checkpoint = ?")) {
+                if (args[0].equals(failCheckpointAt)) throw new IllegalStateException("bağlantı koptu");
+                apply(() -> {
+                    checkpoint = (String) args[0];
+                    processed += ((Number) args[1]).longValue();
+                    failed += ((Number) args[2]).longValue();
+                });
+            } else if (sql.contains("SET status = ?")) {
+                apply(() -> status = (String) args[0]);
+            } else {
+                apply(() -> status = "RUNNING");
+            }
+            return 1;
+        }
+
+        @Override
+        public synchronized <T> int[][] batchUpdate(String sql, Collection<T> batchArgs, int batchSize,
+                                                    ParameterizedPreparedStatementSetter<T> pss) {
+            List<String> paths = batchArgs.stream().map(d -> ((ReprocessDiff) d).getImagePath()).sorted().toList();
+            apply(() -> diffs.addAll(paths));
+            return new int[][] {new int[paths.size()]};
+        }
+
+        private void apply(Runnable write) {
+            if (pending != null) pending.add(write);
+            else write.run();
+        }
+
+        @Override
+        public synchronized TransactionStatus getTransaction(TransactionDefinition definition) {
+            pending = new ArrayList<>();
+            return new SimpleTransactionStatus();
+        }
+
+        @Override
+        public synchronized void commit(TransactionStatus status) {
+            pending.forEach(Runnable::run);
+            pending = null;
+        }
+
+        @Override
+        public synchronized void rollback(TransactionStatus status) {
+            pending = null;
+        }
+    }
+}
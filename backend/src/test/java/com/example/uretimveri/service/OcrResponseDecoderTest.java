@@ -0,0 +1,200 @@
+package com.example.uretimveri.service;
+
+import com.example.uretimveri.ocr.OcrApiResponse;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DefaultDataBufferFactory;
+import reactor.core.publisher.Flux;
+
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class OcrResponseDecoderTest {
+
+    // Spring Boot'un ObjectMapper'ı gibi bilinmeyen alanları yok sayar
+    private final ObjectMapper mapper = new ObjectMapper()
+            .configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
+
+    @TempDir
+    Path spillDir;
+
+    private OcrResponseDecoder decoder() {
+        return new OcrResponseDecoder(mapper, new SimpleMeterRegistry(), 1024, spillDir.toString(), Duration.ofMinutes(5));
+    }
+
+    private static Flux<DataBuffer> chunks(byte[] json, int seed) {
+        return chunks(json, seed, 4096);
+    }
+
+    private static Flux<DataBuffer> chunks(byte[] json, int seed, int maxChunk) {
+        Random rnd = new Random(seed);
+        List<DataBuffer> out = new ArrayList<>();
+        for (int i = 0; i < json.length; ) {
+            int n = Math.min(json.length - i, 1 + rnd.nextInt(maxChunk));
+            out.add(DefaultDataBufferFactory.sharedInstance.wrap(java.util.Arrays.copyOfRange(json, i, i + n)));
+            i += n;
+        }
+        return Flux.fromIterable(out);
+    }
+
+    private static String response(int items, int imageChars) {
+        StringBuilder sb = new StringBuilder("{\"job_id\":\"j1\",\"meta\":{\"x\":[1,{\"items\":[]}]},\"source_image\":\"a.jpg\",\"count\":")
+                .append(items).append(",\"items\":[");
+        String image = "A".repeat(imageChars);
+        for (int i = 0; i < items; i++) {
+            if (i > 0) sb.append(',');
+            sb.append("{\"image\":\"").append(image).append("\",\"roi_index\":").append(i)
+              .append(",\"box\":[1,2,3,4],\"line_index\":-1,\"text\":\"2024|").append(1000 + i).append("\"}");
+        }
+        return sb.append("],\"saved_image\":null}").toString();
+    }
+
+    @Test
+    void decodesLikeObjectMapperAcrossArbitraryChunks() throws Exception {
+        String json = response(50, 10);
+        OcrApiResponse expected = mapper.readValue(json, OcrApiResponse.class);
+        for (int seed = 0; seed < 20; seed++) {
+            OcrApiResponse r = decoder().decode(chunks(json.getBytes(StandardCharsets.UTF_8), seed)).block();
+            assertEquals(expected.getJobId(), r.getJobId());
+            assertEquals(expected.getSourceImage(), r.getSourceImage());
+            assertEquals(expected.getCount(), r.getCount());
+            assertNull(r.getSavedImage());
+            assertEquals(50, r.getItems().size());
+            for (int i = 0; i < 50; i++) {
+                assertEquals(expected.getItems().get(i).getText(), r.getItems().get(i).getText());
+                assertEquals(expected.getItems().get(i).getRoiIndex(), r.getItems().get(i).getRoiIndex());
+                assertEquals(expected.getItems().get(i).getImage(), r.getItems().get(i).getImage());
+            }
+        }
+    }
+
+    @Test
+    void decodesBatchResultsInOrder() throws Exception {
+        String json = "{\"model\":{\"results\":[]},\"results\":[" + response(3, 10) + "," + response(0, 10) + ","
+                + response(2, 5000).replace("\"j1\"", "\"j3\"") + "],\"took\":[1,2]}";
+        for (int seed = 0; seed < 10; seed++) {
+            List<OcrApiResponse> r = decoder().decodeBatch(chunks(json.getBytes(StandardCharsets.UTF_8), seed)).block();
+            assertEquals(3, r.size());
+            assertEquals(List.of(3, 0, 2), r.stream().map(x -> x.getItems().size()).toList());
+            assertEquals("j3", r.get(2).getJobId());
+            assertEquals("2024|1001", r.get(0).getItems().get(1).getText());
+            assertTrue(r.get(2).getItems().get(0).getImage().startsWith(OcrResponseDecoder.SPILL_PREFIX));
+        }
+    }
+
+    @Test
+    void spillsLargeImageFields() throws Exception {
+        OcrResponseDecoder d = decoder();
+        OcrApiResponse r = d.decode(chunks(response(3, 5000).getBytes(StandardCharsets.UTF_8), 1)).block();
+        String ref = r.getItems().get(0).getImage();
+        assertTrue(ref.startsWith(OcrResponseDecoder.SPILL_PREFIX));
+        Path file = d.spilled(ref.substring(OcrResponseDecoder.SPILL_PREFIX.length())).orElseThrow();
+        assertEquals("A".repeat(5000), Files.readString(file));
+        assertTrue(d.spilled("../etc/passwd").isEmpty());
+    }
+
+    // image değeri Jackson'a gitmeden ayıklanır: kaçışlar (parça sınırında bölünse de) dosyada çözülmüş olmalı
+    @Test
+    void spilledImagesMatchObjectMapperDespiteEscapes() throws Exception {
+        String image = "data:image/jpeg;base64," + "QUJD\\/\\\"x\\\\y\\n\\u00e7\\uD83D\\uDE00".repeat(200);
+        String json = "{\"job_id\":\"image\",\"meta\":{\"image\":\"" + image + "\"},\"items\":["
+                + "{\"text\":\"image\",\"image\" : \"" + image + "\",\"roi_index\":0},"
+                + "{\"image\":\"kısa\\\"\",\"text\":\"a\"},"
+                + "{\"image\":null,\"text\":\"b\"}]}";
+        OcrApiResponse expected = mapper.readValue(json, OcrApiResponse.class);
+        String expectedImage = expected.getItems().get(0).getImage();
+        assertTrue(expectedImage.contains("ç\uD83D\uDE00"));
+
+        OcrResponseDecoder d = decoder();
+        byte[] bytes = json.getBytes(StandardCharsets.UTF_8);
+        for (int seed = 0; seed < 20; seed++) {
+            OcrApiResponse r = d.decode(chunks(bytes, seed, 7)).block(); // kaçış dizileri sık sık bölünür
+            assertEquals("image", r.getJobId());
+            assertEquals(3, r.getItems().size());
+            assertEquals("image", r.getItems().get(0).getText());
+            String ref = r.getItems().get(0).getImage();
+            assertTrue(ref.startsWith(OcrResponseDecoder.SPILL_PREFIX));
+            Path file = d.spilled(ref.substring(OcrResponseDecoder.SPILL_PREFIX.length())).orElseThrow();
+            assertEquals(expectedImage, Files.readString(file));
+            assertEquals("kısa\"", r.getItems().get(1).getImage());
+            assertNull(r.getItems().get(2).getImage());
+        }
+    }
+
+    // tutulan sonuç ROI sayısıyla değil metinle büyür: her büyük image alanı diske, öğede sadece id kalır
+    @Test
+    void retainsOnlySpillIdsForLargeImages() throws Exception {
+        OcrResponseDecoder d = decoder();
+        for (int rois : new int[] {10, 100, 400}) {
+            byte[] json = response(rois, 20_000).getBytes(StandardCharsets.UTF_8);
+            OcrApiResponse streamed = d.decode(chunks(json, rois)).block();
+
+            assertEquals(rois, streamed.getItems().size());
+            long retained = streamed.getItems().stream().mapToLong(i -> i.getImage().length() + i.getText().length()).sum();
+            assertTrue(retained < 64L * rois, "akışta büyük alanlar bellekte tutulmamalı");
+            assertTrue(streamed.getItems().stream().allMatch(i -> i.getImage().startsWith(OcrResponseDecoder.SPILL_PREFIX)));
+        }
+        try (var files = Files.list(spillDir)) {
+            assertEquals(510, files.count());
+        }
+    }
+
+    // Çözme ayırması cevap ya da alan boyutuyla değil ROI sayısıyla büyümeli: büyük image alanı parça parça
+    // diske akar, tam String/char[] olarak kurulmaz (mvn test -Pperf). Çözme boundedElastic'te koştuğu için
+    // tüm thread'ler sayılır.
+    @Test
+    @Tag("perf")
+    void allocationDoesNotScaleWithResponseSize() {
+        OcrResponseDecoder d = decoder();
+        int imageChars = 256 * 1024;
+        for (int i = 0; i < 3; i++) allocated(d, response(10, imageChars), 1); // ısınma (JIT, tampon havuzları)
+
+        long few = allocated(d, response(10, imageChars), 3);
+        long many = allocated(d, response(200, imageChars), 3);
+        long smallImages = allocated(d, response(200, 16 * 1024), 3);
+        long manyBytes = response(200, imageChars).length();
+        long extraBytes = manyBytes - response(200, 16 * 1024).length();
+        System.out.printf("yanıt çözme ayırması: 10 ROI %d KB, 200 ROI %d KB (yanıt %d KB), 200 ROI x 16 KB görsel %d KB%n",
+                few / 1024, many / 1024, manyBytes / 1024, smallImages / 1024);
+        // eskiden yanıt baytı başına ~2 bayt (char[]); kalan artış parça (DataBuffer) başına sabit maliyet
+        assertTrue(many < manyBytes / 8, "ayırma yanıt boyutunu izliyor: " + many + " / " + manyBytes);
+        assertTrue(many - smallImages < extraBytes / 8, "ayırma görsel boyutuyla büyüyor: " + many + " / " + smallImages);
+    }
+
+    // decode başına tüm thread'lerde ayrılan bayt; girdi parçaları ölçümden önce hazırlanır
+    private static long allocated(OcrResponseDecoder d, String json, int rounds) {
+        byte[] bytes = json.getBytes(StandardCharsets.UTF_8);
+        List<Flux<DataBuffer>> inputs = new ArrayList<>();
+        for (int r = 0; r < rounds; r++) inputs.add(chunks(bytes, r));
+        Map<Long, Long> before = threadAllocations();
+        for (Flux<DataBuffer> in : inputs) assertNotNull(d.decode(in).block());
+        Map<Long, Long> after = threadAllocations();
+        long total = 0;
+        for (Map.Entry<Long, Long> e : after.entrySet()) total += e.getValue() - before.getOrDefault(e.getKey(), 0L);
+        return total / rounds;
+    }
+
+    private static Map<Long, Long> threadAllocations() {
+        com.sun.management.ThreadMXBean mx = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long[] ids = mx.getAllThreadIds();
+        long[] bytes = mx.getThreadAllocatedBytes(ids);
+        Map<Long, Long> out = new HashMap<>();
+        for (int i = 0; i < ids.length; i++) if (bytes[i] >= 0) out.put(ids[i], bytes[i]);
+        return out;
+    }
+}
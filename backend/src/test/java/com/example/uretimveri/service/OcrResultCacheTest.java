@@ -0,0 +1,104 @@
+package com.example.uretimveri.service;
+
+import com.example.uretimveri.ocr.OcrApiResponse;
+import com.example.uretimveri.ocr.OcrItem;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class OcrResultCacheTest {
+
+    private static final String SPILL_ID = "0123456789abcdef0123456789abcdef";
+
+    @TempDir
+    Path tmp;
+
+    private OcrResultCache cache(String diskDir) {
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        OcrResponseDecoder decoder = new OcrResponseDecoder(new ObjectMapper(), registry, 1024,
+                tmp.resolve("spill").toString(), Duration.ofMinutes(30));
+        return new OcrResultCache(new ObjectMapper(), decoder, registry, true, 10, 1 << 20,
+                Duration.ofMinutes(10), Duration.ofDays(7), diskDir);
+    }
+
+    private static OcrApiResponse response(String image) {
+        OcrItem it = new OcrItem();
+        it.setRoiIndex(0);
+        it.setText("202410150083");
+        it.setImage(image);
+        OcrApiResponse r = new OcrApiResponse();
+        r.setJobId("j1");
+        r.setItems(new ArrayList<>(List.of(it)));
+        return r;
+    }
+
+    @Test
+    void hitsAreIsolatedCopies() {
+        OcrResultCache cache = cache("");
+        OcrApiResponse original = response("a.jpg");
+        cache.put("h", original);
+        original.getItems().get(0).setText("değişti"); // yazan istek sonucu sonradan değiştirir
+
+        OcrApiResponse first = cache.get("h");
+        assertEquals("202410150083", first.getItems().get(0).getText());
+        first.getItems().get(0).setImage("/api/slabs/images/x");
+        first.getItems().add(new OcrItem());
+
+        OcrApiResponse second = cache.get("h");
+        assertNotSame(first, second);
+        assertEquals(1, second.getItems().size());
+        assertEquals("a.jpg", second.getItems().get(0).getImage());
+    }
+
+    @Test
+    void hitRenewsSpillFilesAndMissesOnceTheyAreGone() throws IOException {
+        Path spill = Files.createDirectories(tmp.resolve("spill")).resolve(SPILL_ID);
+        Files.writeString(spill, "iVBORw0KGgo=");
+        Instant old = Instant.now().minus(Duration.ofMinutes(25));
+        Files.setLastModifiedTime(spill, FileTime.from(old));
+
+        Path disk = tmp.resolve("cache");
+        OcrResultCache cache = cache(disk.toString());
+        cache.put("ab12", response(OcrResponseDecoder.SPILL_PREFIX + SPILL_ID));
+
+        assertNotNull(cache.get("ab12"));
+        assertTrue(Files.getLastModifiedTime(spill).toInstant().isAfter(old.plusSeconds(60)),
+                "isabette spill süresi yenilenmeli");
+
+        // spill süpürüldü: kayıt ölü id taşıyor, bellek ve disk kaydı atılır
+        Files.delete(spill);
+        assertNull(cache.get("ab12"));
+        try (Stream<Path> files = Files.walk(disk)) {
+            assertEquals(0, files.filter(p -> p.toString().endsWith(".json")).count());
+        }
+    }
+
+    @Test
+    void diskEntryWithExpiredSpillIsAMissAfterRestart() throws IOException {
+        Path spill = Files.createDirectories(tmp.resolve("spill")).resolve(SPILL_ID);
+        Files.writeString(spill, "iVBORw0KGgo=");
+        Path disk = tmp.resolve("cache");
+        cache(disk.toString()).put("cd34", response(OcrResponseDecoder.SPILL_PREFIX + SPILL_ID));
+
+        OcrResultCache restarted = cache(disk.toString());
+        assertNotNull(restarted.get("cd34")); // dosya duruyor: disk isabeti
+
+        OcrResultCache again = cache(disk.toString());
+        Files.delete(spill);
+        assertNull(again.get("cd34"));
+        assertFalse(Files.exists(disk.resolve("cd").resolve("cd34.json")));
+    }
+}
@@ -0,0 +1,108 @@
+package com.example.uretimveri.service;
+
+import com.example.uretimveri.ocr.OcrApiResponse;
+import com.example.uretimveri.ocr.OcrStreamEvent;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sun.net.httpserver.HttpServer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockMultipartFile;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.scheduler.Schedulers;
+
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// /process_stream yerel stub'ı: ilk ROI gönderildikten sonra, test onu alana kadar akış bekletilir
+class OcrServiceStreamTest {
+
+    private HttpServer server;
+
+    @AfterEach
+    void tearDown() {
+        if (server != null) server.stop(0);
+    }
+
+    @Test
+    void emitsFirstRoiBeforeResponseCompletes() throws Exception {
+        CountDownLatch firstSeen = new CountDownLatch(1);
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/process_stream", ex -> {
+            ex.getRequestBody().readAllBytes();
+            ex.getResponseHeaders().add("Content-Type", "application/x-ndjson");
+            ex.sendResponseHeaders(200, 0); // chunked
+            try (OutputStream out = ex.getResponseBody()) {
+                write(out, "{\"type\":\"item\",\"image\":\"a.jpg\",\"roi_index\":0,\"line_index\":-1,\"text\":\"202410150083\"}\n");
+                if (!firstSeen.await(5, TimeUnit.SECONDS)) return; // Java tarafı ilk öğeyi görmeden devam etme
+                write(out, "{\"type\":\"item\",\"image\":\"a.jpg\",\"roi_index\":1,\"line_index\":-1,\"text\":\"12|345\"}\n");
+                write(out, "{\"type\":\"done\",\"job_id\":\"j1\",\"source_image\":\"a.jpg\",\"count\":2}\n");
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        server.start();
+        String base = "http://127.0.0.1:" + server.getAddress().getPort();
+
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        WebClient client = WebClient.create();
+        OcrResponseDecoder decoder = new OcrResponseDecoder(new ObjectMapper(), registry, 65536, "", Duration.ofMinutes(30));
+        List<String> putThreads = new CopyOnWriteArrayList<>();
+        OcrResultCache cache = new OcrResultCache(new ObjectMapper(), decoder, registry, true, 10, 1 << 20,
+                Duration.ofMinutes(1), Duration.ofDays(1), "") {
+            @Override
+            public void put(String hash, OcrApiResponse value) {
+                if (Schedulers.isInNonBlockingThread()) putThreads.add(Thread.currentThread().getName());
+                super.put(hash, value);
+            }
+        };
+        OcrCallGuard guard = new OcrCallGuard(registry, Duration.ofSeconds(10), 4, 10, 5, 0.5,
+                Duration.ofSeconds(1), 0, Duration.ofMillis(10), 0.2, 10,
+                Duration.ofSeconds(100), Duration.ofSeconds(120));
+        OcrReplicaPool pool = new OcrReplicaPool(client, registry, base, Duration.ZERO, 2, false, 1);
+        ImagePreprocessor pre = new ImagePreprocessor(registry, false, 1600, false, "", 0.85f, 64, 0);
+        OcrHistoryStore history = new OcrHistoryStore(null, new ObjectMapper(), new LvdtParser(10, 18, List.of(), List.of()),
+                registry, false, 10, 10, Duration.ofSeconds(1), OcrHistoryStore.Overflow.DROP, Duration.ZERO);
+        OcrService service = new OcrService(cache, pre, history,
+                new HttpOcrEngine(client, guard, pool, decoder,
+                        new OcrMicroBatcher(client, guard, pool, decoder, registry, false, 8, Duration.ofMillis(10), Duration.ofSeconds(2))),
+                registry, 65536);
+
+        MockMultipartFile file = new MockMultipartFile("file", "a.jpg", "image/jpeg", new byte[] {1, 2, 3});
+        List<OcrStreamEvent> events = new CopyOnWriteArrayList<>();
+        service.recognizeEvents(file)
+                .doOnNext(e -> {
+                    events.add(e);
+                    if (e.isItem()) firstSeen.countDown();
+                })
+                .blockLast(Duration.ofSeconds(10));
+
+        assertEquals(3, events.size());
+        assertEquals("202410150083", events.get(0).getText());
+        assertTrue(events.get(2).isDone());
+        // önbellek JSON'a çevirip diske yazabilir: Netty event loop'unda çalışmamalı
+        assertTrue(putThreads.isEmpty(), putThreads::toString);
+
+        // tamamlanan akış önbelleğe yazıldı: ikinci çağrı Python'a gitmeden aynı olayları verir
+        server.stop(0);
+        server = null;
+        List<OcrStreamEvent> replay = service.recognizeEvents(file).collectList().block(Duration.ofSeconds(5));
+        assertEquals(3, replay.size());
+        OcrApiResponse cached = cache.get(OcrService.sha256(file.getResource()));
+        assertEquals("j1", cached.getJobId());
+        assertEquals(2, cached.getItems().size());
+    }
+
+    private static void write(OutputStream out, String line) throws java.io.IOException {
+        out.write(line.getBytes(StandardCharsets.UTF_8));
+        out.flush();
+    }
+}
@@ -0,0 +1,389 @@
+package com.example.uretimveri.service;
+
+import com.example.uretimveri.config.OcrEngineConfig;
+import com.example.uretimveri.ocr.OcrApiResponse;
+import com.example.uretimveri.ocr.OcrItem;
+import com.example.uretimveri.ocr.OcrUpload;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sun.net.httpserver.HttpServer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.core.io.ByteArrayResource;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DefaultDataBufferFactory;
+import org.springframework.util.unit.DataSize;
+import org.springframework.web.reactive.function.client.WebClient;
+import org.springframework.web.server.ResponseStatusException;
+import reactor.core.publisher.Flux;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.Executors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// Test modelleri ultralytics YOLOv8 ONNX çıktısı biçiminde ([1, 4+nc, N]) elle kodlanır:
+// girdi ReduceMean * 0 ile sabit tahmine eklenir, yani model girdiyi tüketir ama çıktısı sabittir.
+class OnnxOcrEngineTest {
+
+    private static final int S = 64;
+
+    @TempDir
+    Path dir;
+
+    // 128x64 görselde letterbox: kazanç 0.5, üstte 16 px dolgu
+    private static double[] lb(double x1, double y1, double x2, double y2) {
+        return new double[] {x1 * 0.5, y1 * 0.5 + 16, x2 * 0.5, y2 * 0.5 + 16};
+    }
+
+    // {sınıf, güven, x1, y1, x2, y2} orijinal görsel koordinatında
+    private static final double[][] ROIS = {
+            {0, 0.80, 10, 36, 60, 60},   // alt ROI
+            {0, 0.90, 10, 4, 60, 28},    // üst ROI
+            {0, 0.70, 11, 5, 61, 29},    // üst ROI'nin kopyası: birleştirilir
+            {0, 0.30, 80, 10, 120, 50},  // roi-conf altında
+    };
+
+    private static final double[][] DIGITS = {
+            // üst ROI, tek satır: 2024 (karışık sırada)
+            {2, 0.9, 31, 11, 39, 21}, {0, 0.9, 21, 11, 29, 21}, {4, 0.9, 41, 11, 49, 21}, {2, 0.9, 11, 11, 19, 21},
+            {8, 0.5, 21, 11, 29, 21},    // aynı yerde daha düşük güvenli başka sınıf: sınıftan bağımsız birleştirme
+            {7, 0.05, 51, 11, 57, 21},   // digit-conf altında
+            // alt ROI, iki satır: 123 | 456
+            {5, 0.8, 31, 50, 39, 58}, {1, 0.8, 11, 38, 19, 46}, {3, 0.8, 31, 38, 39, 46},
+            {4, 0.8, 11, 50, 19, 58}, {2, 0.8, 21, 38, 29, 46}, {6, 0.8, 41, 50, 49, 58},
+            {9, 0.9, 100, 20, 108, 30},  // hiçbir ROI'de değil
+    };
+
+    @Test
+    void readsRoisAndRowsLikeThePythonPipeline() throws Exception {
+        try (OnnxOcrEngine engine = engine(0.6, DataSize.ofMegabytes(1))) {
+            OcrApiResponse r = engine.process(upload("slab.png", image(128, 64, "png"))).block(Duration.ofSeconds(10));
+
+            assertEquals("slab.png", r.getSourceImage());
+            assertTrue(r.getJobId().matches("\\d+_[0-9a-f]{8}"), r.getJobId());
+            assertEquals(2, r.getCount());
+            assertEquals(List.of("0:2024", "1:123|456"), summary(r));
+            assertTrue(r.getItems().stream().allMatch(i -> "slab.png".equals(i.getImage())));
+            assertEquals(summary(r), summary(engine.processEvents(upload("slab.png", image(128, 64, "png")))
+                    .filter(e -> e.isItem()).map(e -> e.toItem()).collectList()
+                    .map(items -> { OcrApiResponse x = new OcrApiResponse(); x.setItems(items); return x; })
+                    .block(Duration.ofSeconds(10))));
+        }
+    }
+
+    @Test
+    void withoutRoiReturnsSingleDashRowAndBoundsRawBodies() throws Exception {
+        try (OnnxOcrEngine engine = engine(0.95, DataSize.ofKilobytes(64))) {
+            OcrApiResponse none = engine.process(upload("a.png", image(128, 64, "png"))).block(Duration.ofSeconds(10));
+            assertEquals(List.of("-1:-"), summary(none));
+            assertEquals(1, none.getCount());
+
+            OcrApiResponse unreadable = engine.processBody(body("not an image".getBytes(StandardCharsets.UTF_8)),
+                    "x.jpg", "image/jpeg").block(Duration.ofSeconds(10));
+            assertEquals(List.of("-1:-"), summary(unreadable));
+
+            byte[] big = image(640, 480, "png"); // rastgele gürültü: 64 KB'tan büyük
+            ResponseStatusException e = assertThrows(ResponseStatusException.class,
+                    () -> engine.processBody(body(big), "big.png", "image/png").block(Duration.ofSeconds(10)));
+            assertEquals(413, e.getStatusCode().value());
+        }
+    }
+
+    @Test
+    void ordersTiltedRoisAlongTheirMainAxis() {
+        // eğik yığın: ana eksen yukarı yönlendirilir, ROI'ler eksen boyunca üstten alta
+        List<OnnxOcrEngine.Det> rois = List.of(
+                det(0, 1, 100, 140, 160, 160),
+                det(0, 1, 40, 20, 100, 40),
+                det(0, 1, 70, 80, 130, 100));
+        List<OnnxOcrEngine.Det> ordered = OnnxOcrEngine.orderRois(rois);
+        assertEquals(List.of(30.0, 90.0, 150.0), ordered.stream().map(OnnxOcrEngine.Det::cy).toList());
+
+        // az rakamda satırlar y yakınlığıyla ayrılır
+        List<List<OnnxOcrEngine.Det>> rows = OnnxOcrEngine.groupRows(List.of(
+                det(7, 1, 20, 40, 28, 50), det(1, 1, 10, 0, 18, 10), det(3, 1, 10, 40, 18, 50)));
+        assertEquals("1|37", OnnxOcrEngine.text(rows));
+        assertEquals("-", OnnxOcrEngine.text(OnnxOcrEngine.groupRows(List.of())));
+    }
+
+    @Test
+    void unknownEngineFailsFastWithClearMessage() {
+        IllegalStateException e = assertThrows(IllegalStateException.class,
+                () -> new OcrEngineConfig().ocrEngine("tesseract", null, null));
+        assertTrue(e.getMessage().contains("tesseract") && e.getMessage().contains("http, onnx"), e.getMessage());
+    }
+
+    // Süreç içi motor ile aynı boru hattını HTTP üzerinden çalıştıran stub'ın karşılaştırması. Stub, server.py'nin
+    // model dışındaki işini yapar: yüklemeyi diske yazar, görseli çözer, debug görseli ve CSV yazar, CSV'yi okur.
+    // Modeller aynı olduğundan fark HTTP + dosya sistemi atlamasıdır. mvn test -Pperf
+    @Tag("perf")
+    @Test
+    void inProcessEngineSkipsTheHttpHop() throws Exception {
+        int frames = 60;
+        byte[] jpeg = frame(1280, 720);
+        Path jobs = Files.createDirectories(dir.resolve("jobs"));
+        String json = new ObjectMapper().writeValueAsString(expectedResponse());
+
+        HttpServer server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 64);
+        server.setExecutor(Executors.newFixedThreadPool(2));
+        server.createContext("/process", ex -> {
+            byte[] req = filePart(ex.getRequestBody().readAllBytes());
+            Path job = Files.createTempDirectory(jobs, "job");
+            Files.write(job.resolve("in.jpg"), req);
+            BufferedImage img = ImageIO.read(job.resolve("in.jpg").toFile());
+            ImageIO.write(img, "jpg", job.resolve("debug.jpg").toFile());
+            Files.writeString(job.resolve("results.csv"), "image;roi_index;text\nslab.jpg;0;2024\nslab.jpg;1;123|456\n");
+            Files.readAllLines(job.resolve("results.csv"));
+            byte[] b = json.getBytes(StandardCharsets.UTF_8);
+            ex.getResponseHeaders().add("Content-Type", "application/json");
+            ex.sendResponseHeaders(200, b.length);
+            ex.getResponseBody().write(b);
+            ex.close();
+        });
+        server.start();
+        String base = "http://127.0.0.1:" + server.getAddress().getPort();
+
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        WebClient client = WebClient.create();
+        OcrCallGuard guard = new OcrCallGuard(registry, Duration.ofSeconds(30), 8, 20, 10, 0.5,
+                Duration.ofSeconds(1), 0, Duration.ofMillis(10), 0.2, 10, Duration.ofSeconds(100), Duration.ofSeconds(120));
+        OcrReplicaPool pool = new OcrReplicaPool(client, registry, base, Duration.ZERO, 2, false, 1);
+        OcrResponseDecoder decoder = new OcrResponseDecoder(new ObjectMapper(), registry, 65536,
+                dir.resolve("spill").toString(), Duration.ofMinutes(5));
+        HttpOcrEngine http = new HttpOcrEngine(client, guard, pool, decoder,
+                new OcrMicroBatcher(client, guard, pool, decoder, registry, false, 8, Duration.ofMillis(10), Duration.ofSeconds(2)));
+
+        // 640 girişli modeller (ultralytics varsayılan dışa aktarımı); sabit tahminler bu kare için
+        // anlamlı değil, ölçülen iki yolun tam turu
+        Path roi = dir.resolve("roi-640.onnx");
+        Path digit = dir.resolve("digit-640.onnx");
+        Files.write(roi, yoloModel(1, ROIS, 640));
+        Files.write(digit, yoloModel(10, DIGITS, 640));
+        try (OnnxOcrEngine onnx = new OnnxOcrEngine(roi.toString(), digit.toString(), 0.6, 0.1, 0.35, 1024, 0, 2, 16,
+                DataSize.ofMegabytes(20))) {
+            long[] httpNanos = run(frames, () -> http.process(upload("slab.jpg", jpeg)).block(Duration.ofSeconds(30)));
+            long[] onnxNanos = run(frames, () -> onnx.process(upload("slab.jpg", jpeg)).block(Duration.ofSeconds(30)));
+            long httpP50 = httpNanos[frames / 2];
+            long onnxP50 = onnxNanos[frames / 2];
+            assertTrue(onnxP50 < httpP50, () -> String.format(
+                    "süreç içi p50 %.2f ms, HTTP p50 %.2f ms", onnxP50 / 1e6, httpP50 / 1e6));
+        } finally {
+            server.stop(0);
+        }
+    }
+
+    // tek dosyalı multipart gövdeden dosya baytları: başlıktan sonraki boş satırdan son sınıra kadar
+    private static byte[] filePart(byte[] body) {
+        String latin = new String(body, StandardCharsets.ISO_8859_1);
+        int start = latin.indexOf("\r\n\r\n") + 4;
+        int end = latin.lastIndexOf("\r\n--");
+        return Arrays.copyOfRange(body, start, end);
+    }
+
+    private interface Call {
+        OcrApiResponse call() throws Exception;
+    }
+
+    // ilk çağrılar ısınma; kalan süreler sıralı döner
+    private static long[] run(int frames, Call call) throws Exception {
+        for (int i = 0; i < 5; i++) assertNotNull(call.call());
+        long[] nanos = new long[frames];
+        for (int i = 0; i < frames; i++) {
+            long t = System.nanoTime();
+            assertNotNull(call.call());
+            nanos[i] = System.nanoTime() - t;
+        }
+        Arrays.sort(nanos);
+        return nanos;
+    }
+
+    private static OcrApiResponse expectedResponse() {
+        OcrApiResponse r = new OcrApiResponse();
+        r.setJobId("1_abcdef01");
+        r.setSourceImage("slab.jpg");
+        r.setCount(2);
+        List<OcrItem> items = new ArrayList<>();
+        for (String[] row : new String[][] {{"0", "2024"}, {"1", "123|456"}}) {
+            OcrItem it = new OcrItem();
+            it.setImage("slab.jpg");
+            it.setRoiIndex(Integer.parseInt(row[0]));
+            it.setText(row[1]);
+            items.add(it);
+        }
+        r.setItems(items);
+        return r;
+    }
+
+    private OnnxOcrEngine engine(double roiConf, DataSize maxBytes) throws Exception {
+        Path roi = dir.resolve("roi-" + roiConf + ".onnx");
+        Path digit = dir.resolve("digit-" + roiConf + ".onnx");
+        Files.write(roi, yoloModel(1, ROIS, S));
+        Files.write(digit, yoloModel(10, DIGITS, S));
+        return new OnnxOcrEngine(roi.toString(), digit.toString(), roiConf, 0.1, 0.35, 1024, 1, 2, 16, maxBytes);
+    }
+
+    private static List<String> summary(OcrApiResponse r) {
+        return r.getItems().stream().map(i -> i.getRoiIndex() + ":" + i.getText()).toList();
+    }
+
+    private static OnnxOcrEngine.Det det(int cls, double conf, double x1, double y1, double x2, double y2) {
+        return new OnnxOcrEngine.Det(cls, conf, x1, y1, x2, y2);
+    }
+
+    private static OcrUpload upload(String name, byte[] bytes) {
+        return new OcrUpload(new ByteArrayResource(bytes), name, "image/jpeg");
+    }
+
+    private static Flux<DataBuffer> body(byte[] bytes) {
+        List<DataBuffer> chunks = new ArrayList<>();
+        for (int i = 0; i < bytes.length; i += 1024) {
+            chunks.add(DefaultDataBufferFactory.sharedInstance.wrap(
+                    Arrays.copyOfRange(bytes, i, Math.min(bytes.length, i + 1024))));
+        }
+        return Flux.fromIterable(chunks);
+    }
+
+    // kamera karesine benzer yumuşak geçişli görsel (gürültülü JPEG çözmesi ölçümü bozmasın)
+    private static byte[] frame(int w, int h) throws IOException {
+        BufferedImage img = new BufferedImage(w, h, BufferedImage.TYPE_3BYTE_BGR);
+        for (int y = 0; y < h; y++) {
+            for (int x = 0; x < w; x++) {
+                int v = (x / 4 + y / 3) & 0xFF;
+                img.setRGB(x, y, (v << 16) | ((255 - v) << 8) | (x * 255 / w));
+            }
+        }
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ImageIO.write(img, "jpg", out);
+        return out.toByteArray();
+    }
+
+    private static byte[] image(int w, int h, String format) throws IOException {
+        BufferedImage img = new BufferedImage(w, h, BufferedImage.TYPE_3BYTE_BGR);
+        Random rnd = new Random(w * 31L + h);
+        for (int y = 0; y < h; y++) for (int x = 0; x < w; x++) img.setRGB(x, y, rnd.nextInt(0xFFFFFF));
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ImageIO.write(img, format, out);
+        return out.toByteArray();
+    }
+
+    // --- elle kodlanmış ONNX (opset 13): output0 = ReduceMean(images) * 0 + tahmin[1, 4+nc, N] ---
+
+    private static byte[] yoloModel(int nc, double[][] dets, int size) {
+        int rows = 4 + nc;
+        int n = dets.length;
+        float[] pred = new float[rows * n];
+        for (int j = 0; j < n; j++) {
+            double[] d = dets[j];
+            double[] b = lb(d[2], d[3], d[4], d[5]);
+            pred[j] = (float) ((b[0] + b[2]) / 2);
+            pred[n + j] = (float) ((b[1] + b[3]) / 2);
+            pred[2 * n + j] = (float) (b[2] - b[0]);
+            pred[3 * n + j] = (float) (b[3] - b[1]);
+            pred[(4 + (int) d[0]) * n + j] = (float) d[1];
+        }
+
+        Pb graph = new Pb()
+                .msg(1, node("ReduceMean", List.of("images"), "m",
+                        new Pb().str(1, "axes").ints(8, 1, 2, 3).varint(20, 7),
+                        new Pb().str(1, "keepdims").varint(3, 0).varint(20, 2)))
+                .msg(1, node("Mul", List.of("m", "zero"), "z"))
+                .msg(1, node("Add", List.of("z", "pred"), "output0"))
+                .str(2, "yolo-test")
+                .msg(5, tensor("zero", new long[] {1}, new float[] {0}))
+                .msg(5, tensor("pred", new long[] {1, rows, n}, pred))
+                .msg(11, valueInfo("images", 1, 3, size, size))
+                .msg(12, valueInfo("output0", 1, rows, n));
+        return new Pb()
+                .varint(1, 7)                     // ir_version
+                .str(2, "uretimveri-test")        // producer_name
+                .msg(7, graph)
+                .msg(8, new Pb().str(1, "").varint(2, 13)) // opset_import
+                .bytes();
+    }
+
+    private static Pb node(String op, List<String> inputs, String output, Pb... attributes) {
+        Pb node = new Pb();
+        inputs.forEach(i -> node.str(1, i));
+        node.str(2, output).str(3, output + "_node").str(4, op);
+        for (Pb a : attributes) node.msg(5, a);
+        return node;
+    }
+
+    private static Pb tensor(String name, long[] dims, float[] values) {
+        ByteBuffer raw = ByteBuffer.allocate(values.length * 4).order(ByteOrder.LITTLE_ENDIAN);
+        for (float v : values) raw.putFloat(v);
+        Pb t = new Pb();
+        for (long d : dims) t.varint(1, d);
+        return t.varint(2, 1).str(8, name).raw(9, raw.array()); // data_type FLOAT
+    }
+
+    private static Pb valueInfo(String name, long... dims) {
+        Pb shape = new Pb();
+        for (long d : dims) shape.msg(1, new Pb().varint(1, d));
+        Pb tensorType = new Pb().varint(1, 1).msg(2, shape);
+        return new Pb().str(1, name).msg(2, new Pb().msg(1, tensorType));
+    }
+
+    // protobuf tel biçimi: sadece varint (0) ve uzunluk önekli (2) alanlar
+    private static final class Pb {
+        private final ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        Pb varint(int field, long v) {
+            tag(field, 0);
+            writeVarint(v);
+            return this;
+        }
+
+        Pb ints(int field, long... values) {
+            for (long v : values) varint(field, v);
+            return this;
+        }
+
+        Pb str(int field, String s) {
+            return raw(field, s.getBytes(StandardCharsets.UTF_8));
+        }
+
+        Pb msg(int field, Pb m) {
+            return raw(field, m.bytes());
+        }
+
+        Pb raw(int field, byte[] b) {
+            tag(field, 2);
+            writeVarint(b.length);
+            out.writeBytes(b);
+            return this;
+        }
+
+        byte[] bytes() {
+            return out.toByteArray();
+        }
+
+        private void tag(int field, int wireType) {
+            writeVarint(((long) field << 3) | wireType);
+        }
+
+        private void writeVarint(long v) {
+            while ((v & ~0x7FL) != 0) {
+                out.write((int) ((v & 0x7F) | 0x80));
+                v >>>= 7;
+            }
+            out.write((int) v);
+        }
+    }
+}
@@ -0,0 +1,40 @@
+package com.example.uretimveri.service;
+
+import com.example.uretimveri.ocr.OcrApiResponse;
+import com.example.uretimveri.ocr.RecognizeUiResponse;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RecognizeUiMapperTest {
+
+    @Test
+    void mapsOffTheEmittingThread() {
+        AtomicReference<String> mappedOn = new AtomicReference<>();
+        RecognizeUiMapper mapper = new RecognizeUiMapper(null, null, null, null, null, false) {
+            @Override
+            public RecognizeUiResponse toUi(OcrApiResponse py) {
+                mappedOn.set(Thread.currentThread().getName());
+                return new RecognizeUiResponse();
+            }
+        };
+
+        // cevap Netty event loop'unu taklit eden tek thread'li bir scheduler'dan gelir
+        Scheduler loop = Schedulers.newSingle("fake-event-loop");
+        try {
+            Mono<OcrApiResponse> py = Mono.fromSupplier(OcrApiResponse::new).subscribeOn(loop);
+            assertNotNull(mapper.toUiAsync(py).block(Duration.ofSeconds(5)));
+            assertTrue(mappedOn.get().startsWith("boundedElastic"), mappedOn.get());
+        } finally {
+            loop.dispose();
+        }
+
+        assertNull(mapper.toUiAsync(Mono.empty()).block(Duration.ofSeconds(5)));
+    }
+}
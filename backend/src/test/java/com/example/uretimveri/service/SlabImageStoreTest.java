@@ -0,0 +1,88 @@
+package com.example.uretimveri.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Base64;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SlabImageStoreTest {
+
+    @TempDir
+    Path tmp;
+
+    @Test
+    void storesEachContentOnceAndMakesThumbnailsLazily() throws Exception {
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        SlabImageStore store = new SlabImageStore(registry, tmp.resolve("store").toString(),
+                tmp.resolve("py").toString(), 1 << 20, List.of(320, 160));
+        byte[] png = png(1200, 800);
+
+        String a = store.put(new ByteArrayInputStream(png));
+        String b = store.put(new ByteArrayInputStream(png));
+        assertEquals(a, b);
+        assertTrue(SlabImageStore.isHash(a));
+        assertEquals(1.0, registry.get("ocr.images.stored").tag("result", "new").counter().count());
+        assertEquals(1.0, registry.get("ocr.images.stored").tag("result", "duplicate").counter().count());
+        try (Stream<Path> files = Files.walk(tmp.resolve("store"))) {
+            assertEquals(1, files.filter(Files::isRegularFile).count(), "geçici dosya kaldı");
+        }
+        assertEquals("image/png", SlabImageStore.contentType(store.find(a).orElseThrow()));
+
+        assertEquals(160, store.snapWidth(100));
+        assertEquals(320, store.snapWidth(200));
+        assertEquals(320, store.snapWidth(5000));
+        Path thumb = store.thumbnail(a, 320).orElseThrow();
+        BufferedImage t = ImageIO.read(thumb.toFile());
+        assertEquals(320, t.getWidth());
+        assertEquals(213, t.getHeight());
+        assertEquals(thumb, store.thumbnail(a, 320).orElseThrow());
+        assertEquals(1.0, registry.get("ocr.images.thumbnails").counter().count());
+
+        // özgünden geniş küçük resim istenirse özgün döner
+        String small = store.put(new ByteArrayInputStream(png(100, 50)));
+        assertEquals(store.find(small), store.thumbnail(small, 160));
+    }
+
+    @Test
+    void ingestsDataUrisAndPythonOutputsOnly() throws Exception {
+        Path py = Files.createDirectories(tmp.resolve("py").resolve("job1"));
+        SlabImageStore store = new SlabImageStore(new SimpleMeterRegistry(), tmp.resolve("store").toString(),
+                tmp.resolve("py").toString(), 1 << 20, List.of(160));
+        byte[] png = png(40, 20);
+
+        String fromData = store.ingest("data:image/png;base64," + Base64.getEncoder().encodeToString(png));
+        assertNotNull(fromData);
+        assertTrue(fromData.startsWith(SlabImageStore.URL_PREFIX));
+
+        Path saved = Files.write(py.resolve("upload.png"), png);
+        assertEquals(fromData, store.ingest(saved.toString()));
+
+        Path outside = Files.write(tmp.resolve("secret.png"), png);
+        assertNull(store.ingest(outside.toString()));
+        assertNull(store.ingest(py.resolve("..").resolve("..").resolve("secret.png").toString()));
+        assertNull(store.ingest("upload.png"));
+        assertNull(store.ingest("data:text/plain;base64," + Base64.getEncoder().encodeToString("merhaba".getBytes())));
+
+        Path spill = Files.writeString(tmp.resolve("spill"), Base64.getMimeEncoder().encodeToString(png));
+        assertEquals(fromData, SlabImageStore.url(store.ingestBase64(spill)));
+    }
+
+    private static byte[] png(int w, int h) throws Exception {
+        BufferedImage img = new BufferedImage(w, h, BufferedImage.TYPE_INT_RGB);
+        for (int x = 0; x < w; x++) img.setRGB(x, x % h, 0xFF8800);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ImageIO.write(img, "png", out);
+        return out.toByteArray();
+    }
+}
@@ -0,0 +1,130 @@
+package com.example.uretimveri.service;
+
+import com.example.uretimveri.dto.DataTablesRequest;
+import com.example.uretimveri.dto.DataTablesResponse;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TablePageServiceTest {
+
+    private final List<String> sql = new ArrayList<>();
+    private final List<List<Object>> args = new ArrayList<>();
+
+    // DB'siz: SQL'i kaydeder, sayfa boş, COUNT sorguları 42 döner
+    private final JdbcTemplate jdbc = new JdbcTemplate() {
+        @Override
+        public <T> List<T> query(String s, RowMapper<T> rowMapper, Object... a) {
+            sql.add(s);
+            args.add(Arrays.asList(a));
+            return List.of();
+        }
+
+        @Override
+        public <T> T queryForObject(String s, Class<T> type, Object... a) {
+            sql.add(s);
+            args.add(Arrays.asList(a));
+            return type.cast(42L);
+        }
+
+        @Override
+        public <T> T queryForObject(String s, Class<T> type) {
+            return queryForObject(s, type, new Object[0]);
+        }
+    };
+
+    @Test
+    void pagesOnIndexedColumnsOnly() {
+        TablePageService svc = new TablePageService(jdbc, 100, Duration.ofMinutes(1), 1000);
+
+        DataTablesResponse<Map<String, Object>> resp = svc.page("plates", DataTablesRequest.from(Map.of(
+                "draw", "3", "start", "40", "length", "5000",
+                "columns[1][data]", "pressureValue", "columns[4][data]", "lvdt",
+                "order[0][column]", "1", "order[0][dir]", "asc",   // indekssiz: yok sayılır
+                "order[1][column]", "4", "order[1][dir]", "desc")));
+
+        assertEquals(3, resp.getDraw());
+        assertEquals(42, resp.getRecordsTotal());
+        assertEquals(42, resp.getRecordsFiltered());
+        String page = sql.get(0);
+        assertTrue(page.contains("LIMIT ? OFFSET ?) pg ON pg.k = t.product_id"), page);
+        assertTrue(page.endsWith(" ORDER BY t.lvdt DESC, t.product_id ASC"), page);
+        assertFalse(page.contains("pressure_value ASC"), page);
+        assertEquals(List.of(100, 40), args.get(0), "length max-length'e kırpılmalı");
+
+        // toplam önbellekte: ikinci sayfada COUNT(*) tekrar çalışmaz
+        svc.page("plates", DataTablesRequest.from(Map.of("start", "10")));
+        assertEquals(3, sql.size());
+        assertTrue(sql.get(2).endsWith(" ORDER BY t.product_id ASC"), sql.get(2));
+    }
+
+    @Test
+    void searchesNumbersByIndexedPrefixRanges() {
+        TablePageService svc = new TablePageService(jdbc, 100, Duration.ofMinutes(1), 1000);
+
+        svc.page("plates", DataTablesRequest.from(Map.of("search[value]", " 2024001234567890 ")));
+        String page = sql.get(0);
+        assertTrue(page.contains("FROM plates t WHERE (t.product_id = ? OR (t.product_id >= ? AND t.product_id < ?)"), page);
+        assertTrue(page.contains("OR t.lvdt = ? OR (t.lvdt >= ? AND t.lvdt < ?)"), page);
+        assertFalse(page.contains("LIKE"), page); // birleşimli OR indeksi kullanamaz
+        // 16 hane: eşitlik + 17 ve 18 haneli aralıklar, iki kolon için; sonra LIMIT/OFFSET
+        assertEquals(List.of(2024001234567890L, 20240012345678900L, 20240012345678910L,
+                        202400123456789000L, 202400123456789100L), args.get(0).subList(0, 5));
+        assertEquals(2 * 5 + 2, args.get(0).size());
+        assertTrue(sql.get(2).contains("LIMIT 1000) c"), sql.get(2));
+
+        // kısa önek: 18 haneye kadar her uzunluk bir aralık, taşma yok
+        svc.page("plates", DataTablesRequest.from(Map.of("search[value]", "9")));
+        List<Object> a = args.get(args.size() - 1);
+        assertEquals(9L, a.get(0));
+        assertEquals(900_000_000_000_000_000L, a.get(a.size() / 2 - 2));
+        assertEquals(1_000_000_000_000_000_000L, a.get(a.size() / 2 - 1));
+    }
+
+    @Test
+    void searchesTextThroughProductsJoin() {
+        TablePageService svc = new TablePageService(jdbc, 100, Duration.ofMinutes(1), 1000);
+
+        svc.page("hot_coil", DataTablesRequest.from(Map.of("search[value]", "İsdemir")));
+        String page = sql.get(0);
+        assertTrue(page.contains("(SELECT t.product_id AS k FROM hot_coil t JOIN products p ON p.product_id = t.product_id "
+                + "WHERE (p.provider LIKE ? OR p.product_type LIKE ? OR p.material LIKE ? OR p.status LIKE ?)"), page);
+        assertEquals(List.of("İsdemir%", "İsdemir%", "İsdemir%", "İsdemir%", 10, 0), args.get(0));
+        assertTrue(sql.get(2).contains("FROM hot_coil t JOIN products p"), sql.get(2));
+
+        // products kendi metin kolonlarında arar; sayısal arama metin önekine de bakar
+        svc.page("products", DataTablesRequest.from(Map.of("search[value]", "50%_a")));
+        int last = sql.size() - 1;
+        assertEquals("50\\%\\_a%", args.get(last).get(0));
+        assertTrue(sql.get(last).contains("FROM products t WHERE (t.provider LIKE ?"), sql.get(last));
+        svc.page("products", DataTablesRequest.from(Map.of("search[value]", "42")));
+        assertTrue(sql.get(sql.size() - 1).contains("t.product_id = ?"), sql.get(sql.size() - 1));
+        assertTrue(sql.get(sql.size() - 1).contains("t.provider LIKE ?"), sql.get(sql.size() - 1));
+
+        // baştaki sıfır sayı öneki olamaz: metin olarak aranır
+        svc.page("plates", DataTablesRequest.from(Map.of("search[value]", "0123")));
+        assertTrue(sql.get(sql.size() - 1).contains("p.provider LIKE ?"), sql.get(sql.size() - 1));
+
+        assertThrows(IllegalArgumentException.class, () -> svc.page("users", DataTablesRequest.from(Map.of())));
+    }
+
+    @Test
+    void writesDropCachedTotals() {
+        TablePageService svc = new TablePageService(jdbc, 100, Duration.ofMinutes(1), 1000);
+        svc.page("cold_coil", DataTablesRequest.from(Map.of()));
+        svc.page("cold_coil", DataTablesRequest.from(Map.of()));
+        assertEquals(1, sql.stream().filter(s -> s.equals("SELECT COUNT(*) FROM cold_coil")).count());
+
+        svc.invalidateTotals();
+        svc.page("cold_coil", DataTablesRequest.from(Map.of()));
+        assertEquals(2, sql.stream().filter(s -> s.equals("SELECT COUNT(*) FROM cold_coil")).count());
+    }
+}
@@ -198,8 +198,7 @@ def digits_inside_roi(roi_box, digit_items):
             inside.append(it)
     return inside
 
-def predict_digits(img, conf=CONF_DIGIT, merge_iou=MERGE_IOU):
-    det = digit_model.predict(img, conf=conf, verbose=False)[0]
+def _digit_items(det):
     items = []
     if det.boxes is not None and len(det.boxes) > 0:
         for box in det.boxes:
@@ -208,10 +207,9 @@ def predict_digits(img, conf=CONF_DIGIT, merge_iou=MERGE_IOU):
             cls  = int(box.cls[0].detach().cpu().item())
             conf = float(box.conf[0].detach().cpu().item())
             items.append({"cls": cls, "conf": conf, "box": (x1,y1,x2,y2)})
-    return nms_agnostic_keep_best(items, merge_iou)
+    return items
 
-def predict_rois(img, conf=CONF_ROI, merge_iou=MERGE_IOU):
-    det = roi_model.predict(img, conf=conf, verbose=False)[0]
+def _roi_items(det):
     items = []
     if det.boxes is not None and len(det.boxes) > 0:
         for box in det.boxes:
@@ -219,17 +217,39 @@ def predict_rois(img, conf=CONF_ROI, merge_iou=MERGE_IOU):
             x1,y1,x2,y2 = [float(v) for v in xyxy]
             conf = float(box.conf[0].detach().cpu().item())
             items.append({"cls": None, "conf": conf, "box": (x1,y1,x2,y2)})
-    return nms_agnostic_keep_best(items, merge_iou)
+    return items
+
+def predict_digits(img, conf=CONF_DIGIT, merge_iou=MERGE_IOU):
+    det = digit_model.predict(img, conf=conf, verbose=False)[0]
+    return nms_agnostic_keep_best(_digit_items(det), merge_iou)
+
+def predict_rois(img, conf=CONF_ROI, merge_iou=MERGE_IOU):
+    det = roi_model.predict(img, conf=conf, verbose=False)[0]
+    return nms_agnostic_keep_best(_roi_items(det), merge_iou)
+
+# Toplu çıkarım: birden çok görsel tek model çağrısında (CPU'da görsel başına daha ucuz)
+def predict_digits_batch(imgs, conf=CONF_DIGIT, merge_iou=MERGE_IOU):
+    dets = digit_model.predict(imgs, conf=conf, verbose=False)
+    return [nms_agnostic_keep_best(_digit_items(d), merge_iou) for d in dets]
+
+def predict_rois_batch(imgs, conf=CONF_ROI, merge_iou=MERGE_IOU):
+    dets = roi_model.predict(imgs, conf=conf, verbose=False)
+    return [nms_agnostic_keep_best(_roi_items(d), merge_iou) for d in dets]
 
 def process_image_to_csv(img_path, csv_writer, output_dir=OUTPUT_DIR,
-                         draw_axis=DEBUG_DRAW_AXIS, draw_index=DEBUG_DRAW_INDEX):
-    img = cv2.imread(img_path)
+                         draw_axis=DEBUG_DRAW_AXIS, draw_index=DEBUG_DRAW_INDEX, on_roi=None,
+                         img=None, digit_items=None, roi_items=None):
+    # img/digit_items/roi_items: toplu çıkarımda önceden hesaplanmış olarak gelir
+    if img is None:
+        img = cv2.imread(img_path)
     if img is None:
         print(f"Uyarı: Görsel okunamadı: {img_path}")
         return 0
 
-    digit_items = predict_digits(img)
-    roi_items   = predict_rois(img)
+    if digit_items is None:
+        digit_items = predict_digits(img)
+    if roi_items is None:
+        roi_items = predict_rois(img)
     roi_items, origin, axis_vec = order_rois_pca(roi_items, prefer_top_first=True)
 
     for idx, roi in enumerate(roi_items):
@@ -257,6 +277,8 @@ def process_image_to_csv(img_path, csv_writer, output_dir=OUTPUT_DIR,
 
         # CSV: image ; roi_index ; text  (ESKİ FORMAT)
         csv_writer.writerow([Path(img_path).name, idx, text if text else "-"])
+        if on_roi is not None:
+            on_roi(idx, text if text else "-")  # akış modu: ROI hazır olur olmaz bildir
 
     Path(output_dir).mkdir(exist_ok=True)
     out_path = Path(output_dir)/Path(img_path).name
@@ -278,18 +300,50 @@ def run_batch(images, output_dir=OUTPUT_DIR, csv_name=CSV_NAME):
     return csv_path, total_rows
 
 
-def run_single(image_path, output_dir=OUTPUT_DIR, csv_name=CSV_NAME):
+def run_single(image_path, output_dir=OUTPUT_DIR, csv_name=CSV_NAME, on_roi=None):
     Path(output_dir).mkdir(exist_ok=True)
     csv_path = Path(output_dir)/csv_name
     with open(csv_path, "w", newline="", encoding="utf-8") as f:
         w = csv.writer(f, delimiter=';')
         w.writerow(["image","roi_index","text"])  # eski başlık
-        n = process_image_to_csv(image_path, w, output_dir=output_dir)
+        n = process_image_to_csv(image_path, w, output_dir=output_dir, on_roi=on_roi)
         if n == 0:
             w.writerow([Path(image_path).name, -1, "-"])
+            if on_roi is not None:
+                on_roi(-1, "-")
     return csv_path, max(n, 1)
 
 
+def run_many(image_paths, output_dirs, csv_name=CSV_NAME):
+    """run_single'ın toplu hali: modeller tüm görseller için birer kez çağrılır,
+    her görsel kendi output_dir'ine CSV + debug görseli yazar. [(csv_path, rows), ...] döner."""
+    imgs = [cv2.imread(str(p)) for p in image_paths]
+    valid = [i for i, im in enumerate(imgs) if im is not None]
+    digits, rois = {}, {}
+    if valid:
+        batch = [imgs[i] for i in valid]
+        for i, d in zip(valid, predict_digits_batch(batch)):
+            digits[i] = d
+        for i, r in zip(valid, predict_rois_batch(batch)):
+            rois[i] = r
+
+    out = []
+    for i, (image_path, output_dir) in enumerate(zip(image_paths, output_dirs)):
+        Path(output_dir).mkdir(exist_ok=True)
+        csv_path = Path(output_dir)/csv_name
+        with open(csv_path, "w", newline="", encoding="utf-8") as f:
+            w = csv.writer(f, delimiter=';')
+            w.writerow(["image","roi_index","text"])  # eski başlık
+            n = 0
+            if i in digits:
+                n = process_image_to_csv(str(image_path), w, output_dir=output_dir,
+                                         img=imgs[i], digit_items=digits[i], roi_items=rois[i])
+            if n == 0:
+                w.writerow([Path(image_path).name, -1, "-"])
+        out.append((csv_path, max(n, 1)))
+    return out
+
+
 def csv_to_json(csv_path: Path):
     items = []
     with open(csv_path, "r", encoding="utf-8") as f:
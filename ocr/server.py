@@ -1,14 +1,17 @@
 # server.py
-import os, uuid, time
+import os, uuid, time, json, queue, threading, asyncio
+from concurrent.futures import ThreadPoolExecutor
+import urllib.request
 from pathlib import Path
-from fastapi import FastAPI, UploadFile, File, HTTPException, Header, Depends, Security
+from typing import List
+from fastapi import FastAPI, UploadFile, File, Form, HTTPException, Header, Depends, Security, BackgroundTasks
 from fastapi.middleware.cors import CORSMiddleware
-from fastapi.responses import JSONResponse
+from fastapi.responses import JSONResponse, StreamingResponse
 from fastapi.security.api_key import APIKeyHeader
 import uvicorn
 
 from OCR import (
-    ensure_models, run_single, csv_to_json,
+    ensure_models, run_single, run_many, csv_to_json,
     DIGIT_MODEL_PATH, ROI_MODEL_PATH # These are now absolute paths from OCR.py
 )
 
@@ -32,6 +35,14 @@ ensure_models(
     os.getenv("ROI_MODEL_PATH", ROI_MODEL_PATH)
 )
 
+# ultralytics modelleri paylaşımlı ve thread-safe değil: tüm çıkarımlar tek işçili bu havuzda sırayla koşar.
+# İstekler beklerken event loop ve Starlette threadpool'u serbest kalır.
+INFERENCE = ThreadPoolExecutor(max_workers=1, thread_name_prefix="ocr-infer")
+
+# Aynı anda kabul edilen /process_stream işi (kuyrukta bekleyenler dahil); aşılırsa 503 döner
+STREAM_MAX_JOBS = int(os.getenv("STREAM_MAX_JOBS", "4"))
+_stream_slots = threading.BoundedSemaphore(STREAM_MAX_JOBS)
+
 app = FastAPI(title="Slab OCR Service", version="1.0.0")
 
 # CORS (gerekirse domainini ekle)
@@ -54,6 +65,31 @@ def health():
     return {"ok": True}
 
 
+def _new_job_dir():
+    job_id = f"{int(time.time())}_{uuid.uuid4().hex[:8]}"
+    job_dir = OUTPUT_ROOT / job_id
+    job_dir.mkdir(parents=True, exist_ok=True)
+    return job_id, job_dir
+
+
+def _run_job(job_id, job_dir, in_path, filename):
+    # pipeline çalıştır → job_dir/results.csv + debug görseli
+    csv_path, rows = run_single(str(in_path), output_dir=str(job_dir), csv_name="results.csv")
+
+    # CSV → JSON
+    results = csv_to_json(Path(csv_path))
+
+    # Spring için sade bir payload
+    return {
+        "job_id": job_id,
+        "source_image": filename,
+        "results_csv": str(Path(csv_path).absolute()),
+        "saved_image": str((job_dir / filename).absolute()),
+        "count": rows,
+        "items": results
+    }
+
+
 @app.post("/process")
 async def process_image(
     file: UploadFile = File(...),
@@ -62,36 +98,141 @@ async def process_image(
 ):
     try:
         # job klasörü
-        job_id = f"{int(time.time())}_{uuid.uuid4().hex[:8]}"
-        job_dir = OUTPUT_ROOT / job_id
-        job_dir.mkdir(parents=True, exist_ok=True)
+        job_id, job_dir = _new_job_dir()
 
         # dosyayı kaydet
         in_path = job_dir / file.filename
         with in_path.open("wb") as f:
             f.write(await file.read())
 
-        # pipeline çalıştır → job_dir/results.csv + debug görseli
-        csv_path, rows = run_single(str(in_path), output_dir=str(job_dir), csv_name="results.csv")
-
-        # CSV → JSON
-        results = csv_to_json(Path(csv_path))
-
-        # Spring için sade bir payload
-        payload = {
-            "job_id": job_id,
-            "source_image": file.filename,
-            "results_csv": str(Path(csv_path).absolute()),
-            "saved_image": str((job_dir / file.filename).absolute()),
-            "count": rows,
-            "items": results
-        }
+        payload = await asyncio.get_running_loop().run_in_executor(
+            INFERENCE, _run_job, job_id, job_dir, in_path, file.filename)
         return JSONResponse(payload)
     except HTTPException:
         raise
     except Exception as e:
         raise HTTPException(status_code=500, detail=str(e))
 
+
+# Spring'in micro-batch dağıtıcısı: birden çok görsel tek model çağrısında işlenir.
+# Cevap: {"results": [...]} — sıra gelen dosya sırasıyla aynı, her eleman /process cevabı biçiminde
+@app.post("/process_batch")
+async def process_images_batch(
+    files: List[UploadFile] = File(...),
+    api_key: str = Depends(get_api_key) if API_TOKEN else None,
+):
+    try:
+        jobs = []
+        for file in files:
+            job_id, job_dir = _new_job_dir()
+            in_path = job_dir / file.filename
+            with in_path.open("wb") as f:
+                f.write(await file.read())
+            jobs.append((job_id, job_dir, in_path, file.filename))
+
+        outputs = await asyncio.get_running_loop().run_in_executor(
+            INFERENCE, lambda: run_many([j[2] for j in jobs], [str(j[1]) for j in jobs], csv_name="results.csv"))
+
+        results = []
+        for (job_id, job_dir, in_path, filename), (csv_path, rows) in zip(jobs, outputs):
+            results.append({
+                "job_id": job_id,
+                "source_image": filename,
+                "results_csv": str(Path(csv_path).absolute()),
+                "saved_image": str((job_dir / filename).absolute()),
+                "count": rows,
+                "items": csv_to_json(Path(csv_path)),
+            })
+        return JSONResponse({"results": results})
+    except HTTPException:
+        raise
+    except Exception as e:
+        raise HTTPException(status_code=500, detail=str(e))
+
+
+def _run_and_callback(job_id, job_dir, in_path, filename, callback_url):
+    # Starlette threadpool'unda koşar; model çağrısı yine tek çıkarım işçisinde sıraya girer
+    try:
+        payload = INFERENCE.submit(_run_job, job_id, job_dir, in_path, filename).result()
+    except Exception as e:
+        payload = {"job_id": job_id, "error": str(e)}
+    req = urllib.request.Request(
+        callback_url,
+        data=json.dumps(payload).encode("utf-8"),
+        headers={"Content-Type": "application/json", API_KEY_NAME: API_TOKEN or ""},
+        method="POST",
+    )
+    try:
+        urllib.request.urlopen(req, timeout=30).close()
+    except Exception as e:
+        print(f"UYARI: callback gönderilemedi ({callback_url}): {e}")
+
+
+# Spring job API'sinin callback modu: dosyayı al, 202 dön, sonucu callback_url'e POST et
+@app.post("/process_async", status_code=202)
+async def process_image_async(
+    background: BackgroundTasks,
+    file: UploadFile = File(...),
+    callback_url: str = Form(...),
+    api_key: str = Depends(get_api_key) if API_TOKEN else None,
+):
+    job_id, job_dir = _new_job_dir()
+    in_path = job_dir / file.filename
+    with in_path.open("wb") as f:
+        f.write(await file.read())
+    background.add_task(_run_and_callback, job_id, job_dir, in_path, file.filename, callback_url)
+    return {"job_id": job_id, "accepted": True}
+
+# Akış modu (NDJSON): her ROI hazır olunca {"type":"item",...}, en sonda {"type":"done",...} satırı
+@app.post("/process_stream")
+async def process_image_stream(
+    file: UploadFile = File(...),
+    api_key: str = Depends(get_api_key) if API_TOKEN else None,
+):
+    if not _stream_slots.acquire(blocking=False):
+        raise HTTPException(status_code=503, detail="Çok fazla eşzamanlı akış işi")
+    try:
+        job_id, job_dir = _new_job_dir()
+        in_path = job_dir / file.filename
+        with in_path.open("wb") as f:
+            f.write(await file.read())
+    except Exception:
+        _stream_slots.release()
+        raise
+
+    events = queue.Queue()
+
+    def on_roi(idx, text):
+        events.put({"type": "item", "image": file.filename, "roi_index": idx, "line_index": -1, "text": text})
+
+    def worker():
+        try:
+            csv_path, rows = run_single(str(in_path), output_dir=str(job_dir), csv_name="results.csv", on_roi=on_roi)
+            events.put({
+                "type": "done",
+                "job_id": job_id,
+                "source_image": file.filename,
+                "results_csv": str(Path(csv_path).absolute()),
+                "saved_image": str((job_dir / file.filename).absolute()),
+                "count": rows,
+            })
+        except Exception as e:
+            events.put({"type": "done", "job_id": job_id, "error": str(e)})
+        finally:
+            _stream_slots.release()
+            events.put(None)
+
+    INFERENCE.submit(worker)
+
+    def lines():
+        while True:
+            ev = events.get()
+            if ev is None:
+                return
+            yield json.dumps(ev, ensure_ascii=False) + "\n"
+
+    return StreamingResponse(lines(), media_type="application/x-ndjson")
+
 if __name__ == "__main__":
     uvicorn.run("server:app", host="0.0.0.0", port=8000, reload=False)
 # server.py
\ No newline at end of file